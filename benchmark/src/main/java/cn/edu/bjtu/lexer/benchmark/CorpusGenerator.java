@@ -0,0 +1,245 @@
+package cn.edu.bjtu.lexer.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+/**
+ * A {@code CorpusGenerator} object generates C-like content for the benchmarks, which is reproducible by the seed.
+ * <p>
+ * The content is made up of units of four kinds, whose proportions are given by a mix
+ * in the form of {@code "comments:literals:identifiers:operators"}, e.g., {@code "10:20:45:25"}:
+ * <ul>
+ *     <li>Comments: inline and block comments, and preprocessor directives.</li>
+ *     <li>Literals: numbers of all the kinds, strings with escapes and characters.</li>
+ *     <li>Identifiers: keywords, and identifiers from a vocabulary of a given size.</li>
+ *     <li>Operators: operators, and delimiters which are always paired.</li>
+ * </ul>
+ * The units are separated by white spaces, so that each unit is scanned as exactly one token,
+ * and the number of tokens of the content is exactly the one asked for.
+ * <p>
+ * To write a corpus to a file:
+ * <pre>
+ *     java cn.edu.bjtu.lexer.benchmark.CorpusGenerator &lt;file&gt; &lt;tokens&gt; [mix] [seed]
+ * </pre>
+ */
+public final class CorpusGenerator {
+
+    /**
+     * The default mix, which is close to ordinary C code.
+     */
+    public static final String DEFAULT_MIX = "10:20:45:25";
+    public static final long DEFAULT_SEED = 20240101L;
+    public static final int DEFAULT_VOCABULARY = 500;
+
+    private static final String[] KEYWORDS = {
+        "int", "char", "void", "return", "if", "else", "while", "for", "struct", "static",
+        "const", "unsigned", "sizeof", "break", "case", "switch", "long", "double", "typedef", "enum"
+    };
+    private static final String[] NUMBERS = {
+        "0", "1", "42", "1024", "0x1F", "0xff", "017", "3.14", "0.5", "2.5f", "10L", "7u", "100LL"
+    };
+    private static final String[] STRINGS = {
+        "\"hello, world\\n\"", "\"%d: %s\\t\"", "\"\"", "\"path/to/file.c\"", "\"quote \\\" inside\""
+    };
+    private static final String[] CHARACTERS = {
+        "'a'", "'\\n'", "'\\0'", "'\\''", "'Z'"
+    };
+    private static final String[] COMMENTS = {
+        "/* block comment */", "/* multi-line\n * block comment\n */", "/**/"
+    };
+    private static final String[] INLINE_COMMENTS = {
+        "// inline comment", "// TODO: remove this", "//"
+    };
+    private static final String[] DIRECTIVES = {
+        "#include <stdio.h>", "#define BUFFER_SIZE 4096", "#ifdef DEBUG", "#endif"
+    };
+    private static final String[] OPERATORS = {
+        "+", "-", "*", "/", "%", "=", "==", "!=", "<", ">", "<=", ">=", "&&", "||", "!",
+        "&", "|", "^", "~", "<<", ">>", "+=", "-=", "*=", "++", "--", "->"
+    };
+    private static final String[] SEPARATORS = {",", ";", ":", "?", "."};
+    private static final String OPENINGS = "([{";
+    private static final String CLOSINGS = ")]}";
+
+    private final Random random;
+    private final int[] weights = new int[4];
+    private final String[] vocabulary;
+
+    /**
+     * Constructs a new {@code CorpusGenerator} object with the default vocabulary size.
+     *
+     * @param mix  Proportions of comments, literals, identifiers and operators, e.g., {@code "10:20:45:25"}.
+     * @param seed Seed of the random numbers.
+     */
+    public CorpusGenerator(String mix, long seed) {
+        this(mix, seed, DEFAULT_VOCABULARY);
+    }
+
+    /**
+     * Constructs a new {@code CorpusGenerator} object.
+     *
+     * @param mix        Proportions of comments, literals, identifiers and operators, e.g., {@code "10:20:45:25"}.
+     * @param seed       Seed of the random numbers.
+     * @param vocabulary Number of distinct identifiers.
+     */
+    public CorpusGenerator(String mix, long seed, int vocabulary) {
+        String[] parts = mix.split(":");
+        if (parts.length != weights.length) {
+            throw new IllegalArgumentException("Mix must be comments:literals:identifiers:operators: " + mix);
+        }
+        int total = 0;
+        for (int i = 0; i < parts.length; i++) {
+            weights[i] = Integer.parseInt(parts[i].trim());
+            if (weights[i] < 0) {
+                throw new IllegalArgumentException("Proportion must not be negative: " + mix);
+            }
+            total += weights[i];
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("Proportions must not be all zero: " + mix);
+        }
+        if (vocabulary <= 0) {
+            throw new IllegalArgumentException("Vocabulary must be positive: " + vocabulary);
+        }
+        this.random = new Random(seed);
+        this.vocabulary = new String[vocabulary];
+        for (int i = 0; i < vocabulary; i++) {
+            this.vocabulary[i] = newIdentifier(i);
+        }
+    }
+
+    /**
+     * Generate an identifier for the vocabulary, which is never a keyword.
+     *
+     * @param i Index in the vocabulary.
+     * @return The identifier.
+     */
+    private String newIdentifier(int i) {
+        String[] stems = {"buf", "count", "node", "len", "ptr", "value", "next", "size", "tmp", "result"};
+        StringBuilder builder = new StringBuilder(stems[i % stems.length]);
+        if (i >= stems.length) {
+            builder.append(random.nextBoolean() ? '_' : 'X').append(i / stems.length);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Generate a content with exactly the given number of tokens.
+     *
+     * @param tokens Number of tokens.
+     * @return The content.
+     */
+    public String generate(int tokens) {
+        StringBuilder builder = new StringBuilder(tokens * 6);
+        Deque<Character> open = new ArrayDeque<>();
+        int total = weights[0] + weights[1] + weights[2] + weights[3];
+        for (int count = 0; count < tokens; count++) {
+            int remaining = tokens - count;
+            if (remaining == open.size()) {
+                builder.append(open.pop());
+                separate(builder);
+                continue;
+            }
+            int k = random.nextInt(total);
+            if (k < weights[0]) {
+                appendComment(builder);
+            } else if ((k -= weights[0]) < weights[1]) {
+                appendLiteral(builder);
+            } else if ((k -= weights[1]) < weights[2]) {
+                builder.append(random.nextInt(4) == 0 ? pick(KEYWORDS) : pick(vocabulary));
+            } else {
+                int choice = random.nextInt(8);
+                if (choice == 0 && remaining - open.size() >= 2) {
+                    int i = random.nextInt(OPENINGS.length());
+                    builder.append(OPENINGS.charAt(i));
+                    open.push(CLOSINGS.charAt(i));
+                } else if (choice == 1 && !open.isEmpty()) {
+                    builder.append(open.pop());
+                } else if (choice < 4) {
+                    builder.append(pick(SEPARATORS));
+                } else {
+                    builder.append(pick(OPERATORS));
+                }
+            }
+            separate(builder);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Append a comment or a preprocessor directive, followed by a line feed if it ends at the end of line.
+     *
+     * @param builder The content being generated.
+     */
+    private void appendComment(StringBuilder builder) {
+        int choice = random.nextInt(3);
+        if (choice == 0) {
+            builder.append(pick(COMMENTS));
+        } else {
+            builder.append(choice == 1 ? pick(INLINE_COMMENTS) : pick(DIRECTIVES)).append('\n');
+        }
+    }
+
+    /**
+     * Append a number, string or character literal.
+     *
+     * @param builder The content being generated.
+     */
+    private void appendLiteral(StringBuilder builder) {
+        int choice = random.nextInt(4);
+        if (choice < 2) {
+            builder.append(pick(NUMBERS));
+        } else if (choice == 2) {
+            builder.append(pick(STRINGS));
+        } else {
+            builder.append(pick(CHARACTERS));
+        }
+    }
+
+    /**
+     * Append a white space between tokens, which is a line feed sometimes.
+     *
+     * @param builder The content being generated.
+     */
+    private void separate(StringBuilder builder) {
+        int choice = random.nextInt(12);
+        builder.append(choice == 0 ? "\n" : choice == 1 ? "\n    " : " ");
+    }
+
+    /**
+     * Pick a string at random.
+     *
+     * @param strings Strings to pick from.
+     * @return The picked string.
+     */
+    private String pick(String[] strings) {
+        return strings[random.nextInt(strings.length)];
+    }
+
+    /**
+     * Write a corpus to a file in the default charset.
+     *
+     * @param args File, number of tokens, and optionally the mix and the seed.
+     * @throws IOException If an I/O error occurs when writing.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: CorpusGenerator <file> <tokens> [mix] [seed]");
+            return;
+        }
+        Path path = Paths.get(args[0]);
+        int tokens = Integer.parseInt(args[1]);
+        String mix = args.length > 2 ? args[2] : DEFAULT_MIX;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SEED;
+        String content = new CorpusGenerator(mix, seed).generate(tokens);
+        Files.write(path, content.getBytes(Charset.defaultCharset()));
+        System.out.printf("%d tokens, %d characters written to %s\n", tokens, content.length(), path);
+    }
+
+}
@@ -0,0 +1,74 @@
+package cn.edu.bjtu.lexer.benchmark;
+
+import cn.edu.bjtu.lexer.ResultSet;
+import cn.edu.bjtu.lexer.impl.CharSequenceSource;
+import cn.edu.bjtu.lexer.impl.ColumnarResultSet;
+import cn.edu.bjtu.lexer.impl.LexerImpl;
+import cn.edu.bjtu.lexer.impl.ResultSetFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of rendering the results of {@value #TOKENS} tokens by {@link ResultSetFactory},
+ * in rows per second. The streaming ones write to a {@code Writer} which discards the characters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(RenderBenchmark.TOKENS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+
+    static final int TOKENS = 10_000;
+
+    private final ResultSet rs = new ColumnarResultSet();
+    private final Writer writer = Writer.nullWriter();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String content = new CorpusGenerator(CorpusGenerator.DEFAULT_MIX, CorpusGenerator.DEFAULT_SEED).generate(TOKENS);
+        new LexerImpl(new CharSequenceSource(content), rs).scan();
+    }
+
+    @Benchmark
+    public String toStringTable() {
+        return ResultSetFactory.toString(rs);
+    }
+
+    @Benchmark
+    public String toHtml() {
+        return ResultSetFactory.toHtml(rs);
+    }
+
+    @Benchmark
+    public String toMarkdown() {
+        return ResultSetFactory.toMarkdown(rs);
+    }
+
+    @Benchmark
+    public void writeString() throws IOException {
+        ResultSetFactory.writeString(rs, writer);
+    }
+
+    @Benchmark
+    public void writeHtml() throws IOException {
+        ResultSetFactory.writeHtml(rs, writer);
+    }
+
+}
@@ -0,0 +1,144 @@
+package cn.edu.bjtu.lexer.benchmark;
+
+import cn.edu.bjtu.lexer.Lexer;
+import cn.edu.bjtu.lexer.TokenListener;
+import cn.edu.bjtu.lexer.impl.CharSequenceSource;
+import cn.edu.bjtu.lexer.impl.ColumnarResultSet;
+import cn.edu.bjtu.lexer.impl.DfaLexer;
+import cn.edu.bjtu.lexer.impl.LexerImpl;
+import cn.edu.bjtu.lexer.impl.MappedCharSource;
+import cn.edu.bjtu.lexer.impl.SliceResultSet;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link LexerImpl#scan()} over a generated corpus of {@value #TOKENS} tokens
+ * from different sources into different {@code ResultSet} objects.
+ * <p>
+ * Since each invocation scans {@value #TOKENS} tokens, the score is in tokens per second, and
+ * {@code gc.alloc.rate.norm} of {@code -prof gc} is the number of bytes allocated per token.
+ * The {@code bytes} counter is the throughput in bytes of the content per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ScanBenchmark.TOKENS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScanBenchmark {
+
+    static final int TOKENS = 100_000;
+
+    /**
+     * Proportions of comments, literals, identifiers and operators, see {@link CorpusGenerator}.
+     */
+    @Param({CorpusGenerator.DEFAULT_MIX, "40:10:30:20", "5:45:25:25"})
+    public String mix;
+
+    private String content;
+    private Path file;
+
+    /**
+     * Counts the bytes of the content scanned.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+
+        public long bytes;
+
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        content = new CorpusGenerator(mix, CorpusGenerator.DEFAULT_SEED).generate(TOKENS);
+        file = Files.createTempFile("corpus", ".c");
+        Files.write(file, content.getBytes(Charset.defaultCharset()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Lexer scanString(Counters counters) throws IOException {
+        counters.bytes += content.length();
+        return new LexerImpl(new CharSequenceSource(content)).scan();
+    }
+
+    @Benchmark
+    public Lexer scanStringColumnar(Counters counters) throws IOException {
+        counters.bytes += content.length();
+        return new LexerImpl(new CharSequenceSource(content), new ColumnarResultSet()).scan();
+    }
+
+    @Benchmark
+    public Lexer scanStringDfa(Counters counters) throws IOException {
+        counters.bytes += content.length();
+        return new DfaLexer(new CharSequenceSource(content), new ColumnarResultSet()).scan();
+    }
+
+    @Benchmark
+    public void scanStringListener(Counters counters, Blackhole blackhole) throws IOException {
+        counters.bytes += content.length();
+        TokenListener listener = (begin, end, type, token) -> blackhole.consume(token);
+        new LexerImpl(new CharSequenceSource(content)).scan(listener);
+    }
+
+    @Benchmark
+    public Lexer scanFile(Counters counters) throws IOException {
+        counters.bytes += content.length();
+        Lexer lexer = new LexerImpl(file);
+        try {
+            return lexer.scan();
+        } finally {
+            lexer.close();
+        }
+    }
+
+    @Benchmark
+    public Lexer scanMappedColumnar(Counters counters) throws IOException {
+        counters.bytes += content.length();
+        Lexer lexer = new LexerImpl(new MappedCharSource(file), new ColumnarResultSet());
+        try {
+            return lexer.scan();
+        } finally {
+            lexer.close();
+        }
+    }
+
+    @Benchmark
+    public Lexer scanMappedSlices(Counters counters) throws IOException {
+        counters.bytes += content.length();
+        MappedCharSource source = new MappedCharSource(file);
+        Lexer lexer = new LexerImpl(source, new SliceResultSet(source));
+        try {
+            return lexer.scan();
+        } finally {
+            lexer.close();
+        }
+    }
+
+}
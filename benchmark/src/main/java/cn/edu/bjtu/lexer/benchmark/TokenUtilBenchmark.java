@@ -0,0 +1,112 @@
+package cn.edu.bjtu.lexer.benchmark;
+
+import cn.edu.bjtu.lexer.TokenType;
+import cn.edu.bjtu.lexer.impl.TokenTypeImpl;
+import cn.edu.bjtu.lexer.impl.TokenUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the classification of tokens in {@link TokenUtil}, in nanoseconds per token.
+ * <p>
+ * {@link TokenUtilBenchmark#numberRegex(Blackhole)} is the classification of numbers by the regular expressions
+ * which {@link TokenUtil#getNumberTokenType(CharSequence)} used before it became an automaton, as the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(TokenUtilBenchmark.SAMPLES)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenUtilBenchmark {
+
+    static final int SAMPLES = 16;
+
+    private static final String PATTERN_NUMBER_INTEGER = "^0|[1-9][0-9]*$";
+    private static final String PATTERN_NUMBER_FLOAT = "(?i)(^[0-9]*\\.[0-9]+f?$)|(^0|[1-9][0-9]*f$)";
+    private static final String PATTERN_NUMBER_LONG = "(?i)(^0l$)|(^[1-9][0-9]*l$)";
+    private static final String PATTERN_NUMBER_LONG_LONG = "(?i)(^0ll$)|(^[1-9][0-9]*ll$)";
+    private static final String PATTERN_NUMBER_UNSIGNED = "(?i)(^0u|[1-9][0-9]*u$)";
+    private static final String PATTERN_NUMBER_OCTAL = "^0[1-7][0-7]*$";
+    private static final String PATTERN_NUMBER_HEXADECIMAL = "(?i)^0x[1-9a-f][0-9a-f]*$";
+
+    private final String[] numbers = {
+        "0", "1", "42", "1024", "0x1F", "0xff", "017", "3.14",
+        "0.5", "2.5f", "10L", "7u", "100LL", "08", "12abc", "0x"
+    };
+    private final String[] words = {
+        "int", "return", "buf", "count_3", "while", "unsigned", "node", "sizeof",
+        "x", "typedef", "value_17", "struct", "nextX31", "static", "len", "enum"
+    };
+    private final String[] operators = {
+        "+", "-", "==", "!=", "<<=", ">>", "&&", "||",
+        "->", "++", "&^=", "=>", "!!", "*", "%=", "~"
+    };
+
+    @Benchmark
+    public void number(Blackhole blackhole) {
+        for (String number : numbers) {
+            blackhole.consume(TokenUtil.getNumberTokenType(number));
+        }
+    }
+
+    @Benchmark
+    public void numberRegex(Blackhole blackhole) {
+        for (String number : numbers) {
+            blackhole.consume(getNumberTokenTypeByRegex(number));
+        }
+    }
+
+    @Benchmark
+    public void keyword(Blackhole blackhole) {
+        for (String word : words) {
+            blackhole.consume(TokenUtil.getKeywordTokenType(word));
+        }
+    }
+
+    @Benchmark
+    public void operator(Blackhole blackhole) {
+        for (String operator : operators) {
+            blackhole.consume(TokenUtil.getOperatorTokenType(operator));
+        }
+    }
+
+    /**
+     * Get the token type of number in string by the regular expressions.
+     *
+     * @param token Number in string to get the token type.
+     * @return The corresponding token type of the number in string.
+     */
+    private static TokenType getNumberTokenTypeByRegex(String token) {
+        if (token.matches(PATTERN_NUMBER_INTEGER)) {
+            return TokenTypeImpl.NUMBER_INTEGER;
+        } else if (token.matches(PATTERN_NUMBER_FLOAT)) {
+            return TokenTypeImpl.NUMBER_FLOAT;
+        } else if (token.matches(PATTERN_NUMBER_LONG)) {
+            return TokenTypeImpl.NUMBER_LONG;
+        } else if (token.matches(PATTERN_NUMBER_LONG_LONG)) {
+            return TokenTypeImpl.NUMBER_LONG_LONG;
+        } else if (token.matches(PATTERN_NUMBER_UNSIGNED)) {
+            return TokenTypeImpl.NUMBER_UNSIGNED;
+        } else if (token.matches(PATTERN_NUMBER_OCTAL)) {
+            return TokenTypeImpl.NUMBER_OCTAL;
+        } else if (token.matches(PATTERN_NUMBER_HEXADECIMAL)) {
+            return TokenTypeImpl.NUMBER_HEXADECIMAL;
+        } else {
+            return TokenTypeImpl.ILLEGAL;
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Diagnostic;
+import cn.edu.bjtu.lexer.ResultSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests of {@link BatchLexer}.
+ */
+class BatchLexerTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Write files of different sizes, in the reverse order of their names, so that the order of the paths
+     * is neither the order of the names nor the order of the sizes.
+     */
+    private List<Path> files(int n) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        for (int i = n - 1; i >= 0; i--) {
+            paths.add(Files.writeString(directory.resolve(i + ".c"), TestContents.random(i, 20 + (i * 37) % 300)));
+        }
+        return paths;
+    }
+
+    private static String scanSequentially(Path path) throws IOException {
+        ResultSetImpl rs = new ResultSetImpl();
+        new LexerImpl(path, rs).setDiagnostics(null).scan().close();
+        return ResultSetFactory.toString(rs);
+    }
+
+    @Test
+    void resultsAreInOrderOfPaths() throws IOException {
+        List<Path> paths = files(32);
+        try (BatchLexer batch = new BatchLexer(4)) {
+            Map<Path, ResultSet> results = batch.setDiagnostics(null).scan(paths);
+            assertEquals(paths, new ArrayList<>(results.keySet()));
+            long bytes = 0;
+            long tokens = 0;
+            for (Path path : paths) {
+                assertEquals(scanSequentially(path), ResultSetFactory.toString(results.get(path)), path.toString());
+                bytes += Files.size(path);
+                tokens += results.get(path).size();
+            }
+            BatchReport report = batch.getReport();
+            assertEquals(paths.size(), report.getFiles());
+            assertEquals(bytes, report.getBytes());
+            assertEquals(tokens, report.getTokens());
+        }
+    }
+
+    @Test
+    void streamingIsSameAsSequential() throws IOException {
+        List<Path> paths = files(32);
+        Map<Path, ResultSetImpl> results = new ConcurrentHashMap<>();
+        try (BatchLexer batch = new BatchLexer(4)) {
+            batch.setDiagnostics(null).scan(paths, path -> results.computeIfAbsent(path, p -> new ResultSetImpl())::append);
+            long tokens = 0;
+            for (Path path : paths) {
+                assertEquals(scanSequentially(path), ResultSetFactory.toString(results.get(path)), path.toString());
+                tokens += results.get(path).size();
+            }
+            assertEquals(tokens, batch.getReport().getTokens());
+        }
+    }
+
+    @Test
+    void missingFileIsThrown() throws IOException {
+        List<Path> paths = files(8);
+        paths.add(3, directory.resolve("missing.c"));
+        try (BatchLexer batch = new BatchLexer(4)) {
+            assertThrows(IOException.class, () -> batch.scan(paths));
+            assertThrows(IOException.class, () -> batch.scan(paths, path -> (begin, end, type, token) -> {
+            }));
+        }
+    }
+
+    @Test
+    void errorsAreReportedByDefault() throws IOException {
+        Path path = Files.writeString(directory.resolve("a.c"), "int a; { /* x");
+        try (BatchLexer batch = new BatchLexer(2)) {
+            batch.scan(Collections.singletonList(path));
+            List<Diagnostic> diagnostics = batch.getDiagnostics().drain();
+            assertEquals(2, diagnostics.size(), diagnostics.toString());
+            batch.scan(Collections.singletonList(path), file -> (begin, end, type, token) -> {
+            });
+            assertEquals(2, batch.getDiagnostics().drain().size());
+            batch.setDiagnostics(null).scan(Collections.singletonList(path));
+        }
+    }
+
+}
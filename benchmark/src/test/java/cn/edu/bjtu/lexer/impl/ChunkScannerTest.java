@@ -0,0 +1,125 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Diagnostic;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests of {@link ChunkScanner} through {@link LexerImpl#scan(int)}, whose results must be the same as the ones of
+ * the sequential scan for any number of chunks.
+ */
+class ChunkScannerTest {
+
+    private static final int[] CHUNKS = {1, 2, 3, 7, 64, 1000};
+
+    /**
+     * Scan a content in parallel and compare the results and the lines with the ones of the sequential scan.
+     *
+     * @param content The content.
+     * @param chunks  Number of chunks.
+     */
+    private static void assertSameAsSequential(String content, int chunks) throws IOException {
+        ResultSetImpl expected = new ResultSetImpl();
+        LineIndex lines = TestContents.scan(content, expected).getLineIndex();
+        ResultSetImpl actual = new ResultSetImpl();
+        LexerImpl lexer = new LexerImpl(new CharSequenceSource(content), actual);
+        lexer.scan(chunks);
+        String message = chunks + " chunks";
+        assertEquals(ResultSetFactory.toString(expected), ResultSetFactory.toString(actual), message);
+        assertEquals(lines.getLastRow(), lexer.getLineIndex().getLastRow(), message);
+        for (int row = lines.getFirstRow(); row <= lines.getLastRow(); row++) {
+            assertEquals(lines.getLineStart(row), lexer.getLineIndex().getLineStart(row), message);
+        }
+    }
+
+    @Test
+    void corpusMatchesSequentialScan() throws IOException {
+        String content = TestContents.corpus(20000);
+        for (int chunks : CHUNKS) {
+            assertSameAsSequential(content, chunks);
+        }
+    }
+
+    @Test
+    void tokensCrossingChunksMatchSequentialScan() throws IOException {
+        // Random fragments leave many comments, strings and characters open across the chunk boundaries
+        for (long seed = 0; seed < 50; seed++) {
+            String content = TestContents.random(seed, 2000);
+            for (int chunks : CHUNKS) {
+                assertSameAsSequential(content, chunks);
+            }
+        }
+    }
+
+    @Test
+    void blockCommentCoveringChunksMatchesSequentialScan() throws IOException {
+        StringBuilder builder = new StringBuilder("int a;\n/*\n");
+        for (int i = 0; i < 1000; i++) {
+            builder.append("int b = \"*/\";\n");
+        }
+        builder.append("*/ int c;\n");
+        for (int chunks : CHUNKS) {
+            assertSameAsSequential(builder.toString(), chunks);
+            assertSameAsSequential(builder.substring(0, builder.length() - 11), chunks);
+        }
+    }
+
+    @Test
+    void skippedTypesMatchSequentialScan() throws IOException {
+        String content = TestContents.corpus(20000);
+        ResultSetImpl expected = new ResultSetImpl();
+        new LexerImpl(new CharSequenceSource(content), expected)
+            .setSkipped(TokenTypeImpl.BLOCK_COMMENT, TokenTypeImpl.INLINE_COMMENT).scan();
+        for (int chunks : CHUNKS) {
+            ResultSetImpl actual = new ResultSetImpl();
+            new LexerImpl(new CharSequenceSource(content), actual)
+                .setSkipped(TokenTypeImpl.BLOCK_COMMENT, TokenTypeImpl.INLINE_COMMENT).scan(chunks);
+            assertEquals(ResultSetFactory.toString(expected), ResultSetFactory.toString(actual), chunks + " chunks");
+        }
+    }
+
+    private static String scanErrors(String content, int chunks) throws IOException {
+        DiagnosticSink diagnostics = new DiagnosticSink(Integer.MAX_VALUE);
+        LexerImpl lexer = new LexerImpl(new CharSequenceSource(content), new ResultSetImpl())
+            .setSkipped(TokenTypeImpl.BLOCK_COMMENT).setDiagnostics(diagnostics).setName("a.c");
+        if (chunks > 0) {
+            lexer.scan(chunks);
+        } else {
+            lexer.scan();
+        }
+        List<Diagnostic> errors = diagnostics.drain();
+        return errors.stream().map(Diagnostic::toString).collect(Collectors.joining("\n"));
+    }
+
+    @Test
+    void errorsMatchSequentialScan() throws IOException {
+        // Errors of the skipped comments are reported too, and every error has its position
+        for (long seed = 0; seed < 50; seed++) {
+            String content = TestContents.random(seed, 2000) + "\n} ) ]\n{ ( [";
+            String expected = scanErrors(content, 0);
+            for (int chunks : CHUNKS) {
+                assertEquals(expected, scanErrors(content, chunks), seed + " seed, " + chunks + " chunks");
+            }
+        }
+    }
+
+    @Test
+    void emptyContentMatchesSequentialScan() throws IOException {
+        for (int chunks : CHUNKS) {
+            assertSameAsSequential("", chunks);
+            assertSameAsSequential("\n", chunks);
+        }
+    }
+
+    @Test
+    void nonPositiveChunksAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new LexerImpl(new CharSequenceSource("int a;")).scan(0));
+    }
+
+}
@@ -0,0 +1,58 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Diagnostic;
+import cn.edu.bjtu.lexer.Lexer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Differential tests of {@link DfaLexer} with the standard table against {@link LexerImpl},
+ * whose results and errors must be the same.
+ */
+class DfaLexerTest {
+
+    private static String toString(List<Diagnostic> diagnostics) {
+        return diagnostics.stream().map(Diagnostic::toString).collect(Collectors.joining("\n"));
+    }
+
+    private static void assertSameAsLexerImpl(String content) throws IOException {
+        ResultSetImpl expected = new ResultSetImpl();
+        DiagnosticSink expectedErrors = new DiagnosticSink(Integer.MAX_VALUE);
+        new LexerImpl(new CharSequenceSource(content), expected).setDiagnostics(expectedErrors).setName("a.c").scan();
+        ResultSetImpl actual = new ResultSetImpl();
+        DiagnosticSink actualErrors = new DiagnosticSink(Integer.MAX_VALUE);
+        Lexer lexer = new DfaLexer(new CharSequenceSource(content), actual).setDiagnostics(actualErrors).setName("a.c");
+        lexer.scan();
+        assertEquals(ResultSetFactory.toString(expected), ResultSetFactory.toString(actual));
+        assertEquals(toString(expectedErrors.drain()), toString(actualErrors.drain()));
+    }
+
+    @Test
+    void corpusMatchesLexerImpl() throws IOException {
+        assertSameAsLexerImpl(TestContents.corpus(20000));
+    }
+
+    @Test
+    void randomContentsMatchLexerImpl() throws IOException {
+        for (long seed = 0; seed < 50; seed++) {
+            assertSameAsLexerImpl(TestContents.random(seed, 500));
+        }
+    }
+
+    @Test
+    void literalsAndCommentsMatchLexerImpl() throws IOException {
+        String[] contents = {
+            "", "\"\"", "\"a\\\"b\"", "\"open\n", "\"open", "\"a\\", "'a'", "'\\''", "'ab'", "''", "'", "'a\n",
+            "/**/", "/* a */ b", "/*/", "/* a", "/* a *", "/", "// a\nb", "{[(", ")]}", "{)}(", "@$ `"
+        };
+        for (String content : contents) {
+            assertSameAsLexerImpl(content);
+        }
+    }
+
+}
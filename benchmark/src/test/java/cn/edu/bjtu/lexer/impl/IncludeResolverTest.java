@@ -0,0 +1,176 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Position;
+import cn.edu.bjtu.lexer.TokenType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link IncludeResolver}: the cache of the headers, and the expansion of the translation units.
+ */
+class IncludeResolverTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * A {@code Listener} object recording the events of an expansion, where the files are named relative to
+     * the temporary directory, and only the tokens which are not preprocessors are recorded.
+     */
+    private final class Recorder implements IncludeResolver.Listener {
+
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onEnter(Path file) {
+            events.add("enter " + name(file));
+        }
+
+        @Override
+        public void onExit(Path file) {
+            events.add("exit " + name(file));
+        }
+
+        @Override
+        public void onUnresolved(Path file, String name) {
+            events.add("unresolved " + name);
+        }
+
+        @Override
+        public void onToken(Position begin, Position end, TokenType type, String token) {
+            if (type == TokenTypeImpl.IDENTIFIER) {
+                events.add(token);
+            }
+        }
+
+        private String name(Path file) {
+            return directory.relativize(file).toString().replace('\\', '/');
+        }
+
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path path = directory.resolve(name);
+        Files.createDirectories(path.getParent());
+        return Files.writeString(path, content);
+    }
+
+    private List<String> expand(IncludeResolver resolver, Path unit) throws IOException {
+        Recorder recorder = new Recorder();
+        resolver.expand(unit, recorder);
+        return recorder.events;
+    }
+
+    @Test
+    void headerIsScannedOnce() throws IOException {
+        Path path = Files.writeString(directory.resolve("a.h"), "int a;\n");
+        IncludeResolver resolver = new IncludeResolver(Collections.emptyList()).setDiagnostics(null);
+        IncludeResolver.Header header = resolver.getHeader(path);
+        assertSame(header, resolver.getHeader(path));
+        assertEquals(1, resolver.size());
+        assertEquals(1, resolver.getHits());
+    }
+
+    @Test
+    void errorsAreReportedByDefault() throws IOException {
+        Path path = Files.writeString(directory.resolve("c.h"), "int c; { /* x");
+        IncludeResolver resolver = new IncludeResolver(Collections.emptyList());
+        resolver.getHeader(path);
+        assertEquals(2, resolver.getDiagnostics().drain().size());
+    }
+
+    @Test
+    void failedHeaderIsScannedAgain() throws IOException {
+        Path path = directory.resolve("b.h");
+        IncludeResolver resolver = new IncludeResolver(Collections.emptyList()).setDiagnostics(null);
+        assertThrows(IOException.class, () -> resolver.getHeader(path));
+        assertEquals(0, resolver.size());
+        Files.writeString(path, "int b;\n");
+        assertEquals(path, resolver.getHeader(path).getPath());
+        assertEquals(1, resolver.size());
+    }
+
+    @Test
+    void guardedHeaderIsExpandedOnce() throws IOException {
+        write("a.h", "#ifndef A_H\n#define A_H\nint a;\n#endif\n");
+        write("b.h", "/* b */\n#if !defined(B_H)\n#define B_H\nint b;\n#endif // B_H\n");
+        Path unit = write("u.c", "#include \"a.h\"\n#include \"b.h\"\n#include \"a.h\"\n#include \"b.h\"\nint u;\n");
+        IncludeResolver resolver = new IncludeResolver(Collections.emptyList());
+        assertEquals(Arrays.asList("enter u.c", "enter a.h", "a", "exit a.h", "enter b.h", "b", "exit b.h", "u", "exit u.c"),
+            expand(resolver, unit));
+        assertTrue(resolver.getHeader(directory.resolve("a.h")).isGuarded());
+        assertTrue(resolver.getHeader(directory.resolve("b.h")).isGuarded());
+    }
+
+    @Test
+    void guardFollowedByCodeIsNotGuard() throws IOException {
+        write("c.h", "#ifndef C_H\n#define C_H\nint c;\n#endif\nint d;\n");
+        Path unit = write("u.c", "#include \"c.h\"\n#include \"c.h\"\n");
+        IncludeResolver resolver = new IncludeResolver(Collections.emptyList());
+        assertEquals(Arrays.asList("enter u.c", "enter c.h", "c", "d", "exit c.h", "enter c.h", "c", "d", "exit c.h", "exit u.c"),
+            expand(resolver, unit));
+        assertFalse(resolver.getHeader(directory.resolve("c.h")).isGuarded());
+    }
+
+    @Test
+    void pragmaOnceHeaderIsExpandedOnce() throws IOException {
+        write("p.h", "#pragma once\nint p;\n");
+        Path unit = write("u.c", "#include \"p.h\"\n#include \"p.h\"\n");
+        assertEquals(Arrays.asList("enter u.c", "enter p.h", "p", "exit p.h", "exit u.c"),
+            expand(new IncludeResolver(Collections.emptyList()), unit));
+    }
+
+    @Test
+    void cycleStops() throws IOException {
+        write("x.h", "int x;\n#include \"y.h\"\n");
+        write("y.h", "int y;\n#include \"x.h\"\n");
+        Path unit = write("u.c", "#include \"x.h\"\n");
+        assertEquals(Arrays.asList("enter u.c", "enter x.h", "x", "enter y.h", "y", "exit y.h", "exit x.h", "exit u.c"),
+            expand(new IncludeResolver(Collections.emptyList()), unit));
+    }
+
+    @Test
+    void quotedIsSearchedInDirectoryFirst() throws IOException {
+        write("src/s.h", "int local;\n");
+        write("include/s.h", "int system;\n");
+        Path unit = write("src/u.c", "#include \"s.h\"\n#include <s.h>\n#include <missing.h>\n#include MACRO\n");
+        IncludeResolver resolver = new IncludeResolver(Collections.singletonList(directory.resolve("include")));
+        assertEquals(Arrays.asList("enter src/u.c", "enter src/s.h", "local", "exit src/s.h",
+            "enter include/s.h", "system", "exit include/s.h", "unresolved missing.h", "unresolved MACRO", "exit src/u.c"),
+            expand(resolver, unit));
+    }
+
+    @Test
+    void parallelExpansionIsSameAsSequential() throws IOException {
+        write("a.h", "#ifndef A_H\n#define A_H\nint a;\n#include \"b.h\"\n#endif\n");
+        write("b.h", "#pragma once\nint b;\n#include \"a.h\"\n");
+        List<Path> units = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            units.add(write("u" + i + ".c", (i % 2 == 0 ? "#include \"a.h\"\n" : "#include \"b.h\"\n") + "int u" + i + ";\n"));
+        }
+        Map<Path, Recorder> recorders = new ConcurrentHashMap<>();
+        IncludeResolver resolver = new IncludeResolver(Collections.emptyList());
+        resolver.expand(units, unit -> recorders.computeIfAbsent(unit, u -> new Recorder()));
+        assertEquals(units.size() + 2, resolver.size());
+        for (Path unit : units) {
+            assertEquals(expand(new IncludeResolver(Collections.emptyList()), unit), recorders.get(unit).events, unit.toString());
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package cn.edu.bjtu.lexer.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link IncrementalLexer}, whose results after each edit must be the same as the ones of scanning
+ * the whole edited content sequentially.
+ */
+class IncrementalLexerTest {
+
+    /**
+     * Texts to insert, including the ones which open or close a token crossing lines.
+     */
+    private static final String[] INSERTIONS = {
+        "", "x", " ", "\n", "/*", "*/", "//", "\"", "'", "\\", "{", "}", "0x", "42", "int y = 1;\n", "/* a\n b */"
+    };
+
+    private static void assertSameAsSequential(IncrementalLexer lexer, String content, String message) {
+        assertEquals(content, lexer.getContent().toString(), message);
+        ResultSetImpl expected = new ResultSetImpl();
+        TestContents.scan(content, expected);
+        assertEquals(ResultSetFactory.toString(expected), ResultSetFactory.toString(lexer.getResultSet()), message);
+    }
+
+    /**
+     * Apply random edits to a content and compare the results with the sequential scan after each edit.
+     *
+     * @param content The initial content.
+     * @param seed    Seed of the random numbers.
+     * @param edits   Number of edits.
+     * @param local   Whether the edits are near one another, as typing in an editor.
+     */
+    private static void assertEditsSameAsSequential(String content, long seed, int edits, boolean local) {
+        Random random = new Random(seed);
+        IncrementalLexer lexer = new IncrementalLexer(content);
+        assertSameAsSequential(lexer, content, "initial");
+        StringBuilder builder = new StringBuilder(content);
+        int offset = builder.length() / 2;
+        for (int i = 0; i < edits; i++) {
+            if (local) {
+                offset = Math.max(0, Math.min(builder.length(), offset + random.nextInt(21) - 10));
+            } else {
+                offset = random.nextInt(builder.length() + 1);
+            }
+            int deleted = random.nextInt(Math.min(8, builder.length() - offset) + 1);
+            String inserted = INSERTIONS[random.nextInt(INSERTIONS.length)];
+            lexer.edit(offset, deleted, inserted);
+            builder.replace(offset, offset + deleted, inserted);
+            assertSameAsSequential(lexer, builder.toString(),
+                "edit " + i + " at " + offset + " deleting " + deleted + " inserting '" + inserted + "'");
+        }
+    }
+
+    @Test
+    void editsOfCorpusMatchSequentialScan() {
+        String content = TestContents.corpus(2000);
+        assertEditsSameAsSequential(content, 1, 200, false);
+        assertEditsSameAsSequential(content, 2, 200, true);
+    }
+
+    @Test
+    void editsOfRandomContentsMatchSequentialScan() {
+        for (long seed = 0; seed < 20; seed++) {
+            assertEditsSameAsSequential(TestContents.random(seed, 300), seed, 50, seed % 2 == 0);
+        }
+    }
+
+    @Test
+    void editsOfEmptyContentMatchSequentialScan() {
+        assertEditsSameAsSequential("", 3, 100, true);
+    }
+
+    @Test
+    void editFarFromCommentsRescansFewTokens() {
+        String content = TestContents.corpus(20000);
+        IncrementalLexer lexer = new IncrementalLexer(content);
+        int size = lexer.getResultSet().size();
+        int offset = content.indexOf(" = ", content.length() / 2);
+        lexer.edit(offset + 1, 1, "+=");
+        assertTrue(lexer.getLastScanned() < 100, "scanned " + lexer.getLastScanned() + " of " + size);
+        assertSameAsSequential(lexer, new StringBuilder(content).replace(offset + 1, offset + 2, "+=").toString(),
+            "edit");
+    }
+
+    @Test
+    void regionOutOfContentIsRejected() {
+        IncrementalLexer lexer = new IncrementalLexer("int a;");
+        assertThrows(IndexOutOfBoundsException.class, () -> lexer.edit(-1, 0, "x"));
+        assertThrows(IndexOutOfBoundsException.class, () -> lexer.edit(4, 3, "x"));
+    }
+
+}
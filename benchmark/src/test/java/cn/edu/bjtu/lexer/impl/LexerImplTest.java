@@ -0,0 +1,75 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Token;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link LexerImpl}: the end positions of the literals and the comments, and scanning in stream,
+ * which must not keep the tokens.
+ */
+class LexerImplTest {
+
+    /**
+     * Generate a content whose names and strings are all distinct.
+     */
+    private static String distinctTokens(int lines) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            builder.append("int name").append(i).append(" = \"s").append(i).append("\";\n");
+        }
+        return builder.toString();
+    }
+
+    @Test
+    void literalsEndAfterClosingQuote() throws IOException {
+        String content = "s = \"ab\";\nc = 'x';\n/* open";
+        ResultSetImpl rs = new ResultSetImpl();
+        TestContents.scan(content, rs);
+        for (String literal : new String[]{"\"ab\"", "'x'"}) {
+            int i = rs.find(content.indexOf(literal) + 1);
+            assertEquals(literal, rs.getToken());
+            // The end index is the one after the closing quote, where the semicolon begins
+            assertEquals(content.indexOf(literal) + literal.length() + 1, rs.getEndIndex());
+            assertEquals(literal.length(), rs.getEndIndex() - rs.getBeginIndex());
+            rs.absolute(i + 1);
+            assertEquals(";", rs.getToken());
+            assertEquals(content.indexOf(literal) + literal.length() + 1, rs.getBeginIndex());
+        }
+        rs.last();
+        assertEquals(TokenTypeImpl.BLOCK_COMMENT, rs.getTokenType());
+        assertEquals(content.length() + 1, rs.getEndIndex());
+    }
+
+    @Test
+    void listenerScanDoesNotKeepTokens() throws IOException {
+        String content = distinctTokens(20000);
+        ResultSetImpl expected = new ResultSetImpl();
+        TestContents.scan(content, expected);
+        ResultSetImpl actual = new ResultSetImpl();
+        LexerImpl lexer = new LexerImpl(new CharSequenceSource(content));
+        lexer.scan(actual::append);
+        assertEquals(ResultSetFactory.toString(expected), ResultSetFactory.toString(actual));
+        assertTrue(lexer.getSymbolTable().size() < 100, "symbols " + lexer.getSymbolTable().size());
+    }
+
+    @Test
+    void nextTokenDoesNotKeepTokens() throws IOException {
+        String content = distinctTokens(20000);
+        ResultSetImpl expected = new ResultSetImpl();
+        TestContents.scan(content, expected);
+        ResultSetImpl actual = new ResultSetImpl();
+        LexerImpl lexer = new LexerImpl(new CharSequenceSource(content));
+        Token token;
+        while ((token = lexer.nextToken()) != null) {
+            actual.append(token.getBeginPosition(), token.getEndPosition(), token.getTokenType(), token.getToken());
+        }
+        assertEquals(ResultSetFactory.toString(expected), ResultSetFactory.toString(actual));
+        assertTrue(lexer.getSymbolTable().size() < 100, "symbols " + lexer.getSymbolTable().size());
+    }
+
+}
@@ -0,0 +1,41 @@
+package cn.edu.bjtu.lexer.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests of {@link LexerMetrics} recorded by {@link LexerImpl}.
+ */
+class LexerMetricsTest {
+
+    /**
+     * Contents ending in each way a token may end at EOF.
+     */
+    private static final String[] CONTENTS = {
+        "", "a", "int a;\n", "\"s\"", "\"open", "'a'", "'a", "/* a */", "/* open", "// a", "#define A", "1.5f", "/",
+        "+=", "@", " \t"
+    };
+
+    @Test
+    void charsReadIsLengthOfContent() throws IOException {
+        for (String content : CONTENTS) {
+            LexerMetrics metrics = new LexerMetrics();
+            new LexerImpl(new CharSequenceSource(content)).setMetrics(metrics).scan();
+            assertEquals(content.length(), metrics.getCharsRead(), content);
+        }
+    }
+
+    @Test
+    void charsReadOfParallelScanIsLengthOfContent() throws IOException {
+        String content = TestContents.corpus(5000);
+        for (int chunks : new int[]{1, 7}) {
+            LexerMetrics metrics = new LexerMetrics();
+            new LexerImpl(new CharSequenceSource(content)).setMetrics(metrics).scan(chunks);
+            assertEquals(content.length(), metrics.getCharsRead(), chunks + " chunks");
+        }
+    }
+
+}
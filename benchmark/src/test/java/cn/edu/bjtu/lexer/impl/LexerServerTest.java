@@ -0,0 +1,133 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Position;
+import cn.edu.bjtu.lexer.TokenType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link LexerServer} and {@link LexerClient} over a Unix domain socket, and of the addresses they accept.
+ */
+class LexerServerTest {
+
+    @TempDir
+    Path directory;
+
+    private static String lex(LexerClient client, String content) throws IOException {
+        ResultSetImpl rs = new ResultSetImpl();
+        client.lex("a.c", content.getBytes(StandardCharsets.UTF_8),
+            (Position begin, Position end, TokenType type, String token) -> rs.append(begin, end, type, token));
+        return ResultSetFactory.toString(rs);
+    }
+
+    @Test
+    void sourceIsDecodedInUtf8() throws IOException {
+        String content = "char *s = \"été\"; // 中文\nint a;\n";
+        ResultSetImpl expected = new ResultSetImpl();
+        TestContents.scan(content, expected);
+        SocketAddress address = UnixDomainSocketAddress.of(directory.resolve("lexer.sock"));
+        try (LexerServer server = new LexerServer(address).start(); LexerClient client = new LexerClient(address)) {
+            assertEquals(ResultSetFactory.toString(expected), lex(client, content));
+            assertEquals(ResultSetFactory.toString(expected), lex(client, content));
+            assertEquals(0, server.getErrors());
+        }
+    }
+
+    @Test
+    void lengthOverMaximumIsRejected() throws IOException {
+        SocketAddress address = UnixDomainSocketAddress.of(directory.resolve("lexer.sock"));
+        try (LexerServer server = new LexerServer(address).setMaxLength(16).start()) {
+            try (LexerClient client = new LexerClient(address)) {
+                ResultSetImpl expected = new ResultSetImpl();
+                TestContents.scan("int a;", expected);
+                assertEquals(ResultSetFactory.toString(expected), lex(client, "int a;"));
+                IOException e = assertThrows(IOException.class, () -> lex(client, "int a, b, c, d, e, f;"));
+                assertTrue(e.getMessage().startsWith("Length 21 "), e.getMessage());
+            }
+            assertEquals(1, server.getErrors());
+        }
+    }
+
+    @Test
+    void negativeLengthIsRejected() throws IOException {
+        SocketAddress address = UnixDomainSocketAddress.of(directory.resolve("lexer.sock"));
+        try (LexerServer server = new LexerServer(address).start();
+             SocketChannel channel = SocketChannel.open(address)) {
+            // A name of length -1, i.e., a varint of all the 32 bits set
+            channel.write(ByteBuffer.wrap(new byte[]{
+                LexerProtocol.REQUEST_SOURCE, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x0f
+            }));
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            assertEquals(LexerProtocol.STATUS_ERROR, in.readUnsignedByte());
+            String message = LexerProtocol.readString(in);
+            assertTrue(message.startsWith("Length 4294967295 "), message);
+            assertEquals(-1, in.read());
+            assertEquals(1, server.getErrors());
+        }
+    }
+
+    private static String lex(LexerClient client, Path path) throws IOException {
+        ResultSetImpl rs = new ResultSetImpl();
+        client.lex(path, (Position begin, Position end, TokenType type, String token) -> rs.append(begin, end, type, token));
+        return ResultSetFactory.toString(rs);
+    }
+
+    @Test
+    void pathsOutOfRootsAreRejected() throws IOException {
+        Path root = Files.createDirectories(directory.resolve("src"));
+        Path file = Files.writeString(root.resolve("a.c"), "int a;");
+        Path secret = Files.writeString(directory.resolve("secret.c"), "int secret;");
+        Path link = Files.createSymbolicLink(root.resolve("link.c"), secret);
+        ResultSetImpl expected = new ResultSetImpl();
+        TestContents.scan("int a;", expected);
+        SocketAddress address = UnixDomainSocketAddress.of(directory.resolve("lexer.sock"));
+        try (LexerServer server = new LexerServer(address).start(); LexerClient client = new LexerClient(address)) {
+            // No root by default
+            assertThrows(IOException.class, () -> lex(client, file));
+            assertEquals(1, server.getErrors());
+        }
+        try (LexerServer server = new LexerServer(address).setRoots(Collections.singletonList(root)).start();
+             LexerClient client = new LexerClient(address)) {
+            assertEquals(ResultSetFactory.toString(expected), lex(client, file));
+            assertThrows(IOException.class, () -> lex(client, secret));
+            assertThrows(IOException.class, () -> lex(client, root.resolve("../secret.c")));
+            assertThrows(IOException.class, () -> lex(client, link));
+            IOException e = assertThrows(IOException.class, () -> lex(client, directory.resolve("missing.c")));
+            assertTrue(e.getMessage().contains("Not under a root directory"), e.getMessage());
+            // The connection is still usable after the errors
+            assertEquals(ResultSetFactory.toString(expected), lex(client, file));
+            assertEquals(4, server.getErrors());
+        }
+    }
+
+    @Test
+    void addressesAreParsed() throws IOException {
+        assertEquals(UnixDomainSocketAddress.of("/tmp/a:b.sock"), LexerProtocol.parseAddress("/tmp/a:b.sock"));
+        assertEquals(UnixDomainSocketAddress.of("8000"), LexerProtocol.parseAddress("unix:8000"));
+        assertEquals(8000, ((InetSocketAddress) LexerProtocol.parseAddress("8000")).getPort());
+        InetSocketAddress tcp = (InetSocketAddress) LexerProtocol.parseAddress("tcp:127.0.0.1:8000");
+        assertTrue(tcp.getAddress().isLoopbackAddress());
+        assertEquals(8000, tcp.getPort());
+        assertTrue(((InetSocketAddress) LexerProtocol.parseAddress("tcp:[::1]:8000")).getAddress().isLoopbackAddress());
+        assertThrows(IllegalArgumentException.class, () -> LexerProtocol.parseAddress("tcp:192.0.2.1:8000"));
+        assertThrows(IOException.class, () -> new LexerServer(new InetSocketAddress("192.0.2.1", 0)).start());
+    }
+
+}
@@ -0,0 +1,76 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Position;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests of {@link LineIndex}, built from a content and by {@link LexerImpl} while scanning.
+ */
+class LineIndexTest {
+
+    private static void assertSamePosition(Position expected, Position actual, String message) {
+        assertEquals(expected.getIndex(), actual.getIndex(), message);
+        assertEquals(expected.getRow(), actual.getRow(), message);
+        assertEquals(expected.getColumn(), actual.getColumn(), message);
+    }
+
+    @Test
+    void linesOfContent() {
+        LineIndex lines = LineIndex.of("ab\n\ncd\n");
+        assertEquals(1, lines.getFirstRow());
+        assertEquals(4, lines.getLastRow());
+        assertEquals(0, lines.getLineStart(1));
+        assertEquals(3, lines.getLineStart(2));
+        assertEquals(4, lines.getLineStart(3));
+        assertEquals(7, lines.getLineStart(4));
+        assertEquals(1, lines.getRow(2));
+        assertEquals(2, lines.getRow(3));
+        assertEquals(3, lines.getRow(5));
+        assertEquals(3, lines.getColumn(2));
+        assertEquals(2, lines.getColumn(5));
+        assertEquals(5, lines.getOffset(3, 2));
+        assertEquals("\ncd\n", lines.getLines("ab\n\ncd\n", 2, 4).toString());
+        assertEquals("cd\n", lines.getLines("ab\n\ncd\n", 3, 5).toString());
+    }
+
+    @Test
+    void outOfLinesIsRejected() {
+        LineIndex lines = LineIndex.of("ab\ncd");
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.getLineStart(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.getLineStart(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> lines.getRow(-1));
+    }
+
+    @Test
+    void lexerBuildsSameLinesAsContent() {
+        String[] contents = {"", "\n", "int a;", TestContents.corpus(5000), TestContents.random(1, 2000)};
+        for (String content : contents) {
+            LineIndex expected = LineIndex.of(content);
+            LineIndex actual = TestContents.scan(content, new ResultSetImpl()).getLineIndex();
+            assertEquals(expected.getLastRow(), actual.getLastRow());
+            for (int row = expected.getFirstRow(); row <= expected.getLastRow(); row++) {
+                assertEquals(expected.getLineStart(row), actual.getLineStart(row), "row " + row);
+            }
+        }
+    }
+
+    @Test
+    void positionsMatchBeginPositionsOfTokens() {
+        String[] contents = {TestContents.corpus(5000), TestContents.random(2, 2000)};
+        for (String content : contents) {
+            ResultSetImpl rs = new ResultSetImpl();
+            LineIndex lines = TestContents.scan(content, rs).getLineIndex();
+            rs.first();
+            while (rs.next()) {
+                Position begin = rs.getBeginPosition();
+                int offset = begin.getIndex() - 1;
+                assertSamePosition(begin, lines.getPosition(offset), "offset " + offset);
+                assertEquals(offset, lines.getOffset(begin.getRow(), begin.getColumn()));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.ResultSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Round-trip tests of the binary format, written by {@link ResultSetFactory#writeBinary} and read by
+ * {@link MappedResultSet}, both to a file whose header is filled in and to a stream with the trailer.
+ */
+class MappedResultSetTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Generate a content of many blocks of records, with non-ASCII tokens and a string longer than the buffer
+     * of the writer.
+     */
+    private static String content() {
+        StringBuilder builder = new StringBuilder(TestContents.corpus(3000));
+        builder.append("\nchar *s = \"été 中文\"; /* ü\n */ int ä = 'é';\n");
+        builder.append("char *long = \"");
+        for (int i = 0; i < 70000; i++) {
+            builder.append((char) ('a' + i % 26));
+        }
+        builder.append("\";\n").append(TestContents.random(7, 500));
+        return builder.toString();
+    }
+
+    private static void assertSameResults(ResultSet expected, ResultSet actual) {
+        assertEquals(expected.size(), actual.size());
+        expected.first();
+        actual.first();
+        for (int i = 0; expected.next(); i++) {
+            assertEquals(true, actual.next(), "result " + i);
+            assertEquals(expected.getBeginIndex(), actual.getBeginIndex(), "result " + i);
+            assertEquals(expected.getBeginRow(), actual.getBeginRow(), "result " + i);
+            assertEquals(expected.getBeginColumn(), actual.getBeginColumn(), "result " + i);
+            assertEquals(expected.getEndIndex(), actual.getEndIndex(), "result " + i);
+            assertEquals(expected.getEndRow(), actual.getEndRow(), "result " + i);
+            assertEquals(expected.getEndColumn(), actual.getEndColumn(), "result " + i);
+            assertEquals(expected.getTokenType(), actual.getTokenType(), "result " + i);
+            assertEquals(expected.getToken(), actual.getToken(), "result " + i);
+        }
+        assertEquals(false, actual.next());
+        for (int i = expected.size() - 1; i >= 0; i -= 61) {
+            expected.absolute(i);
+            actual.absolute(i);
+            assertEquals(expected.getBeginIndex(), actual.getBeginIndex(), "result " + i);
+            assertEquals(expected.getToken(), actual.getToken(), "result " + i);
+        }
+    }
+
+    @Test
+    void fileRoundTrip() throws IOException {
+        String[] contents = {"", "int a;", content()};
+        for (int i = 0; i < contents.length; i++) {
+            ColumnarResultSet expected = new ColumnarResultSet();
+            TestContents.scan(contents[i], expected);
+            Path path = directory.resolve(i + ".bin");
+            ResultSetFactory.write(expected, path.toString());
+            assertEquals(expected.size(), ByteBuffer.wrap(Files.readAllBytes(path)).getInt(8));
+            assertSameResults(expected, new MappedResultSet(path));
+        }
+    }
+
+    @Test
+    void streamRoundTrip() throws IOException {
+        String[] contents = {"", "int a;", content()};
+        for (String content : contents) {
+            ColumnarResultSet expected = new ColumnarResultSet();
+            TestContents.scan(content, expected);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ResultSetFactory.writeBinary(expected, Channels.newChannel(out));
+            ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+            assertEquals(BinaryFormat.UNKNOWN_SIZE, buffer.getInt(8));
+            assertSameResults(expected, new MappedResultSet(buffer, "stream"));
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Position;
+import cn.edu.bjtu.lexer.ResultSet;
+import cn.edu.bjtu.lexer.TokenType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the lookups of {@link ResultSet}, by the default methods and the ones of the implementations,
+ * against a linear search of the results.
+ */
+class ResultSetTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * A {@code ResultSet} object which can only be traversed, so that the default methods are used.
+     */
+    private static final class SequentialResultSet implements ResultSet {
+
+        private final ResultSet results;
+        private int cursor = -1;
+
+        SequentialResultSet(ResultSet results) {
+            this.results = results;
+        }
+
+        @Override
+        public void append(Position begin, Position end, TokenType type, String token) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void first() {
+            cursor = -1;
+        }
+
+        @Override
+        public void last() {
+            cursor = results.size() - 1;
+        }
+
+        @Override
+        public boolean next() {
+            if (cursor < results.size() - 1) {
+                cursor++;
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public boolean previous() {
+            if (cursor >= 0) {
+                cursor--;
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public Position getBeginPosition() {
+            return results.absolute(cursor) ? results.getBeginPosition() : null;
+        }
+
+        @Override
+        public Position getEndPosition() {
+            return results.absolute(cursor) ? results.getEndPosition() : null;
+        }
+
+        @Override
+        public TokenType getTokenType() {
+            return results.absolute(cursor) ? results.getTokenType() : null;
+        }
+
+        @Override
+        public String getToken() {
+            return results.absolute(cursor) ? results.getToken() : null;
+        }
+
+    }
+
+    /**
+     * Find the result covering an index number by a linear search.
+     */
+    private static int findLinearly(ResultSet rs, int index) {
+        for (int i = 0; i < rs.size(); i++) {
+            rs.absolute(i);
+            if (rs.getBeginPosition().getIndex() <= index && index < rs.getEndPosition().getIndex()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the last result beginning at or before an index number by a linear search.
+     */
+    private static int floorLinearly(ResultSet rs, int index) {
+        int floor = -1;
+        for (int i = 0; i < rs.size(); i++) {
+            rs.absolute(i);
+            if (rs.getBeginPosition().getIndex() <= index) {
+                floor = i;
+            }
+        }
+        return floor;
+    }
+
+    /**
+     * Write the results of a content in the binary format and read them back.
+     */
+    private static MappedResultSet mapped(String content) throws IOException {
+        ColumnarResultSet rs = new ColumnarResultSet();
+        TestContents.scan(content, rs);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultSetFactory.writeBinary(rs, Channels.newChannel(out));
+        return new MappedResultSet(ByteBuffer.wrap(out.toByteArray()), "mapped");
+    }
+
+    private static void assertSameLookups(String content, ResultSet expected, ResultSet actual) {
+        String name = actual.getClass().getSimpleName();
+        assertEquals(expected.size(), actual.size(), name);
+        for (int index = 0; index <= content.length() + 2; index++) {
+            assertEquals(floorLinearly(expected, index), actual.floor(index), name + " index " + index);
+            int i = findLinearly(expected, index);
+            assertEquals(i, actual.find(index), name + " index " + index);
+            if (i >= 0) {
+                expected.absolute(i);
+                Position begin = expected.getBeginPosition();
+                assertEquals(begin.getIndex(), actual.getBeginIndex(), name);
+                assertEquals(expected.getEndPosition().getIndex(), actual.getEndIndex(), name);
+                assertEquals(i, actual.find(begin.getRow(), begin.getColumn()), name + " index " + index);
+            }
+        }
+    }
+
+    @Test
+    void lookupsMatchLinearSearch() throws IOException {
+        String[] contents = {"", "int a;", "s = \"ab\";\nc = 'x';\n/* a\n b */ d", TestContents.random(3, 1500)};
+        for (int k = 0; k < contents.length; k++) {
+            String content = contents[k];
+            ResultSetImpl expected = new ResultSetImpl();
+            TestContents.scan(content, expected);
+            ResultSet[] actuals = {
+                new ResultSetImpl(), new ColumnarResultSet(), new GapResultSet(), new SequentialResultSet(expected),
+                mapped(content)
+            };
+            for (ResultSet actual : actuals) {
+                if (!(actual instanceof SequentialResultSet || actual instanceof MappedResultSet)) {
+                    TestContents.scan(content, actual);
+                }
+                assertSameLookups(content, expected, actual);
+            }
+            try (MappedCharSource source = new MappedCharSource(Files.writeString(directory.resolve(k + ".c"), content))) {
+                SliceResultSet actual = new SliceResultSet(source);
+                new LexerImpl(source, actual).scan();
+                assertSameLookups(content, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    void closingQuoteIsCoveredByLiteral() {
+        String content = "s = \"ab\"; c = 'x';";
+        ResultSetImpl rs = new ResultSetImpl();
+        TestContents.scan(content, rs);
+        assertTrue(rs.find(content.indexOf("\";") + 1) >= 0);
+        assertEquals(TokenTypeImpl.STRING, rs.getTokenType());
+        assertTrue(rs.find(content.lastIndexOf('\'') + 1) >= 0);
+        assertEquals(TokenTypeImpl.CHARACTER, rs.getTokenType());
+    }
+
+    @Test
+    void defaultAbsoluteLeavesCursorAtBeginningOutOfRange() {
+        ResultSetImpl results = new ResultSetImpl();
+        TestContents.scan("int a;", results);
+        ResultSet rs = new SequentialResultSet(results);
+        assertEquals(3, rs.size());
+        assertTrue(rs.absolute(2));
+        assertEquals(";", rs.getToken());
+        assertFalse(rs.absolute(3));
+        assertEquals(-1, rs.getBeginIndex());
+        assertTrue(rs.next());
+        assertEquals("int", rs.getToken());
+        assertFalse(rs.absolute(-1));
+    }
+
+}
@@ -0,0 +1,113 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Diagnostic;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests of {@link SliceResultSet}, whose results must be the same as the ones of a {@link ResultSetImpl} object
+ * scanned from the same mapped file.
+ */
+class SliceResultSetTest {
+
+    @TempDir
+    Path directory;
+
+    private Path write(byte[] content) throws IOException {
+        Path path = Files.createTempFile(directory, "slice", ".c");
+        Files.write(path, content);
+        return path;
+    }
+
+    private static String toString(List<Diagnostic> diagnostics) {
+        return diagnostics.stream().map(Diagnostic::toString).collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Scan a file into a {@code SliceResultSet} object and compare it with the one scanned into
+     * a {@code ResultSetImpl} object, including the text of each token and its bytes in the file.
+     *
+     * @param content The content of the file.
+     */
+    private void assertSameAsStrings(byte[] content) throws IOException {
+        Path path = write(content);
+        ResultSetImpl expected = new ResultSetImpl();
+        LexerImpl lexer = new LexerImpl(new MappedCharSource(path), expected);
+        lexer.scan().close();
+        try (MappedCharSource source = new MappedCharSource(path)) {
+            SliceResultSet actual = new SliceResultSet(source, 1);
+            LexerImpl sliced = new LexerImpl(source, actual);
+            sliced.scan();
+            assertEquals(ResultSetFactory.toString(expected), ResultSetFactory.toString(actual));
+            assertEquals(toString(lexer.getDiagnostics().drain()), toString(sliced.getDiagnostics().drain()));
+            assertEquals(0, sliced.getSymbolTable().size());
+
+            expected.first();
+            actual.first();
+            while (expected.next() && actual.next()) {
+                assertEquals(expected.getToken(), actual.getTokenText().toString());
+                String bytes = new String(content, actual.getByteOffset(), actual.getByteLength(), StandardCharsets.UTF_8);
+                if (!expected.getToken().isEmpty() && expected.getToken().indexOf('\uFFFD') < 0) {
+                    assertEquals(expected.getToken(), bytes);
+                }
+            }
+        }
+        try (MappedCharSource source = new MappedCharSource(path)) {
+            SliceResultSet actual = new SliceResultSet(source);
+            new LexerImpl(source, actual).scan(7);
+            assertEquals(ResultSetFactory.toString(expected), ResultSetFactory.toString(actual));
+        }
+    }
+
+    @Test
+    void asciiCorpusMatchesStrings() throws IOException {
+        assertSameAsStrings(TestContents.corpus(20000).getBytes(StandardCharsets.US_ASCII));
+        for (long seed = 0; seed < 20; seed++) {
+            assertSameAsStrings(TestContents.random(seed, 500).getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    void nonAsciiMatchesStrings() throws IOException {
+        String content = "char *s = \"café 中文 😀\";\n"
+            + "/* über 😀 */ int a = 1; // 中\n"
+            + "'é' é x \"😀\n"
+            + "int b = 2;\n";
+        assertSameAsStrings(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void malformedBytesMatchStrings() throws IOException {
+        byte[] prefix = "int a = \"x".getBytes(StandardCharsets.US_ASCII);
+        byte[] suffix = "y\"; /* é */ b é\n".getBytes(StandardCharsets.UTF_8);
+        byte[] content = new byte[prefix.length + 3 + suffix.length];
+        System.arraycopy(prefix, 0, content, 0, prefix.length);
+        content[prefix.length] = (byte) 0xff;
+        content[prefix.length + 1] = (byte) 0xc3;
+        content[prefix.length + 2] = (byte) 0x28;
+        System.arraycopy(suffix, 0, content, prefix.length + 3, suffix.length);
+        assertSameAsStrings(content);
+    }
+
+    @Test
+    void cursorOutOfRangeHasNoToken() throws IOException {
+        try (MappedCharSource source = new MappedCharSource(write(new byte[0]))) {
+            SliceResultSet rs = new SliceResultSet(source);
+            new LexerImpl(source, rs).scan();
+            assertEquals(0, rs.size());
+            assertNull(rs.getTokenText());
+            assertEquals(-1, rs.getByteOffset());
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.ResultSet;
+import cn.edu.bjtu.lexer.benchmark.CorpusGenerator;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Contents and helpers shared by the tests comparing other ways of scanning with the sequential scan.
+ */
+final class TestContents {
+
+    /**
+     * Fragments of a content, including the ones which begin or end a token crossing lines.
+     */
+    private static final String[] FRAGMENTS = {
+        "int", "x1", "42", "0x1F", "3.14", "017", " ", "  ", "\t", "\n", "\n", "\n", "/*", "*/", "//", "\"", "'", "\\",
+        "#include <stdio.h>", "{", "}", "(", ")", "[", "]", ";", ",", "+=", "->", "/", "*", "@", "$", "'a'", "'\\n'",
+        "\"s\\\"t\"", "/* a\n * b\n */", "// c\n", "\"line\\\n\""
+    };
+
+    private TestContents() {
+    }
+
+    /**
+     * Generate a corpus of C code by {@link CorpusGenerator} with the default mix.
+     *
+     * @param tokens Number of tokens.
+     * @return The content.
+     */
+    static String corpus(int tokens) {
+        return new CorpusGenerator(CorpusGenerator.DEFAULT_MIX, CorpusGenerator.DEFAULT_SEED).generate(tokens);
+    }
+
+    /**
+     * Generate a content of random fragments, which is mostly not valid C code.
+     *
+     * @param seed      Seed of the random numbers.
+     * @param fragments Number of fragments.
+     * @return The content.
+     */
+    static String random(long seed, int fragments) {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < fragments; i++) {
+            builder.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Scan a content sequentially.
+     *
+     * @param content The content.
+     * @param rs      The {@code ResultSet} object to store the results.
+     * @return The lexer after the scan.
+     */
+    static LexerImpl scan(CharSequence content, ResultSet rs) {
+        LexerImpl lexer = new LexerImpl(new CharSequenceSource(content), rs);
+        try {
+            lexer.scan();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return lexer;
+    }
+
+}
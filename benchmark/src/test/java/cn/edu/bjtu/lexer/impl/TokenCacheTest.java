@@ -0,0 +1,156 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Diagnostic;
+import cn.edu.bjtu.lexer.ResultSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link TokenCache}: the hits in memory and on disk, the errors reported at each hit,
+ * the eviction by size, and the corrupted entries on disk.
+ */
+class TokenCacheTest {
+
+    private static final String CONTENT = "int a; { /* x";
+
+    @TempDir
+    Path directory;
+
+    private static String toString(List<Diagnostic> diagnostics) {
+        return diagnostics.stream().map(Diagnostic::toString).collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Get the results and the errors of the sequential scan of a file.
+     */
+    private static String expected(Path path) throws IOException {
+        ResultSetImpl rs = new ResultSetImpl();
+        DiagnosticSink diagnostics = new DiagnosticSink(Integer.MAX_VALUE);
+        new LexerImpl(new CharSequenceSource(Files.readString(path)), rs).setName(path.toString())
+            .setDiagnostics(diagnostics).scan();
+        return ResultSetFactory.toString(rs) + toString(diagnostics.drain());
+    }
+
+    /**
+     * Get the results and the errors of a file through the cache.
+     */
+    private static String scan(TokenCache cache, Path path) throws IOException {
+        DiagnosticSink diagnostics = new DiagnosticSink(Integer.MAX_VALUE);
+        ResultSet rs = cache.scan(path, diagnostics);
+        return ResultSetFactory.toString(rs) + toString(diagnostics.drain());
+    }
+
+    private static void assertCounts(TokenCache cache, long hits, long diskHits, long misses, long evictions) {
+        assertEquals(Arrays.asList(hits, diskHits, misses, evictions),
+            Arrays.asList(cache.getHits(), cache.getDiskHits(), cache.getMisses(), cache.getEvictions()), cache.toString());
+    }
+
+    private Path[] files(int n) throws IOException {
+        Path[] paths = new Path[n];
+        for (int i = 0; i < n; i++) {
+            // Contents of the same length, whose entries are of the same size
+            paths[i] = Files.writeString(directory.resolve(i + ".c"), "int a" + i + "; { /* x");
+        }
+        return paths;
+    }
+
+    @Test
+    void hitsReportErrorsAgain() throws IOException {
+        Path path = Files.writeString(directory.resolve("a.c"), CONTENT);
+        String expected = expected(path);
+        assertTrue(expected.contains("Comment error") && expected.contains("Brace error"), expected);
+        TokenCache cache = new TokenCache(1 << 20, directory.resolve("cache"));
+        assertEquals(expected, scan(cache, path));
+        assertCounts(cache, 0, 0, 1, 0);
+        assertEquals(expected, scan(cache, path));
+        assertCounts(cache, 1, 0, 1, 0);
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertEquals(expected, scan(cache, path));
+        assertCounts(cache, 1, 1, 1, 0);
+        assertEquals(expected, scan(cache, path));
+        assertCounts(cache, 2, 1, 1, 0);
+        // Another cache over the same directory, e.g., a later build
+        TokenCache later = new TokenCache(1 << 20, directory.resolve("cache"));
+        assertEquals(expected, scan(later, path));
+        assertCounts(later, 0, 1, 0, 0);
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvicted() throws IOException {
+        Path[] paths = files(3);
+        TokenCache probe = new TokenCache(1 << 20);
+        probe.scan(paths[0], null);
+        long size = probe.getSize();
+        TokenCache cache = new TokenCache(2 * size);
+        scan(cache, paths[0]);
+        scan(cache, paths[1]);
+        assertEquals(expected(paths[0]), scan(cache, paths[0]));
+        assertCounts(cache, 1, 0, 2, 0);
+        // The second file is the least recently used one
+        assertEquals(expected(paths[2]), scan(cache, paths[2]));
+        assertCounts(cache, 1, 0, 3, 1);
+        assertEquals(2 * size, cache.getSize());
+        scan(cache, paths[0]);
+        assertCounts(cache, 2, 0, 3, 1);
+        assertEquals(expected(paths[1]), scan(cache, paths[1]));
+        assertCounts(cache, 2, 0, 4, 2);
+    }
+
+    @Test
+    void entryLargerThanCapacityIsNotKept() throws IOException {
+        Path path = files(1)[0];
+        TokenCache probe = new TokenCache(1 << 20);
+        probe.scan(path, null);
+        TokenCache cache = new TokenCache(probe.getSize() - 1);
+        assertEquals(expected(path), scan(cache, path));
+        assertEquals(expected(path), scan(cache, path));
+        assertCounts(cache, 0, 0, 2, 0);
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void corruptedEntryIsScannedAgain() throws IOException {
+        Path path = Files.writeString(directory.resolve("a.c"), CONTENT);
+        String expected = expected(path);
+        Path cacheDirectory = directory.resolve("cache");
+        TokenCache cache = new TokenCache(1 << 20, cacheDirectory);
+        scan(cache, path);
+        Path file;
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            file = files.findFirst().orElseThrow(IllegalStateException::new);
+        }
+        byte[] entry = Files.readAllBytes(file);
+        byte[][] corruptions = {
+            new byte[0],
+            Arrays.copyOf(entry, entry.length - 1),
+            Arrays.copyOf(entry, entry.length + 1),
+            Arrays.copyOf(entry, 8),
+        };
+        long misses = 1;
+        for (byte[] corruption : corruptions) {
+            Files.write(file, corruption);
+            cache.clear();
+            assertEquals(expected, scan(cache, path));
+            assertCounts(cache, cache.getHits(), 0, ++misses, 0);
+            // The entry is replaced on disk, and the one in memory is valid
+            assertEquals(expected, scan(cache, path));
+            assertEquals(Arrays.toString(entry), Arrays.toString(Files.readAllBytes(file)));
+        }
+        cache.clear();
+        assertEquals(expected, scan(cache, path));
+        assertEquals(1, cache.getDiskHits());
+    }
+
+}
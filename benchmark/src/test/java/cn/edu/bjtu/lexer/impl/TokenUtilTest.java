@@ -0,0 +1,111 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.TokenType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Differential tests of {@link TokenUtil#getNumberTokenType(CharSequence)} against the regular expressions
+ * which it used before it became an automaton.
+ */
+class TokenUtilTest {
+
+    private static final Pattern PATTERN_NUMBER_INTEGER = Pattern.compile("^0|[1-9][0-9]*$");
+    private static final Pattern PATTERN_NUMBER_FLOAT = Pattern.compile("(?i)(^[0-9]*\\.[0-9]+f?$)|(^0|[1-9][0-9]*f$)");
+    private static final Pattern PATTERN_NUMBER_LONG = Pattern.compile("(?i)(^0l$)|(^[1-9][0-9]*l$)");
+    private static final Pattern PATTERN_NUMBER_LONG_LONG = Pattern.compile("(?i)(^0ll$)|(^[1-9][0-9]*ll$)");
+    private static final Pattern PATTERN_NUMBER_UNSIGNED = Pattern.compile("(?i)(^0u|[1-9][0-9]*u$)");
+    private static final Pattern PATTERN_NUMBER_OCTAL = Pattern.compile("^0[1-7][0-7]*$");
+    private static final Pattern PATTERN_NUMBER_HEXADECIMAL = Pattern.compile("(?i)^0x[1-9a-f][0-9a-f]*$");
+
+    /**
+     * Characters which any of the regular expressions treats differently, and one which none accepts.
+     */
+    private static final String ALPHABET = "0178.aefxluAFLUX_";
+
+    /**
+     * Get the token type of number in string by the regular expressions, in the same order as before.
+     *
+     * @param token Number in string to get the token type.
+     * @return The corresponding token type of the number in string.
+     */
+    private static TokenType getNumberTokenTypeByRegex(String token) {
+        if (PATTERN_NUMBER_INTEGER.matcher(token).matches()) {
+            return TokenTypeImpl.NUMBER_INTEGER;
+        } else if (PATTERN_NUMBER_FLOAT.matcher(token).matches()) {
+            return TokenTypeImpl.NUMBER_FLOAT;
+        } else if (PATTERN_NUMBER_LONG.matcher(token).matches()) {
+            return TokenTypeImpl.NUMBER_LONG;
+        } else if (PATTERN_NUMBER_LONG_LONG.matcher(token).matches()) {
+            return TokenTypeImpl.NUMBER_LONG_LONG;
+        } else if (PATTERN_NUMBER_UNSIGNED.matcher(token).matches()) {
+            return TokenTypeImpl.NUMBER_UNSIGNED;
+        } else if (PATTERN_NUMBER_OCTAL.matcher(token).matches()) {
+            return TokenTypeImpl.NUMBER_OCTAL;
+        } else if (PATTERN_NUMBER_HEXADECIMAL.matcher(token).matches()) {
+            return TokenTypeImpl.NUMBER_HEXADECIMAL;
+        } else {
+            return TokenTypeImpl.ILLEGAL;
+        }
+    }
+
+    private static void assertSameType(String token) {
+        assertEquals(getNumberTokenTypeByRegex(token), TokenUtil.getNumberTokenType(token), token);
+    }
+
+    @Test
+    void numberMatchesRegexesOnAllShortTokens() {
+        char[] token = new char[4];
+        for (int length = 1; length <= token.length; length++) {
+            int[] digits = new int[length];
+            do {
+                for (int i = 0; i < length; i++) {
+                    token[i] = ALPHABET.charAt(digits[i]);
+                }
+                assertSameType(new String(token, 0, length));
+                int i = length - 1;
+                while (i >= 0 && ++digits[i] == ALPHABET.length()) {
+                    digits[i--] = 0;
+                }
+                if (i < 0) {
+                    break;
+                }
+            } while (true);
+        }
+    }
+
+    @Test
+    void numberMatchesRegexesOnRandomTokens() {
+        Random random = new Random(20261017);
+        StringBuilder token = new StringBuilder();
+        for (int n = 0; n < 200000; n++) {
+            token.setLength(0);
+            int length = 5 + random.nextInt(12);
+            // Mostly digits, so that the long tokens still reach the accepting states
+            for (int i = 0; i < length; i++) {
+                if (random.nextInt(4) == 0) {
+                    token.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                } else {
+                    token.append((char) ('0' + random.nextInt(10)));
+                }
+            }
+            assertSameType(token.toString());
+        }
+    }
+
+    @Test
+    void numberMatchesRegexesOnLiterals() {
+        String[] literals = {
+            "0", "1", "42", "1024", "0x1F", "0xff", "0x0f", "017", "08", "00", "3.14", ".5", "5.", "1.2.3",
+            "2.5f", "2.5F", "10f", "0f", "10L", "0l", "07L", "100LL", "0ll", "10lL", "7u", "0U", "7ul", "12abc", "0x"
+        };
+        for (String literal : literals) {
+            assertSameType(literal);
+        }
+    }
+
+}
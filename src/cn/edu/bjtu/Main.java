@@ -1,5 +1,6 @@
 package cn.edu.bjtu;
 
+import cn.edu.bjtu.lexer.impl.DiagnosticSink;
 import cn.edu.bjtu.lexer.impl.LexerImpl;
 
 import java.io.IOException;
@@ -7,8 +8,10 @@ import java.io.IOException;
 public class Main {
 
     public static void main(String[] args) {
+        DiagnosticSink diagnostics = new DiagnosticSink();
         try {
             new LexerImpl("sample.c")
+                .setDiagnostics(diagnostics)
                 .scan()
 //                .write("result.html")
 //                .write("result.md")
@@ -18,6 +21,7 @@ public class Main {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        diagnostics.drain(System.out::println);
     }
 
-}
\ No newline at end of file
+}
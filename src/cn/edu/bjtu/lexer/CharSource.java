@@ -0,0 +1,114 @@
+package cn.edu.bjtu.lexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A {@code CharSource} object supplies the characters to be scanned by a {@link Lexer}.
+ * <p>
+ * Different from reading a {@link java.io.Reader} character by character,
+ * the implementations are expected to fetch the content in bulk and hand out
+ * the characters from their own buffers, so that reading one character is cheap.
+ * Besides, a {@code CharSource} provides lookahead by the {@link CharSource#peek(int)} method.
+ */
+public interface CharSource extends Closeable {
+
+    /**
+     * Read the next character and move forward.
+     *
+     * @return The character in {@code int}, or {@code -1} if the end of the source has been reached.
+     * @throws IOException If an I/O error occurs when reading.
+     */
+    int read() throws IOException;
+
+    /**
+     * Look ahead at a character without moving forward.
+     * The offset {@code 0} refers to the character which will be returned by the next {@link CharSource#read()}.
+     *
+     * @param offset Number of characters to look ahead, which should not be negative.
+     * @return The character in {@code int}, or {@code -1} if the offset is beyond the end of the source.
+     * @throws IOException If an I/O error occurs when reading.
+     */
+    int peek(int offset) throws IOException;
+
+    /**
+     * Skip the characters before the next occurrence of either of the two characters, or before the end.
+     * The found character is not skipped, so it will be returned by the next {@link CharSource#read()}.
+     * <p>
+     * It is used to skip comments in bulk. The default implementation reads the characters one by one,
+     * and the implementations are expected to search their buffers directly.
+     *
+     * @param first  A character to stop before.
+     * @param second Another character to stop before.
+     * @return Number of characters skipped.
+     * @throws IOException If an I/O error occurs when reading.
+     */
+    default int skipUntil(int first, int second) throws IOException {
+        int count = 0;
+        for (int c = peek(0); c != -1 && c != first && c != second; c = peek(0)) {
+            read();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Read the characters before the next occurrence of either of the two characters, CR, LF, or the end,
+     * and append them to the {@code StringBuilder} object.
+     * The found character is not read, so it will be returned by the next {@link CharSource#read()}.
+     * <p>
+     * It is used to read the bodies of strings and preprocessors in bulk.
+     * The default implementation reads the characters one by one.
+     *
+     * @param builder The {@code StringBuilder} object to append to.
+     * @param first   A character to stop before.
+     * @param second  Another character to stop before.
+     * @return Number of characters read.
+     * @throws IOException If an I/O error occurs when reading.
+     */
+    default int readUntil(StringBuilder builder, int first, int second) throws IOException {
+        int count = 0;
+        for (int c = peek(0); c != -1 && c != first && c != second && c != '\r' && c != '\n'; c = peek(0)) {
+            builder.append((char) read());
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Skip the spaces and horizontal tabs in a row, at most {@code max} characters.
+     * The first other character is not skipped, so it will be returned by the next {@link CharSource#read()}.
+     * <p>
+     * It is used to skip indentations in bulk. The default implementation reads the characters one by one.
+     *
+     * @param max Maximum number of characters to skip.
+     * @return Number of characters skipped.
+     * @throws IOException If an I/O error occurs when reading.
+     */
+    default int skipBlanks(int max) throws IOException {
+        int count = 0;
+        for (int c = peek(0); count < max && (c == ' ' || c == '\t'); c = peek(0)) {
+            read();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of bytes which have been decoded into the characters read, if the source knows it.
+     *
+     * @return Number of bytes read, or {@code -1} if it is unknown, which is the default.
+     */
+    default long getBytesRead() {
+        return -1;
+    }
+
+    /**
+     * Close the underlying stream or reader of the {@code CharSource} object.
+     *
+     * @throws IOException If an I/O error occurs when closing.
+     */
+    @Override
+    void close() throws IOException;
+
+}
@@ -0,0 +1,127 @@
+package cn.edu.bjtu.lexer;
+
+/**
+ * A {@code Diagnostic} object is an error found in lexical scan,
+ * which stores the kind of the error, where it is, and a message for human.
+ */
+public final class Diagnostic {
+
+    /**
+     * Kinds of the errors found in lexical scan.
+     */
+    public enum Kind {
+
+        /**
+         * Braces are not in pair.
+         */
+        UNBALANCED_BRACE,
+
+        /**
+         * Brackets are not in pair.
+         */
+        UNBALANCED_BRACKET,
+
+        /**
+         * Parentheses are not in pair.
+         */
+        UNBALANCED_PARENTHESIS,
+
+        /**
+         * A string is not closed by a double quote before the end of line or EOF.
+         */
+        UNTERMINATED_STRING,
+
+        /**
+         * A block comment is not closed before EOF.
+         */
+        UNTERMINATED_COMMENT,
+
+        /**
+         * A character is empty, longer than one character, or not closed by a single quote.
+         */
+        ILLEGAL_CHARACTER,
+
+        /**
+         * Any other illegal token.
+         */
+        ILLEGAL_TOKEN
+
+    }
+
+    private final Kind kind;
+    private final String source;
+    private final Position position;
+    private final String message;
+
+    /**
+     * Constructs a new {@code Diagnostic} object.
+     *
+     * @param kind     The kind of the error.
+     * @param source   Name of the scanned content, e.g., the filename, or {@code null} if it has no name.
+     * @param position Position of the token or delimiter causing the error, or {@code null} if it is unknown.
+     * @param message  The message of the error.
+     */
+    public Diagnostic(Kind kind, String source, Position position, String message) {
+        this.kind = kind;
+        this.source = source;
+        this.position = position;
+        this.message = message;
+    }
+
+    /**
+     * Getter for the kind of the error.
+     *
+     * @return {@link Kind} of the error.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Getter for the name of the scanned content.
+     *
+     * @return Name of the content, or {@code null} if it has no name.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Getter for the position of the token or delimiter causing the error.
+     *
+     * @return Beginning {@link Position} object of the token, or {@code null} if it is unknown.
+     */
+    public Position getPosition() {
+        return position;
+    }
+
+    /**
+     * Getter for the message of the error.
+     *
+     * @return Message in string.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Format the error in the form of {@code source:row:column: message}, without the unknown parts.
+     *
+     * @return The error in string.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        if (source != null) {
+            builder.append(source).append(':');
+        }
+        if (position != null) {
+            builder.append(position.getRow()).append(':').append(position.getColumn()).append(':');
+        }
+        if (builder.length() > 0) {
+            builder.append(' ');
+        }
+        return builder.append(message).toString();
+    }
+
+}
@@ -11,11 +11,11 @@ public interface Lexer {
     /**
      * Read the content to do lexical scan, which is the core method of a lexical scanner.
      * <p>
-     * The {@link java.io.FileReader} object is suggested to use for storing content,
+     * The {@link CharSource} object is suggested to use for storing content,
      * if so, inside the method the structure can be designed as:
      * <pre>
      *     do {
-     *         int c = reader.read();
+     *         int c = source.read();
      *         if (c == -1) {
      *             break;
      *         } else if (condition_1) {
@@ -33,6 +33,33 @@ public interface Lexer {
      */
     Lexer scan() throws IOException;
 
+    /**
+     * Read the content to do lexical scan in stream.
+     * Instead of being stored, every token is passed to the listener as soon as it is scanned,
+     * so that the memory used does not grow with the size of content,
+     * except the index of the lines, which grows by one {@code int} per line.
+     *
+     * @param listener The {@code TokenListener} object to receive the tokens.
+     * @return The {@code Lexer} object itself for chain call.
+     * @throws IOException If an I/O error occurs when reading.
+     */
+    Lexer scan(TokenListener listener) throws IOException;
+
+    /**
+     * Read the content until the next token has been scanned, and return it without storing.
+     * It is the pull-based counterpart of {@link Lexer#scan(TokenListener)}:
+     * <pre>
+     *     Token token;
+     *     while ((token = lexer.nextToken()) != null) {
+     *         // do something
+     *     }
+     * </pre>
+     *
+     * @return The next {@link Token} object, or {@code null} when the content has been read to the end.
+     * @throws IOException If an I/O error occurs when reading.
+     */
+    Token nextToken() throws IOException;
+
     /**
      * Print the results of lexical scan.
      *
@@ -51,7 +78,7 @@ public interface Lexer {
     Lexer write(String filename) throws IOException;
 
     /**
-     * Close the stream or reader that used in the {@code Lexer} object.
+     * Close the stream, reader, or source that used in the {@code Lexer} object.
      *
      * @throws IOException If an I/O error occurs when closing.
      */
@@ -24,6 +24,15 @@ package cn.edu.bjtu.lexer;
  *         String token = rs.getToken();
  *     }
  * </pre>
+ * The results can be accessed randomly as well, e.g., to find the token at row 4812, column 17:
+ * <pre>
+ *     if (rs.find(4812, 17) &gt;= 0) {
+ *         String token = rs.getToken();
+ *     }
+ * </pre>
+ * The results are appended in the order of their beginning positions, so the lookups are binary searches
+ * taking {@code O(log n)} moves of the cursor by {@link ResultSet#absolute(int)},
+ * which is constant time in the implementations storing the results in arrays.
  */
 public interface ResultSet {
 
@@ -37,6 +46,70 @@ public interface ResultSet {
      */
     void append(Position begin, Position end, TokenType type, String token);
 
+    /**
+     * Append result to a {@code ResultSet} object by the numbers of positions,
+     * so that no {@code Position} object is required when scanning.
+     * <p>
+     * By default, the {@code Position} objects are created and passed to
+     * {@link ResultSet#append(Position, Position, TokenType, String)}, so the existing implementations still work,
+     * and the ones storing the numbers should override it.
+     *
+     * @param beginIndex  Index number of the beginning position of the result.
+     * @param beginRow    Row number of the beginning position of the result.
+     * @param beginColumn Column number of the beginning position of the result.
+     * @param endIndex    Index number of the end position of the result.
+     * @param endRow      Row number of the end position of the result.
+     * @param endColumn   Column number of the end position of the result.
+     * @param type        The type of token of the result.
+     * @param token       The token of the result.
+     */
+    default void append(int beginIndex, int beginRow, int beginColumn, int endIndex, int endRow, int endColumn, TokenType type, String token) {
+        append(new Position(beginIndex, beginRow, beginColumn), new Position(endIndex, endRow, endColumn), type, token);
+    }
+
+    /**
+     * Get the number of results.
+     * <p>
+     * By default, the results are counted by traversing them from the beginning, which takes {@code O(n)} moves
+     * of the cursor and leaves it at the beginning, so the implementations knowing the number should override it.
+     *
+     * @return Number of results.
+     */
+    default int size() {
+        int size = 0;
+        first();
+        while (next()) {
+            size++;
+        }
+        first();
+        return size;
+    }
+
+    /**
+     * Move the cursor to a result by its index, from {@code 0} to {@code size() - 1}.
+     * The cursor is not moved if the index is out of range.
+     * <p>
+     * By default, the cursor is moved from the beginning by {@link ResultSet#next()}, which takes {@code O(i)} moves,
+     * and it is left at the beginning if the index is out of range,
+     * so the implementations supporting random access should override it.
+     *
+     * @param i Index of the result.
+     * @return {@code true} when the index is in range.
+     */
+    default boolean absolute(int i) {
+        first();
+        if (i < 0) {
+            return false;
+        }
+        for (int k = 0; k <= i; k++) {
+            if (!next()) {
+                first();
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Get to the beginning of the {@code ResultSet} by setting cursor to the first position.
      */
@@ -75,6 +148,75 @@ public interface ResultSet {
      */
     Position getEndPosition();
 
+    /**
+     * Get the index number of the beginning position of the result by the current cursor,
+     * so that no {@code Position} object is required, e.g., by the lookups.
+     * <p>
+     * By default, it is got from {@link ResultSet#getBeginPosition()},
+     * and the implementations storing the numbers should override it.
+     *
+     * @return Index number of the beginning position, or {@code -1} if the cursor is out of range.
+     */
+    default int getBeginIndex() {
+        Position begin = getBeginPosition();
+        return begin == null ? -1 : begin.getIndex();
+    }
+
+    /**
+     * Get the row number of the beginning position of the result by the current cursor.
+     * See {@link ResultSet#getBeginIndex()}.
+     *
+     * @return Row number of the beginning position, or {@code -1} if the cursor is out of range.
+     */
+    default int getBeginRow() {
+        Position begin = getBeginPosition();
+        return begin == null ? -1 : begin.getRow();
+    }
+
+    /**
+     * Get the column number of the beginning position of the result by the current cursor.
+     * See {@link ResultSet#getBeginIndex()}.
+     *
+     * @return Column number of the beginning position, or {@code -1} if the cursor is out of range.
+     */
+    default int getBeginColumn() {
+        Position begin = getBeginPosition();
+        return begin == null ? -1 : begin.getColumn();
+    }
+
+    /**
+     * Get the index number of the end position of the result by the current cursor.
+     * See {@link ResultSet#getBeginIndex()}.
+     *
+     * @return Index number of the end position, or {@code -1} if the cursor is out of range.
+     */
+    default int getEndIndex() {
+        Position end = getEndPosition();
+        return end == null ? -1 : end.getIndex();
+    }
+
+    /**
+     * Get the row number of the end position of the result by the current cursor.
+     * See {@link ResultSet#getBeginIndex()}.
+     *
+     * @return Row number of the end position, or {@code -1} if the cursor is out of range.
+     */
+    default int getEndRow() {
+        Position end = getEndPosition();
+        return end == null ? -1 : end.getRow();
+    }
+
+    /**
+     * Get the column number of the end position of the result by the current cursor.
+     * See {@link ResultSet#getBeginIndex()}.
+     *
+     * @return Column number of the end position, or {@code -1} if the cursor is out of range.
+     */
+    default int getEndColumn() {
+        Position end = getEndPosition();
+        return end == null ? -1 : end.getColumn();
+    }
+
     /**
      * Get the token type of the result by the current cursor.
      *
@@ -89,4 +231,129 @@ public interface ResultSet {
      */
     String getToken();
 
+    /**
+     * Get the token of the result by the current cursor as a {@code CharSequence},
+     * which may be a view of the storage of the {@code ResultSet} object, or a string shared by all
+     * the occurrences of the token, so that no string is created for each call.
+     * It should be read before the cursor is moved, and not be kept after the {@code ResultSet} object is modified.
+     * <p>
+     * By default, it is the same as {@link ResultSet#getToken()}.
+     *
+     * @return Token of the result, or {@code null} if the cursor is out of range.
+     */
+    default CharSequence getTokenText() {
+        return getToken();
+    }
+
+    /**
+     * Get a result by its index, and move the cursor to it.
+     *
+     * @param i Index of the result.
+     * @return {@link Token} object of the result, or {@code null} if the index is out of range.
+     */
+    default Token get(int i) {
+        if (absolute(i)) {
+            return new Token(getBeginPosition(), getEndPosition(), getTokenType(), getToken());
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Find the last result beginning at or before an index number by binary search.
+     * The cursor is moved to the result found, or to the beginning if none is found.
+     *
+     * @param index The index number, which is the same as the ones of {@link Position}, i.e., offset plus 1.
+     * @return Index of the result, or {@code -1} if all the results begin after the index number.
+     */
+    default int floor(int index) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            absolute(middle);
+            if (getBeginIndex() <= index) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (high < 0) {
+            first();
+        } else {
+            absolute(high);
+        }
+        return high;
+    }
+
+    /**
+     * Find the last result beginning at or before a row and column by binary search.
+     * The cursor is moved to the result found, or to the beginning if none is found.
+     *
+     * @param row    The row number.
+     * @param column The column number, which is the same as the ones of {@link Position}.
+     * @return Index of the result, or {@code -1} if all the results begin after the row and column.
+     */
+    default int floor(int row, int column) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            absolute(middle);
+            int beginRow = getBeginRow();
+            if (beginRow < row || beginRow == row && getBeginColumn() <= column) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (high < 0) {
+            first();
+        } else {
+            absolute(high);
+        }
+        return high;
+    }
+
+    /**
+     * Find the result whose token covers an index number, i.e., the index number is between
+     * the index numbers of its beginning position, inclusive, and its end position, exclusive.
+     * The cursor is moved to the result found, or to the beginning if none is found.
+     * <p>
+     * As the end position of a literal is the one after its closing quote,
+     * the index number of the closing quote is covered by the literal.
+     *
+     * @param index The index number, which is the same as the ones of {@link Position}, i.e., offset plus 1.
+     * @return Index of the result, or {@code -1} if none covers the index number, e.g., it is in a white-space.
+     */
+    default int find(int index) {
+        int i = floor(index);
+        if (i >= 0 && index < getEndIndex()) {
+            return i;
+        }
+        first();
+        return -1;
+    }
+
+    /**
+     * Find the result whose token covers a row and column, i.e., the row and column are between
+     * the ones of its beginning position, inclusive, and its end position, exclusive.
+     * The cursor is moved to the result found, or to the beginning if none is found.
+     *
+     * @param row    The row number.
+     * @param column The column number, which is the same as the ones of {@link Position}.
+     * @return Index of the result, or {@code -1} if none covers the row and column, e.g., they are in a white-space.
+     */
+    default int find(int row, int column) {
+        int i = floor(row, column);
+        if (i >= 0) {
+            int endRow = getEndRow();
+            if (row < endRow || row == endRow && column < getEndColumn()) {
+                return i;
+            }
+        }
+        first();
+        return -1;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package cn.edu.bjtu.lexer;
+
+/**
+ * A {@code Token} object is a single result of lexical scan,
+ * which stores the beginning position, end position, token type, and token.
+ * It is returned by {@link Lexer#nextToken()} for scanning in stream.
+ */
+public final class Token {
+
+    private final Position begin;
+    private final Position end;
+    private final TokenType type;
+    private final String token;
+
+    /**
+     * Constructs a new {@code Token} object.
+     *
+     * @param begin The beginning position of the token.
+     * @param end   The end position of the token.
+     * @param type  The type of the token.
+     * @param token The token in string.
+     */
+    public Token(Position begin, Position end, TokenType type, String token) {
+        this.begin = begin;
+        this.end = end;
+        this.type = type;
+        this.token = token;
+    }
+
+    /**
+     * Getter for the beginning position of the token.
+     *
+     * @return Beginning {@link Position} object of the token.
+     */
+    public Position getBeginPosition() {
+        return begin;
+    }
+
+    /**
+     * Getter for the end position of the token.
+     *
+     * @return End {@link Position} object of the token.
+     */
+    public Position getEndPosition() {
+        return end;
+    }
+
+    /**
+     * Getter for the type of the token.
+     *
+     * @return {@link TokenType} object of the token.
+     */
+    public TokenType getTokenType() {
+        return type;
+    }
+
+    /**
+     * Getter for the token.
+     *
+     * @return Token in string.
+     */
+    public String getToken() {
+        return token;
+    }
+
+}
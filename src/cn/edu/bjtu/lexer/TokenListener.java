@@ -0,0 +1,20 @@
+package cn.edu.bjtu.lexer;
+
+/**
+ * A {@code TokenListener} object receives the results of lexical scan one by one
+ * as soon as they are produced, see {@link Lexer#scan(TokenListener)}.
+ * Different from a {@link ResultSet} object, the results are not stored.
+ */
+public interface TokenListener {
+
+    /**
+     * Called when a token has been scanned.
+     *
+     * @param begin The beginning position of the token.
+     * @param end   The end position of the token.
+     * @param type  The type of the token.
+     * @param token The token in string.
+     */
+    void onToken(Position begin, Position end, TokenType type, String token);
+
+}
@@ -0,0 +1,277 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.ResultSet;
+import cn.edu.bjtu.lexer.TokenListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A {@code BatchLexer} object scans many files concurrently on a work-stealing {@link ForkJoinPool}.
+ * Each file is scanned by its own {@link LexerImpl} object, so no state is shared between the tasks.
+ * <p>
+ * To scan a directory and get the results of each file:
+ * <pre>
+ *     try (BatchLexer batch = new BatchLexer(8)) {
+ *         Map&lt;Path, ResultSet&gt; results = batch.scan(Paths.get("src"));
+ *         System.out.println(batch.getReport());
+ *         batch.getDiagnostics().drain(System.err::println);
+ *     }
+ * </pre>
+ */
+public final class BatchLexer implements Closeable {
+
+    private static final String PATTERN_SOURCE = "(?i).*\\.[ch]$";
+
+    private final ForkJoinPool pool;
+    private final Supplier<ResultSet> resultSets;
+    private volatile BatchReport report = new BatchReport(0, 0, 0, 0);
+    private volatile DiagnosticSink diagnostics = new DiagnosticSink();
+
+    /**
+     * Constructs a new {@code BatchLexer} object using all the available processors,
+     * and storing results in {@link ResultSetImpl} objects.
+     */
+    public BatchLexer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a new {@code BatchLexer} object storing results in {@link ResultSetImpl} objects.
+     *
+     * @param parallelism Number of files to scan at the same time.
+     */
+    public BatchLexer(int parallelism) {
+        this(parallelism, ResultSetImpl::new);
+    }
+
+    /**
+     * Constructs a new {@code BatchLexer} object.
+     *
+     * @param parallelism Number of files to scan at the same time.
+     * @param resultSets  Supplier of a new {@code ResultSet} object for each file, e.g., {@code ColumnarResultSet::new}.
+     */
+    public BatchLexer(int parallelism, Supplier<ResultSet> resultSets) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.resultSets = resultSets;
+    }
+
+    /**
+     * Find all the C source and header files ({@code .c} and {@code .h}) under a directory recursively.
+     *
+     * @param directory The directory to search.
+     * @return Paths of the files in order.
+     * @throws IOException If an I/O error occurs when walking the directory.
+     */
+    public static List<Path> findSources(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths
+                .filter(Files::isRegularFile)
+                .filter(path -> path.getFileName().toString().toLowerCase(Locale.ROOT).matches(PATTERN_SOURCE))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Scan all the C source and header files under a directory.
+     *
+     * @param directory The directory to scan.
+     * @return The {@code ResultSet} object of each file, in the order of paths.
+     * @throws IOException If an I/O error occurs when reading any of the files.
+     * @see BatchLexer#findSources(Path)
+     */
+    public Map<Path, ResultSet> scan(Path directory) throws IOException {
+        return scan(findSources(directory));
+    }
+
+    /**
+     * Scan the files concurrently, and store the results of each file in its own {@code ResultSet} object.
+     *
+     * @param files Paths of the files to scan.
+     * @return The {@code ResultSet} object of each file, in the same order as the given paths.
+     * @throws IOException If an I/O error occurs when reading any of the files.
+     */
+    public Map<Path, ResultSet> scan(Collection<Path> files) throws IOException {
+        List<Path> paths = new ArrayList<>(files);
+        ResultSet[] results = new ResultSet[paths.size()];
+        run(paths, i -> {
+            ResultSet rs = resultSets.get();
+            LexerImpl lexer = new LexerImpl(paths.get(i), rs).setDiagnostics(diagnostics);
+            try {
+                lexer.scan();
+            } finally {
+                lexer.close();
+            }
+            results[i] = rs;
+            return rs.size();
+        });
+        Map<Path, ResultSet> map = new LinkedHashMap<>();
+        for (int i = 0; i < paths.size(); i++) {
+            map.put(paths.get(i), results[i]);
+        }
+        return map;
+    }
+
+    /**
+     * Scan the files concurrently in stream, see {@link cn.edu.bjtu.lexer.Lexer#scan(TokenListener)}.
+     * The tokens of each file are passed to its own {@code TokenListener} object on the thread scanning the file,
+     * so a listener is not called concurrently unless it is shared by several files.
+     * The tokens are not kept by the lexers, but the {@link LineIndex} object of each file being scanned
+     * still grows by one {@code int} per line.
+     *
+     * @param files     Paths of the files to scan.
+     * @param listeners Function to get the {@code TokenListener} object of each file.
+     * @throws IOException If an I/O error occurs when reading any of the files.
+     */
+    public void scan(Collection<Path> files, Function<Path, TokenListener> listeners) throws IOException {
+        List<Path> paths = new ArrayList<>(files);
+        run(paths, i -> {
+            TokenListener listener = listeners.apply(paths.get(i));
+            long[] tokens = new long[1];
+            LexerImpl lexer = new LexerImpl(paths.get(i)).setDiagnostics(diagnostics);
+            try {
+                lexer.scan((begin, end, type, token) -> {
+                    tokens[0]++;
+                    listener.onToken(begin, end, type, token);
+                });
+            } finally {
+                lexer.close();
+            }
+            return tokens[0];
+        });
+    }
+
+    /**
+     * Run the scan of each file as a task in the pool, wait for all of them, and update the report.
+     *
+     * @param paths Paths of the files to scan.
+     * @param scan  The scan of a file by its index in the paths.
+     * @throws IOException If an I/O error occurs when reading any of the files.
+     */
+    private void run(List<Path> paths, FileScan scan) throws IOException {
+        long start = System.nanoTime();
+        AtomicLong bytes = new AtomicLong();
+        AtomicLong tokens = new AtomicLong();
+        try {
+            pool.invoke(new ScanTask(paths, scan, 0, paths.size(), bytes, tokens));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        report = new BatchReport(paths.size(), bytes.get(), tokens.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Getter for the report of the latest run.
+     *
+     * @return The {@link BatchReport} object.
+     */
+    public BatchReport getReport() {
+        return report;
+    }
+
+    /**
+     * Get the {@code DiagnosticSink} object which the lexers of all the files report the errors to.
+     *
+     * @return The {@code DiagnosticSink} object, or {@code null} if the errors are ignored.
+     */
+    public DiagnosticSink getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Set the {@code DiagnosticSink} object shared by the lexers of all the files to report the errors to,
+     * see {@link LexerImpl#setDiagnostics(DiagnosticSink)}.
+     * By default, each {@code BatchLexer} object has its own one, which can be drained through
+     * {@link BatchLexer#getDiagnostics()}.
+     *
+     * @param diagnostics The {@code DiagnosticSink} object, or {@code null} to ignore the errors.
+     * @return The {@code BatchLexer} object itself for chain call.
+     */
+    public BatchLexer setDiagnostics(DiagnosticSink diagnostics) {
+        this.diagnostics = diagnostics;
+        return this;
+    }
+
+    /**
+     * Shut down the pool of the {@code BatchLexer} object.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * The scan of a single file in a batch.
+     */
+    private interface FileScan {
+
+        /**
+         * Scan a file.
+         *
+         * @param i Index of the file in the paths.
+         * @return Number of tokens scanned.
+         * @throws IOException If an I/O error occurs when reading the file.
+         */
+        long scan(int i) throws IOException;
+
+    }
+
+    /**
+     * A {@code ScanTask} object scans a range of the files.
+     * Ranges are split in halves until a single file is left, so idle workers can steal the other halves.
+     */
+    private static final class ScanTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> paths;
+        private final FileScan scan;
+        private final int from;
+        private final int to;
+        private final AtomicLong bytes;
+        private final AtomicLong tokens;
+
+        ScanTask(List<Path> paths, FileScan scan, int from, int to, AtomicLong bytes, AtomicLong tokens) {
+            this.paths = paths;
+            this.scan = scan;
+            this.from = from;
+            this.to = to;
+            this.bytes = bytes;
+            this.tokens = tokens;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ScanTask(paths, scan, from, middle, bytes, tokens), new ScanTask(paths, scan, middle, to, bytes, tokens));
+            } else if (to - from == 1) {
+                try {
+                    bytes.addAndGet(Files.size(paths.get(from)));
+                    tokens.addAndGet(scan.scan(from));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+    }
+
+}
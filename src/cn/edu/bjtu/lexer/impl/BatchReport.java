@@ -0,0 +1,94 @@
+package cn.edu.bjtu.lexer.impl;
+
+/**
+ * A {@code BatchReport} object records the aggregate throughput of a run of {@link BatchLexer}.
+ */
+public final class BatchReport {
+
+    private final int files;
+    private final long bytes;
+    private final long tokens;
+    private final long elapsedNanos;
+
+    /**
+     * Constructs a new {@code BatchReport} object.
+     *
+     * @param files        Number of files scanned.
+     * @param bytes        Total size of the files in bytes.
+     * @param tokens       Total number of tokens scanned.
+     * @param elapsedNanos Wall-clock time of the run in nanoseconds.
+     */
+    public BatchReport(int files, long bytes, long tokens, long elapsedNanos) {
+        this.files = files;
+        this.bytes = bytes;
+        this.tokens = tokens;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Getter for the number of files scanned.
+     *
+     * @return Number of files in {@code int}.
+     */
+    public int getFiles() {
+        return files;
+    }
+
+    /**
+     * Getter for the total size of the files.
+     *
+     * @return Number of bytes in {@code long}.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Getter for the total number of tokens.
+     *
+     * @return Number of tokens in {@code long}.
+     */
+    public long getTokens() {
+        return tokens;
+    }
+
+    /**
+     * Getter for the wall-clock time of the run.
+     *
+     * @return Elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Get the throughput in megabytes per second.
+     *
+     * @return Megabytes (2<sup>20</sup> bytes) scanned per second.
+     */
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytes / 1048576.0 / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Get the throughput in tokens per second.
+     *
+     * @return Tokens scanned per second.
+     */
+    public double getTokensPerSecond() {
+        return elapsedNanos == 0 ? 0 : tokens / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Convert the report to string, e.g.,
+     * {@code 120 files, 35.20 MB, 8123456 tokens in 812 ms (43.35 MB/s, 10004256 tokens/s)}.
+     *
+     * @return The report in string.
+     */
+    @Override
+    public String toString() {
+        return String.format("%d files, %.2f MB, %d tokens in %d ms (%.2f MB/s, %.0f tokens/s)",
+            files, bytes / 1048576.0, tokens, elapsedNanos / 1000000, getMegabytesPerSecond(), getTokensPerSecond());
+    }
+
+}
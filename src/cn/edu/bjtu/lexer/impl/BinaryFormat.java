@@ -0,0 +1,69 @@
+package cn.edu.bjtu.lexer.impl;
+
+/**
+ * The {@code BinaryFormat} class is an util class that defines the layout of the binary format of results,
+ * which is written by {@link ResultSetFactory#writeBinary(cn.edu.bjtu.lexer.ResultSet, java.nio.channels.WritableByteChannel)}
+ * and read by {@link MappedResultSet}.
+ * <p>
+ * All the fixed-size numbers are 32-bit big-endian integers. The file is made up of the following sections:
+ * <ol>
+ *     <li>Header of {@value #HEADER_SIZE} bytes: magic number, version, number of results, block size,
+ *     number of token types, offset of the checkpoints, number of tokens in the pool and offset of the pool.</li>
+ *     <li>Records, one per result: ordinal of the {@link TokenTypeImpl} in a byte, with {@link #FLAG_SIMPLE}
+ *     set if the end position is on the same row as the beginning one and its column is moved by the length.
+ *     It is followed by varints of the zigzag encoded delta of the beginning index to the previous end index,
+ *     delta of the beginning row to the previous one, beginning column (delta to the previous one if on the same row),
+ *     and length of the result. If the record is not simple, the deltas of the end row and column to the beginning
+ *     position follow. The record ends with a varint of the id of the token in the pool.</li>
+ *     <li>Checkpoints, one per block of {@value #BLOCK_SIZE} records: offset of the first record of the block,
+ *     the end index, beginning row and column of the result before the block, so that a block can be decoded alone.</li>
+ *     <li>Pool of the distinct tokens: offsets of the tokens, one more than the number of tokens,
+ *     followed by the tokens encoded in UTF-8.</li>
+ *     <li>Trailer of {@value #TRAILER_SIZE} bytes, only if the number of results in the header is
+ *     {@value #UNKNOWN_SIZE}: number of results, offset of the checkpoints, number of tokens in the pool
+ *     and offset of the pool, which are not known until the records have been written to a channel
+ *     which cannot go back to fill in the header.</li>
+ * </ol>
+ * All the offsets are from the beginning of the header.
+ */
+final class BinaryFormat {
+
+    /**
+     * {@code "LEXR"} in ASCII.
+     */
+    static final int MAGIC = 0x4c455852;
+    /**
+     * Version of the format, which is increased when the layout changes.
+     */
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 32;
+    static final int TRAILER_SIZE = 16;
+    static final int UNKNOWN_SIZE = -1;
+    static final int BLOCK_SIZE = 64;
+    static final int CHECKPOINT_SIZE = 16;
+    static final int FLAG_SIMPLE = 0x80;
+
+    private BinaryFormat() {
+    }
+
+    /**
+     * Map a signed integer to an unsigned one so that numbers close to zero are encoded in few bytes.
+     *
+     * @param n Signed integer.
+     * @return Zigzag encoded integer.
+     */
+    static int encodeZigzag(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    /**
+     * Map a zigzag encoded integer back to the signed one.
+     *
+     * @param n Zigzag encoded integer.
+     * @return Signed integer.
+     */
+    static int decodeZigzag(int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+}
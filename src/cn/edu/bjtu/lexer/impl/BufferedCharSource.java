@@ -0,0 +1,194 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.CharSource;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * The {@code BufferedCharSource} class is the implementation of the {@link CharSource} interface
+ * based on a {@link Reader} object.
+ * <p>
+ * The characters are read from the {@code Reader} object in bulk into a {@code char[]} window,
+ * and the window is refilled only when all of its characters have been consumed,
+ * or when the lookahead goes beyond the window.
+ */
+public final class BufferedCharSource implements CharSource {
+
+    private static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private final Reader reader;
+    private char[] buffer;
+    /**
+     * Index of the next character to read in the buffer.
+     */
+    private int position = 0;
+    /**
+     * Number of valid characters in the buffer.
+     */
+    private int limit = 0;
+    private boolean eof = false;
+
+    /**
+     * Constructs a new {@code BufferedCharSource} object with the default capacity.
+     *
+     * @param reader The {@code Reader} object to read from.
+     */
+    public BufferedCharSource(Reader reader) {
+        this(reader, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new {@code BufferedCharSource} object with given capacity.
+     *
+     * @param reader   The {@code Reader} object to read from.
+     * @param capacity Initial number of characters of the buffer.
+     */
+    public BufferedCharSource(Reader reader, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.reader = reader;
+        this.buffer = new char[capacity];
+    }
+
+    /**
+     * Make sure that there are at least {@code count} characters available from the current position
+     * unless the end of the reader has been reached.
+     * The unread characters are moved to the front of the buffer before refilling,
+     * and the buffer is enlarged if it cannot hold {@code count} characters.
+     *
+     * @param count Number of characters required.
+     * @return {@code true} when the required characters are available.
+     * @throws IOException If an I/O error occurs when reading.
+     */
+    private boolean fill(int count) throws IOException {
+        while (limit - position < count) {
+            if (eof) {
+                return false;
+            }
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                position = 0;
+            }
+            if (count > buffer.length) {
+                char[] temp = new char[Math.max(count, buffer.length * 2)];
+                System.arraycopy(buffer, 0, temp, 0, limit);
+                buffer = temp;
+            }
+            int n = reader.read(buffer, limit, buffer.length - limit);
+            if (n == -1) {
+                eof = true;
+            } else {
+                limit += n;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() throws IOException {
+        if (position < limit || fill(1)) {
+            return buffer[position++];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int peek(int offset) throws IOException {
+        if (position + offset < limit || fill(offset + 1)) {
+            return buffer[position + offset];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The buffer is searched directly, and refilled only when it has been skipped entirely.
+     */
+    @Override
+    public int skipUntil(int first, int second) throws IOException {
+        int count = 0;
+        while (position < limit || fill(1)) {
+            int p = position;
+            while (p < limit && buffer[p] != first && buffer[p] != second) {
+                p++;
+            }
+            count += p - position;
+            position = p;
+            if (p < limit) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The buffer is searched and copied directly, and refilled only when it has been read entirely.
+     */
+    @Override
+    public int readUntil(StringBuilder builder, int first, int second) throws IOException {
+        int count = 0;
+        while (position < limit || fill(1)) {
+            int p = position;
+            while (p < limit) {
+                char c = buffer[p];
+                if (c == first || c == second || c == '\r' || c == '\n') {
+                    break;
+                }
+                p++;
+            }
+            builder.append(buffer, position, p - position);
+            count += p - position;
+            position = p;
+            if (p < limit) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The buffer is searched directly, and refilled only when it has been skipped entirely.
+     */
+    @Override
+    public int skipBlanks(int max) throws IOException {
+        int count = 0;
+        while (count < max && (position < limit || fill(1))) {
+            int p = position;
+            int end = (int) Math.min(limit, (long) p + max - count);
+            while (p < end && (buffer[p] == ' ' || buffer[p] == '\t')) {
+                p++;
+            }
+            count += p - position;
+            position = p;
+            if (p < limit) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+}
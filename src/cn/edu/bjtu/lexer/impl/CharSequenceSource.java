@@ -0,0 +1,115 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.CharSource;
+
+/**
+ * The {@code CharSequenceSource} class is the implementation of the {@link CharSource} interface
+ * based on a {@link CharSequence} object which is already in memory, e.g., a {@code String}.
+ */
+public final class CharSequenceSource implements CharSource {
+
+    private final CharSequence content;
+    private int position = 0;
+
+    /**
+     * Constructs a new {@code CharSequenceSource} object.
+     *
+     * @param content The content to read.
+     */
+    public CharSequenceSource(CharSequence content) {
+        this.content = content;
+    }
+
+    /**
+     * Getter for the whole content, including the characters that have been read.
+     *
+     * @return The content in {@code CharSequence}.
+     */
+    CharSequence getContent() {
+        return content;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() {
+        if (position < content.length()) {
+            return content.charAt(position++);
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int peek(int offset) {
+        if (position + offset < content.length()) {
+            return content.charAt(position + offset);
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int skipUntil(int first, int second) {
+        int start = position;
+        int length = content.length();
+        while (position < length) {
+            char c = content.charAt(position);
+            if (c == first || c == second) {
+                break;
+            }
+            position++;
+        }
+        return position - start;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int readUntil(StringBuilder builder, int first, int second) {
+        int start = position;
+        int length = content.length();
+        while (position < length) {
+            char c = content.charAt(position);
+            if (c == first || c == second || c == '\r' || c == '\n') {
+                break;
+            }
+            position++;
+        }
+        builder.append(content, start, position);
+        return position - start;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int skipBlanks(int max) {
+        int start = position;
+        int end = (int) Math.min(content.length(), (long) position + max);
+        while (position < end) {
+            char c = content.charAt(position);
+            if (c != ' ' && c != '\t') {
+                break;
+            }
+            position++;
+        }
+        return position - start;
+    }
+
+    /**
+     * Nothing to close for a {@code CharSequence} object.
+     */
+    @Override
+    public void close() {
+    }
+
+}
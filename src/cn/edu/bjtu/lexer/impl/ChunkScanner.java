@@ -0,0 +1,335 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Position;
+import cn.edu.bjtu.lexer.ResultSet;
+import cn.edu.bjtu.lexer.Token;
+import cn.edu.bjtu.lexer.TokenType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static cn.edu.bjtu.lexer.impl.TokenUtil.*;
+
+/**
+ * A {@code ChunkScanner} object scans a content in memory in parallel, used by {@link LexerImpl#scan(int)}.
+ * <p>
+ * The procedure is:
+ * <ol>
+ *     <li>Split the content into chunks at line beginnings, so the column number at the beginning of each chunk is 0.</li>
+ *     <li>Count line feeds of each chunk concurrently to get the row number at the beginning of each chunk.</li>
+ *     <li>Scan each chunk concurrently, assuming that no token crosses its beginning.
+ *     The scan of a chunk goes on until a step begins at or after the beginning of the next chunk.</li>
+ *     <li>Merge the chunks in order.</li>
+ * </ol>
+ * When the scan of the previous chunk stops exactly at the beginning of a chunk, the assumption holds.
+ * Otherwise, a token, e.g., a block comment, crosses the beginning, so the results of the chunk are only
+ * reliable from the first token which the sequential scan also begins at. Since the lexer has no state but
+ * the position at the beginning of a token, the results are the same after that token.
+ * To find it, the content is scanned again sequentially from where the previous chunk stopped, token by token,
+ * until a token begins where a result of the chunk begins. If none is found, the whole chunk is replaced by
+ * the sequential scan, and the next chunk is checked in the same way.
+ * <p>
+ * The errors are reported while merging, from the merged results only, in the same order as the sequential scan.
+ */
+final class ChunkScanner {
+
+    private final CharSequence content;
+    /**
+     * Offsets of the beginnings of the chunks, followed by the length of the content.
+     */
+    private final int[] starts;
+    private String name = null;
+    private DiagnosticSink diagnostics = null;
+    private Delimiters[] delimiters = new Delimiters[0];
+
+    /**
+     * Constructs a new {@code ChunkScanner} object.
+     *
+     * @param content The content to scan.
+     * @param chunks  Number of chunks to split the content into.
+     *                There may be fewer chunks if the content does not have enough lines.
+     */
+    ChunkScanner(CharSequence content, int chunks) {
+        if (chunks <= 0) {
+            throw new IllegalArgumentException("Number of chunks must be positive: " + chunks);
+        }
+        this.content = content;
+        int length = content.length();
+        List<Integer> offsets = new ArrayList<>();
+        offsets.add(0);
+        for (int k = 1; k < chunks; k++) {
+            int offset = Math.max((int) ((long) length * k / chunks), offsets.get(offsets.size() - 1));
+            while (offset < length && content.charAt(offset) != CHAR_LINE_FEED) {
+                offset++;
+            }
+            offset++;
+            if (offset < length && offset > offsets.get(offsets.size() - 1)) {
+                offsets.add(offset);
+            }
+        }
+        offsets.add(length);
+        starts = offsets.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Set where to report the errors of the merged results, and the pair delimiters to track.
+     *
+     * @param name        Name of the content reported with the errors.
+     * @param diagnostics The {@code DiagnosticSink} object, or {@code null} to ignore the errors.
+     * @param delimiters  The pair delimiters to track when the errors are reported.
+     * @return The {@code ChunkScanner} object itself for chain call.
+     */
+    ChunkScanner setDiagnostics(String name, DiagnosticSink diagnostics, Delimiters... delimiters) {
+        this.name = name;
+        this.diagnostics = diagnostics;
+        this.delimiters = delimiters;
+        return this;
+    }
+
+    /**
+     * Scan the chunks in parallel and append the merged results to the {@code ResultSet} object.
+     *
+     * @param rs      The {@code ResultSet} object to append to.
+     * @param skipped The types of the tokens not to append marked by ordinal, or {@code null} to append all.
+     * @return The differences of the numbers of left and right braces, brackets, and parentheses in turn.
+     * @throws IOException If an I/O error occurs when reading.
+     */
+    int[] scan(ResultSet rs, boolean[] skipped) throws IOException {
+        int n = starts.length - 1;
+        int[] rows = new int[n];
+        IntStream.range(1, n).parallel().forEach(k -> {
+            int lines = 0;
+            for (int i = starts[k - 1]; i < starts[k]; i++) {
+                if (content.charAt(i) == CHAR_LINE_FEED) {
+                    lines++;
+                }
+            }
+            rows[k] = lines;
+        });
+        rows[0] = 1;
+        for (int k = 1; k < n; k++) {
+            rows[k] += rows[k - 1];
+        }
+
+        Chunk[] chunks = new Chunk[n];
+        try {
+            IntStream.range(0, n).parallel().forEach(k -> {
+                Chunk chunk = new Chunk(starts[k], starts[k + 1]);
+                LexerImpl lexer = new LexerImpl(source(chunk.start), chunk.rs, chunk.start, rows[k], 0, chunk.end)
+                    .setDiagnostics(null);
+                try {
+                    lexer.scan();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                chunk.stop(lexer);
+                chunks[k] = chunk;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        int[] counts = new int[3];
+        Chunk previous = chunks[0];
+        append(previous, 0, rs, skipped, counts);
+        int stopIndex = previous.stopIndex;
+        int stopRow = previous.stopRow;
+        int stopColumn = previous.stopColumn;
+        for (int k = 1; k < n; k++) {
+            Chunk chunk = chunks[k];
+            if (stopIndex >= chunk.end) {
+                // The whole chunk is covered by a token of the previous chunks
+                continue;
+            } else if (stopIndex == chunk.start) {
+                append(chunk, 0, rs, skipped, counts);
+            } else {
+                int from = chunk.find(stopIndex + 1);
+                if (from < 0) {
+                    LexerImpl lexer = new LexerImpl(source(stopIndex), new ResultSetImpl(), stopIndex, stopRow, stopColumn, chunk.end)
+                        .setDiagnostics(null);
+                    Token token;
+                    while ((token = lexer.nextToken()) != null) {
+                        from = chunk.find(token.getBeginPosition().getIndex());
+                        if (from >= 0) {
+                            break;
+                        }
+                        if (skipped == null || !skipped[((TokenTypeImpl) token.getTokenType()).ordinal()]) {
+                            rs.append(token.getBeginPosition(), token.getEndPosition(), token.getTokenType(), token.getToken());
+                        }
+                        if (token.getTokenType() == TokenTypeImpl.DELIMITER) {
+                            count(token.getToken().charAt(0), counts);
+                        }
+                        if (diagnostics != null) {
+                            Position begin = token.getBeginPosition();
+                            check(begin.getIndex() - 1, token.getEndPosition().getIndex() - 1, begin.getRow(), begin.getColumn(),
+                                token.getTokenType(), token.getToken());
+                        }
+                    }
+                    if (from < 0) {
+                        // The whole chunk is covered by the sequential scan
+                        stopIndex = lexer.getStopIndex();
+                        stopRow = lexer.getStopRow();
+                        stopColumn = lexer.getStopColumn();
+                        continue;
+                    }
+                }
+                append(chunk, from, rs, skipped, counts);
+            }
+            stopIndex = chunk.stopIndex;
+            stopRow = chunk.stopRow;
+            stopColumn = chunk.stopColumn;
+        }
+        return counts;
+    }
+
+    /**
+     * Get a {@code CharSource} object reading the content from an offset.
+     *
+     * @param offset Offset of the first character to read.
+     * @return The {@code CharSource} object.
+     */
+    private CharSequenceSource source(int offset) {
+        return new CharSequenceSource(CharBuffer.wrap(content, offset, content.length()));
+    }
+
+    /**
+     * Append the results of a chunk from an index, count the pair delimiters among them, and report their errors.
+     *
+     * @param chunk   The chunk.
+     * @param from    Index of the first result to append.
+     * @param rs      The {@code ResultSet} object to append to.
+     * @param skipped The types of the tokens not to append marked by ordinal, or {@code null} to append all.
+     * @param counts  Differences of the numbers of pair delimiters to update.
+     */
+    private void append(Chunk chunk, int from, ResultSet rs, boolean[] skipped, int[] counts) {
+        if (skipped == null) {
+            chunk.rs.appendTo(from, chunk.rs.size(), rs);
+        }
+        for (int i = from; i < chunk.rs.size(); i++) {
+            TokenTypeImpl type = (TokenTypeImpl) chunk.rs.getTokenType(i);
+            if (skipped != null && !skipped[type.ordinal()]) {
+                chunk.rs.appendTo(i, i + 1, rs);
+            }
+            if (type == TokenTypeImpl.DELIMITER) {
+                count(chunk.rs.getFirstChar(i), counts);
+            }
+            if (diagnostics != null && (type == TokenTypeImpl.DELIMITER || type == TokenTypeImpl.ILLEGAL
+                || type == TokenTypeImpl.BLOCK_COMMENT)) {
+                chunk.rs.absolute(i);
+                check(chunk.rs.getBeginIndex() - 1, chunk.rs.getEndIndex() - 1, chunk.rs.getBeginRow(),
+                    chunk.rs.getBeginColumn(), type, chunk.rs.getToken());
+            }
+        }
+    }
+
+    /**
+     * Report the errors of a merged result and track the pair delimiters, in the same way as {@link DfaLexer}.
+     *
+     * @param begin       Offset of the first character.
+     * @param end         Offset after the last character.
+     * @param beginRow    Row number of the first character.
+     * @param beginColumn Column number of the first character.
+     * @param type        The type of the token.
+     * @param token       The token in string, which is empty if its text is not kept.
+     */
+    private void check(int begin, int end, int beginRow, int beginColumn, TokenType type, String token) {
+        if (type == TokenTypeImpl.ILLEGAL) {
+            CharSequence text = token.isEmpty() ? CharBuffer.wrap(content, begin, end) : token;
+            diagnostics.offer(LexerImpl.getIllegalDiagnostic(name, new Position(begin + 1, beginRow, beginColumn), text));
+        } else if (type == TokenTypeImpl.BLOCK_COMMENT) {
+            // "/*/" ends with "*/" but is not closed
+            boolean closed = end - begin >= 4 && content.charAt(end - 2) == CHAR_STAR && content.charAt(end - 1) == CHAR_SLASH;
+            if (!closed) {
+                diagnostics.offer(LexerImpl.getUnterminatedCommentDiagnostic(name, new Position(begin + 1, beginRow, beginColumn)));
+            }
+        } else if (type == TokenTypeImpl.DELIMITER) {
+            for (Delimiters delimiter : delimiters) {
+                delimiter.track(content.charAt(begin), begin + 1, beginRow, beginColumn);
+            }
+        }
+    }
+
+    /**
+     * Count a delimiter in the same way as {@code LexerImpl#scanDelimiter()}.
+     *
+     * @param c      The delimiter.
+     * @param counts Differences of the numbers of left and right braces, brackets, and parentheses.
+     */
+    private static void count(int c, int[] counts) {
+        switch (c) {
+            case CHAR_LEFT_BRACE:
+                counts[0]++;
+                break;
+            case CHAR_RIGHT_BRACE:
+                counts[0]--;
+                break;
+            case CHAR_LEFT_BRACKET:
+                counts[1]++;
+                break;
+            case CHAR_RIGHT_BRACKET:
+                counts[1]--;
+                break;
+            case CHAR_LEFT_PARENTHESIS:
+                counts[2]++;
+                break;
+            case CHAR_RIGHT_PARENTHESIS:
+                counts[2]--;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * A {@code Chunk} object stores the speculative results of a chunk and where its scan stopped.
+     */
+    private static final class Chunk {
+
+        final int start;
+        final int end;
+        final ColumnarResultSet rs = new ColumnarResultSet();
+        int stopIndex;
+        int stopRow;
+        int stopColumn;
+
+        Chunk(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        void stop(LexerImpl lexer) {
+            stopIndex = lexer.getStopIndex();
+            stopRow = lexer.getStopRow();
+            stopColumn = lexer.getStopColumn();
+        }
+
+        /**
+         * Binary search the result beginning at the index number.
+         *
+         * @param beginIndex Index number of the beginning position.
+         * @return Index of the result, or {@code -1} if not found.
+         */
+        int find(int beginIndex) {
+            int low = 0;
+            int high = rs.size() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int value = rs.getBeginIndex(middle);
+                if (value < beginIndex) {
+                    low = middle + 1;
+                } else if (value > beginIndex) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+
+    }
+
+}
@@ -0,0 +1,378 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Position;
+import cn.edu.bjtu.lexer.ResultSet;
+import cn.edu.bjtu.lexer.TokenType;
+
+import java.util.Arrays;
+
+/**
+ * The {@code ColumnarResultSet} class is the implementation of the {@link ResultSet} interface
+ * which stores the results column-wise in arrays of primitives instead of one object per result.
+ * <p>
+ * Each number of the positions is stored in its own growable {@code int[]}, the token type is stored
+ * as the ordinal of {@link TokenTypeImpl}, and the token is stored as its id in a {@link SymbolTable},
+ * so that each distinct token is stored once. {@code Position} objects are created only
+ * when they are asked for by the cursor, and no token string is created when it is asked for.
+ * <p>
+ * Only the token types of {@link TokenTypeImpl} are supported.
+ */
+public final class ColumnarResultSet implements ResultSet {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final TokenTypeImpl[] TYPES = TokenTypeImpl.values();
+
+    private int[] beginIndexes;
+    private int[] beginRows;
+    private int[] beginColumns;
+    private int[] endIndexes;
+    private int[] endRows;
+    private int[] endColumns;
+    private byte[] types;
+    /**
+     * Ids of the tokens in {@link ColumnarResultSet#symbols}.
+     */
+    private int[] tokens;
+    private final SymbolTable symbols;
+    private int size = 0;
+    private int cursor = -1;
+
+    /**
+     * Constructs a new {@code ColumnarResultSet} object with the default capacity.
+     */
+    public ColumnarResultSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new {@code ColumnarResultSet} object with given capacity.
+     *
+     * @param capacity Initial number of results that can be stored without growing.
+     */
+    public ColumnarResultSet(int capacity) {
+        this(capacity, new SymbolTable());
+    }
+
+    /**
+     * Constructs a new {@code ColumnarResultSet} object with given capacity, interning the tokens in
+     * a given {@code SymbolTable} object, e.g., the one of the {@link LexerImpl} object appending to it,
+     * so that the tokens have the same ids and are not interned again.
+     *
+     * @param capacity Initial number of results that can be stored without growing.
+     * @param symbols  The {@code SymbolTable} object to intern the tokens in.
+     */
+    public ColumnarResultSet(int capacity, SymbolTable symbols) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        beginIndexes = new int[capacity];
+        beginRows = new int[capacity];
+        beginColumns = new int[capacity];
+        endIndexes = new int[capacity];
+        endRows = new int[capacity];
+        endColumns = new int[capacity];
+        types = new byte[capacity];
+        tokens = new int[capacity];
+        this.symbols = symbols;
+    }
+
+    /**
+     * Grow the columns by half when they are full.
+     */
+    private void grow() {
+        int capacity = beginIndexes.length + (beginIndexes.length >> 1) + 1;
+        beginIndexes = Arrays.copyOf(beginIndexes, capacity);
+        beginRows = Arrays.copyOf(beginRows, capacity);
+        beginColumns = Arrays.copyOf(beginColumns, capacity);
+        endIndexes = Arrays.copyOf(endIndexes, capacity);
+        endRows = Arrays.copyOf(endRows, capacity);
+        endColumns = Arrays.copyOf(endColumns, capacity);
+        types = Arrays.copyOf(types, capacity);
+        tokens = Arrays.copyOf(tokens, capacity);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void append(Position begin, Position end, TokenType type, String token) {
+        append(begin.getIndex(), begin.getRow(), begin.getColumn(), end.getIndex(), end.getRow(), end.getColumn(), type, token);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void append(int beginIndex, int beginRow, int beginColumn, int endIndex, int endRow, int endColumn, TokenType type, String token) {
+        if (size == beginIndexes.length) {
+            grow();
+        }
+        beginIndexes[size] = beginIndex;
+        beginRows[size] = beginRow;
+        beginColumns[size] = beginColumn;
+        endIndexes[size] = endIndex;
+        endRows[size] = endRow;
+        endColumns[size] = endColumn;
+        types[size] = (byte) ((TokenTypeImpl) type).ordinal();
+        tokens[size] = symbols.add(token);
+        size++;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the index number of the beginning position of a result without moving the cursor.
+     *
+     * @param i Index of the result.
+     * @return Index number of the beginning position.
+     */
+    int getBeginIndex(int i) {
+        return beginIndexes[i];
+    }
+
+    /**
+     * Get the token type of a result without moving the cursor.
+     *
+     * @param i Index of the result.
+     * @return Token type of the result.
+     */
+    TokenType getTokenType(int i) {
+        return TYPES[types[i]];
+    }
+
+    /**
+     * Get the first character of the token of a result without moving the cursor.
+     *
+     * @param i Index of the result.
+     * @return The first character, or {@code -1} if the token is empty.
+     */
+    int getFirstChar(int i) {
+        String token = symbols.get(tokens[i]);
+        return token.isEmpty() ? -1 : token.charAt(0);
+    }
+
+    /**
+     * Append the results in a range to another {@code ResultSet} object.
+     *
+     * @param from   Index of the first result to append, inclusive.
+     * @param to     Index of the last result to append, exclusive.
+     * @param target The {@code ResultSet} object to append to.
+     */
+    void appendTo(int from, int to, ResultSet target) {
+        for (int i = from; i < to; i++) {
+            target.append(beginIndexes[i], beginRows[i], beginColumns[i], endIndexes[i], endRows[i], endColumns[i],
+                TYPES[types[i]], symbols.get(tokens[i]));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean absolute(int i) {
+        if (0 <= i && i < size) {
+            cursor = i;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void first() {
+        cursor = -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void last() {
+        cursor = size - 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean next() {
+        if (cursor < size - 1) {
+            cursor++;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean previous() {
+        if (cursor >= 0) {
+            cursor--;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The {@code Position} object is created when this method is called.
+     */
+    @Override
+    public Position getBeginPosition() {
+        if (0 <= cursor && cursor < size) {
+            return new Position(beginIndexes[cursor], beginRows[cursor], beginColumns[cursor]);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The {@code Position} object is created when this method is called.
+     */
+    @Override
+    public Position getEndPosition() {
+        if (0 <= cursor && cursor < size) {
+            return new Position(endIndexes[cursor], endRows[cursor], endColumns[cursor]);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBeginIndex() {
+        if (0 <= cursor && cursor < size) {
+            return beginIndexes[cursor];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBeginRow() {
+        if (0 <= cursor && cursor < size) {
+            return beginRows[cursor];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBeginColumn() {
+        if (0 <= cursor && cursor < size) {
+            return beginColumns[cursor];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndIndex() {
+        if (0 <= cursor && cursor < size) {
+            return endIndexes[cursor];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndRow() {
+        if (0 <= cursor && cursor < size) {
+            return endRows[cursor];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndColumn() {
+        if (0 <= cursor && cursor < size) {
+            return endColumns[cursor];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TokenType getTokenType() {
+        if (0 <= cursor && cursor < size) {
+            return TYPES[types[cursor]];
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The string is shared by all the occurrences of the token.
+     */
+    @Override
+    public String getToken() {
+        if (0 <= cursor && cursor < size) {
+            return symbols.get(tokens[cursor]);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Get the id of the token of the result by the current cursor in the {@code SymbolTable} object,
+     * so that tokens can be compared by {@code ==} on the ids.
+     *
+     * @return Id of the token, or {@code -1} if the cursor is out of range.
+     */
+    public int getSymbol() {
+        if (0 <= cursor && cursor < size) {
+            return tokens[cursor];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Get the {@code SymbolTable} object which the tokens are interned in.
+     *
+     * @return The {@code SymbolTable} object.
+     */
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+}
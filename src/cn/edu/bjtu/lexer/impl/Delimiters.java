@@ -0,0 +1,148 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Diagnostic;
+import cn.edu.bjtu.lexer.Position;
+
+import java.util.Arrays;
+
+/**
+ * A {@code Delimiters} object tracks a kind of pair delimiters for {@link LexerImpl} and {@link DfaLexer},
+ * keeping the positions of the left ones not closed yet, and the first right one not opened,
+ * so that the error of the delimiters not in pair is reported in the same way by both lexers.
+ */
+final class Delimiters {
+
+    private final Diagnostic.Kind kind;
+    private final String title;
+    private final char left;
+    private final char right;
+
+    /**
+     * Number of the left delimiters minus the number of the right ones.
+     */
+    private int count = 0;
+    /**
+     * Index, row, and column of each left delimiter not closed yet.
+     */
+    private int[] lefts = new int[3 * 16];
+    private int size = 0;
+    private Position unopened = null;
+
+    /**
+     * Constructs a new {@code Delimiters} object.
+     *
+     * @param kind  The kind of the error.
+     * @param title Title of the error message.
+     * @param left  The left delimiter.
+     * @param right The right delimiter.
+     */
+    Delimiters(Diagnostic.Kind kind, String title, char left, char right) {
+        this.kind = kind;
+        this.title = title;
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * Constructs a new {@code Delimiters} object of braces.
+     *
+     * @return The {@code Delimiters} object.
+     */
+    static Delimiters braces() {
+        return new Delimiters(Diagnostic.Kind.UNBALANCED_BRACE, "Brace", '{', '}');
+    }
+
+    /**
+     * Constructs a new {@code Delimiters} object of brackets.
+     *
+     * @return The {@code Delimiters} object.
+     */
+    static Delimiters brackets() {
+        return new Delimiters(Diagnostic.Kind.UNBALANCED_BRACKET, "Bracket", '[', ']');
+    }
+
+    /**
+     * Constructs a new {@code Delimiters} object of parentheses.
+     *
+     * @return The {@code Delimiters} object.
+     */
+    static Delimiters parentheses() {
+        return new Delimiters(Diagnostic.Kind.UNBALANCED_PARENTHESIS, "Parenthesis", '(', ')');
+    }
+
+    /**
+     * Track a delimiter, which is ignored if it is not of this kind.
+     *
+     * @param c      The delimiter.
+     * @param index  Index number of the delimiter.
+     * @param row    Row number of the delimiter.
+     * @param column Column number of the delimiter.
+     */
+    void track(int c, int index, int row, int column) {
+        if (c == left) {
+            open(index, row, column);
+        } else if (c == right) {
+            close(index, row, column);
+        }
+    }
+
+    void open(int index, int row, int column) {
+        if (size * 3 == lefts.length) {
+            lefts = Arrays.copyOf(lefts, lefts.length * 2);
+        }
+        lefts[size * 3] = index;
+        lefts[size * 3 + 1] = row;
+        lefts[size * 3 + 2] = column;
+        size++;
+        count++;
+    }
+
+    void close(int index, int row, int column) {
+        if (size > 0) {
+            size--;
+        } else if (unopened == null) {
+            unopened = new Position(index, row, column);
+        }
+        count--;
+    }
+
+    /**
+     * Get the number of the tracked left delimiters minus the number of the tracked right ones.
+     *
+     * @return The difference.
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Locate the delimiter causing the error: the outermost left one not closed when there are more left ones,
+     * or the first right one not opened when there are more right ones.
+     *
+     * @param count Number of the left delimiters minus the number of the right ones.
+     * @return Position of the delimiter, or {@code null} if it has not been tracked.
+     */
+    Position locate(int count) {
+        if (count > 0) {
+            return size > 0 ? new Position(lefts[0], lefts[1], lefts[2]) : null;
+        }
+        return unopened;
+    }
+
+    /**
+     * Report an error to the {@code DiagnosticSink} object if the delimiters are not in pair.
+     *
+     * @param count       Number of the left delimiters minus the number of the right ones,
+     *                    which may be counted apart from the tracked ones, e.g., by {@link LexerImpl}.
+     * @param name        Name of the content reported with the error.
+     * @param diagnostics The {@code DiagnosticSink} object, or {@code null} to ignore the error.
+     */
+    void check(int count, String name, DiagnosticSink diagnostics) {
+        if (count == 0 || diagnostics == null) {
+            return;
+        }
+        String message = String.format("%s error: %d '%c' excepted.", title, Math.abs(count), count < 0 ? left : right);
+        diagnostics.offer(new Diagnostic(kind, name, locate(count), message));
+    }
+
+}
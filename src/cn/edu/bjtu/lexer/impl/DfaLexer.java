@@ -0,0 +1,428 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.CharSource;
+import cn.edu.bjtu.lexer.Lexer;
+import cn.edu.bjtu.lexer.Position;
+import cn.edu.bjtu.lexer.ResultSet;
+import cn.edu.bjtu.lexer.Token;
+import cn.edu.bjtu.lexer.TokenListener;
+import cn.edu.bjtu.lexer.TokenType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static cn.edu.bjtu.lexer.impl.TokenUtil.CHAR_EOF;
+import static cn.edu.bjtu.lexer.impl.TokenUtil.CHAR_SLASH;
+import static cn.edu.bjtu.lexer.impl.TokenUtil.CHAR_STAR;
+
+/**
+ * A {@code DfaLexer} object is a table-driven lexical scanner, which runs a {@link TransitionTable} object
+ * compiled from a {@link TokenSpec} object, so that the rules are changed by the spec instead of the code.
+ * <p>
+ * Each token is scanned by a single loop of table lookups, remembering the last state accepting a rule,
+ * and the token is the longest match. A character which no rule matches is an illegal token by itself.
+ * The whole content is read into memory before scanning, since the longest match may have to go back.
+ * <p>
+ * With the table of {@link TokenSpec#standard()}, which is the default, the types, strings, and positions
+ * of the tokens are the same as the ones of {@link LexerImpl}, and so are the errors reported to
+ * the {@link DiagnosticSink} object, including the pair delimiters, which are checked besides the rules.
+ */
+public class DfaLexer implements Lexer {
+
+    private static final String EMPTY_TOKEN = "";
+
+    private final TransitionTable table;
+    private final ResultSet rs;
+    private final CharSource source;
+    private final StringBuilder builder = new StringBuilder();
+    private SymbolTable symbols = new SymbolTable();
+    /**
+     * Name of the content reported with the errors, which is the filename when reading a file.
+     */
+    private String name = null;
+    /**
+     * When not {@code null}, errors are reported to it, and the delimiters are tracked to check if they are in pair.
+     */
+    private DiagnosticSink diagnostics = new DiagnosticSink();
+    private final Delimiters braces = Delimiters.braces();
+    private final Delimiters brackets = Delimiters.brackets();
+    private final Delimiters parentheses = Delimiters.parentheses();
+    private boolean finished = false;
+
+    // The table is copied to the fields for the scanning loop
+    private final char[] classes;
+    private final int[] next;
+    private final int[] rules;
+
+    /**
+     * The whole content, which is read at the first scan.
+     */
+    private char[] content = null;
+    private LineIndex lines;
+    private int offset = 0;
+    /**
+     * Row number and start offset of the line which the last token ended in.
+     */
+    private int row = 1;
+    private int rowStart = 0;
+    private int nextRowStart;
+
+    /**
+     * When not {@code null}, tokens are passed to it instead of being appended to the {@code ResultSet} object.
+     */
+    private TokenListener listener = null;
+    private Token pending = null;
+    private final TokenListener pendingListener = (begin, end, type, token) -> pending = new Token(begin, end, type, token);
+
+    /**
+     * Constructs a new {@code DfaLexer} object reading the file in the default charset with the standard table.
+     *
+     * @param path Path of the file to read.
+     * @throws IOException If an I/O error occurs when opening the file.
+     */
+    public DfaLexer(Path path) throws IOException {
+        this(new BufferedCharSource(new InputStreamReader(Files.newInputStream(path), Charset.defaultCharset())));
+        this.name = path.toString();
+    }
+
+    /**
+     * Constructs a new {@code DfaLexer} object reading from a {@code CharSource} object with the standard table.
+     *
+     * @param source The {@code CharSource} object to read.
+     */
+    public DfaLexer(CharSource source) {
+        this(source, new ResultSetImpl());
+    }
+
+    /**
+     * Constructs a new {@code DfaLexer} object reading from a {@code CharSource} object with the standard table,
+     * and storing the results in the given {@code ResultSet} object.
+     *
+     * @param source The {@code CharSource} object to read.
+     * @param rs     The {@code ResultSet} object to store the results.
+     */
+    public DfaLexer(CharSource source, ResultSet rs) {
+        this(getStandardTable(), source, rs);
+    }
+
+    /**
+     * Constructs a new {@code DfaLexer} object.
+     *
+     * @param table  The {@code TransitionTable} object to run.
+     * @param source The {@code CharSource} object to read.
+     * @param rs     The {@code ResultSet} object to store the results.
+     */
+    public DfaLexer(TransitionTable table, CharSource source, ResultSet rs) {
+        this.table = table;
+        this.source = source;
+        this.rs = rs;
+        this.classes = table.classes;
+        this.next = table.next;
+        this.rules = table.rules;
+    }
+
+    /**
+     * Get the table compiled from {@link TokenSpec#standard()}, which is compiled once when it is first asked for.
+     *
+     * @return The {@code TransitionTable} object.
+     */
+    public static TransitionTable getStandardTable() {
+        return StandardTable.TABLE;
+    }
+
+    /**
+     * Read the whole content and index its lines.
+     *
+     * @throws IOException If an I/O error occurs when reading.
+     */
+    private void load() throws IOException {
+        if (source instanceof CharSequenceSource) {
+            content = ((CharSequenceSource) source).getContent().toString().toCharArray();
+        } else {
+            StringBuilder temp = new StringBuilder();
+            do {
+                source.readUntil(temp, CHAR_EOF, CHAR_EOF);
+                int c = source.read();
+                if (c == CHAR_EOF) {
+                    break;
+                }
+                temp.append((char) c);
+            } while (true);
+            content = new char[temp.length()];
+            temp.getChars(0, content.length, content, 0);
+        }
+        lines = LineIndex.of(CharBuffer.wrap(content));
+        nextRowStart = lines.getLastRow() > 1 ? lines.getLineStart(2) : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Scan the next token by running the table from the current offset, skipping the matches of the skipped rules.
+     * When the end is reached for the first time, check pair delimiters.
+     *
+     * @return {@code false} when the content has been read to the end.
+     * @throws IOException If an I/O error occurs when reading.
+     */
+    private boolean step() throws IOException {
+        if (content == null) {
+            load();
+        }
+        int length = content.length;
+        while (offset < length) {
+            int begin = offset;
+            int state = table.start;
+            int rule = -1;
+            int end = begin + 1;
+            for (int i = begin; i < length; i++) {
+                state = next[state + classes[content[i]]];
+                if (state == TransitionTable.DEAD) {
+                    break;
+                } else if (rules[state] >= 0) {
+                    rule = rules[state];
+                    end = i + 1;
+                }
+            }
+            offset = end;
+            TokenType type = rule < 0 ? TokenTypeImpl.ILLEGAL : table.getTokenType(rule);
+            if (type == null) {
+                continue;
+            }
+            String token = EMPTY_TOKEN;
+            if (rule < 0 || table.isTextKept(rule)) {
+                builder.setLength(0);
+                builder.append(content, begin, end - begin);
+                token = symbols.intern(builder);
+            }
+            append(begin, end, type, token);
+            return true;
+        }
+        if (!finished) {
+            finished = true;
+            braces.check(braces.getCount(), name, diagnostics);
+            brackets.check(brackets.getCount(), name, diagnostics);
+            parentheses.check(parentheses.getCount(), name, diagnostics);
+        }
+        return false;
+    }
+
+    /**
+     * Move the current line forward to the line which the character at an offset is in.
+     *
+     * @param offset Offset of the character, which is not before the current line.
+     */
+    private void locate(int offset) {
+        while (offset >= nextRowStart) {
+            row++;
+            rowStart = nextRowStart;
+            nextRowStart = row < lines.getLastRow() ? lines.getLineStart(row + 1) : Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Append a token to the {@code ResultSet} object, or pass it to the {@code TokenListener} object.
+     *
+     * @param begin Offset of the first character.
+     * @param end   Offset after the last character.
+     * @param type  The type of the token.
+     * @param token The token in string.
+     */
+    private void append(int begin, int end, TokenType type, String token) {
+        locate(begin);
+        int beginRow = row;
+        int beginColumn = begin - rowStart + 1;
+        if (diagnostics != null) {
+            check(begin, end, beginRow, beginColumn, type, token);
+        }
+        locate(end);
+        int endColumn = end - rowStart + 1;
+        if (listener == null) {
+            rs.append(begin + 1, beginRow, beginColumn, end + 1, row, endColumn, type, token);
+        } else {
+            listener.onToken(new Position(begin + 1, beginRow, beginColumn), new Position(end + 1, row, endColumn), type, token);
+        }
+    }
+
+    /**
+     * Report the errors of a token and track the pair delimiters, in the same way as {@link LexerImpl}.
+     *
+     * @param begin       Offset of the first character.
+     * @param end         Offset after the last character.
+     * @param beginRow    Row number of the first character.
+     * @param beginColumn Column number of the first character.
+     * @param type        The type of the token.
+     * @param token       The token in string, which is empty if its text is not kept.
+     */
+    private void check(int begin, int end, int beginRow, int beginColumn, TokenType type, String token) {
+        if (type == TokenTypeImpl.ILLEGAL) {
+            CharSequence text = token.isEmpty() ? CharBuffer.wrap(content, begin, end - begin) : token;
+            diagnostics.offer(LexerImpl.getIllegalDiagnostic(name, new Position(begin + 1, beginRow, beginColumn), text));
+        } else if (type == TokenTypeImpl.BLOCK_COMMENT) {
+            // "/*/" ends with "*/" but is not closed
+            boolean closed = end - begin >= 4 && content[end - 2] == CHAR_STAR && content[end - 1] == CHAR_SLASH;
+            if (!closed) {
+                diagnostics.offer(LexerImpl.getUnterminatedCommentDiagnostic(name, new Position(begin + 1, beginRow, beginColumn)));
+            }
+        } else if (type == TokenTypeImpl.DELIMITER) {
+            braces.track(content[begin], begin + 1, beginRow, beginColumn);
+            brackets.track(content[begin], begin + 1, beginRow, beginColumn);
+            parentheses.track(content[begin], begin + 1, beginRow, beginColumn);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see DfaLexer#step()
+     */
+    @Override
+    public Lexer scan() throws IOException {
+        while (step()) {
+            // Scan until the end
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see DfaLexer#step()
+     */
+    @Override
+    public Lexer scan(TokenListener listener) throws IOException {
+        this.listener = listener;
+        try {
+            while (step()) {
+                // Scan until the end
+            }
+        } finally {
+            this.listener = null;
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see DfaLexer#step()
+     */
+    @Override
+    public Token nextToken() throws IOException {
+        pending = null;
+        listener = pendingListener;
+        try {
+            step();
+        } finally {
+            listener = null;
+        }
+        return pending;
+    }
+
+    /**
+     * Get the {@code LineIndex} object of the content, which is available after the scan has started.
+     *
+     * @return The {@code LineIndex} object, or {@code null} if nothing has been scanned.
+     */
+    public LineIndex getLineIndex() {
+        return lines;
+    }
+
+    /**
+     * Set the {@code SymbolTable} object to intern the tokens in, see {@link LexerImpl#setSymbolTable(SymbolTable)}.
+     *
+     * @param symbols The {@code SymbolTable} object.
+     * @return The Lexer object itself for chain call.
+     */
+    public DfaLexer setSymbolTable(SymbolTable symbols) {
+        this.symbols = symbols;
+        return this;
+    }
+
+    /**
+     * Get the {@code DiagnosticSink} object which the errors are reported to.
+     *
+     * @return The {@code DiagnosticSink} object, or {@code null} if the errors are ignored.
+     */
+    public DiagnosticSink getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Set the {@code DiagnosticSink} object to report the errors to, see {@link LexerImpl#setDiagnostics(DiagnosticSink)}.
+     * It should be set before anything has been scanned.
+     *
+     * @param diagnostics The {@code DiagnosticSink} object, or {@code null} to ignore the errors.
+     * @return The Lexer object itself for chain call.
+     */
+    public DfaLexer setDiagnostics(DiagnosticSink diagnostics) {
+        this.diagnostics = diagnostics;
+        return this;
+    }
+
+    /**
+     * Set the name of the content reported with the errors, which is the filename by default when reading a file.
+     *
+     * @param name Name of the content.
+     * @return The Lexer object itself for chain call.
+     */
+    public DfaLexer setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The results are written to the standard output row by row through a buffer which is flushed once at the end.
+     *
+     * @throws UncheckedIOException If an I/O error occurs when writing, which never happens to the standard output.
+     * @see ResultSetFactory#writeString(ResultSet, Appendable)
+     */
+    @Override
+    public Lexer print() {
+        // Not closed, which would close the standard output
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(System.out));
+        try {
+            ResultSetFactory.writeString(rs, out);
+            out.newLine();
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see ResultSetFactory#write(ResultSet, String)
+     */
+    @Override
+    public Lexer write(String filename) throws IOException {
+        ResultSetFactory.write(rs, filename);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final void close() throws IOException {
+        source.close();
+    }
+
+    /**
+     * Holds the standard table, which is compiled when the class is initialized at the first use.
+     */
+    private static final class StandardTable {
+
+        static final TransitionTable TABLE = TokenSpec.standard().compile();
+
+    }
+
+}
@@ -0,0 +1,145 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Diagnostic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A {@code DiagnosticSink} object collects the errors reported by {@link LexerImpl} objects,
+ * which may be shared by any number of lexers scanning concurrently, e.g., by {@link BatchLexer}:
+ * <pre>
+ *     DiagnosticSink sink = new DiagnosticSink(1024);
+ *     new LexerImpl(path).setDiagnostics(sink).scan().close();
+ *     sink.drain(System.err::println);
+ * </pre>
+ * Neither reporting nor draining takes a lock. The sink is bounded, so a scan never waits for the errors
+ * to be drained; the errors reported when it is full are dropped and counted by {@link DiagnosticSink#getDropped()}.
+ */
+public final class DiagnosticSink {
+
+    /**
+     * The default capacity.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final int capacity;
+    private final ConcurrentLinkedQueue<Diagnostic> queue = new ConcurrentLinkedQueue<>();
+    /**
+     * Number of errors reserved in the queue, which is increased before an error is added,
+     * so that it never exceeds the capacity.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Constructs a new {@code DiagnosticSink} object with the default capacity.
+     */
+    public DiagnosticSink() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new {@code DiagnosticSink} object.
+     *
+     * @param capacity Maximum number of errors kept before being drained.
+     */
+    public DiagnosticSink(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Report an error, which is dropped if the sink is full.
+     *
+     * @param diagnostic The error.
+     * @return {@code true} if the error is kept, or {@code false} if it is dropped.
+     */
+    public boolean offer(Diagnostic diagnostic) {
+        int n;
+        do {
+            n = size.get();
+            if (n >= capacity) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!size.compareAndSet(n, n + 1));
+        queue.offer(diagnostic);
+        return true;
+    }
+
+    /**
+     * Take the earliest error kept in the sink.
+     *
+     * @return The error, or {@code null} if the sink is empty.
+     */
+    public Diagnostic poll() {
+        Diagnostic diagnostic = queue.poll();
+        if (diagnostic != null) {
+            size.decrementAndGet();
+        }
+        return diagnostic;
+    }
+
+    /**
+     * Take all the errors kept in the sink in order, and pass them to the consumer.
+     * The errors reported while draining may be passed as well.
+     *
+     * @param consumer The consumer of the errors.
+     * @return Number of errors drained.
+     */
+    public int drain(Consumer<? super Diagnostic> consumer) {
+        int count = 0;
+        Diagnostic diagnostic;
+        while ((diagnostic = poll()) != null) {
+            consumer.accept(diagnostic);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Take all the errors kept in the sink in order.
+     *
+     * @return The errors in a list.
+     */
+    public List<Diagnostic> drain() {
+        List<Diagnostic> list = new ArrayList<>();
+        drain(list::add);
+        return list;
+    }
+
+    /**
+     * Get the number of errors kept in the sink.
+     *
+     * @return Number of errors.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Getter for the capacity of the sink.
+     *
+     * @return Maximum number of errors kept.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of errors dropped since the sink was full.
+     *
+     * @return Number of errors dropped.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+}
@@ -0,0 +1,111 @@
+package cn.edu.bjtu.lexer.impl;
+
+import java.util.Arrays;
+
+/**
+ * A {@code GapBuffer} object is a mutable {@link CharSequence} for {@link IncrementalLexer},
+ * which keeps a gap at the last edited offset so that an edit near the previous one
+ * only moves the characters between them instead of the whole tail.
+ */
+final class GapBuffer implements CharSequence {
+
+    private char[] buffer;
+    private int gapStart;
+    private int gapEnd;
+
+    /**
+     * Constructs a new {@code GapBuffer} object with the initial content.
+     *
+     * @param content The initial content.
+     */
+    GapBuffer(CharSequence content) {
+        int length = content.length();
+        buffer = new char[length + Math.max(length >> 4, 16)];
+        for (int i = 0; i < length; i++) {
+            buffer[i] = content.charAt(i);
+        }
+        gapStart = length;
+        gapEnd = buffer.length;
+    }
+
+    /**
+     * Replace a region of the content by a text.
+     *
+     * @param offset        Offset of the beginning of the region.
+     * @param deletedLength Length of the region to delete.
+     * @param insertedText  Text to insert at the offset.
+     */
+    void replace(int offset, int deletedLength, CharSequence insertedText) {
+        moveGap(offset);
+        gapEnd += deletedLength;
+        int length = insertedText.length();
+        if (gapEnd - gapStart < length) {
+            int tail = buffer.length - gapEnd;
+            int capacity = Math.max(buffer.length + (buffer.length >> 1), gapStart + length + tail + 16);
+            char[] grown = Arrays.copyOf(buffer, capacity);
+            System.arraycopy(buffer, gapEnd, grown, capacity - tail, tail);
+            buffer = grown;
+            gapEnd = capacity - tail;
+        }
+        for (int i = 0; i < length; i++) {
+            buffer[gapStart++] = insertedText.charAt(i);
+        }
+    }
+
+    /**
+     * Move the gap to an offset.
+     *
+     * @param offset Offset to move the gap to.
+     */
+    private void moveGap(int offset) {
+        if (offset < gapStart) {
+            int count = gapStart - offset;
+            System.arraycopy(buffer, offset, buffer, gapEnd - count, count);
+            gapStart -= count;
+            gapEnd -= count;
+        } else if (offset > gapStart) {
+            int count = offset - gapStart;
+            System.arraycopy(buffer, gapEnd, buffer, gapStart, count);
+            gapStart += count;
+            gapEnd += count;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int length() {
+        return buffer.length - (gapEnd - gapStart);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public char charAt(int index) {
+        return index < gapStart ? buffer[index] : buffer[index + gapEnd - gapStart];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        StringBuilder builder = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            builder.append(charAt(i));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return new StringBuilder(length()).append(buffer, 0, gapStart)
+            .append(buffer, gapEnd, buffer.length - gapEnd).toString();
+    }
+
+}
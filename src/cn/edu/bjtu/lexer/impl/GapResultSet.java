@@ -0,0 +1,434 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Position;
+import cn.edu.bjtu.lexer.ResultSet;
+import cn.edu.bjtu.lexer.TokenType;
+
+import java.util.Arrays;
+
+/**
+ * The {@code GapResultSet} class is the implementation of the {@link ResultSet} interface for {@link IncrementalLexer},
+ * which stores the results column-wise with a gap at the last edited result.
+ * <p>
+ * The index and row numbers of the results before the gap are stored as they are, while the ones after the gap
+ * are stored relative to {@link GapResultSet#indexBase} and {@link GapResultSet#rowBase}.
+ * So shifting all the results after an edit only changes the bases, and moving the gap to a nearby edit
+ * only converts the results between them.
+ */
+final class GapResultSet implements ResultSet {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private int[] beginIndexes = new int[DEFAULT_CAPACITY];
+    private int[] beginRows = new int[DEFAULT_CAPACITY];
+    private int[] beginColumns = new int[DEFAULT_CAPACITY];
+    private int[] endIndexes = new int[DEFAULT_CAPACITY];
+    private int[] endRows = new int[DEFAULT_CAPACITY];
+    private int[] endColumns = new int[DEFAULT_CAPACITY];
+    private TokenType[] types = new TokenType[DEFAULT_CAPACITY];
+    private String[] tokens = new String[DEFAULT_CAPACITY];
+    private int gapStart = 0;
+    private int gapEnd = DEFAULT_CAPACITY;
+    /**
+     * An index number after the gap is stored as {@code indexBase - index}.
+     */
+    private int indexBase = 0;
+    /**
+     * A row number after the gap is stored as {@code rowBase - row}.
+     */
+    private int rowBase = 0;
+    private int cursor = -1;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return gapStart + beginIndexes.length - gapEnd;
+    }
+
+    /**
+     * Get where a result is stored in the arrays.
+     *
+     * @param i Index of the result.
+     * @return Index in the arrays.
+     */
+    private int physical(int i) {
+        return i < gapStart ? i : i + gapEnd - gapStart;
+    }
+
+    /**
+     * Get the index number of the beginning position of a result without moving the cursor.
+     *
+     * @param i Index of the result.
+     * @return Index number of the beginning position.
+     */
+    int getBeginIndex(int i) {
+        return i < gapStart ? beginIndexes[i] : indexBase - beginIndexes[physical(i)];
+    }
+
+    /**
+     * Get the row number of the beginning position of a result without moving the cursor.
+     *
+     * @param i Index of the result.
+     * @return Row number of the beginning position.
+     */
+    int getBeginRow(int i) {
+        return i < gapStart ? beginRows[i] : rowBase - beginRows[physical(i)];
+    }
+
+    /**
+     * Get the column number of the beginning position of a result without moving the cursor.
+     *
+     * @param i Index of the result.
+     * @return Column number of the beginning position.
+     */
+    int getBeginColumn(int i) {
+        return beginColumns[physical(i)];
+    }
+
+    /**
+     * Move the gap before a result, converting the numbers of the results it passes.
+     *
+     * @param i Index of the result.
+     */
+    private void moveGap(int i) {
+        while (gapStart > i) {
+            gapStart--;
+            gapEnd--;
+            move(gapStart, gapEnd);
+            beginIndexes[gapEnd] = indexBase - beginIndexes[gapEnd];
+            endIndexes[gapEnd] = indexBase - endIndexes[gapEnd];
+            beginRows[gapEnd] = rowBase - beginRows[gapEnd];
+            endRows[gapEnd] = rowBase - endRows[gapEnd];
+        }
+        while (gapStart < i) {
+            move(gapEnd, gapStart);
+            beginIndexes[gapStart] = indexBase - beginIndexes[gapStart];
+            endIndexes[gapStart] = indexBase - endIndexes[gapStart];
+            beginRows[gapStart] = rowBase - beginRows[gapStart];
+            endRows[gapStart] = rowBase - endRows[gapStart];
+            gapStart++;
+            gapEnd++;
+        }
+    }
+
+    /**
+     * Move a result from one place of the arrays to another.
+     *
+     * @param from Index in the arrays to move from.
+     * @param to   Index in the arrays to move to.
+     */
+    private void move(int from, int to) {
+        beginIndexes[to] = beginIndexes[from];
+        beginRows[to] = beginRows[from];
+        beginColumns[to] = beginColumns[from];
+        endIndexes[to] = endIndexes[from];
+        endRows[to] = endRows[from];
+        endColumns[to] = endColumns[from];
+        types[to] = types[from];
+        tokens[to] = tokens[from];
+        tokens[from] = null;
+    }
+
+    /**
+     * Grow the arrays by half when the gap is empty, keeping the results after the gap at the end.
+     */
+    private void grow() {
+        int length = beginIndexes.length;
+        int capacity = length + (length >> 1) + 1;
+        int tail = length - gapEnd;
+        beginIndexes = grow(beginIndexes, capacity, tail);
+        beginRows = grow(beginRows, capacity, tail);
+        beginColumns = grow(beginColumns, capacity, tail);
+        endIndexes = grow(endIndexes, capacity, tail);
+        endRows = grow(endRows, capacity, tail);
+        endColumns = grow(endColumns, capacity, tail);
+        TokenType[] grownTypes = Arrays.copyOf(types, capacity);
+        System.arraycopy(types, gapEnd, grownTypes, capacity - tail, tail);
+        types = grownTypes;
+        String[] grownTokens = Arrays.copyOf(tokens, capacity);
+        System.arraycopy(tokens, gapEnd, grownTokens, capacity - tail, tail);
+        Arrays.fill(grownTokens, gapEnd, capacity - tail, null);
+        tokens = grownTokens;
+        gapEnd = capacity - tail;
+    }
+
+    /**
+     * Grow an array, keeping the results after the gap at the end.
+     *
+     * @param array    The array to grow.
+     * @param capacity New length of the array.
+     * @param tail     Number of the results after the gap.
+     * @return The grown array.
+     */
+    private int[] grow(int[] array, int capacity, int tail) {
+        int[] grown = Arrays.copyOf(array, capacity);
+        System.arraycopy(array, gapEnd, grown, capacity - tail, tail);
+        return grown;
+    }
+
+    /**
+     * Remove the results in a range, and shift the positions of the results after it.
+     * The gap is left at the beginning of the range, where {@link GapResultSet#insert} inserts results.
+     * <p>
+     * The index numbers are shifted by {@code indexDelta} and the row numbers by {@code rowDelta}.
+     * The column numbers are shifted by {@code columnDelta} only if they are on the row {@code columnRow}
+     * before shifting, since the columns of the other rows are not affected by an edit.
+     * Only the results right after the range can be on that row.
+     *
+     * @param from        Index of the first result to remove, inclusive.
+     * @param to          Index of the last result to remove, exclusive.
+     * @param indexDelta  Number to shift the index numbers by.
+     * @param rowDelta    Number to shift the row numbers by.
+     * @param columnRow   Row number whose column numbers are shifted, before shifting.
+     * @param columnDelta Number to shift the column numbers on {@code columnRow} by.
+     */
+    void remove(int from, int to, int indexDelta, int rowDelta, int columnRow, int columnDelta) {
+        moveGap(to);
+        for (int i = from; i < to; i++) {
+            tokens[i] = null;
+        }
+        gapStart = from;
+        indexBase += indexDelta;
+        rowBase += rowDelta;
+        if (columnDelta != 0) {
+            int row = columnRow + rowDelta;
+            for (int p = gapEnd; p < beginIndexes.length && rowBase - beginRows[p] == row; p++) {
+                beginColumns[p] += columnDelta;
+                if (rowBase - endRows[p] == row) {
+                    endColumns[p] += columnDelta;
+                }
+            }
+        }
+        cursor = -1;
+    }
+
+    /**
+     * Insert a result at the gap.
+     *
+     * @param beginIndex  Index number of the beginning position of the result.
+     * @param beginRow    Row number of the beginning position of the result.
+     * @param beginColumn Column number of the beginning position of the result.
+     * @param endIndex    Index number of the end position of the result.
+     * @param endRow      Row number of the end position of the result.
+     * @param endColumn   Column number of the end position of the result.
+     * @param type        The type of token of the result.
+     * @param token       The token of the result.
+     */
+    void insert(int beginIndex, int beginRow, int beginColumn, int endIndex, int endRow, int endColumn, TokenType type, String token) {
+        if (gapStart == gapEnd) {
+            grow();
+        }
+        beginIndexes[gapStart] = beginIndex;
+        beginRows[gapStart] = beginRow;
+        beginColumns[gapStart] = beginColumn;
+        endIndexes[gapStart] = endIndex;
+        endRows[gapStart] = endRow;
+        endColumns[gapStart] = endColumn;
+        types[gapStart] = type;
+        tokens[gapStart] = token;
+        gapStart++;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void append(Position begin, Position end, TokenType type, String token) {
+        append(begin.getIndex(), begin.getRow(), begin.getColumn(), end.getIndex(), end.getRow(), end.getColumn(), type, token);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void append(int beginIndex, int beginRow, int beginColumn, int endIndex, int endRow, int endColumn, TokenType type, String token) {
+        moveGap(size());
+        insert(beginIndex, beginRow, beginColumn, endIndex, endRow, endColumn, type, token);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean absolute(int i) {
+        if (0 <= i && i < size()) {
+            cursor = i;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void first() {
+        cursor = -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void last() {
+        cursor = size() - 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean next() {
+        if (cursor < size() - 1) {
+            cursor++;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean previous() {
+        if (cursor >= 0) {
+            cursor--;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Position getBeginPosition() {
+        if (0 <= cursor && cursor < size()) {
+            int p = physical(cursor);
+            return p < gapStart
+                ? new Position(beginIndexes[p], beginRows[p], beginColumns[p])
+                : new Position(indexBase - beginIndexes[p], rowBase - beginRows[p], beginColumns[p]);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Position getEndPosition() {
+        if (0 <= cursor && cursor < size()) {
+            int p = physical(cursor);
+            return p < gapStart
+                ? new Position(endIndexes[p], endRows[p], endColumns[p])
+                : new Position(indexBase - endIndexes[p], rowBase - endRows[p], endColumns[p]);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBeginIndex() {
+        if (0 <= cursor && cursor < size()) {
+            return getBeginIndex(cursor);
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBeginRow() {
+        if (0 <= cursor && cursor < size()) {
+            return getBeginRow(cursor);
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBeginColumn() {
+        if (0 <= cursor && cursor < size()) {
+            return getBeginColumn(cursor);
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndIndex() {
+        if (0 <= cursor && cursor < size()) {
+            int p = physical(cursor);
+            return p < gapStart ? endIndexes[p] : indexBase - endIndexes[p];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndRow() {
+        if (0 <= cursor && cursor < size()) {
+            int p = physical(cursor);
+            return p < gapStart ? endRows[p] : rowBase - endRows[p];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndColumn() {
+        if (0 <= cursor && cursor < size()) {
+            return endColumns[physical(cursor)];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TokenType getTokenType() {
+        if (0 <= cursor && cursor < size()) {
+            return types[physical(cursor)];
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getToken() {
+        if (0 <= cursor && cursor < size()) {
+            return tokens[physical(cursor)];
+        } else {
+            return null;
+        }
+    }
+
+}
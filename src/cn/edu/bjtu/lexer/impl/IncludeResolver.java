@@ -0,0 +1,498 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Position;
+import cn.edu.bjtu.lexer.ResultSet;
+import cn.edu.bjtu.lexer.TokenListener;
+import cn.edu.bjtu.lexer.TokenType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An {@code IncludeResolver} object expands the {@code #include} directives of translation units,
+ * scanning each distinct file exactly once however many units include it:
+ * <pre>
+ *     IncludeResolver resolver = new IncludeResolver(Arrays.asList(Paths.get("include")));
+ *     resolver.expand(units, unit -&gt; (begin, end, type, token) -&gt; { ... });
+ * </pre>
+ * The results of each file are kept in the binary format of {@link BinaryFormat} in a concurrent cache,
+ * and each expansion reads them through its own {@link MappedResultSet} object, so the shared results are
+ * immutable and the units can be expanded in parallel.
+ * <p>
+ * A directive {@code #include "name"} is searched in the directory of the including file first, then in the
+ * search paths in order, while {@code #include <name>} is searched in the search paths only.
+ * Macros are not evaluated, so the directives whose names are macros are reported as unresolved,
+ * and the conditional directives around the includes are ignored. A file is recognized as included once
+ * if it has {@code #pragma once}, or its tokens other than comments are wrapped in an include guard:
+ * <pre>
+ *     #ifndef NAME_H
+ *     #define NAME_H
+ *     ...
+ *     #endif
+ * </pre>
+ * Such a file is expanded only at its first inclusion in each unit, and any file is never expanded
+ * inside itself, so cyclic includes stop.
+ */
+public final class IncludeResolver {
+
+    private static final Pattern PATTERN_INCLUDE = Pattern.compile("#\\s*include\\s*([<\"])([^>\"]+)[>\"].*", Pattern.DOTALL);
+    private static final Pattern PATTERN_DIRECTIVE = Pattern.compile("#\\s*(\\w*)\\s*(.*)", Pattern.DOTALL);
+    private static final Pattern PATTERN_NAME = Pattern.compile("(\\w+).*", Pattern.DOTALL);
+    private static final Pattern PATTERN_NOT_DEFINED = Pattern.compile("!\\s*defined\\s*\\(?\\s*(\\w+).*", Pattern.DOTALL);
+
+    private final List<Path> searchPaths;
+    /**
+     * Files scanned or being scanned by their absolute paths.
+     * The first thread asking for a file scans it, and the others wait for the results.
+     */
+    private final ConcurrentHashMap<Path, FutureTask<Header>> headers = new ConcurrentHashMap<>();
+    /**
+     * Resolved paths of the include directives by the directory of the including file and the directive.
+     */
+    private final ConcurrentHashMap<String, Optional<Path>> resolved = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private volatile DiagnosticSink diagnostics = new DiagnosticSink();
+
+    /**
+     * Constructs a new {@code IncludeResolver} object.
+     *
+     * @param searchPaths Directories to search the included files in order.
+     */
+    public IncludeResolver(List<Path> searchPaths) {
+        this.searchPaths = new ArrayList<>(searchPaths);
+    }
+
+    /**
+     * Get the {@code DiagnosticSink} object which the lexers of all the files report the errors to.
+     *
+     * @return The {@code DiagnosticSink} object, or {@code null} if the errors are ignored.
+     */
+    public DiagnosticSink getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Set the {@code DiagnosticSink} object shared by the lexers of all the files to report the errors to,
+     * see {@link LexerImpl#setDiagnostics(DiagnosticSink)}.
+     * By default, each {@code IncludeResolver} object has its own one, which can be drained through
+     * {@link IncludeResolver#getDiagnostics()}.
+     *
+     * @param diagnostics The {@code DiagnosticSink} object, or {@code null} to ignore the errors.
+     * @return The {@code IncludeResolver} object itself for chain call.
+     */
+    public IncludeResolver setDiagnostics(DiagnosticSink diagnostics) {
+        this.diagnostics = diagnostics;
+        return this;
+    }
+
+    /**
+     * Get a file scanned, scanning it if it has not been scanned by the {@code IncludeResolver} object.
+     * When many threads ask for the same file at the same time, it is scanned by one of them.
+     * A file which fails to be scanned is forgotten, so that it is scanned again when it is asked for next time.
+     *
+     * @param path Path of the file.
+     * @return The {@link Header} object of the file.
+     * @throws IOException If an I/O error occurs when reading the file.
+     */
+    public Header getHeader(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        FutureTask<Header> task = headers.get(key);
+        if (task == null) {
+            FutureTask<Header> created = new FutureTask<>(() -> scan(key));
+            task = headers.putIfAbsent(key, created);
+            if (task == null) {
+                task = created;
+                created.run();
+            } else {
+                hits.incrementAndGet();
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted when waiting for " + key);
+        } catch (ExecutionException e) {
+            headers.remove(key, task);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw (Error) cause;
+            }
+        }
+    }
+
+    /**
+     * Scan a file and find its include directives and include guard.
+     *
+     * @param path Absolute path of the file.
+     * @return The {@link Header} object of the file.
+     * @throws IOException If an I/O error occurs when reading the file.
+     */
+    private Header scan(Path path) throws IOException {
+        ColumnarResultSet rs = new ColumnarResultSet();
+        LexerImpl lexer = new LexerImpl(path, rs).setDiagnostics(diagnostics);
+        try {
+            lexer.scan();
+        } finally {
+            lexer.close();
+        }
+        List<Include> includes = new ArrayList<>();
+        List<String> directives = new ArrayList<>();
+        boolean once = false;
+        rs.first();
+        for (int i = 0; rs.next(); i++) {
+            TokenType type = rs.getTokenType();
+            if (type == TokenTypeImpl.INLINE_COMMENT || type == TokenTypeImpl.BLOCK_COMMENT) {
+                continue;
+            } else if (type != TokenTypeImpl.PREPROCESSOR) {
+                directives.add(null);
+                continue;
+            }
+            String token = rs.getToken();
+            directives.add(token);
+            Matcher matcher = PATTERN_INCLUDE.matcher(token);
+            if (matcher.matches()) {
+                boolean angled = matcher.group(1).equals("<");
+                String name = matcher.group(2).trim();
+                includes.add(new Include(i, name, resolve(path.getParent(), name, angled)));
+            } else if (directive(token)[0].equals("include")) {
+                // The name is a macro, which is not evaluated
+                includes.add(new Include(i, directive(token)[1].trim(), null));
+            } else if (token.matches("#\\s*pragma\\s+once\\b.*")) {
+                once = true;
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultSetFactory.writeBinary(rs, Channels.newChannel(out));
+        return new Header(path, out.toByteArray(), includes, once || isGuarded(directives));
+    }
+
+    /**
+     * Check if the tokens of a file are wrapped in an include guard.
+     *
+     * @param directives The tokens other than comments, where the ones not preprocessors are {@code null}.
+     * @return {@code true} if they are.
+     */
+    private static boolean isGuarded(List<String> directives) {
+        if (directives.size() < 3 || directives.get(0) == null || directives.get(1) == null) {
+            return false;
+        }
+        String[] first = directive(directives.get(0));
+        String[] second = directive(directives.get(1));
+        String guard;
+        if (first[0].equals("ifndef")) {
+            guard = name(PATTERN_NAME, first[1]);
+        } else if (first[0].equals("if")) {
+            guard = name(PATTERN_NOT_DEFINED, first[1]);
+        } else {
+            return false;
+        }
+        if (guard == null || !second[0].equals("define") || !guard.equals(name(PATTERN_NAME, second[1]))) {
+            return false;
+        }
+        // The #endif matching the first directive must be the last token
+        int depth = 0;
+        for (int i = 0; i < directives.size(); i++) {
+            if (directives.get(i) == null) {
+                continue;
+            }
+            String keyword = directive(directives.get(i))[0];
+            if (keyword.equals("if") || keyword.equals("ifdef") || keyword.equals("ifndef")) {
+                depth++;
+            } else if (keyword.equals("endif") && --depth == 0) {
+                return i == directives.size() - 1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Split a preprocessor into its keyword and the rest.
+     *
+     * @param token The preprocessor.
+     * @return The keyword and the rest.
+     */
+    private static String[] directive(String token) {
+        Matcher matcher = PATTERN_DIRECTIVE.matcher(token);
+        if (matcher.matches()) {
+            return new String[]{matcher.group(1), matcher.group(2)};
+        } else {
+            return new String[]{"", ""};
+        }
+    }
+
+    /**
+     * Get the macro name in the arguments of a preprocessor.
+     *
+     * @param pattern The pattern whose first group is the name.
+     * @param text    The arguments.
+     * @return The name, or {@code null} if it does not match.
+     */
+    private static String name(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Resolve an include directive to the path of the file.
+     *
+     * @param directory Directory of the including file.
+     * @param name      Name in the directive.
+     * @param angled    {@code true} for {@code <name>}, or {@code false} for {@code "name"}.
+     * @return The absolute path of the file, or {@code null} if it is not found.
+     */
+    private Path resolve(Path directory, String name, boolean angled) {
+        String key = (angled ? "<" : directory + "\"") + name;
+        return resolved.computeIfAbsent(key, k -> {
+            List<Path> directories = new ArrayList<>();
+            if (!angled && directory != null) {
+                directories.add(directory);
+            }
+            directories.addAll(searchPaths);
+            for (Path d : directories) {
+                Path path = d.resolve(name);
+                if (Files.isRegularFile(path)) {
+                    return Optional.of(path.toAbsolutePath().normalize());
+                }
+            }
+            return Optional.empty();
+        }).orElse(null);
+    }
+
+    /**
+     * Expand a translation unit, passing its tokens to the listener with the included files expanded
+     * after their include directives.
+     *
+     * @param unit     Path of the translation unit.
+     * @param listener The {@code Listener} object to receive the tokens.
+     * @throws IOException If an I/O error occurs when reading any of the files.
+     */
+    public void expand(Path unit, Listener listener) throws IOException {
+        expand(getHeader(unit), listener, new HashSet<>(), new ArrayDeque<>());
+    }
+
+    /**
+     * Expand the translation units in parallel, see {@link IncludeResolver#expand(Path, Listener)}.
+     * The tokens of each unit are passed to its own {@code Listener} object on the thread expanding the unit.
+     *
+     * @param units     Paths of the translation units.
+     * @param listeners Function to get the {@code Listener} object of each unit.
+     * @throws IOException If an I/O error occurs when reading any of the files.
+     */
+    public void expand(Collection<Path> units, Function<Path, Listener> listeners) throws IOException {
+        try {
+            units.parallelStream().forEach(unit -> {
+                try {
+                    expand(unit, listeners.apply(unit));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Expand a file in a translation unit recursively.
+     *
+     * @param header   The file to expand.
+     * @param listener The {@code Listener} object to receive the tokens.
+     * @param included The files included once which have been expanded in the unit.
+     * @param stack    The files being expanded.
+     * @throws IOException If an I/O error occurs when reading any of the files.
+     */
+    private void expand(Header header, Listener listener, Set<Path> included, Deque<Path> stack) throws IOException {
+        if (header.isGuarded()) {
+            included.add(header.getPath());
+        }
+        stack.push(header.getPath());
+        listener.onEnter(header.getPath());
+        ResultSet rs = header.getResultSet();
+        int next = 0;
+        rs.first();
+        for (int i = 0; rs.next(); i++) {
+            listener.onToken(rs.getBeginPosition(), rs.getEndPosition(), rs.getTokenType(), rs.getToken());
+            while (next < header.includes.size() && header.includes.get(next).result == i) {
+                Include include = header.includes.get(next++);
+                if (include.path == null) {
+                    listener.onUnresolved(header.getPath(), include.name);
+                } else if (!included.contains(include.path) && !stack.contains(include.path)) {
+                    expand(getHeader(include.path), listener, included, stack);
+                }
+            }
+        }
+        listener.onExit(header.getPath());
+        stack.pop();
+    }
+
+    /**
+     * Get the number of distinct files scanned.
+     *
+     * @return Number of files.
+     */
+    public int size() {
+        return headers.size();
+    }
+
+    /**
+     * Get the number of times that a file is asked for after it has been scanned or while it is being scanned.
+     *
+     * @return Number of hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * A {@code Listener} object receives the tokens of a translation unit with the included files expanded,
+     * together with where the files are entered and exited.
+     */
+    public interface Listener extends TokenListener {
+
+        /**
+         * Called before the tokens of a file, i.e., the translation unit or an included file.
+         *
+         * @param file Absolute path of the file.
+         */
+        default void onEnter(Path file) {
+        }
+
+        /**
+         * Called after the tokens of a file, and the tokens following belong to the including file.
+         *
+         * @param file Absolute path of the file.
+         */
+        default void onExit(Path file) {
+        }
+
+        /**
+         * Called after the token of an include directive whose file is not found.
+         *
+         * @param file Absolute path of the including file.
+         * @param name Name in the include directive.
+         */
+        default void onUnresolved(Path file, String name) {
+        }
+
+    }
+
+    /**
+     * A {@code Header} object stores the results of a file scanned by an {@code IncludeResolver} object,
+     * which are immutable and shared by all the translation units including the file.
+     */
+    public static final class Header {
+
+        private final Path path;
+        private final byte[] results;
+        private final List<Include> includes;
+        private final boolean guarded;
+
+        Header(Path path, byte[] results, List<Include> includes, boolean guarded) {
+            this.path = path;
+            this.results = results;
+            this.includes = includes;
+            this.guarded = guarded;
+        }
+
+        /**
+         * Getter for the absolute path of the file.
+         *
+         * @return Path of the file.
+         */
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * Get the results of the file.
+         *
+         * @return A new read-only {@code ResultSet} object over the shared results, whose cursor is its own.
+         */
+        public ResultSet getResultSet() {
+            try {
+                return new MappedResultSet(ByteBuffer.wrap(results), path.toString());
+            } catch (IOException e) {
+                // The results are written by ResultSetFactory#writeBinary in the same version
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Get the files included by the file which are found, in the order of the include directives.
+         *
+         * @return Absolute paths of the included files.
+         */
+        public List<Path> getIncludes() {
+            List<Path> paths = new ArrayList<>();
+            for (Include include : includes) {
+                if (include.path != null) {
+                    paths.add(include.path);
+                }
+            }
+            return Collections.unmodifiableList(paths);
+        }
+
+        /**
+         * Check if the file is included once, by {@code #pragma once} or an include guard.
+         *
+         * @return {@code true} if the file is included once.
+         */
+        public boolean isGuarded() {
+            return guarded;
+        }
+
+    }
+
+    /**
+     * An include directive of a file.
+     */
+    private static final class Include {
+
+        /**
+         * Index of the result of the directive.
+         */
+        final int result;
+        final String name;
+        /**
+         * Absolute path of the included file, or {@code null} if it is not found.
+         */
+        final Path path;
+
+        Include(int result, String name, Path path) {
+            this.result = result;
+            this.name = name;
+            this.path = path;
+        }
+
+    }
+
+}
@@ -0,0 +1,178 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Position;
+import cn.edu.bjtu.lexer.ResultSet;
+import cn.edu.bjtu.lexer.Token;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@code IncrementalLexer} object keeps a content in memory with its results of lexical scan,
+ * and updates the results when the content is edited without scanning the whole content again,
+ * e.g., for a code editor:
+ * <pre>
+ *     IncrementalLexer lexer = new IncrementalLexer(content);
+ *     ResultSet rs = lexer.getResultSet();
+ *     // Replace 3 characters from offset 42 by "foo"
+ *     lexer.edit(42, 3, "foo");
+ * </pre>
+ * Since the lexer has no state but the position at the beginning of a token, and it reads no character
+ * after the one where a token ends, a token is not affected by an edit if it begins before the last token
+ * beginning before the edit. The content is scanned again from that token, token by token,
+ * until a token begins where a result after the edited region begins, shifted by the change in length.
+ * From then on, the results are the same as before except the positions.
+ * <p>
+ * The content is kept in a {@link GapBuffer} and the results in a {@link GapResultSet}, both of which have a gap
+ * at the last edit and shift everything after it in constant time, so the time of an edit depends on
+ * the distance to the previous edit and the tokens scanned again, not on the size of the content.
+ * The results are always the same as the ones of scanning the whole edited content by {@link LexerImpl}.
+ */
+public final class IncrementalLexer {
+
+    private final GapBuffer content;
+    private final GapResultSet rs = new GapResultSet();
+    /**
+     * Reused for the tokens scanned again.
+     */
+    private final List<Token> patch = new ArrayList<>();
+    private int lastScanned = 0;
+
+    /**
+     * Constructs a new {@code IncrementalLexer} object and scans the whole content.
+     *
+     * @param content The initial content.
+     */
+    public IncrementalLexer(CharSequence content) {
+        this.content = new GapBuffer(content);
+        try {
+            new LexerImpl(new CharSequenceSource(this.content), rs, 0, 1, 0, Integer.MAX_VALUE).scan();
+        } catch (IOException e) {
+            // CharSequenceSource never throws IOException
+            throw new UncheckedIOException(e);
+        }
+        lastScanned = rs.size();
+    }
+
+    /**
+     * Get the current content.
+     *
+     * @return The current content, which should not be modified.
+     */
+    public CharSequence getContent() {
+        return content;
+    }
+
+    /**
+     * Get the results of the current content.
+     * The same {@code ResultSet} object is updated by each edit, and its cursor is reset by an edit.
+     *
+     * @return The {@code ResultSet} object of the results.
+     */
+    public ResultSet getResultSet() {
+        return rs;
+    }
+
+    /**
+     * Get the number of tokens scanned by the last edit, or by the initial scan if nothing has been edited.
+     *
+     * @return Number of tokens scanned.
+     */
+    public int getLastScanned() {
+        return lastScanned;
+    }
+
+    /**
+     * Replace a region of the content by a text, and update the results.
+     *
+     * @param offset        Offset of the beginning of the region.
+     * @param deletedLength Length of the region to delete.
+     * @param insertedText  Text to insert at the offset.
+     * @return The {@code ResultSet} object of the results, which is the same as {@link IncrementalLexer#getResultSet()}.
+     * @throws IndexOutOfBoundsException If the region is not in the content.
+     */
+    public ResultSet edit(int offset, int deletedLength, CharSequence insertedText) {
+        if (offset < 0 || deletedLength < 0 || offset + deletedLength > content.length()) {
+            throw new IndexOutOfBoundsException("Region " + offset + "+" + deletedLength
+                + " out of content of length " + content.length());
+        }
+        int delta = insertedText.length() - deletedLength;
+        // The last token beginning before the edit, whose index number is its offset plus 1
+        int from = search(offset + 1) - 1;
+        // The first token beginning after the deleted region
+        int old = search(offset + deletedLength + 1);
+        content.replace(offset, deletedLength, insertedText);
+
+        int start = 0;
+        int row = 1;
+        int column = 0;
+        if (from >= 0) {
+            start = rs.getBeginIndex(from) - 1;
+            row = rs.getBeginRow(from);
+            column = rs.getBeginColumn(from) - 1;
+        } else {
+            from = 0;
+        }
+        LexerImpl lexer = new LexerImpl(new CharSequenceSource(CharBuffer.wrap(content, start, content.length())),
+            rs, start, row, column, Integer.MAX_VALUE);
+        patch.clear();
+        int rowDelta = 0;
+        int columnRow = 0;
+        int columnDelta = 0;
+        int to = rs.size();
+        try {
+            Token token;
+            while ((token = lexer.nextToken()) != null) {
+                Position begin = token.getBeginPosition();
+                while (old < rs.size() && rs.getBeginIndex(old) + delta < begin.getIndex()) {
+                    old++;
+                }
+                if (old < rs.size() && rs.getBeginIndex(old) + delta == begin.getIndex()) {
+                    // Converged, the results from here on are only shifted
+                    to = old;
+                    rowDelta = begin.getRow() - rs.getBeginRow(old);
+                    columnRow = rs.getBeginRow(old);
+                    columnDelta = begin.getColumn() - rs.getBeginColumn(old);
+                    break;
+                }
+                patch.add(token);
+            }
+        } catch (IOException e) {
+            // CharSequenceSource never throws IOException
+            throw new UncheckedIOException(e);
+        }
+        rs.remove(from, to, delta, rowDelta, columnRow, columnDelta);
+        for (Token token : patch) {
+            Position begin = token.getBeginPosition();
+            Position end = token.getEndPosition();
+            rs.insert(begin.getIndex(), begin.getRow(), begin.getColumn(),
+                end.getIndex(), end.getRow(), end.getColumn(), token.getTokenType(), token.getToken());
+        }
+        lastScanned = patch.size();
+        return rs;
+    }
+
+    /**
+     * Binary search for the first result whose beginning index number is not less than a number.
+     *
+     * @param index The index number to search.
+     * @return Index of the result, or the number of results if there is none.
+     */
+    private int search(int index) {
+        int low = 0;
+        int high = rs.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (rs.getBeginIndex(mid) < index) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+}
@@ -0,0 +1,96 @@
+package cn.edu.bjtu.lexer.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@code LatencyHistogram} object counts latencies in microseconds in logarithmic buckets without locks,
+ * so that it can be recorded by many threads and its percentiles read at any time.
+ * <p>
+ * The latencies below {@value #SUB_BUCKETS} are counted exactly, and the larger ones are counted in
+ * {@value #SUB_BUCKETS} buckets per power of two, so a percentile is at most about 6% larger than the exact one.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((Long.SIZE - SUB_BITS + 1) * SUB_BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos The latency in nanoseconds.
+     */
+    void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(bucketOf(micros));
+        max.accumulateAndGet(micros, Math::max);
+    }
+
+    private static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Get the largest latency of a bucket.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+
+    /**
+     * Get the latency which a percentage of the recorded latencies are not larger than.
+     *
+     * @param percentile The percentage in {@code (0, 100]}.
+     * @return The latency in microseconds, or {@code 0} if nothing has been recorded.
+     */
+    long getPercentile(double percentile) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long count = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            count += snapshot[i];
+            if (count >= rank && count > 0) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Get the largest latency recorded.
+     *
+     * @return The latency in microseconds.
+     */
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Clear the recorded latencies.
+     */
+    void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        max.set(0);
+    }
+
+}
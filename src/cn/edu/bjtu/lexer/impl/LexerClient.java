@@ -0,0 +1,203 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Diagnostic;
+import cn.edu.bjtu.lexer.TokenListener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static cn.edu.bjtu.lexer.impl.LexerProtocol.*;
+
+/**
+ * A {@code LexerClient} object sends requests to a {@link LexerServer} object over a connection,
+ * and passes the tokens of the responses to {@code TokenListener} objects as they arrive.
+ * The requests are sent one after another, so a {@code LexerClient} object should not be shared by threads.
+ */
+public final class LexerClient implements Closeable {
+
+    private final SocketChannel channel;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * Constructs a new {@code LexerClient} object connecting to a server.
+     *
+     * @param address A {@code UnixDomainSocketAddress} object or an {@code InetSocketAddress} object of the server.
+     * @throws IOException If an I/O error occurs when connecting.
+     */
+    public LexerClient(SocketAddress address) throws IOException {
+        if (address instanceof UnixDomainSocketAddress) {
+            channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            channel = SocketChannel.open();
+        }
+        try {
+            channel.connect(address);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    /**
+     * Let the server read and scan a file, which must be readable by the server and under a root directory of it,
+     * see {@link LexerServer#setRoots(java.util.Collection)}.
+     *
+     * @param path     Path of the file, which is sent as an absolute one.
+     * @param listener The {@code TokenListener} object to receive the tokens.
+     * @return The diagnostics reported when scanning.
+     * @throws IOException If an I/O error occurs, or the server fails to read the file.
+     */
+    public List<Diagnostic> lex(Path path, TokenListener listener) throws IOException {
+        String name = path.toAbsolutePath().toString();
+        out.writeByte(REQUEST_PATH);
+        writeString(out, name);
+        out.flush();
+        readStatus();
+        return readTokens(in, name, listener);
+    }
+
+    /**
+     * Send a content to the server to scan, e.g., a file which is not saved or not on the machine of the server.
+     *
+     * @param name     Name of the content, which is the source of the diagnostics.
+     * @param content  The content in UTF-8 bytes, or ASCII ones.
+     * @param listener The {@code TokenListener} object to receive the tokens.
+     * @return The diagnostics reported when scanning.
+     * @throws IOException If an I/O error occurs.
+     */
+    public List<Diagnostic> lex(String name, byte[] content, TokenListener listener) throws IOException {
+        out.writeByte(REQUEST_SOURCE);
+        writeString(out, name);
+        writeVarint(out, content.length);
+        out.write(content);
+        out.flush();
+        readStatus();
+        return readTokens(in, name, listener);
+    }
+
+    /**
+     * Get the statistics of the server, see {@link LexerServer#toString()}.
+     *
+     * @return The statistics in string.
+     * @throws IOException If an I/O error occurs.
+     */
+    public String stats() throws IOException {
+        out.writeByte(REQUEST_STATS);
+        out.flush();
+        readStatus();
+        return readString(in);
+    }
+
+    /**
+     * Read the status of a response.
+     *
+     * @throws IOException If the status is an error, with the message from the server.
+     */
+    private void readStatus() throws IOException {
+        int status = in.readUnsignedByte();
+        if (status == STATUS_ERROR) {
+            throw new IOException(readString(in));
+        } else if (status != STATUS_OK) {
+            throw new IOException("Unknown status " + status);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Print the tokens of files scanned by a server, in the same format as {@link LexerImpl#print()}.
+     *
+     * @param args The address of the server as the one of {@link LexerServer#main(String[])}, {@code --stats} to print
+     *             the statistics of the server, {@code --send} to send the contents of the following files instead of
+     *             the paths, and the files.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: LexerClient <[unix:]socket path | [tcp:]port | tcp:host:port> [--stats] [--send] file...");
+            return;
+        }
+        SocketAddress address;
+        try {
+            address = parseAddress(args[0]);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.printf("%s: %s\n", args[0], e.getMessage());
+            System.exit(1);
+            return;
+        }
+        boolean failed = false;
+        try (LexerClient client = new LexerClient(address)) {
+            boolean send = false;
+            PrintStream stdout = System.out;
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("--stats")) {
+                    stdout.println(client.stats());
+                    continue;
+                } else if (args[i].equals("--send")) {
+                    send = true;
+                    continue;
+                }
+                Path path = Paths.get(args[i]);
+                byte[] content = null;
+                if (send) {
+                    try {
+                        content = Files.readAllBytes(path);
+                    } catch (IOException e) {
+                        System.err.printf("%s: %s\n", args[i], e);
+                        failed = true;
+                        continue;
+                    }
+                }
+                // The tokens are printed after the response is complete, so that an error does not leave a part
+                StringBuilder builder = new StringBuilder();
+                TokenWriter writer = new TokenWriter(builder, TokenWriter.Format.STRING);
+                List<Diagnostic> diagnostics;
+                try {
+                    writer.writeHeader();
+                    if (send) {
+                        diagnostics = client.lex(args[i], content, writer);
+                    } else {
+                        diagnostics = client.lex(path, writer);
+                    }
+                    writer.writeFooter();
+                } catch (IOException e) {
+                    System.err.printf("%s: %s\n", args[i], e.getMessage());
+                    failed = true;
+                    continue;
+                }
+                stdout.print(builder);
+                stdout.println();
+                diagnostics.forEach(stdout::println);
+            }
+        } catch (IOException e) {
+            System.err.printf("%s: %s\n", args[0], e.getMessage());
+            failed = true;
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+}
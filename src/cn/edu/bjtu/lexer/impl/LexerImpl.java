@@ -1,15 +1,25 @@
 package cn.edu.bjtu.lexer.impl;
 
+import cn.edu.bjtu.lexer.CharSource;
+import cn.edu.bjtu.lexer.Diagnostic;
 import cn.edu.bjtu.lexer.Lexer;
 import cn.edu.bjtu.lexer.Position;
 import cn.edu.bjtu.lexer.ResultSet;
+import cn.edu.bjtu.lexer.Token;
+import cn.edu.bjtu.lexer.TokenListener;
 import cn.edu.bjtu.lexer.TokenType;
 
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.regex.Pattern;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static cn.edu.bjtu.lexer.impl.TokenUtil.*;
 
@@ -18,12 +28,37 @@ import static cn.edu.bjtu.lexer.impl.TokenUtil.*;
  */
 public class LexerImpl implements Lexer {
 
-    private static final String PATTERN_HTML = "(?i).*\\.html$";
-    private static final String PATTERN_MARKDOWN = "(?i).*\\.md$";
+    /**
+     * Version of the scanning rules, which should be increased whenever the results of any content change,
+     * so that the results cached by {@link TokenCache} are not reused.
+     * <p>
+     * Version 2 ends closed strings and characters after the closing quote, and a block comment not closed
+     * at EOF instead of one character after it, since an end index is the one after the last character.
+     * Version 1 ended a closed literal at its closing quote, so the quote was not covered by
+     * {@link cn.edu.bjtu.lexer.ResultSet#find(int)} and the length was one short.
+     */
+    public static final int VERSION = 2;
+
     private static final String EMPTY_TOKEN = "";
-    private final ResultSet rs = new ResultSetImpl();
-    private final FileReader reader;
-    private final Position position = new Position();
+    private final ResultSet rs;
+    private final CharSource source;
+    /**
+     * Name of the content reported with the errors, which is the filename when reading a file.
+     */
+    private String name = null;
+    /**
+     * Reused for assembling the token being scanned.
+     */
+    private final StringBuilder builder = new StringBuilder();
+    /**
+     * Interns the tokens, so that the occurrences of a token share a string.
+     */
+    private SymbolTable symbols = new SymbolTable();
+    /**
+     * Whether the results are appended to a {@link SliceResultSet} object of the source,
+     * which slices the tokens from the mapped file, so that they are neither created nor interned.
+     */
+    private final boolean sliced;
 
     /**
      * Count brackets: '[' and ']'
@@ -37,10 +72,59 @@ public class LexerImpl implements Lexer {
      * Count braces: '{' and '}'
      */
     private int countBrace = 0;
+    /**
+     * When not {@code null}, errors are reported to it, and the delimiters are tracked to locate the ones not in pair.
+     */
+    private DiagnosticSink diagnostics = new DiagnosticSink();
+    private final Delimiters braces = Delimiters.braces();
+    private final Delimiters brackets = Delimiters.brackets();
+    private final Delimiters parentheses = Delimiters.parentheses();
 
     private int currentChar;
-    private Position begin = new Position(position.getIndex(), position.getRow(), position.getColumn());
-    private Position end = new Position(position.getIndex(), position.getRow(), position.getColumn());
+    private boolean started = false;
+    private boolean finished = false;
+
+    /**
+     * For a lexer scanning a segment of the content, see {@link ChunkScanner}:
+     * the scan stops at the first step beginning at or after the offset {@code limit},
+     * and the pair delimiters are not checked.
+     */
+    private boolean segment = false;
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * When not {@code null}, tokens are passed to it instead of being appended to the {@code ResultSet} object.
+     */
+    private TokenListener listener = null;
+    /**
+     * The token scanned by {@link LexerImpl#nextToken()}.
+     */
+    private Token pending = null;
+    private final TokenListener pendingListener = (begin, end, type, token) -> pending = new Token(begin, end, type, token);
+    /**
+     * When not {@code null}, the metrics of scanning are recorded in it.
+     */
+    private LexerMetrics metrics = null;
+    /**
+     * When not {@code null}, the tokens of the types marked by ordinal are dropped.
+     */
+    private boolean[] skipped = null;
+    private long startNanos;
+    private int startIndex;
+
+    // Positions are tracked in primitive numbers, which are the same as the ones of a default Position object,
+    // and Position objects are created by the ResultSet object only when they are asked for.
+    // Only the index and row numbers are updated when reading, and the column numbers are derived from
+    // the starts of the current and previous lines when a token begins or ends.
+
+    private int index = 0;
+    private int row = 1;
+    private int lineStart = 0;
+    private int previousLineStart = 0;
+    private LineIndex lines;
+    private int beginIndex = 0;
+    private int beginRow = 1;
+    private int beginColumn = 0;
 
     /**
      * Constructs a new {@code Lexer} object.
@@ -49,27 +133,281 @@ public class LexerImpl implements Lexer {
      * @throws FileNotFoundException when the file does not exist.
      */
     public LexerImpl(String filename) throws FileNotFoundException {
-        reader = new FileReader(filename);
+        this(new FileReader(filename));
+        this.name = filename;
+    }
+
+    /**
+     * Constructs a new {@code Lexer} object reading the file in the default charset.
+     *
+     * @param path Path of the file to read.
+     * @throws IOException If an I/O error occurs when opening the file.
+     */
+    public LexerImpl(Path path) throws IOException {
+        this(path, new ResultSetImpl());
+    }
+
+    /**
+     * Constructs a new {@code Lexer} object reading the file in the default charset,
+     * and storing the results in the given {@code ResultSet} object.
+     *
+     * @param path Path of the file to read.
+     * @param rs   The {@code ResultSet} object to store the results.
+     * @throws IOException If an I/O error occurs when opening the file.
+     */
+    public LexerImpl(Path path, ResultSet rs) throws IOException {
+        this(new BufferedCharSource(new InputStreamReader(Files.newInputStream(path), Charset.defaultCharset())), rs);
+        this.name = path.toString();
+    }
+
+    /**
+     * Constructs a new {@code Lexer} object reading from a {@code Reader} object,
+     * which will be wrapped by a {@link BufferedCharSource} object.
+     *
+     * @param reader The {@code Reader} object to read.
+     */
+    public LexerImpl(Reader reader) {
+        this(new BufferedCharSource(reader));
     }
 
     /**
-     * Based on the {@link FileReader#read()} method, modify the {@link LexerImpl#currentChar}
-     * and the {@code Position} objects according to the currently read character.
+     * Constructs a new {@code Lexer} object scanning the content in memory.
+     * <p>
+     * Note that a {@code String} argument is treated as a filename by {@link LexerImpl#LexerImpl(String)},
+     * wrap it by {@link CharSequenceSource} to scan the string itself.
+     *
+     * @param content The content to scan.
+     */
+    public LexerImpl(CharSequence content) {
+        this(new CharSequenceSource(content));
+    }
+
+    /**
+     * Constructs a new {@code Lexer} object reading from a {@code CharSource} object.
+     *
+     * @param source The {@code CharSource} object to read.
+     */
+    public LexerImpl(CharSource source) {
+        this(source, new ResultSetImpl());
+    }
+
+    /**
+     * Constructs a new {@code Lexer} object reading from a {@code CharSource} object
+     * and storing the results in the given {@code ResultSet} object,
+     * e.g., a {@link ColumnarResultSet} object for large inputs,
+     * or a {@link SliceResultSet} object of the same {@link MappedCharSource} object to keep the tokens as slices of the file.
+     *
+     * @param source The {@code CharSource} object to read.
+     * @param rs     The {@code ResultSet} object to store the results.
+     */
+    public LexerImpl(CharSource source, ResultSet rs) {
+        this.source = source;
+        this.rs = rs;
+        this.sliced = rs instanceof SliceResultSet && ((SliceResultSet) rs).getSource() == source;
+        this.lines = new LineIndex();
+    }
+
+    /**
+     * Constructs a new {@code Lexer} object scanning a segment of the content, used by {@link ChunkScanner}.
+     * The source should start at the character of offset {@code index},
+     * and the numbers of position are the ones before reading that character.
+     *
+     * @param source The {@code CharSource} object to read from the beginning of the segment.
+     * @param rs     The {@code ResultSet} object to store the results.
+     * @param index  Index number before reading the first character of the segment, i.e., its offset.
+     * @param row    Row number before reading the first character of the segment.
+     * @param column Column number before reading the first character of the segment.
+     * @param limit  Offset where the scan stops when a step begins at or after it.
+     */
+    LexerImpl(CharSource source, ResultSet rs, int index, int row, int column, int limit) {
+        this(source, rs);
+        this.segment = true;
+        this.diagnostics = null;
+        this.index = index;
+        this.row = row;
+        this.lineStart = index - column;
+        this.lines = new LineIndex(row, lineStart);
+        this.limit = limit;
+    }
+
+    /**
+     * Based on the {@link CharSource#read()} method, modify the {@link LexerImpl#currentChar}
+     * and the position numbers according to the currently read character.
+     * It works in the same way as {@link Position#nextChar()} and {@link Position#nextLine()},
+     * except that the column number is not updated but derived from the start of the line,
+     * which is recorded in the {@link LineIndex} object.
      *
      * @throws IOException If an I/O error occurs when read the next character.
      */
     private void read() throws IOException {
-        // Update end position
-        end = new Position(position.getIndex() + 1, position.getRow(), position.getColumn() + 1);
-        currentChar = reader.read();
+        currentChar = source.read();
+        index++;
         // Check if the current character is LF (\n)
         if (currentChar == CHAR_LINE_FEED) {
-            position.nextLine();
+            row++;
+            previousLineStart = lineStart;
+            lineStart = index;
+            lines.add(index);
+        }
+    }
+
+    /**
+     * Get the row number of the end position of the token just scanned,
+     * which is the row number before reading the current character.
+     *
+     * @return Row number of the end position.
+     */
+    private int getEndRow() {
+        return currentChar == CHAR_LINE_FEED ? row - 1 : row;
+    }
+
+    /**
+     * Get the column number of the end position of the token just scanned,
+     * which is the column number before reading the current character plus 1.
+     *
+     * @return Column number of the end position.
+     */
+    private int getEndColumn() {
+        return index - (currentChar == CHAR_LINE_FEED ? previousLineStart : lineStart);
+    }
+
+    /**
+     * Append the token from the beginning position to the end position to the {@code ResultSet} object,
+     * or pass it to the {@code TokenListener} object when scanning in stream.
+     *
+     * @param type  The type of the token.
+     * @param token The token in string, or {@code null} if it is not needed, when it is still in the builder.
+     */
+    private void append(TokenType type, String token) {
+        boolean skip = skipped != null && skipped[((TokenTypeImpl) type).ordinal()];
+        if (metrics != null) {
+            metrics.countToken(type, listener == null && !skip);
+        }
+        if (diagnostics != null && type == TokenTypeImpl.ILLEGAL) {
+            reportIllegal(token == null ? builder : token);
+        }
+        if (skip) {
+            return;
+        }
+        if (listener == null) {
+            rs.append(beginIndex, beginRow, beginColumn, index, getEndRow(), getEndColumn(), type, token);
         } else {
-            position.nextChar();
+            listener.onToken(new Position(beginIndex, beginRow, beginColumn), new Position(index, getEndRow(), getEndColumn()), type, token);
         }
     }
 
+    /**
+     * Skip the characters before the next occurrence of either of the two characters in bulk,
+     * then read the found character. Either of the two characters must be LF, so that none of the skipped characters
+     * is LF, and they are all in the current line without being counted as rows.
+     *
+     * @param first  A character to stop before.
+     * @param second Another character to stop before, and either this one or the first one must be LF.
+     * @throws IOException If an I/O error occurs when reading.
+     * @see CharSource#skipUntil(int, int)
+     */
+    private void skipUntil(int first, int second) throws IOException {
+        int count = source.skipUntil(first, second);
+        index += count;
+        read();
+    }
+
+    /**
+     * Read the characters before the next occurrence of either of the two characters, CR, LF, or EOF in bulk,
+     * append them to the builder, then read the found character.
+     *
+     * @param first  A character to stop before.
+     * @param second Another character to stop before.
+     * @throws IOException If an I/O error occurs when reading.
+     * @see CharSource#readUntil(StringBuilder, int, int)
+     */
+    private void readUntil(int first, int second) throws IOException {
+        int count = source.readUntil(builder, first, second);
+        index += count;
+        read();
+    }
+
+    /**
+     * Skip the current white-space together with the spaces and horizontal tabs following it in bulk,
+     * then read the next character. Each of them would be a step, so the ones at or after the limit are not skipped.
+     *
+     * @throws IOException If an I/O error occurs when reading.
+     * @see CharSource#skipBlanks(int)
+     */
+    private void skipBlanks() throws IOException {
+        int count = source.skipBlanks(limit - index);
+        index += count;
+        read();
+    }
+
+    /**
+     * Report an illegal token beginning at the beginning position.
+     *
+     * @param token The token.
+     */
+    private void reportIllegal(CharSequence token) {
+        diagnostics.offer(getIllegalDiagnostic(name, new Position(beginIndex, beginRow, beginColumn), token));
+    }
+
+    /**
+     * Get the error of an illegal token, which is also used by {@link DfaLexer} to report the same errors.
+     *
+     * @param name     Name of the content.
+     * @param position The beginning position of the token.
+     * @param token    The token in string.
+     * @return The {@code Diagnostic} object.
+     */
+    static Diagnostic getIllegalDiagnostic(String name, Position position, CharSequence token) {
+        if (token.charAt(0) == CHAR_DOUBLE_QUOTE) {
+            return new Diagnostic(Diagnostic.Kind.UNTERMINATED_STRING, name, position, "String error: '\"' expected.");
+        } else if (token.charAt(0) == CHAR_SINGLE_QUOTE) {
+            return new Diagnostic(Diagnostic.Kind.ILLEGAL_CHARACTER, name, position,
+                "Character error: illegal character " + token + ".");
+        } else {
+            return new Diagnostic(Diagnostic.Kind.ILLEGAL_TOKEN, name, position,
+                "Token error: illegal token '" + token + "'.");
+        }
+    }
+
+    /**
+     * Get the error of a block comment not closed, which is also used by {@link DfaLexer} to report the same errors.
+     *
+     * @param name     Name of the content.
+     * @param position The beginning position of the comment.
+     * @return The {@code Diagnostic} object.
+     */
+    static Diagnostic getUnterminatedCommentDiagnostic(String name, Position position) {
+        return new Diagnostic(Diagnostic.Kind.UNTERMINATED_COMMENT, name, position, "Comment error: '*/' expected.");
+    }
+
+    /**
+     * Get the token of a single character from the {@link SymbolTable}, see {@link LexerImpl#intern()}.
+     * It is interned even when the tokens are passed to a listener, since the tokens of a single character are few.
+     *
+     * @param c The character.
+     * @return The token in string, or {@code null} if it is not needed.
+     */
+    private String intern(int c) {
+        builder.setLength(0);
+        builder.append((char) c);
+        return sliced && listener == null ? null : symbols.intern(builder);
+    }
+
+    /**
+     * Get the token assembled in the builder from the {@link SymbolTable},
+     * unless the token is not needed in string since it is appended to a {@link SliceResultSet} object.
+     * When the tokens are passed to a listener, or returned by {@link LexerImpl#nextToken()}, a new string is created
+     * instead, so that the {@code SymbolTable} object does not keep every distinct token of the content.
+     *
+     * @return The token in string, or {@code null} if it is not needed.
+     */
+    private String intern() {
+        if (listener != null) {
+            return builder.toString();
+        }
+        return sliced ? null : symbols.intern(builder);
+    }
+
     /**
      * When the current character is a slash,
      * it will be called by the {@link LexerImpl#scan()} method to scan comment.
@@ -77,8 +415,8 @@ public class LexerImpl implements Lexer {
      * It firstly read the next character, then check the current character:
      * <ul>
      *     <li>When read EOF, check if slash is an operator and append it to the {@code ResultSet} object.</li>
-     *     <li>When read slash, this line is a inline comment.</li>
-     *     <li>When read star, the block comment begins, read until another {@code &#42/}.</li>
+     *     <li>When read slash, this line is a inline comment, skip until CR or LF.</li>
+     *     <li>When read star, the block comment begins, skip until another {@code &#42/}.</li>
      *     <li>Otherwise, handle as an operator.</li>
      * </ul>
      *
@@ -88,16 +426,20 @@ public class LexerImpl implements Lexer {
         int temp = currentChar;
         read();
         if (currentChar == CHAR_EOF) {
-            rs.append(begin, end, getOperatorTokenType(Character.toString((char) temp)), Character.toString((char) temp));
+            int state = nextOperatorState(OPERATOR_STATE_START, temp);
+            append(isOperatorState(state) ? TokenTypeImpl.OPERATOR : TokenTypeImpl.ILLEGAL, intern(temp));
         } else if (currentChar == CHAR_SLASH) {
-            do {
-                read();
-            } while (currentChar != CHAR_EOF && currentChar != CHAR_LINE_FEED && currentChar != CHAR_CARRIAGE_RETURN);
-            rs.append(begin, end, TokenTypeImpl.INLINE_COMMENT, EMPTY_TOKEN);
+            skipUntil(CHAR_LINE_FEED, CHAR_CARRIAGE_RETURN);
+            append(TokenTypeImpl.INLINE_COMMENT, EMPTY_TOKEN);
         } else if (currentChar == CHAR_STAR) {
             boolean prepare = false;
             do {
-                read();
+                if (prepare) {
+                    read();
+                } else {
+                    // Only a star may begin the end of the comment, and LF has to be read to count rows
+                    skipUntil(CHAR_STAR, CHAR_LINE_FEED);
+                }
                 boolean isCommentEnd = prepare && currentChar == CHAR_SLASH;
                 if (currentChar != CHAR_EOF && !isCommentEnd) {
                     prepare = currentChar == CHAR_STAR;
@@ -105,20 +447,30 @@ public class LexerImpl implements Lexer {
                     break;
                 }
             } while (true);
-            read();
-            rs.append(begin, end, TokenTypeImpl.BLOCK_COMMENT, EMPTY_TOKEN);
+            if (currentChar == CHAR_EOF) {
+                if (diagnostics != null) {
+                    diagnostics.offer(getUnterminatedCommentDiagnostic(name, new Position(beginIndex, beginRow, beginColumn)));
+                }
+            } else {
+                // The comment ends after the slash
+                read();
+            }
+            append(TokenTypeImpl.BLOCK_COMMENT, EMPTY_TOKEN);
         } else {
-            StringBuilder builder = new StringBuilder().append((char) temp);
+            int state = nextOperatorState(OPERATOR_STATE_START, temp);
+            builder.setLength(0);
+            builder.append((char) temp);
             do {
-                boolean isOperator = isOperator(builder.toString() + (char) currentChar);
-                if (currentChar != CHAR_EOF && !isSpace(currentChar) && !isLetter(currentChar) && !isDigit(currentChar) && !isDelimiter(currentChar) && isOperator) {
+                int next = nextOperatorState(state, currentChar);
+                if (isOperatorState(next)) {
+                    state = next;
                     builder.append((char) currentChar);
                 } else {
                     break;
                 }
                 read();
             } while (true);
-            rs.append(begin, end, getOperatorTokenType(builder.toString()), builder.toString());
+            append(isOperatorState(state) ? TokenTypeImpl.OPERATOR : TokenTypeImpl.ILLEGAL, intern());
         }
     }
 
@@ -131,16 +483,10 @@ public class LexerImpl implements Lexer {
      * @throws IOException If an I/O error occurs when read the next character.
      */
     private void scanPreprocessor() throws IOException {
-        StringBuilder builder = new StringBuilder().append((char) currentChar);
-        do {
-            read();
-            if (currentChar != CHAR_EOF && currentChar != CHAR_CARRIAGE_RETURN && currentChar != CHAR_LINE_FEED) {
-                builder.append((char) currentChar);
-            } else {
-                break;
-            }
-        } while (true);
-        rs.append(begin, end, TokenTypeImpl.PREPROCESSOR, builder.toString());
+        builder.setLength(0);
+        builder.append((char) currentChar);
+        readUntil(CHAR_CARRIAGE_RETURN, CHAR_LINE_FEED);
+        append(TokenTypeImpl.PREPROCESSOR, intern());
     }
 
     /**
@@ -162,7 +508,8 @@ public class LexerImpl implements Lexer {
     private void scanCharacter() throws IOException {
         int length = 0;
         boolean prepare = false;
-        StringBuilder builder = new StringBuilder().append((char) currentChar);
+        builder.setLength(0);
+        builder.append((char) currentChar);
         do {
             read();
             if (currentChar != CHAR_EOF && currentChar == CHAR_ESCAPE) {
@@ -184,12 +531,19 @@ public class LexerImpl implements Lexer {
                 break;
             }
         } while (true);
+        // A closed character ends after the single quote, and an unclosed one ends before CR, LF, or EOF
+        boolean closed = currentChar == CHAR_SINGLE_QUOTE;
+        if (closed) {
+            read();
+        }
         if (length == 1) {
-            rs.append(begin, end, TokenTypeImpl.CHARACTER, builder.toString());
+            append(TokenTypeImpl.CHARACTER, intern());
         } else {
-            rs.append(begin, end, TokenTypeImpl.ILLEGAL, builder.toString());
+            append(TokenTypeImpl.ILLEGAL, intern());
+        }
+        if (!closed && currentChar != CHAR_EOF) {
+            read();
         }
-        read();
     }
 
     /**
@@ -208,9 +562,15 @@ public class LexerImpl implements Lexer {
     private void scanString() throws IOException {
         TokenType type = TokenTypeImpl.STRING;
         boolean prepare = false;
-        StringBuilder builder = new StringBuilder().append((char) currentChar);
+        builder.setLength(0);
+        builder.append((char) currentChar);
         do {
-            read();
+            if (prepare) {
+                read();
+            } else {
+                // The characters other than these ones are simply appended when not escaped
+                readUntil(CHAR_DOUBLE_QUOTE, CHAR_ESCAPE);
+            }
             if (currentChar == CHAR_EOF) {
                 type = TokenTypeImpl.ILLEGAL;
                 break;
@@ -228,8 +588,16 @@ public class LexerImpl implements Lexer {
                 break;
             }
         } while (true);
-        rs.append(begin, end, type, builder.toString());
-        read();
+        // A closed string ends after the double quote, and an unclosed one ends before CR, LF, or EOF
+        if (type == TokenTypeImpl.STRING) {
+            read();
+            append(type, intern());
+        } else {
+            append(type, intern());
+            if (currentChar != CHAR_EOF) {
+                read();
+            }
+        }
     }
 
     /**
@@ -241,17 +609,18 @@ public class LexerImpl implements Lexer {
      * @throws IOException If an I/O error occurs when read the next character.
      */
     private void scanDigits() throws IOException {
-        StringBuilder builder = new StringBuilder().append((char) currentChar);
+        builder.setLength(0);
+        builder.append((char) currentChar);
         do {
             read();
-            boolean isCharValid = isDigit(currentChar) || isLetter(currentChar) || currentChar == CHAR_PERIOD;
-            if (currentChar != CHAR_EOF && isCharValid) {
+            int charClass = getCharClass(currentChar);
+            if (charClass == CLASS_DIGIT || charClass == CLASS_LETTER || currentChar == CHAR_PERIOD) {
                 builder.append((char) currentChar);
             } else {
                 break;
             }
         } while (true);
-        rs.append(begin, end, getNumberTokenType(builder.toString()), builder.toString());
+        append(getNumberTokenType(builder), intern());
     }
 
     /**
@@ -263,17 +632,18 @@ public class LexerImpl implements Lexer {
      * @throws IOException If an I/O error occurs when read the next character.
      */
     private void scanLetters() throws IOException {
-        StringBuilder builder = new StringBuilder().append((char) currentChar);
+        builder.setLength(0);
+        builder.append((char) currentChar);
         do {
             read();
-            boolean isCharValid = isDigit(currentChar) || isLetter(currentChar) || currentChar == CHAR_UNDERLINE;
-            if (currentChar != CHAR_EOF && isCharValid) {
+            int charClass = getCharClass(currentChar);
+            if (charClass == CLASS_DIGIT || charClass == CLASS_LETTER || charClass == CLASS_UNDERLINE) {
                 builder.append((char) currentChar);
             } else {
                 break;
             }
         } while (true);
-        rs.append(begin, end, getKeywordTokenType(builder.toString()), builder.toString());
+        append(getKeywordTokenType(builder), intern());
     }
 
     /**
@@ -309,39 +679,53 @@ public class LexerImpl implements Lexer {
             default:
                 break;
         }
-        String value = Character.toString((char) currentChar);
+        if (diagnostics != null) {
+            trackDelimiter();
+        }
+        String value = intern(currentChar);
         read();
-        rs.append(begin, end, TokenTypeImpl.DELIMITER, value);
+        append(TokenTypeImpl.DELIMITER, value);
+    }
+
+    /**
+     * Track the current delimiter to locate the delimiters not in pair.
+     */
+    private void trackDelimiter() {
+        braces.track(currentChar, beginIndex, beginRow, beginColumn);
+        brackets.track(currentChar, beginIndex, beginRow, beginColumn);
+        parentheses.track(currentChar, beginIndex, beginRow, beginColumn);
     }
 
     /**
      * When the current character is an operator prefix,
      * it will be called by the {@link LexerImpl#scan()} method to scan operators.
      * <p>
-     * Read until the next character is a symbol and the appended string is an operator.
+     * Walk the operator trie until the next character cannot extend the operator any more,
+     * i.e., in the maximal munch way.
+     * Since the characters of operators are not white-spaces, letters, digits, or delimiters,
+     * the trie stops at these characters as well as EOF.
      *
      * @throws IOException If an I/O error occurs when read the next character.
+     * @see TokenUtil#nextOperatorState(int, int)
      */
     private void scanOperator() throws IOException {
-        StringBuilder builder = new StringBuilder().append((char) currentChar);
+        int state = nextOperatorState(OPERATOR_STATE_START, currentChar);
+        builder.setLength(0);
+        builder.append((char) currentChar);
         do {
             read();
-            String temp = builder.toString() + (char) currentChar;
-            if (currentChar != CHAR_EOF &&
-                !isSpace(currentChar) &&
-                !isLetter(currentChar) &&
-                !isDigit(currentChar) &&
-                !isDelimiter(currentChar) &&
-                isOperator(temp)) {
+            int next = nextOperatorState(state, currentChar);
+            if (isOperatorState(next)) {
+                state = next;
                 builder.append((char) currentChar);
             } else {
                 break;
             }
         } while (true);
-        if (isOperator(builder.toString())) {
-            rs.append(begin, end, TokenTypeImpl.OPERATOR, builder.toString());
+        if (isOperatorState(state)) {
+            append(TokenTypeImpl.OPERATOR, intern());
         } else {
-            rs.append(begin, end, TokenTypeImpl.ILLEGAL, builder.toString());
+            append(TokenTypeImpl.ILLEGAL, intern());
         }
     }
 
@@ -355,49 +739,39 @@ public class LexerImpl implements Lexer {
      * @throws IOException If an I/O error occurs when read the next character.
      */
     private void scanOthers() throws IOException {
-        StringBuilder builder = new StringBuilder().append((char) currentChar);
+        builder.setLength(0);
+        builder.append((char) currentChar);
         do {
             read();
-            if (currentChar != CHAR_EOF &&
-                !isSpace(currentChar) &&
-                !isLetter(currentChar) &&
-                !isDigit(currentChar) &&
-                !isDelimiter(currentChar) &&
-                !isOperatorPrefix(currentChar)) {
+            int charClass = getCharClass(currentChar);
+            if (charClass == CLASS_OTHER ||
+                charClass == CLASS_SHARP ||
+                charClass == CLASS_SINGLE_QUOTE ||
+                charClass == CLASS_DOUBLE_QUOTE ||
+                charClass == CLASS_UNDERLINE) {
                 builder.append((char) currentChar);
             } else {
                 break;
             }
         } while (true);
-        rs.append(begin, end, TokenTypeImpl.ILLEGAL, builder.toString());
+        append(TokenTypeImpl.ILLEGAL, intern());
     }
 
     /**
      * It checks if the delimiters of braces, brackets, and parentheses are appearing in pair.
-     * If not, print errors.
+     * If not, report errors to the {@code DiagnosticSink} object.
      */
     private void checkPairDelimiters() {
-        if (countBrace < 0) {
-            System.out.printf("Brace error: %d '{' excepted.\n", -countBrace);
-        } else if (countBrace > 0) {
-            System.out.printf("Brace error: %d '}' excepted.\n", countBrace);
-        }
-        if (countBrack < 0) {
-            System.out.printf("Bracket error: %d '[' excepted.\n", -countBrack);
-        } else if (countBrack > 0) {
-            System.out.printf("Bracket error: %d ']' excepted.\n", countBrack);
-        }
-        if (countParen < 0) {
-            System.out.printf("Parenthesis error: %d '(' excepted.\n", -countParen);
-        } else if (countParen > 0) {
-            System.out.printf("Parenthesis error: %d ')' excepted.\n", countParen);
-        }
+        braces.check(countBrace, name, diagnostics);
+        brackets.check(countBrack, name, diagnostics);
+        parentheses.check(countParen, name, diagnostics);
     }
 
     /**
-     * Read the content to do lexical scan, which is the core method of a lexical scanner.
+     * Scan one step of the content, which is the core method of the lexical scanner.
+     * A step scans a token or skips a white-space.
      * <p>
-     * The checking procedure is:
+     * The character is classified by {@link TokenUtil#getCharClass(int)}, then the checking procedure is:
      * <ol>
      *     <li>Check EOF.</li>
      *     <li>Skip white-spaces.</li>
@@ -410,51 +784,347 @@ public class LexerImpl implements Lexer {
      *     <li>Check if the character is a delimiter to scan delimiter.</li>
      *     <li>Check if the character is an operator prefix to scan operator.</li>
      *     <li>Illegal token.</li>
-     *     <li>Pair delimiters.</li>
      * </ol>
+     * When EOF is read for the first time, check pair delimiters.
      *
-     * @return The Lexer object itself for chain call.
+     * @return {@code false} when the content has been read to the end.
      * @throws IOException If an I/O error occurs when reading.
      */
-    @Override
-    public Lexer scan() throws IOException {
-        read();
-        do {
-            begin = new Position(position.getIndex(), position.getRow(), position.getColumn());
-            if (currentChar == CHAR_EOF) {
+    private boolean step() throws IOException {
+        if (!started) {
+            started = true;
+            startNanos = metrics == null ? 0 : System.nanoTime();
+            startIndex = index;
+            read();
+        }
+        if (index - 1 >= limit) {
+            return false;
+        }
+        beginIndex = index;
+        beginRow = row;
+        beginColumn = index - lineStart;
+        int charClass = getCharClass(currentChar);
+        long start = metrics == null ? 0 : System.nanoTime();
+        switch (charClass) {
+            case CLASS_EOF:
+                if (!finished) {
+                    finished = true;
+                    if (metrics != null) {
+                        // EOF is counted by the index number but is not a character
+                        metrics.finish(index - 1 - startIndex, source.getBytesRead(), start - startNanos,
+                            countBrace, countBrack, countParen);
+                    }
+                    if (!segment) {
+                        checkPairDelimiters();
+                    }
+                }
+                return false;
+            case CLASS_SPACE:
+                skipBlanks();
                 break;
-            } else if (isSpace(currentChar)) {
-                read();
-            } else if (currentChar == CHAR_SLASH) {
+            case CLASS_SLASH:
                 scanComment();
-            } else if (currentChar == CHAR_SHARP) {
+                break;
+            case CLASS_SHARP:
                 scanPreprocessor();
-            } else if (currentChar == CHAR_SINGLE_QUOTE) {
+                break;
+            case CLASS_SINGLE_QUOTE:
                 scanCharacter();
-            } else if (currentChar == CHAR_DOUBLE_QUOTE) {
+                break;
+            case CLASS_DOUBLE_QUOTE:
                 scanString();
-            } else if (isDigit(currentChar)) {
+                break;
+            case CLASS_DIGIT:
                 scanDigits();
-            } else if (isLetter(currentChar) || currentChar == CHAR_UNDERLINE) {
+                break;
+            case CLASS_LETTER:
+            case CLASS_UNDERLINE:
                 scanLetters();
-            } else if (isDelimiter(currentChar)) {
+                break;
+            case CLASS_DELIMITER:
                 scanDelimiter();
-            } else if (isOperatorPrefix(currentChar)) {
+                break;
+            case CLASS_OPERATOR_PREFIX:
                 scanOperator();
-            } else {
+                break;
+            default:
                 scanOthers();
+                break;
+        }
+        if (metrics != null) {
+            metrics.addTime(charClass, System.nanoTime() - start);
+        }
+        return true;
+    }
+
+    /**
+     * Read the content to do lexical scan, and append the results to the {@code ResultSet} object.
+     *
+     * @return The Lexer object itself for chain call.
+     * @throws IOException If an I/O error occurs when reading.
+     * @see LexerImpl#step()
+     */
+    @Override
+    public Lexer scan() throws IOException {
+        while (step()) {
+            // Scan until EOF
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LexerImpl#step()
+     */
+    @Override
+    public Lexer scan(TokenListener listener) throws IOException {
+        this.listener = listener;
+        try {
+            while (step()) {
+                // Scan until EOF
             }
-        } while (true);
+        } finally {
+            this.listener = null;
+        }
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see LexerImpl#step()
+     */
+    @Override
+    public Token nextToken() throws IOException {
+        pending = null;
+        listener = pendingListener;
+        try {
+            while (pending == null && step()) {
+                // Scan until a token is scanned or EOF
+            }
+        } finally {
+            listener = null;
+        }
+        return pending;
+    }
+
+    /**
+     * Read the content to do lexical scan in parallel, and append the results to the {@code ResultSet} object.
+     * <p>
+     * The whole content is read into memory and split into chunks at line beginnings,
+     * then the chunks are scanned concurrently and merged, see {@link ChunkScanner}.
+     * The results and the errors reported are the same as the ones of {@link LexerImpl#scan()}.
+     * It should be called before anything has been scanned.
+     *
+     * @param chunks Number of chunks to split the content into.
+     * @return The Lexer object itself for chain call.
+     * @throws IOException If an I/O error occurs when reading.
+     */
+    public Lexer scan(int chunks) throws IOException {
+        if (started) {
+            throw new IllegalStateException("Content has been scanned");
+        }
+        long start = metrics == null ? 0 : System.nanoTime();
+        CharSequence content;
+        if (source instanceof CharSequenceSource) {
+            content = ((CharSequenceSource) source).getContent();
+        } else {
+            StringBuilder temp = new StringBuilder();
+            for (int c = source.read(); c != CHAR_EOF; c = source.read()) {
+                temp.append((char) c);
+            }
+            content = temp;
+        }
+        int[] counts = new ChunkScanner(content, chunks).setDiagnostics(name, diagnostics, braces, brackets, parentheses)
+            .scan(rs, skipped);
+        lines = LineIndex.of(content);
+        countBrace = counts[0];
+        countBrack = counts[1];
+        countParen = counts[2];
+        started = true;
+        finished = true;
+        currentChar = CHAR_EOF;
+        if (metrics != null) {
+            metrics.finish(content.length(), source.getBytesRead(), System.nanoTime() - start,
+                countBrace, countBrack, countParen);
+        }
         checkPairDelimiters();
         return this;
     }
 
+    /**
+     * Get the offset of the character where the scan stopped, used by {@link ChunkScanner}.
+     *
+     * @return Offset of the current character.
+     */
+    int getStopIndex() {
+        return index - 1;
+    }
+
+    /**
+     * Get the row number before reading the character where the scan stopped, used by {@link ChunkScanner}.
+     *
+     * @return Row number before reading the current character.
+     */
+    int getStopRow() {
+        return getEndRow();
+    }
+
+    /**
+     * Get the column number before reading the character where the scan stopped, used by {@link ChunkScanner}.
+     *
+     * @return Column number before reading the current character.
+     */
+    int getStopColumn() {
+        return getEndColumn() - 1;
+    }
+
+    /**
+     * Get the {@code LineIndex} object of the lines read so far, which covers the whole content after the scan.
+     * For a lexer scanning a segment, it starts from the line where the segment starts.
+     *
+     * @return The {@code LineIndex} object.
+     */
+    public LineIndex getLineIndex() {
+        return lines;
+    }
+
+    /**
+     * Get the {@code SymbolTable} object which the tokens are interned in.
+     *
+     * @return The {@code SymbolTable} object.
+     */
+    public SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    /**
+     * Set the {@code SymbolTable} object to intern the tokens in, e.g., to share the tokens of many files
+     * scanned in the same thread. By default, each {@code LexerImpl} object has its own one.
+     * Only the tokens of a single character are interned when the tokens are passed to a listener.
+     *
+     * @param symbols The {@code SymbolTable} object.
+     * @return The Lexer object itself for chain call.
+     */
+    public LexerImpl setSymbolTable(SymbolTable symbols) {
+        this.symbols = symbols;
+        return this;
+    }
+
+    /**
+     * Get the {@code LexerMetrics} object which the metrics of scanning are recorded in.
+     *
+     * @return The {@code LexerMetrics} object, or {@code null} if the metrics are not recorded.
+     */
+    public LexerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Set the {@code LexerMetrics} object to record the metrics of scanning in, or {@code null} not to record them,
+     * which is the default. It should be set before anything has been scanned.
+     * <p>
+     * The tokens and the time of each step are not recorded by {@link LexerImpl#scan(int)},
+     * whose chunks are scanned by other lexers.
+     *
+     * @param metrics The {@code LexerMetrics} object.
+     * @return The Lexer object itself for chain call.
+     */
+    public LexerImpl setMetrics(LexerMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Set the types of the tokens to drop, e.g., {@code setSkipped(INLINE_COMMENT, BLOCK_COMMENT)} for a parser
+     * which never needs comments. The dropped tokens are neither appended to the {@code ResultSet} object
+     * nor passed to the {@code TokenListener} object, but they are still counted by {@link LexerMetrics}
+     * and reported to {@link DiagnosticSink}. No types are dropped by default.
+     * <p>
+     * Comments are never assembled in any case, since they are skipped in bulk, see {@link CharSource#skipUntil(int, int)}.
+     *
+     * @param types Types of the tokens to drop, or none to keep all the tokens.
+     * @return The Lexer object itself for chain call.
+     */
+    public LexerImpl setSkipped(TokenType... types) {
+        if (types.length == 0) {
+            skipped = null;
+        } else {
+            skipped = new boolean[TokenTypeImpl.values().length];
+            for (TokenType type : types) {
+                skipped[((TokenTypeImpl) type).ordinal()] = true;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Check if the tokens of a type are dropped.
+     *
+     * @param type The type of the tokens.
+     * @return {@code true} if they are dropped.
+     * @see LexerImpl#setSkipped(TokenType...)
+     */
+    public boolean isSkipped(TokenType type) {
+        return skipped != null && skipped[((TokenTypeImpl) type).ordinal()];
+    }
+
+    /**
+     * Get the {@code DiagnosticSink} object which the errors are reported to.
+     *
+     * @return The {@code DiagnosticSink} object, or {@code null} if the errors are ignored.
+     */
+    public DiagnosticSink getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Set the {@code DiagnosticSink} object to report the errors to, which may be shared by many lexers,
+     * or {@code null} to ignore the errors. By default, each {@code LexerImpl} object has its own one,
+     * which can be drained through {@link LexerImpl#getDiagnostics()}.
+     * Nothing is printed by the lexer except by {@link LexerImpl#print()}.
+     * It should be set before anything has been scanned.
+     *
+     * @param diagnostics The {@code DiagnosticSink} object.
+     * @return The Lexer object itself for chain call.
+     */
+    public LexerImpl setDiagnostics(DiagnosticSink diagnostics) {
+        this.diagnostics = diagnostics;
+        return this;
+    }
+
+    /**
+     * Set the name of the content reported with the errors, which is the filename by default when reading a file.
+     *
+     * @param name Name of the content.
+     * @return The Lexer object itself for chain call.
+     */
+    public LexerImpl setName(String name) {
+        this.name = name;
+        return this;
+    }
+
     /**
      * {@inheritDoc}
+     * <p>
+     * The results are written to the standard output row by row without assembling the whole string,
+     * through a buffer which is flushed once at the end.
+     *
+     * @throws UncheckedIOException If an I/O error occurs when writing, which never happens to the standard output.
+     * @see ResultSetFactory#writeString(ResultSet, Appendable)
      */
     @Override
     public Lexer print() {
-        System.out.println(ResultSetFactory.toString(rs));
+        // Not closed, which would close the standard output
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(System.out));
+        try {
+            ResultSetFactory.writeString(rs, out);
+            out.newLine();
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
         return this;
     }
 
@@ -462,24 +1132,14 @@ public class LexerImpl implements Lexer {
      * {@inheritDoc}
      * <p>
      * Check the filename suffix, write the {@code ResultSet}
-     * in different formats of string to the target file.
+     * in different formats of string to the target file row by row through a buffered writer,
+     * or in the binary format to be read by {@link MappedResultSet} if the suffix is {@code .bin}.
      *
-     * @see ResultSetFactory#toHtml(ResultSet)
-     * @see ResultSetFactory#toMarkdown(ResultSet)
-     * @see ResultSetFactory#toString(ResultSet)
+     * @see ResultSetFactory#write(ResultSet, String)
      */
     @Override
     public Lexer write(String filename) throws IOException {
-        FileWriter writer = new FileWriter(filename);
-        if (Pattern.matches(PATTERN_HTML, filename)) {
-            writer.write(ResultSetFactory.toHtml(rs));
-        } else if (Pattern.matches(PATTERN_MARKDOWN, filename)) {
-            writer.write(ResultSetFactory.toMarkdown(rs));
-        } else {
-            writer.write(ResultSetFactory.toString(rs));
-        }
-        writer.close();
-        System.out.printf("Results has been written to %s successfully\n", filename);
+        ResultSetFactory.write(rs, filename);
         return this;
     }
 
@@ -488,7 +1148,7 @@ public class LexerImpl implements Lexer {
      */
     @Override
     public final void close() throws IOException {
-        reader.close();
+        source.close();
     }
 
-}
\ No newline at end of file
+}
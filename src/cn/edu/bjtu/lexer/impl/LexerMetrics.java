@@ -0,0 +1,327 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.TokenType;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static cn.edu.bjtu.lexer.impl.TokenUtil.*;
+
+/**
+ * A {@code LexerMetrics} object records the metrics of the scans of {@link LexerImpl} objects, e.g.:
+ * <pre>
+ *     LexerMetrics metrics = new LexerMetrics().register("main");
+ *     new LexerImpl(path).setMetrics(metrics).scan();
+ *     System.out.println(metrics);
+ * </pre>
+ * Nothing is recorded by a {@code LexerImpl} object without a {@code LexerMetrics} object, which costs no more
+ * than a null check for each step and each token. With one, the time of each step is measured by
+ * {@link System#nanoTime()}, which costs tens of nanoseconds per step.
+ * <p>
+ * The metrics are recorded without synchronization, so a {@code LexerMetrics} object should be recorded by one
+ * lexer at a time, and the values read from other threads, e.g., by JMX, may be slightly behind.
+ * The metrics of many lexers can be summed by {@link LexerMetrics#add(LexerMetrics)}.
+ */
+public final class LexerMetrics implements LexerMetricsMXBean {
+
+    private static final TokenTypeImpl[] TYPES = TokenTypeImpl.values();
+    /**
+     * Names of the categories of steps, indexed by the character classes of {@link TokenUtil}.
+     */
+    private static final String[] CATEGORIES = new String[CLASS_OPERATOR_PREFIX + 1];
+
+    static {
+        CATEGORIES[CLASS_EOF] = "eof";
+        CATEGORIES[CLASS_OTHER] = "other";
+        CATEGORIES[CLASS_SPACE] = "space";
+        CATEGORIES[CLASS_SLASH] = "comment";
+        CATEGORIES[CLASS_SHARP] = "preprocessor";
+        CATEGORIES[CLASS_SINGLE_QUOTE] = "character";
+        CATEGORIES[CLASS_DOUBLE_QUOTE] = "string";
+        CATEGORIES[CLASS_DIGIT] = "number";
+        CATEGORIES[CLASS_LETTER] = "word";
+        CATEGORIES[CLASS_UNDERLINE] = "word";
+        CATEGORIES[CLASS_DELIMITER] = "delimiter";
+        CATEGORIES[CLASS_OPERATOR_PREFIX] = "operator";
+    }
+
+    private long runs;
+    private long charsRead;
+    private long bytesRead;
+    private final long[] tokens = new long[TYPES.length];
+    private final long[] nanos = new long[CATEGORIES.length];
+    private long elapsedNanos;
+    private long results;
+    private long peakResults;
+    private int braceImbalance;
+    private int bracketImbalance;
+    private int parenthesisImbalance;
+
+    /**
+     * Count a token scanned.
+     *
+     * @param type     The type of the token.
+     * @param appended {@code true} if it is appended to the {@code ResultSet} object.
+     */
+    void countToken(TokenType type, boolean appended) {
+        tokens[((TokenTypeImpl) type).ordinal()]++;
+        if (appended) {
+            results++;
+        }
+    }
+
+    /**
+     * Add the time of a step.
+     *
+     * @param charClass Class of the character beginning the step.
+     * @param time      Nanoseconds of the step.
+     */
+    void addTime(int charClass, long time) {
+        nanos[charClass] += time;
+    }
+
+    /**
+     * Record the end of a scan.
+     *
+     * @param chars       Number of characters consumed, not counting EOF.
+     * @param bytes       Number of bytes read, or {@code -1} if it is unknown.
+     * @param time        Nanoseconds from the first step to EOF.
+     * @param brace       Imbalance of braces.
+     * @param bracket     Imbalance of brackets.
+     * @param parenthesis Imbalance of parentheses.
+     */
+    void finish(long chars, long bytes, long time, int brace, int bracket, int parenthesis) {
+        runs++;
+        charsRead += chars;
+        if (bytes > 0) {
+            bytesRead += bytes;
+        }
+        elapsedNanos += time;
+        peakResults = Math.max(peakResults, results);
+        results = 0;
+        braceImbalance = brace;
+        bracketImbalance = bracket;
+        parenthesisImbalance = parenthesis;
+    }
+
+    /**
+     * Add the metrics of another {@code LexerMetrics} object to this one, e.g., to sum up the metrics
+     * of the lexers in different threads after they finish. The imbalances are taken from the other one.
+     *
+     * @param other The other {@code LexerMetrics} object.
+     * @return The {@code LexerMetrics} object itself for chain call.
+     */
+    public synchronized LexerMetrics add(LexerMetrics other) {
+        runs += other.runs;
+        charsRead += other.charsRead;
+        bytesRead += other.bytesRead;
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] += other.tokens[i];
+        }
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] += other.nanos[i];
+        }
+        elapsedNanos += other.elapsedNanos;
+        peakResults = Math.max(peakResults, other.peakResults);
+        braceImbalance = other.braceImbalance;
+        bracketImbalance = other.bracketImbalance;
+        parenthesisImbalance = other.parenthesisImbalance;
+        return this;
+    }
+
+    /**
+     * Register the {@code LexerMetrics} object to the platform MBean server with the object name
+     * {@code cn.edu.bjtu.lexer:type=LexerMetrics,name=<name>}.
+     *
+     * @param name Name to distinguish the {@code LexerMetrics} object.
+     * @return The {@code LexerMetrics} object itself for chain call.
+     * @throws IllegalStateException If it cannot be registered, e.g., the name has been registered.
+     */
+    public LexerMetrics register(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName(name));
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register LexerMetrics " + name, e);
+        }
+        return this;
+    }
+
+    /**
+     * Unregister the {@code LexerMetrics} object registered by {@link LexerMetrics#register(String)}.
+     *
+     * @param name Name of the {@code LexerMetrics} object.
+     * @throws IllegalStateException If it cannot be unregistered, e.g., the name has not been registered.
+     */
+    public static void unregister(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to unregister LexerMetrics " + name, e);
+        }
+    }
+
+    /**
+     * Get the object name of a {@code LexerMetrics} object.
+     *
+     * @param name Name of the {@code LexerMetrics} object.
+     * @return The object name.
+     * @throws JMException If the name is not valid in an object name.
+     */
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("cn.edu.bjtu.lexer:type=LexerMetrics,name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRuns() {
+        return runs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCharsRead() {
+        return charsRead;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTokens() {
+        long sum = 0;
+        for (long count : tokens) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    /**
+     * Get the number of tokens scanned of a token type.
+     *
+     * @param type The token type.
+     * @return Number of tokens.
+     */
+    public long getTokens(TokenTypeImpl type) {
+        return tokens[type.ordinal()];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getTokensByType() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (TokenTypeImpl type : TYPES) {
+            map.put(type.name(), tokens[type.ordinal()]);
+        }
+        return map;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getIllegalTokens() {
+        return tokens[TokenTypeImpl.ILLEGAL.ordinal()];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getNanosByCategory() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            if (i != CLASS_EOF) {
+                map.merge(CATEGORIES[i], nanos[i], Long::sum);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getPeakResults() {
+        return Math.max(peakResults, results);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBraceImbalance() {
+        return braceImbalance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBracketImbalance() {
+        return bracketImbalance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getParenthesisImbalance() {
+        return parenthesisImbalance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void reset() {
+        runs = 0;
+        charsRead = 0;
+        bytesRead = 0;
+        Arrays.fill(tokens, 0);
+        Arrays.fill(nanos, 0);
+        elapsedNanos = 0;
+        results = 0;
+        peakResults = 0;
+        braceImbalance = 0;
+        bracketImbalance = 0;
+        parenthesisImbalance = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return String.format("%d runs, %d chars, %d bytes, %d tokens (%d illegal), %.3f ms, peak %d results, "
+                + "imbalances {}=%d []=%d ()=%d, tokens %s, nanos %s",
+            runs, charsRead, bytesRead, getTokens(), getIllegalTokens(), elapsedNanos / 1e6, getPeakResults(),
+            braceImbalance, bracketImbalance, parenthesisImbalance, getTokensByType(), getNanosByCategory());
+    }
+
+}
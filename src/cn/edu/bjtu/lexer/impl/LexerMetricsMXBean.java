@@ -0,0 +1,100 @@
+package cn.edu.bjtu.lexer.impl;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link LexerMetrics}, which can be registered to the platform MBean server
+ * by {@link LexerMetrics#register(String)} and read by JMX clients such as JConsole.
+ */
+public interface LexerMetricsMXBean {
+
+    /**
+     * Get the number of scans which have read to EOF.
+     *
+     * @return Number of scans.
+     */
+    long getRuns();
+
+    /**
+     * Get the number of characters consumed by the scans, not counting EOF.
+     *
+     * @return Number of characters.
+     */
+    long getCharsRead();
+
+    /**
+     * Get the number of bytes decoded into the characters read, counted only for the sources which know it.
+     *
+     * @return Number of bytes.
+     */
+    long getBytesRead();
+
+    /**
+     * Get the total number of tokens scanned.
+     *
+     * @return Number of tokens.
+     */
+    long getTokens();
+
+    /**
+     * Get the number of tokens scanned of each token type.
+     *
+     * @return Numbers of tokens by the names of the token types.
+     */
+    Map<String, Long> getTokensByType();
+
+    /**
+     * Get the number of illegal tokens scanned.
+     *
+     * @return Number of illegal tokens.
+     */
+    long getIllegalTokens();
+
+    /**
+     * Get the time spent on each category of steps, which is named after the character beginning the step.
+     *
+     * @return Nanoseconds by the names of the categories.
+     */
+    Map<String, Long> getNanosByCategory();
+
+    /**
+     * Get the total time from the first step to EOF of the scans.
+     *
+     * @return Nanoseconds.
+     */
+    long getElapsedNanos();
+
+    /**
+     * Get the largest number of results appended to the {@code ResultSet} object by a scan.
+     *
+     * @return Number of results.
+     */
+    long getPeakResults();
+
+    /**
+     * Get the number of '{' minus the number of '}' of the last scan.
+     *
+     * @return Imbalance of braces.
+     */
+    int getBraceImbalance();
+
+    /**
+     * Get the number of '[' minus the number of ']' of the last scan.
+     *
+     * @return Imbalance of brackets.
+     */
+    int getBracketImbalance();
+
+    /**
+     * Get the number of '(' minus the number of ')' of the last scan.
+     *
+     * @return Imbalance of parentheses.
+     */
+    int getParenthesisImbalance();
+
+    /**
+     * Reset all the metrics to zero.
+     */
+    void reset();
+
+}
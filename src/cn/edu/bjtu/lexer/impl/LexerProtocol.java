@@ -0,0 +1,276 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Diagnostic;
+import cn.edu.bjtu.lexer.Position;
+import cn.edu.bjtu.lexer.TokenListener;
+import cn.edu.bjtu.lexer.TokenType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code LexerProtocol} class is an util class that defines the protocol between {@link LexerServer}
+ * and {@link LexerClient}, where a connection carries any number of requests, each followed by its response.
+ * <p>
+ * Numbers are unsigned varints, and strings are varints of the length followed by the bytes in UTF-8.
+ * A request is a byte of its kind followed by:
+ * <ul>
+ *     <li>{@link #REQUEST_PATH}: path of the file to scan, which is read by the server only if it is under
+ *     a root directory of the server, see {@link LexerServer#setRoots(java.util.Collection)}.</li>
+ *     <li>{@link #REQUEST_SOURCE}: name of the content, number of bytes, and the bytes of the content,
+ *     which are decoded in UTF-8, the same as the files read by {@link MappedCharSource}.</li>
+ *     <li>{@link #REQUEST_STATS}: nothing, and the response is the statistics of the server in a string.</li>
+ * </ul>
+ * A response begins with {@link #STATUS_OK}, or {@link #STATUS_ERROR} followed by the message in a string.
+ * A malformed request, e.g., of an unknown kind or a length over the maximum of the server,
+ * is answered by an error, and then the connection is closed since the rest of the request cannot be skipped.
+ * The tokens of an OK response are streamed as soon as they are scanned, one frame per token:
+ * ordinal of the {@link TokenTypeImpl} in a byte, the zigzag encoded delta of the beginning index to the previous
+ * end index, delta of the beginning row to the previous one, beginning column, length, delta of the end row
+ * to the beginning one, end column, and the id of the token, which is followed by the token in a string
+ * if it is the first occurrence in the response. The tokens end with {@link #END}, followed by the number
+ * of diagnostics and, for each, ordinal of its kind in a byte, {@code 1} and the index, row and column of the
+ * position or {@code 0} if there is not one, and the message in a string.
+ */
+final class LexerProtocol {
+
+    static final int REQUEST_PATH = 1;
+    static final int REQUEST_SOURCE = 2;
+    static final int REQUEST_STATS = 3;
+    static final int STATUS_OK = 0;
+    static final int STATUS_ERROR = 1;
+    static final int END = 0xff;
+    static final String SCHEME_UNIX = "unix:";
+    static final String SCHEME_TCP = "tcp:";
+
+    private static final TokenTypeImpl[] TYPES = TokenTypeImpl.values();
+    private static final Diagnostic.Kind[] KINDS = Diagnostic.Kind.values();
+
+    private LexerProtocol() {
+    }
+
+    /**
+     * Parse the address of a server: {@code unix:<path>} for a Unix domain socket, {@code tcp:<port>} for a port
+     * on the loopback address, or {@code tcp:<host>:<port>}, where the host must be a loopback one since the server
+     * does not authenticate the clients. Without a scheme, an address of all digits is a port,
+     * and any other address is a path, which may contain {@code ':'}.
+     *
+     * @param address The address in string.
+     * @return The {@code SocketAddress} object.
+     * @throws UnknownHostException     If the host cannot be resolved.
+     * @throws IllegalArgumentException If the host is not a loopback one, or the port is not a number.
+     */
+    static SocketAddress parseAddress(String address) throws UnknownHostException {
+        if (address.startsWith(SCHEME_UNIX)) {
+            return UnixDomainSocketAddress.of(address.substring(SCHEME_UNIX.length()));
+        } else if (address.startsWith(SCHEME_TCP)) {
+            String host = address.substring(SCHEME_TCP.length());
+            int colon = host.lastIndexOf(':');
+            if (colon < 0) {
+                return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(host));
+            }
+            int port = Integer.parseInt(host.substring(colon + 1));
+            // An IPv6 address is in brackets, e.g., tcp:[::1]:8000
+            host = host.substring(0, colon);
+            InetAddress inet = InetAddress.getByName(host);
+            if (!inet.isLoopbackAddress()) {
+                throw new IllegalArgumentException("Not a loopback address: " + host);
+            }
+            return new InetSocketAddress(inet, port);
+        } else if (address.matches("\\d+")) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+        } else {
+            return UnixDomainSocketAddress.of(address);
+        }
+    }
+
+    static void writeVarint(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Read a length of bytes.
+     *
+     * @param in  The input to read from.
+     * @param max Maximum of the length.
+     * @return The length.
+     * @throws ProtocolException If the length is negative, i.e., the varint is over 31 bits, or over the maximum.
+     * @throws IOException       If an I/O error occurs when reading.
+     */
+    static int readLength(DataInput in, int max) throws IOException {
+        int length = readVarint(in);
+        if (length < 0 || length > max) {
+            throw new ProtocolException("Length " + Integer.toUnsignedString(length) + " out of range 0.." + max);
+        }
+        return length;
+    }
+
+    static int readVarint(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static void writeString(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        return readString(in, Integer.MAX_VALUE);
+    }
+
+    static String readString(DataInput in, int max) throws IOException {
+        byte[] bytes = new byte[readLength(in, max)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write the end of the tokens and the diagnostics.
+     *
+     * @param out         The output to write to.
+     * @param diagnostics The diagnostics.
+     * @throws IOException If an I/O error occurs when writing.
+     */
+    static void writeEnd(DataOutput out, List<Diagnostic> diagnostics) throws IOException {
+        out.writeByte(END);
+        writeVarint(out, diagnostics.size());
+        for (Diagnostic diagnostic : diagnostics) {
+            out.writeByte(diagnostic.getKind().ordinal());
+            Position position = diagnostic.getPosition();
+            if (position == null) {
+                out.writeByte(0);
+            } else {
+                out.writeByte(1);
+                writeVarint(out, position.getIndex());
+                writeVarint(out, position.getRow());
+                writeVarint(out, position.getColumn());
+            }
+            writeString(out, diagnostic.getMessage());
+        }
+    }
+
+    /**
+     * Read the tokens of an OK response and pass them to the listener, until the end of the tokens.
+     *
+     * @param in       The input to read from.
+     * @param source   Name of the content, which is the source of the diagnostics.
+     * @param listener The {@code TokenListener} object to receive the tokens.
+     * @return The diagnostics following the tokens.
+     * @throws IOException If an I/O error occurs when reading, or the response is malformed.
+     */
+    static List<Diagnostic> readTokens(DataInput in, String source, TokenListener listener) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        int index = 0;
+        int row = 1;
+        int type;
+        while ((type = in.readUnsignedByte()) != END) {
+            if (type >= TYPES.length) {
+                throw new IOException("Unknown token type " + type);
+            }
+            int beginIndex = index + BinaryFormat.decodeZigzag(readVarint(in));
+            int beginRow = row + readVarint(in);
+            int beginColumn = readVarint(in);
+            int endIndex = beginIndex + readVarint(in);
+            int endRow = beginRow + readVarint(in);
+            int endColumn = readVarint(in);
+            int id = readVarint(in);
+            if (id == tokens.size()) {
+                tokens.add(readString(in));
+            } else if (id > tokens.size()) {
+                throw new IOException("Unknown token id " + id);
+            }
+            listener.onToken(new Position(beginIndex, beginRow, beginColumn), new Position(endIndex, endRow, endColumn),
+                TYPES[type], tokens.get(id));
+            index = endIndex;
+            row = beginRow;
+        }
+        int count = readVarint(in);
+        List<Diagnostic> diagnostics = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int kind = in.readUnsignedByte();
+            if (kind >= KINDS.length) {
+                throw new IOException("Unknown diagnostic kind " + kind);
+            }
+            Position position = null;
+            if (in.readUnsignedByte() != 0) {
+                position = new Position(readVarint(in), readVarint(in), readVarint(in));
+            }
+            diagnostics.add(new Diagnostic(KINDS[kind], source, position, readString(in)));
+        }
+        return diagnostics;
+    }
+
+    /**
+     * A {@code TokenListener} object writing the tokens as frames of a response,
+     * where the strings are written once per response.
+     */
+    static final class Encoder implements TokenListener {
+
+        private final DataOutput out;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private int index = 0;
+        private int row = 1;
+
+        Encoder(DataOutput out) {
+            this.out = out;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @throws UncheckedIOException If an I/O error occurs when writing.
+         */
+        @Override
+        public void onToken(Position begin, Position end, TokenType type, String token) {
+            try {
+                out.writeByte(((TokenTypeImpl) type).ordinal());
+                writeVarint(out, BinaryFormat.encodeZigzag(begin.getIndex() - index));
+                writeVarint(out, begin.getRow() - row);
+                writeVarint(out, begin.getColumn());
+                writeVarint(out, end.getIndex() - begin.getIndex());
+                writeVarint(out, end.getRow() - begin.getRow());
+                writeVarint(out, end.getColumn());
+                Integer id = ids.get(token);
+                if (id == null) {
+                    writeVarint(out, ids.size());
+                    writeString(out, token);
+                    ids.put(token, ids.size());
+                } else {
+                    writeVarint(out, id);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            index = end.getIndex();
+            row = begin.getRow();
+        }
+
+    }
+
+}
@@ -0,0 +1,568 @@
+package cn.edu.bjtu.lexer.impl;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static cn.edu.bjtu.lexer.impl.LexerProtocol.*;
+
+/**
+ * A {@code LexerServer} object is a long-running lexical scanner serving requests on a Unix domain socket
+ * or a TCP socket, so that the clients such as {@link LexerClient} do not pay for starting and warming up a JVM
+ * for every file:
+ * <pre>
+ *     java cn.edu.bjtu.lexer.impl.LexerServer /tmp/lexer.sock src
+ *     java cn.edu.bjtu.lexer.impl.LexerClient /tmp/lexer.sock src/sample.c
+ * </pre>
+ * A client may let the server read a file only under the root directories of the server, see
+ * {@link LexerServer#setRoots(Collection)}. Otherwise, it sends the content of the file.
+ * <p>
+ * Each connection is served on its own virtual thread when the JVM supports them (Java 21 or later),
+ * or on a thread of a cached pool otherwise, and carries any number of requests one after another,
+ * see {@link LexerProtocol}. The tokens are streamed back as soon as they are scanned.
+ * <p>
+ * The lexer code is warmed up by {@link LexerServer#warmUp(int)} before serving, and the latencies of the
+ * requests are recorded for monitoring, see {@link LexerServerMXBean}.
+ */
+public final class LexerServer implements LexerServerMXBean, Closeable {
+
+    /**
+     * Content scanned to warm up the lexer, which has tokens of all the types.
+     */
+    private static final String WARM_UP_CONTENT = "#include <stdio.h>\n"
+        + "/* block\n * comment */\n"
+        + "static const char *name = \"lexer\\n\"; // inline comment\n"
+        + "int main(int argc, char **argv) {\n"
+        + "    unsigned long sum = 0x1F + 017 + 42L + 7u + 100LL;\n"
+        + "    double ratio = 3.14 * 2.5f / argc;\n"
+        + "    for (int i = 0; i < argc && argv[i] != 0; i++) { sum += argv[i][0] == 'a' ? 1 : -1; }\n"
+        + "    return sum >>= 2, sum &^= 1, @illegal, 1.2.3;\n"
+        + "}\n";
+
+    /**
+     * Default maximum number of bytes of a content or a string in a request.
+     */
+    public static final int DEFAULT_MAX_LENGTH = 64 << 20;
+
+    private final SocketAddress address;
+    private int maxLength = DEFAULT_MAX_LENGTH;
+    /**
+     * Root directories in absolute and normalized form, and with the symbolic links resolved.
+     */
+    private List<Path> roots = Collections.emptyList();
+    private List<Path> realRoots = Collections.emptyList();
+    private ServerSocketChannel server;
+    private ExecutorService executor;
+    private Thread acceptor;
+    private volatile boolean closed = false;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * Constructs a new {@code LexerServer} object.
+     *
+     * @param address A {@code UnixDomainSocketAddress} object of the path of the socket,
+     *                or an {@code InetSocketAddress} object, which must be a loopback one.
+     */
+    public LexerServer(SocketAddress address) {
+        this.address = address;
+    }
+
+    /**
+     * Set the maximum number of bytes of a content or a string in a request,
+     * over which the request is answered by an error without allocating the bytes.
+     * By default, it is {@link LexerServer#DEFAULT_MAX_LENGTH}.
+     *
+     * @param maxLength The maximum number of bytes.
+     * @return The {@code LexerServer} object itself for chain call.
+     */
+    public LexerServer setMaxLength(int maxLength) {
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("Maximum length must not be negative: " + maxLength);
+        }
+        this.maxLength = maxLength;
+        return this;
+    }
+
+    /**
+     * Set the root directories under which the files may be read by the server for the clients.
+     * A path is accepted only if it is under a root both before and after its symbolic links are resolved,
+     * so that neither {@code ..} nor a link leads out of the roots.
+     * By default, there is no root, and a client must send the contents instead of the paths.
+     * It should be set before starting.
+     *
+     * @param roots Paths of the root directories.
+     * @return The {@code LexerServer} object itself for chain call.
+     * @throws IOException If a root directory does not exist or an I/O error occurs when resolving it.
+     */
+    public LexerServer setRoots(Collection<Path> roots) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        List<Path> realPaths = new ArrayList<>();
+        for (Path root : roots) {
+            paths.add(root.toAbsolutePath().normalize());
+            realPaths.add(root.toRealPath());
+        }
+        this.roots = paths;
+        this.realRoots = realPaths;
+        return this;
+    }
+
+    /**
+     * Resolve the path of a file requested by a client, which must be under a root directory.
+     *
+     * @param name The path in the request.
+     * @return The path with the symbolic links resolved.
+     * @throws AccessDeniedException If the path is not under a root directory.
+     * @throws IOException           If an I/O error occurs when resolving the path, e.g., the file does not exist.
+     */
+    private Path resolve(String name) throws IOException {
+        // Checked before resolving, so that whether a file exists out of the roots is not revealed
+        if (!isUnder(Paths.get(name).toAbsolutePath().normalize(), roots)) {
+            throw new AccessDeniedException(name, null, "Not under a root directory of the server");
+        }
+        Path path = Paths.get(name).toRealPath();
+        if (!isUnder(path, realRoots)) {
+            throw new AccessDeniedException(name, null, "Not under a root directory of the server");
+        }
+        return path;
+    }
+
+    private static boolean isUnder(Path path, List<Path> roots) {
+        for (Path root : roots) {
+            if (path.startsWith(root)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scan a sample content many times, so that the lexer code has been compiled by the JIT compiler
+     * before the first request.
+     *
+     * @param rounds Number of times to scan, each of about 100 thousand characters.
+     * @return The {@code LexerServer} object itself for chain call.
+     * @throws IOException If an I/O error occurs when scanning.
+     */
+    public LexerServer warmUp(int rounds) throws IOException {
+        StringBuilder content = new StringBuilder();
+        while (content.length() < 100000) {
+            content.append(WARM_UP_CONTENT);
+        }
+        for (int i = 0; i < rounds; i++) {
+            LexerImpl lexer = new LexerImpl(new CharSequenceSource(content)).setDiagnostics(new DiagnosticSink());
+            lexer.scan(new Encoder(new DataOutputStream(DiscardStream.INSTANCE)));
+        }
+        return this;
+    }
+
+    /**
+     * Bind the socket and start accepting connections on a new thread.
+     * A Unix domain socket left by a server which is not running any more is replaced.
+     *
+     * @return The {@code LexerServer} object itself for chain call.
+     * @throws IOException If an I/O error occurs when binding, or the TCP address is not a loopback one.
+     */
+    public LexerServer start() throws IOException {
+        if (address instanceof InetSocketAddress) {
+            InetAddress inet = ((InetSocketAddress) address).getAddress();
+            if (inet == null || !inet.isLoopbackAddress()) {
+                throw new BindException("Not a loopback address: " + address);
+            }
+        }
+        if (address instanceof UnixDomainSocketAddress) {
+            Path path = ((UnixDomainSocketAddress) address).getPath();
+            if (Files.exists(path)) {
+                boolean running;
+                try {
+                    SocketChannel.open(address).close();
+                    running = true;
+                } catch (IOException e) {
+                    running = false;
+                }
+                if (running) {
+                    throw new BindException("A server is running on " + path);
+                }
+                Files.delete(path);
+            }
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            server = ServerSocketChannel.open();
+        }
+        server.bind(address);
+        executor = newExecutor();
+        acceptor = new Thread(this::accept, "LexerServer " + address);
+        acceptor.start();
+        return this;
+    }
+
+    /**
+     * Create an executor running each task on a new virtual thread by reflection, since virtual threads are
+     * available from Java 21, or an executor of a cached pool of daemon threads on older JVMs.
+     *
+     * @return The {@code ExecutorService} object.
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "LexerServer connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Get the address the server is bound to, e.g., to know the port when binding to port {@code 0}.
+     *
+     * @return The bound address.
+     * @throws IOException If an I/O error occurs, e.g., the server has been closed.
+     */
+    public SocketAddress getAddress() throws IOException {
+        return server.getLocalAddress();
+    }
+
+    /**
+     * Wait until the server is closed.
+     *
+     * @throws InterruptedException If the thread is interrupted when waiting.
+     */
+    public void join() throws InterruptedException {
+        acceptor.join();
+    }
+
+    private void accept() {
+        while (!closed) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                continue;
+            }
+            connections.incrementAndGet();
+            executor.execute(() -> serve(channel));
+        }
+    }
+
+    /**
+     * Serve the requests of a connection until it is closed by the client.
+     *
+     * @param channel The connection.
+     */
+    private void serve(SocketChannel channel) {
+        try (SocketChannel c = channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(c)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(c)));
+            int kind;
+            while ((kind = in.read()) >= 0) {
+                long start = System.nanoTime();
+                try {
+                    handle(kind, in, out);
+                } catch (ProtocolException e) {
+                    // The rest of the malformed request cannot be skipped, so the connection is closed after answering
+                    errors.incrementAndGet();
+                    out.writeByte(STATUS_ERROR);
+                    writeString(out, e.getMessage());
+                    out.flush();
+                    break;
+                } catch (UncheckedIOException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    // A part of the response may have been written, so the connection is closed instead of answering
+                    errors.incrementAndGet();
+                    break;
+                } finally {
+                    requests.incrementAndGet();
+                }
+                out.flush();
+                latencies.record(System.nanoTime() - start);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // The connection is broken, and there is no way to answer
+        } finally {
+            connections.decrementAndGet();
+        }
+    }
+
+    /**
+     * Handle a request.
+     *
+     * Each request is scanned by a new {@code LexerImpl} object with its own {@code SymbolTable} object,
+     * so that the tokens of a connection serving many requests are not kept.
+     *
+     * @param kind Kind of the request.
+     * @param in   The input to read the request from.
+     * @param out  The output to write the response to.
+     * @throws ProtocolException If the request is malformed.
+     * @throws IOException       If an I/O error occurs on the connection.
+     */
+    private void handle(int kind, DataInputStream in, DataOutputStream out) throws IOException {
+        LexerImpl lexer;
+        String name;
+        switch (kind) {
+            case REQUEST_PATH:
+                name = readString(in, maxLength);
+                try {
+                    lexer = new LexerImpl(new MappedCharSource(resolve(name)));
+                } catch (IOException | RuntimeException e) {
+                    errors.incrementAndGet();
+                    out.writeByte(STATUS_ERROR);
+                    writeString(out, String.valueOf(e));
+                    return;
+                }
+                break;
+            case REQUEST_SOURCE:
+                name = readString(in, maxLength);
+                byte[] bytes = new byte[readLength(in, maxLength)];
+                in.readFully(bytes);
+                lexer = new LexerImpl(new CharSequenceSource(new String(bytes, StandardCharsets.UTF_8)));
+                break;
+            case REQUEST_STATS:
+                out.writeByte(STATUS_OK);
+                writeString(out, toString());
+                return;
+            default:
+                throw new ProtocolException("Unknown request " + kind);
+        }
+        DiagnosticSink diagnostics = new DiagnosticSink();
+        lexer.setName(name).setDiagnostics(diagnostics);
+        try {
+            out.writeByte(STATUS_OK);
+            lexer.scan(new Encoder(out));
+        } finally {
+            lexer.close();
+        }
+        writeEnd(out, diagnostics.drain());
+    }
+
+    /**
+     * Stop accepting connections and close the socket. The connections being served are interrupted.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (server == null) {
+            return;
+        }
+        server.close();
+        executor.shutdownNow();
+        if (address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+        }
+    }
+
+    /**
+     * Register the {@code LexerServer} object to the platform MBean server with the object name
+     * {@code cn.edu.bjtu.lexer:type=LexerServer,name=<name>}.
+     *
+     * @param name Name to distinguish the {@code LexerServer} object.
+     * @return The {@code LexerServer} object itself for chain call.
+     * @throws IllegalStateException If it cannot be registered, e.g., the name has been registered.
+     */
+    public LexerServer register(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName(name));
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register LexerServer " + name, e);
+        }
+        return this;
+    }
+
+    /**
+     * Unregister the {@code LexerServer} object registered by {@link LexerServer#register(String)}.
+     *
+     * @param name Name of the {@code LexerServer} object.
+     * @throws IllegalStateException If it cannot be unregistered, e.g., the name has not been registered.
+     */
+    public static void unregister(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to unregister LexerServer " + name, e);
+        }
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("cn.edu.bjtu.lexer:type=LexerServer,name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLatencyP50() {
+        return latencies.getPercentile(50);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLatencyP90() {
+        return latencies.getPercentile(90);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLatencyP99() {
+        return latencies.getPercentile(99);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLatencyP999() {
+        return latencies.getPercentile(99.9);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLatencyMax() {
+        return latencies.getMax();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resetLatencies() {
+        latencies.reset();
+    }
+
+    /**
+     * Get the statistics of the server, which are also the response of a statistics request.
+     *
+     * @return The statistics in string.
+     */
+    @Override
+    public String toString() {
+        return String.format("requests=%d errors=%d connections=%d latency(us) p50=%d p90=%d p99=%d p99.9=%d max=%d",
+            getRequests(), getErrors(), getConnections(),
+            getLatencyP50(), getLatencyP90(), getLatencyP99(), getLatencyP999(), getLatencyMax());
+    }
+
+    /**
+     * Start a server and serve until the process is killed.
+     *
+     * @param args The address: {@code unix:<path>} or the path of a Unix domain socket, {@code tcp:<port>} or
+     *             a port on the loopback address, or {@code tcp:<host>:<port>} of a loopback host,
+     *             see {@link LexerProtocol#parseAddress(String)}, followed by the root directories.
+     * @throws IOException          If an I/O error occurs when starting.
+     * @throws InterruptedException If the main thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println("Usage: LexerServer <[unix:]socket path | [tcp:]port | tcp:host:port> [root directory...]");
+            return;
+        }
+        SocketAddress address;
+        try {
+            address = parseAddress(args[0]);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.printf("%s: %s\n", args[0], e.getMessage());
+            System.exit(1);
+            return;
+        }
+        List<Path> roots = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            roots.add(Paths.get(args[i]));
+        }
+        LexerServer server = new LexerServer(address).setRoots(roots).warmUp(20);
+        server.resetLatencies();
+        server.start().register(args[0]);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                // Exiting anyway
+            }
+        }));
+        System.out.printf("Listening on %s\n", server.getAddress());
+        server.join();
+    }
+
+    /**
+     * An output stream discarding everything, to warm up the encoding of the tokens.
+     */
+    private static final class DiscardStream extends java.io.OutputStream {
+
+        static final DiscardStream INSTANCE = new DiscardStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+
+    }
+
+}
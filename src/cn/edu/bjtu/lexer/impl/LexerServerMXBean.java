@@ -0,0 +1,71 @@
+package cn.edu.bjtu.lexer.impl;
+
+/**
+ * The management interface of {@link LexerServer}, which can be registered to the platform MBean server
+ * by {@link LexerServer#register(String)} and read by JMX clients such as JConsole.
+ * The latencies are measured from reading a request to flushing its response, in microseconds.
+ */
+public interface LexerServerMXBean {
+
+    /**
+     * Get the number of requests served, including the failed ones.
+     *
+     * @return Number of requests.
+     */
+    long getRequests();
+
+    /**
+     * Get the number of requests answered with an error, e.g., the file does not exist.
+     *
+     * @return Number of errors.
+     */
+    long getErrors();
+
+    /**
+     * Get the number of connections open now.
+     *
+     * @return Number of connections.
+     */
+    int getConnections();
+
+    /**
+     * Get the median latency.
+     *
+     * @return Latency in microseconds.
+     */
+    long getLatencyP50();
+
+    /**
+     * Get the 90th percentile of latency.
+     *
+     * @return Latency in microseconds.
+     */
+    long getLatencyP90();
+
+    /**
+     * Get the 99th percentile of latency.
+     *
+     * @return Latency in microseconds.
+     */
+    long getLatencyP99();
+
+    /**
+     * Get the 99.9th percentile of latency.
+     *
+     * @return Latency in microseconds.
+     */
+    long getLatencyP999();
+
+    /**
+     * Get the largest latency.
+     *
+     * @return Latency in microseconds.
+     */
+    long getLatencyMax();
+
+    /**
+     * Clear the recorded latencies, e.g., after warming up.
+     */
+    void resetLatencies();
+
+}
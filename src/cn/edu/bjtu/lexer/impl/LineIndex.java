@@ -0,0 +1,182 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Position;
+
+import java.util.Arrays;
+
+import static cn.edu.bjtu.lexer.impl.TokenUtil.CHAR_LINE_FEED;
+
+/**
+ * A {@code LineIndex} object stores the offsets where the lines of a content start, in a compact {@code int[]}.
+ * It is built by {@link LexerImpl} as a by-product of scanning, see {@link LexerImpl#getLineIndex()},
+ * so that the row and column numbers of any offset can be derived on demand in {@code O(log n)},
+ * and lines can be sliced out of the content without scanning it again.
+ * <p>
+ * Same as {@link Position}, only LF ({@code \n}) starts a new line, and a line includes its LF.
+ * Offsets start from {@code 0}, while the index and column numbers of positions start from {@code 1}
+ * for the first character, i.e., the index number of the character at an offset is the offset plus 1.
+ */
+public final class LineIndex {
+
+    private final int firstRow;
+    /**
+     * Offsets of the line starts, where {@code starts[i]} is the start of row {@code firstRow + i}.
+     */
+    private int[] starts = new int[256];
+    private int size = 0;
+
+    /**
+     * Constructs a new {@code LineIndex} object of a whole content, whose first line starts at offset {@code 0}.
+     */
+    public LineIndex() {
+        this(1, 0);
+    }
+
+    /**
+     * Constructs a new {@code LineIndex} object of a segment of a content, used by the lexers scanning segments.
+     *
+     * @param firstRow   Row number of the first line of the segment.
+     * @param firstStart Offset where the first line starts, which may be before the segment.
+     */
+    LineIndex(int firstRow, int firstStart) {
+        this.firstRow = firstRow;
+        add(firstStart);
+    }
+
+    /**
+     * Build the {@code LineIndex} object of a content in memory.
+     *
+     * @param content The content.
+     * @return The {@code LineIndex} object.
+     */
+    public static LineIndex of(CharSequence content) {
+        LineIndex lines = new LineIndex();
+        int length = content.length();
+        for (int i = 0; i < length; i++) {
+            if (content.charAt(i) == CHAR_LINE_FEED) {
+                lines.add(i + 1);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Add the start of the next line, i.e., the offset after a LF.
+     *
+     * @param start Offset where the next line starts.
+     */
+    void add(int start) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size + (size >> 1));
+        }
+        starts[size++] = start;
+    }
+
+    /**
+     * Getter for the row number of the first line.
+     *
+     * @return Row number of the first line, which is {@code 1} for a whole content.
+     */
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * Get the row number of the last line known, which is the last line of the content after the scan.
+     *
+     * @return Row number of the last line.
+     */
+    public int getLastRow() {
+        return firstRow + size - 1;
+    }
+
+    /**
+     * Get the offset where a line starts.
+     *
+     * @param row Row number of the line.
+     * @return Offset of the first character of the line.
+     * @throws IndexOutOfBoundsException If the line is unknown.
+     */
+    public int getLineStart(int row) {
+        if (row < firstRow || row > getLastRow()) {
+            throw new IndexOutOfBoundsException("Row " + row + " is out of " + firstRow + "-" + getLastRow());
+        }
+        return starts[row - firstRow];
+    }
+
+    /**
+     * Get the row number of the line which the character at an offset is in, by binary search.
+     *
+     * @param offset Offset of the character.
+     * @return Row number of the line.
+     * @throws IndexOutOfBoundsException If the offset is before the first line.
+     */
+    public int getRow(int offset) {
+        if (offset < starts[0]) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " is before the first line " + starts[0]);
+        }
+        int low = 1;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (starts[middle] <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return firstRow + high;
+    }
+
+    /**
+     * Get the column number of the character at an offset.
+     *
+     * @param offset Offset of the character.
+     * @return Column number of the character, which is {@code 1} for the first character of a line.
+     * @throws IndexOutOfBoundsException If the offset is before the first line.
+     */
+    public int getColumn(int offset) {
+        return offset - getLineStart(getRow(offset)) + 1;
+    }
+
+    /**
+     * Get the position of the character at an offset,
+     * which has the same numbers as the beginning position of a token starting at the character.
+     *
+     * @param offset Offset of the character.
+     * @return {@link Position} object of the character.
+     * @throws IndexOutOfBoundsException If the offset is before the first line.
+     */
+    public Position getPosition(int offset) {
+        int row = getRow(offset);
+        return new Position(offset + 1, row, offset - getLineStart(row) + 1);
+    }
+
+    /**
+     * Get the offset of the character at a row and column, which is the reverse of {@link LineIndex#getPosition(int)}.
+     *
+     * @param row    Row number of the character.
+     * @param column Column number of the character, which is {@code 1} for the first character of a line.
+     * @return Offset of the character.
+     * @throws IndexOutOfBoundsException If the line is unknown.
+     */
+    public int getOffset(int row, int column) {
+        return getLineStart(row) + column - 1;
+    }
+
+    /**
+     * Slice lines out of the content, including their LFs.
+     *
+     * @param content The content which the {@code LineIndex} object is built from.
+     * @param fromRow Row number of the first line, inclusive.
+     * @param toRow   Row number of the last line, exclusive.
+     * @return The lines.
+     * @throws IndexOutOfBoundsException If the lines are unknown.
+     */
+    public CharSequence getLines(CharSequence content, int fromRow, int toRow) {
+        int from = getLineStart(fromRow);
+        int to = toRow > getLastRow() ? content.length() : getLineStart(toRow);
+        return content.subSequence(from, Math.max(from, to));
+    }
+
+}
@@ -0,0 +1,495 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.CharSource;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The {@code MappedCharSource} class is the implementation of the {@link CharSource} interface
+ * which memory-maps an ASCII or UTF-8 encoded file.
+ * <p>
+ * Since the tokens of C are ASCII, bytes in range {@code 0x00-0x7f} are handed out as characters directly
+ * without any decoder or copy. Only the non-ASCII bytes, which are expected in string literals and comments,
+ * are decoded as UTF-8, and malformed sequences are replaced by {@code U+FFFD}.
+ * <p>
+ * The bulk methods, e.g., {@link MappedCharSource#skipUntil(int, int)}, search eight bytes at a time
+ * by bitwise operations on {@code long} words (SWAR), which needs nothing beyond the standard library.
+ * Files larger than {@link Integer#MAX_VALUE} bytes are not supported.
+ * <p>
+ * The character offsets read so far can be mapped back to byte offsets in the file, so that the tokens can be
+ * kept as slices of the mapping by {@link SliceResultSet} instead of strings.
+ * Only the non-ASCII sequences are recorded for that, so nothing is recorded for an ASCII file.
+ */
+public final class MappedCharSource implements CharSource {
+
+    private static final int REPLACEMENT = '\uFFFD';
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOWS = 0x7f7f7f7f7f7f7f7fL;
+    private static final long HIGHS = 0x8080808080808080L;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int limit;
+    /**
+     * Byte position of the next character to read.
+     */
+    private int position = 0;
+    /**
+     * Pending low surrogate of a supplementary character whose high surrogate has been read,
+     * or {@code -1} if there is none.
+     */
+    private int low = -1;
+    /**
+     * Offsets of the characters after the non-ASCII sequences read so far which take more bytes than characters,
+     * and the number of extra bytes before each of these characters, i.e., the byte offset minus the character offset.
+     */
+    private int[] shiftOffsets = new int[0];
+    private int[] shiftBytes = new int[0];
+    private int shifts = 0;
+    private int extraBytes = 0;
+    /**
+     * Index of the record found by the last call of {@link MappedCharSource#getByteOffset(int)}, or {@code -1} if none.
+     */
+    private int shiftHint = -1;
+
+    /**
+     * Constructs a new {@code MappedCharSource} object mapping the whole file in read-only mode.
+     *
+     * @param path Path of the file to map.
+     * @throws IOException If an I/O error occurs when mapping, or the file is too large.
+     */
+    public MappedCharSource(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("File is too large to map: " + path);
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        limit = (int) size;
+    }
+
+    /**
+     * Get the number of bytes of a UTF-8 sequence starting at a position.
+     * A malformed sequence is treated as a single byte.
+     *
+     * @param p Byte position of the sequence.
+     * @return Number of bytes of the sequence.
+     */
+    private int lengthAt(int p) {
+        int b = buffer.get(p) & 0xff;
+        int length;
+        int min = 0x80;
+        int max = 0xbf;
+        if (b < 0x80) {
+            return 1;
+        } else if (0xc2 <= b && b <= 0xdf) {
+            length = 2;
+        } else if (0xe0 <= b && b <= 0xef) {
+            length = 3;
+            min = b == 0xe0 ? 0xa0 : 0x80;
+            max = b == 0xed ? 0x9f : 0xbf;
+        } else if (0xf0 <= b && b <= 0xf4) {
+            length = 4;
+            min = b == 0xf0 ? 0x90 : 0x80;
+            max = b == 0xf4 ? 0x8f : 0xbf;
+        } else {
+            return 1;
+        }
+        if (p + length > limit) {
+            return 1;
+        }
+        int second = buffer.get(p + 1) & 0xff;
+        if (second < min || second > max) {
+            return 1;
+        }
+        for (int i = 2; i < length; i++) {
+            if ((buffer.get(p + i) & 0xc0) != 0x80) {
+                return 1;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Decode the code point of a UTF-8 sequence starting at a position.
+     *
+     * @param p      Byte position of the sequence.
+     * @param length Number of bytes of the sequence given by {@link MappedCharSource#lengthAt(int)}.
+     * @return The code point, or {@code U+FFFD} when the sequence is malformed.
+     */
+    private int codePointAt(int p, int length) {
+        int b = buffer.get(p) & 0xff;
+        switch (length) {
+            case 2:
+                return (b & 0x1f) << 6 | (buffer.get(p + 1) & 0x3f);
+            case 3:
+                return (b & 0x0f) << 12 | (buffer.get(p + 1) & 0x3f) << 6 | (buffer.get(p + 2) & 0x3f);
+            case 4:
+                return (b & 0x07) << 18 | (buffer.get(p + 1) & 0x3f) << 12
+                    | (buffer.get(p + 2) & 0x3f) << 6 | (buffer.get(p + 3) & 0x3f);
+            default:
+                return b < 0x80 ? b : REPLACEMENT;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() {
+        if (low != -1) {
+            int c = low;
+            low = -1;
+            return c;
+        }
+        if (position >= limit) {
+            return -1;
+        }
+        byte b = buffer.get(position);
+        if (b >= 0) {
+            position++;
+            return b;
+        }
+        int length = lengthAt(position);
+        int codePoint = codePointAt(position, length);
+        position += length;
+        if (Character.isSupplementaryCodePoint(codePoint)) {
+            shift(length - 2);
+            low = Character.lowSurrogate(codePoint);
+            return Character.highSurrogate(codePoint);
+        }
+        shift(length - 1);
+        return codePoint;
+    }
+
+    /**
+     * Record a non-ASCII sequence just passed, which ends at the current byte position.
+     *
+     * @param bytes Number of bytes of the sequence minus the number of its characters.
+     */
+    private void shift(int bytes) {
+        if (bytes == 0) {
+            return;
+        }
+        extraBytes += bytes;
+        if (shifts == shiftOffsets.length) {
+            shiftOffsets = Arrays.copyOf(shiftOffsets, shifts * 2 + 16);
+            shiftBytes = Arrays.copyOf(shiftBytes, shifts * 2 + 16);
+        }
+        shiftOffsets[shifts] = position - extraBytes;
+        shiftBytes[shifts] = extraBytes;
+        shifts++;
+    }
+
+    /**
+     * Get the byte offset in the file of a character offset, which has been read, or is right after the ones read.
+     * The offsets are expected to be asked for mostly in order, e.g., by a lexer appending the tokens,
+     * so the search starts from the last record found.
+     *
+     * @param offset Offset of the character.
+     * @return Offset of the first byte of the character.
+     */
+    int getByteOffset(int offset) {
+        int last = shiftHint;
+        if (last >= 0 && shiftOffsets[last] > offset) {
+            last = findShift(offset, 0, last - 1);
+        } else if (last + 1 < shifts && shiftOffsets[last + 1] <= offset) {
+            last++;
+            if (last + 1 < shifts && shiftOffsets[last + 1] <= offset) {
+                last = findShift(offset, last + 1, shifts - 1);
+            }
+        }
+        shiftHint = last;
+        return last < 0 ? offset : offset + shiftBytes[last];
+    }
+
+    /**
+     * Find the last record of the non-ASCII sequences in a range which applies to a character offset by binary search.
+     *
+     * @param offset Offset of the character.
+     * @param first  Index of the first record to search, inclusive.
+     * @param last   Index of the last record to search, inclusive.
+     * @return Index of the record, or {@code first - 1} if none in the range applies.
+     */
+    private int findShift(int offset, int first, int last) {
+        while (first <= last) {
+            int middle = (first + last) >>> 1;
+            if (shiftOffsets[middle] <= offset) {
+                first = middle + 1;
+            } else {
+                last = middle - 1;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Get a byte of the file, which is a character by itself if it is ASCII.
+     *
+     * @param p Byte position.
+     * @return The byte.
+     */
+    byte getByte(int p) {
+        return buffer.get(p);
+    }
+
+    /**
+     * Decode a range of bytes of the file in the same way as reading them.
+     *
+     * @param p      Byte position of the range.
+     * @param length Number of bytes of the range.
+     * @return The characters.
+     */
+    String decode(int p, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        int end = p + length;
+        while (p < end) {
+            int n = lengthAt(p);
+            builder.appendCodePoint(codePointAt(p, n));
+            p += n;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int peek(int offset) {
+        int p = position;
+        if (low != -1) {
+            if (offset == 0) {
+                return low;
+            }
+            offset--;
+        }
+        while (p < limit) {
+            byte b = buffer.get(p);
+            if (b >= 0) {
+                if (offset == 0) {
+                    return b;
+                }
+                offset--;
+                p++;
+                continue;
+            }
+            int length = lengthAt(p);
+            int codePoint = codePointAt(p, length);
+            if (Character.isSupplementaryCodePoint(codePoint)) {
+                if (offset == 0) {
+                    return Character.highSurrogate(codePoint);
+                } else if (offset == 1) {
+                    return Character.lowSurrogate(codePoint);
+                }
+                offset -= 2;
+            } else {
+                if (offset == 0) {
+                    return codePoint;
+                }
+                offset--;
+            }
+            p += length;
+        }
+        return -1;
+    }
+
+    /**
+     * Get a mask of the bytes which are zero in a word,
+     * which has the highest bit of each zero byte set and all the other bits cleared.
+     *
+     * @param word Eight bytes in a {@code long}.
+     * @return The mask.
+     */
+    private static long zeros(long word) {
+        return ~(((word & LOWS) + LOWS) | word | LOWS);
+    }
+
+    /**
+     * Get a mask of the bytes which are equal to an ASCII character in a word, see {@link MappedCharSource#zeros(long)}.
+     *
+     * @param word Eight bytes in a {@code long}.
+     * @param c    The ASCII character.
+     * @return The mask.
+     */
+    private static long matches(long word, int c) {
+        return zeros(word ^ (ONES * c));
+    }
+
+    /**
+     * Get the number of bytes before the first one marked in a mask.
+     * The buffer is in big-endian order, so the first byte is the highest one of the word.
+     *
+     * @param mask The mask, which is not zero.
+     * @return Number of bytes.
+     */
+    private static int before(long mask) {
+        return Long.numberOfLeadingZeros(mask) >>> 3;
+    }
+
+    /**
+     * Get the number of ASCII bytes from a position before the first one which is non-ASCII,
+     * or equal to any of the stop characters, searching eight bytes at a time.
+     *
+     * @param p      Byte position to search from.
+     * @param first  An ASCII character to stop before.
+     * @param second Another ASCII character to stop before.
+     * @param lines  {@code true} to stop before CR and LF as well.
+     * @return Number of bytes.
+     */
+    private int asciiUntil(int p, int first, int second, boolean lines) {
+        int start = p;
+        while (p + Long.BYTES <= limit) {
+            long word = buffer.getLong(p);
+            long mask = (word & HIGHS) | matches(word, first) | matches(word, second);
+            if (lines) {
+                mask |= matches(word, '\r') | matches(word, '\n');
+            }
+            if (mask != 0) {
+                return p - start + before(mask);
+            }
+            p += Long.BYTES;
+        }
+        while (p < limit) {
+            byte b = buffer.get(p);
+            if (b < 0 || b == first || b == second || lines && (b == '\r' || b == '\n')) {
+                break;
+            }
+            p++;
+        }
+        return p - start;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * For ASCII characters to stop before, the ASCII bytes are searched eight bytes at a time,
+     * and the non-ASCII sequences are only measured to count the characters, never decoded.
+     */
+    @Override
+    public int skipUntil(int first, int second) {
+        int count = 0;
+        if (first >= 0x80 || second >= 0x80) {
+            for (int c = peek(0); c != -1 && c != first && c != second; c = peek(0)) {
+                read();
+                count++;
+            }
+            return count;
+        }
+        if (low != -1) {
+            // A low surrogate is never an ASCII character
+            low = -1;
+            count++;
+        }
+        int p = position;
+        while (p < limit) {
+            int n = asciiUntil(p, first, second, false);
+            p += n;
+            count += n;
+            if (p == limit || buffer.get(p) >= 0) {
+                break;
+            }
+            int length = lengthAt(p);
+            int chars = length == 4 ? 2 : 1;
+            count += chars;
+            p += length;
+            position = p;
+            shift(length - chars);
+        }
+        position = p;
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * For ASCII characters to stop before, the ASCII bytes are searched eight bytes at a time,
+     * and only the non-ASCII sequences are decoded.
+     */
+    @Override
+    public int readUntil(StringBuilder builder, int first, int second) {
+        int count = 0;
+        if (first >= 0x80 || second >= 0x80) {
+            for (int c = peek(0); c != -1 && c != first && c != second && c != '\r' && c != '\n'; c = peek(0)) {
+                builder.append((char) read());
+                count++;
+            }
+            return count;
+        }
+        if (low != -1) {
+            builder.append((char) read());
+            count++;
+        }
+        while (position < limit) {
+            int n = asciiUntil(position, first, second, true);
+            for (int i = 0; i < n; i++) {
+                builder.append((char) buffer.get(position + i));
+            }
+            position += n;
+            count += n;
+            if (position == limit || buffer.get(position) >= 0) {
+                break;
+            }
+            builder.append((char) read());
+            count++;
+            if (low != -1) {
+                builder.append((char) read());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The bytes are searched eight bytes at a time.
+     */
+    @Override
+    public int skipBlanks(int max) {
+        if (low != -1) {
+            return 0;
+        }
+        int p = position;
+        int end = (int) Math.min(limit, (long) p + max);
+        while (p + Long.BYTES <= end) {
+            long word = buffer.getLong(p);
+            long mask = ~(matches(word, ' ') | matches(word, '\t')) & HIGHS;
+            if (mask != 0) {
+                p += before(mask);
+                int count = p - position;
+                position = p;
+                return count;
+            }
+            p += Long.BYTES;
+        }
+        while (p < end && (buffer.get(p) == ' ' || buffer.get(p) == '\t')) {
+            p++;
+        }
+        int count = p - position;
+        position = p;
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getBytesRead() {
+        return position;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,474 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Position;
+import cn.edu.bjtu.lexer.ResultSet;
+import cn.edu.bjtu.lexer.TokenType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static cn.edu.bjtu.lexer.impl.BinaryFormat.*;
+
+/**
+ * The {@code MappedResultSet} class is the implementation of the {@link ResultSet} interface
+ * which memory-maps a file in the binary format of {@link BinaryFormat}.
+ * <p>
+ * Nothing is decoded when the file is opened. The records are decoded a block at a time when the cursor
+ * moves into the block, and each token of the pool is decoded when it is first asked for.
+ * The {@code ResultSet} object is read-only, and files larger than {@link Integer#MAX_VALUE} bytes are not supported.
+ */
+public final class MappedResultSet implements ResultSet {
+
+    private static final TokenTypeImpl[] TYPES = TokenTypeImpl.values();
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int checkpointOffset;
+    private final int poolOffset;
+    private final int poolDataOffset;
+    private final String[] pool;
+
+    /**
+     * Results of the block decoded.
+     */
+    private final int[] beginIndexes = new int[BLOCK_SIZE];
+    private final int[] beginRows = new int[BLOCK_SIZE];
+    private final int[] beginColumns = new int[BLOCK_SIZE];
+    private final int[] endIndexes = new int[BLOCK_SIZE];
+    private final int[] endRows = new int[BLOCK_SIZE];
+    private final int[] endColumns = new int[BLOCK_SIZE];
+    private final byte[] types = new byte[BLOCK_SIZE];
+    private final int[] tokenIds = new int[BLOCK_SIZE];
+    private int block = -1;
+    /**
+     * Byte position of the next record to decode.
+     */
+    private int position;
+    private int cursor = -1;
+
+    /**
+     * Constructs a new {@code MappedResultSet} object mapping the whole file in read-only mode.
+     *
+     * @param path Path of the file to map.
+     * @throws IOException If an I/O error occurs when mapping, or the file is not in the supported format.
+     */
+    public MappedResultSet(Path path) throws IOException {
+        this(map(path), path.toString());
+    }
+
+    /**
+     * Constructs a new {@code MappedResultSet} object reading a buffer in the binary format, used by {@link TokenCache}.
+     * The buffer is read by absolute positions, so it can be shared by many {@code MappedResultSet} objects.
+     *
+     * @param buffer The buffer to read.
+     * @param name   Name of the buffer in the error messages.
+     * @throws IOException If the buffer is not in the supported format.
+     */
+    MappedResultSet(ByteBuffer buffer, String name) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary result file: " + name);
+        }
+        // Version 2 only adds the trailer, so the files of version 1 are read in the same way
+        if (buffer.getInt(4) < 1 || buffer.getInt(4) > VERSION) {
+            throw new IOException("Unsupported version " + buffer.getInt(4) + " of binary result file: " + name);
+        }
+        if (buffer.getInt(12) != BLOCK_SIZE || buffer.getInt(16) != TYPES.length) {
+            throw new IOException("Incompatible binary result file: " + name);
+        }
+        int fields;
+        if (buffer.getInt(8) != UNKNOWN_SIZE) {
+            size = buffer.getInt(8);
+            fields = 20;
+        } else if (buffer.limit() >= HEADER_SIZE + TRAILER_SIZE) {
+            // The numbers are in the trailer since the channel written to could not go back to the header
+            fields = buffer.limit() - TRAILER_SIZE;
+            size = buffer.getInt(fields);
+            fields += 4;
+        } else {
+            throw new IOException("Truncated binary result file: " + name);
+        }
+        checkpointOffset = buffer.getInt(fields);
+        int poolCount = buffer.getInt(fields + 4);
+        poolOffset = buffer.getInt(fields + 8);
+        long checkpointsEnd = checkpointOffset + ((long) size + BLOCK_SIZE - 1) / BLOCK_SIZE * 4;
+        if (size < 0 || poolCount < 0 || checkpointOffset < HEADER_SIZE || checkpointsEnd > poolOffset
+            || poolOffset + ((long) poolCount + 1) * 4 > buffer.limit()) {
+            throw new IOException("Corrupted binary result file: " + name);
+        }
+        pool = new String[poolCount];
+        poolDataOffset = poolOffset + (pool.length + 1) * 4;
+    }
+
+    /**
+     * Map a whole file in read-only mode.
+     *
+     * @param path Path of the file to map.
+     * @return The mapped buffer.
+     * @throws IOException If an I/O error occurs when mapping, or the file is too large.
+     */
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to map: " + path);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+    }
+
+    /**
+     * Decode the records of a block.
+     *
+     * @param b Index of the block.
+     */
+    private void decode(int b) {
+        int checkpoint = checkpointOffset + b * CHECKPOINT_SIZE;
+        position = buffer.getInt(checkpoint);
+        int endIndex = buffer.getInt(checkpoint + 4);
+        int beginRow = buffer.getInt(checkpoint + 8);
+        int beginColumn = buffer.getInt(checkpoint + 12);
+        int count = Math.min(BLOCK_SIZE, size - b * BLOCK_SIZE);
+        for (int i = 0; i < count; i++) {
+            int flags = buffer.get(position++) & 0xff;
+            int beginIndex = endIndex + decodeZigzag(readVarint());
+            int rowDelta = decodeZigzag(readVarint());
+            beginRow += rowDelta;
+            beginColumn = decodeZigzag(readVarint()) + (rowDelta == 0 ? beginColumn : 0);
+            int length = decodeZigzag(readVarint());
+            endIndex = beginIndex + length;
+            types[i] = (byte) (flags & ~FLAG_SIMPLE);
+            beginIndexes[i] = beginIndex;
+            beginRows[i] = beginRow;
+            beginColumns[i] = beginColumn;
+            endIndexes[i] = endIndex;
+            if ((flags & FLAG_SIMPLE) != 0) {
+                endRows[i] = beginRow;
+                endColumns[i] = beginColumn + length;
+            } else {
+                endRows[i] = beginRow + decodeZigzag(readVarint());
+                endColumns[i] = beginColumn + decodeZigzag(readVarint());
+            }
+            tokenIds[i] = readVarint();
+        }
+        block = b;
+    }
+
+    /**
+     * Decode the beginning position of the first result of a block, packed as
+     * index number, row number, and column number by {@link MappedResultSet#pack(int, int)},
+     * without decoding the block.
+     *
+     * @param b     Index of the block.
+     * @param index {@code true} for the index number, or {@code false} for the row and column numbers.
+     * @return The index number, or the packed row and column numbers.
+     */
+    private long decodeFirst(int b, boolean index) {
+        int checkpoint = checkpointOffset + b * CHECKPOINT_SIZE;
+        position = buffer.getInt(checkpoint) + 1;
+        int beginIndex = buffer.getInt(checkpoint + 4) + decodeZigzag(readVarint());
+        if (index) {
+            return beginIndex;
+        }
+        int rowDelta = decodeZigzag(readVarint());
+        int beginColumn = decodeZigzag(readVarint()) + (rowDelta == 0 ? buffer.getInt(checkpoint + 12) : 0);
+        return pack(buffer.getInt(checkpoint + 8) + rowDelta, beginColumn);
+    }
+
+    /**
+     * Pack a row number and a column number into a {@code long} in the order of positions.
+     *
+     * @param row    The row number.
+     * @param column The column number.
+     * @return The packed numbers.
+     */
+    private static long pack(int row, int column) {
+        return (long) row << 32 | column & 0xffffffffL;
+    }
+
+    /**
+     * Find the last result whose beginning position is at or before a key by binary search,
+     * first over the first results of the blocks, then in the block decoded.
+     *
+     * @param key   The index number, or the packed row and column numbers.
+     * @param index {@code true} if the key is an index number.
+     * @return Index of the result, or {@code -1} if all the results begin after the key.
+     */
+    private int floor(long key, boolean index) {
+        int low = 0;
+        int high = (size + BLOCK_SIZE - 1) / BLOCK_SIZE - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (decodeFirst(middle, index) <= key) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (high < 0) {
+            first();
+            return -1;
+        }
+        int b = high;
+        if (b != block) {
+            decode(b);
+        }
+        low = 1;
+        high = Math.min(BLOCK_SIZE, size - b * BLOCK_SIZE) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long value = index ? beginIndexes[middle] : pack(beginRows[middle], beginColumns[middle]);
+            if (value <= key) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        cursor = b * BLOCK_SIZE + high;
+        return cursor;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the first results of the blocks searched and the block found are decoded.
+     */
+    @Override
+    public int floor(int index) {
+        return floor(index, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the first results of the blocks searched and the block found are decoded.
+     */
+    @Override
+    public int floor(int row, int column) {
+        return floor(pack(row, column), false);
+    }
+
+    /**
+     * Read a varint, 7 bits per byte with the highest bit set if more bytes follow.
+     *
+     * @return The unsigned integer read.
+     */
+    private int readVarint() {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(position++);
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Get the position of the current result in the decoded block, decoding the block if required.
+     *
+     * @return Index of the current result in the block, or {@code -1} if the cursor is out of range.
+     */
+    private int current() {
+        if (0 <= cursor && cursor < size) {
+            if (cursor / BLOCK_SIZE != block) {
+                decode(cursor / BLOCK_SIZE);
+            }
+            return cursor % BLOCK_SIZE;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Results cannot be appended to a {@code MappedResultSet} object.
+     *
+     * @throws UnsupportedOperationException Always.
+     */
+    @Override
+    public void append(Position begin, Position end, TokenType type, String token) {
+        throw new UnsupportedOperationException("MappedResultSet is read-only");
+    }
+
+    /**
+     * Results cannot be appended to a {@code MappedResultSet} object.
+     *
+     * @throws UnsupportedOperationException Always.
+     */
+    @Override
+    public void append(int beginIndex, int beginRow, int beginColumn, int endIndex, int endRow, int endColumn, TokenType type, String token) {
+        throw new UnsupportedOperationException("MappedResultSet is read-only");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean absolute(int i) {
+        if (0 <= i && i < size) {
+            cursor = i;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void first() {
+        cursor = -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void last() {
+        cursor = size - 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean next() {
+        if (cursor < size - 1) {
+            cursor++;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean previous() {
+        if (cursor >= 0) {
+            cursor--;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Position getBeginPosition() {
+        int i = current();
+        return i >= 0 ? new Position(beginIndexes[i], beginRows[i], beginColumns[i]) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Position getEndPosition() {
+        int i = current();
+        return i >= 0 ? new Position(endIndexes[i], endRows[i], endColumns[i]) : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBeginIndex() {
+        int i = current();
+        return i >= 0 ? beginIndexes[i] : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBeginRow() {
+        int i = current();
+        return i >= 0 ? beginRows[i] : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBeginColumn() {
+        int i = current();
+        return i >= 0 ? beginColumns[i] : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndIndex() {
+        int i = current();
+        return i >= 0 ? endIndexes[i] : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndRow() {
+        int i = current();
+        return i >= 0 ? endRows[i] : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndColumn() {
+        int i = current();
+        return i >= 0 ? endColumns[i] : -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TokenType getTokenType() {
+        int i = current();
+        return i >= 0 ? TYPES[types[i]] : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The token is decoded from the pool when it is first asked for.
+     */
+    @Override
+    public String getToken() {
+        int i = current();
+        if (i < 0) {
+            return null;
+        }
+        int id = tokenIds[i];
+        if (pool[id] == null) {
+            int from = buffer.getInt(poolOffset + id * 4);
+            int to = buffer.getInt(poolOffset + id * 4 + 4);
+            byte[] bytes = new byte[to - from];
+            buffer.get(poolDataOffset + from, bytes);
+            pool[id] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return pool[id];
+    }
+
+}
@@ -1,26 +1,41 @@
 package cn.edu.bjtu.lexer.impl;
 
+import cn.edu.bjtu.lexer.Position;
 import cn.edu.bjtu.lexer.ResultSet;
 
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
 /**
  * The {@code ResultSetFactory} class is an util class that provides static methods to
- * assemble result strings according to the {@code ResultSet} object.
+ * assemble result strings according to the {@code ResultSet} object,
+ * or to write them to an {@link Appendable} object row by row by {@link TokenWriter}.
+ * The results can also be written in a binary format to be read by {@link MappedResultSet}.
  */
 public final class ResultSetFactory {
 
-    private static final int FIRST_TAB = 8;
-    private static final int SECOND_TAB = FIRST_TAB + 12;
-    private static final int THIRD_TAB = SECOND_TAB + 12;
-    private static final int FOURTH_TAB = THIRD_TAB + 12;
-    private static final int FIFTH_TAB = FOURTH_TAB + 20;
-
-    private static final String STRING_HEADER = "NO      BEGIN       END         LENGTH      TOKEN_TYPE          TOKEN";
-
-    private static final String HTML_PREFIX = "<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n\t<meta charset=\"UTF-8\">\n\t<title>Lexical Scan Results</title>\n\t<style>*{margin:0;padding:0;}table{border-collapse:collapse;margin:2rem auto;text-align:center;}th,td{border: 1px solid black;padding:.5rem;}.code{font-family:monospace;font-size:1rem;}</style>\n</head>\n<body>\n\t<table>\n\t\t<tr><th>NO</th><th>BEGIN</th><th>END</th><th>LENGTH</th><th>TOKEN TYPE</th><th>TOKEN</th></tr>\n";
-    private static final String HTML_SUFFIX = "\t</table>\n</body>\n</html>";
-
-    private static final String MARKDOWN_HEADER = "| NO | BEGIN | END | LENGTH | TOKEN TYPE | TOKEN |";
-    private static final String MARKDOWN_ALIGN = "|:---:|:---:|:---:|:---:|:---:|:---:|";
+    private static final String PATTERN_HTML = "(?i).*\\.html$";
+    private static final String PATTERN_MARKDOWN = "(?i).*\\.md$";
+    private static final String PATTERN_BINARY = "(?i).*\\.bin$";
+    /**
+     * Size of the buffer to stream the binary format, and the maximum size of a record in it.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_RECORD_SIZE = 1 + 7 * 5;
 
     /**
      * Convert a {@code ResultSet} to string with header and values.
@@ -39,38 +54,28 @@ public final class ResultSetFactory {
      * @return String in string.
      */
     public static String toString(ResultSet rs) {
-        int no = 1;
-        StringBuilder builder = new StringBuilder(STRING_HEADER);
-        rs.first();
-        while (rs.next()) {
-            StringBuilder temp = new StringBuilder("\n");
-            temp.append(no);
-            while (temp.length() <= FIRST_TAB) {
-                temp.append(" ");
-            }
-            temp.append(rs.getBeginPosition().getRow()).append(":").append(rs.getBeginPosition().getColumn());
-            while (temp.length() <= SECOND_TAB) {
-                temp.append(" ");
-            }
-            temp.append(rs.getEndPosition().getRow()).append(":").append(rs.getEndPosition().getColumn());
-            while (temp.length() <= THIRD_TAB) {
-                temp.append(" ");
-            }
-            temp.append(rs.getEndPosition().getIndex() - rs.getBeginPosition().getIndex());
-            while (temp.length() <= FOURTH_TAB) {
-                temp.append(" ");
-            }
-            temp.append(rs.getTokenType());
-            while (temp.length() <= FIFTH_TAB) {
-                temp.append(" ");
-            }
-            temp.append(rs.getToken());
-            builder.append(temp);
-            no++;
+        StringBuilder builder = new StringBuilder();
+        try {
+            writeString(rs, builder);
+        } catch (IOException e) {
+            // StringBuilder never throws IOException
+            throw new UncheckedIOException(e);
         }
         return builder.toString();
     }
 
+    /**
+     * Write a {@code ResultSet} in string with header and values to an {@code Appendable} object row by row,
+     * which produces the same content as {@link ResultSetFactory#toString(ResultSet)}.
+     *
+     * @param rs  {@code ResultSet} object to be written.
+     * @param out {@code Appendable} object to write to, which is suggested to be buffered.
+     * @throws IOException If an I/O error occurs when writing.
+     */
+    public static void writeString(ResultSet rs, Appendable out) throws IOException {
+        write(rs, new TokenWriter(out, TokenWriter.Format.STRING));
+    }
+
     /**
      * Convert a {@code ResultSet} to HTML with header and values.
      * <p>
@@ -90,21 +95,26 @@ public final class ResultSetFactory {
      * @return String in HTML.
      */
     public static String toHtml(ResultSet rs) {
-        int no = 1;
-        StringBuilder builder = new StringBuilder(HTML_PREFIX);
-        rs.first();
-        while (rs.next()) {
-            builder.append("\t\t<tr>")
-                .append("<td>").append(no).append("</td>")
-                .append("<td>").append(rs.getBeginPosition().getRow()).append(":").append(rs.getBeginPosition().getColumn()).append("</td>")
-                .append("<td>").append(rs.getEndPosition().getRow()).append(":").append(rs.getEndPosition().getColumn()).append("</td>")
-                .append("<td>").append(rs.getEndPosition().getIndex() - rs.getBeginPosition().getIndex()).append("</td>")
-                .append("<td>").append(rs.getTokenType()).append("</td>")
-                .append("<td class=\"code\">").append(rs.getToken().replaceAll("<", "&lt;").replaceAll(">", "&gt;")).append("</td>")
-                .append("<tr>\n");
-            no++;
+        StringBuilder builder = new StringBuilder();
+        try {
+            writeHtml(rs, builder);
+        } catch (IOException e) {
+            // StringBuilder never throws IOException
+            throw new UncheckedIOException(e);
         }
-        return builder.append(HTML_SUFFIX).toString();
+        return builder.toString();
+    }
+
+    /**
+     * Write a {@code ResultSet} in HTML with header and values to an {@code Appendable} object row by row,
+     * which produces the same content as {@link ResultSetFactory#toHtml(ResultSet)}.
+     *
+     * @param rs  {@code ResultSet} object to be written.
+     * @param out {@code Appendable} object to write to, which is suggested to be buffered.
+     * @throws IOException If an I/O error occurs when writing.
+     */
+    public static void writeHtml(ResultSet rs, Appendable out) throws IOException {
+        write(rs, new TokenWriter(out, TokenWriter.Format.HTML));
     }
 
     /**
@@ -125,20 +135,256 @@ public final class ResultSetFactory {
      * @return String in Markdown.
      */
     public static String toMarkdown(ResultSet rs) {
-        int no = 1;
-        StringBuilder builder = new StringBuilder(MARKDOWN_HEADER).append("\n").append(MARKDOWN_ALIGN);
+        StringBuilder builder = new StringBuilder();
+        try {
+            writeMarkdown(rs, builder);
+        } catch (IOException e) {
+            // StringBuilder never throws IOException
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Write a {@code ResultSet} in Markdown with header and values to an {@code Appendable} object row by row,
+     * which produces the same content as {@link ResultSetFactory#toMarkdown(ResultSet)}.
+     *
+     * @param rs  {@code ResultSet} object to be written.
+     * @param out {@code Appendable} object to write to, which is suggested to be buffered.
+     * @throws IOException If an I/O error occurs when writing.
+     */
+    public static void writeMarkdown(ResultSet rs, Appendable out) throws IOException {
+        write(rs, new TokenWriter(out, TokenWriter.Format.MARKDOWN));
+    }
+
+    /**
+     * Write a {@code ResultSet} in the binary format of {@link BinaryFormat} to a channel,
+     * which can be read by {@link MappedResultSet} without scanning again.
+     * <p>
+     * The positions are delta encoded as varints and the tokens are deduplicated in a pool,
+     * so the result is usually smaller than the source file.
+     * Only the token types of {@link TokenTypeImpl} are supported.
+     * <p>
+     * The records are streamed to the channel through a small buffer, and only the checkpoints and the distinct
+     * tokens are kept until they are written after the records, so the memory used does not grow with the records.
+     * The header is filled in at last if the channel is a {@code SeekableByteChannel} object, e.g., a
+     * {@code FileChannel} object, otherwise the numbers of the header are written in the trailer instead.
+     *
+     * @param rs      {@code ResultSet} object to be written.
+     * @param channel {@code WritableByteChannel} object to write to.
+     * @throws IOException If an I/O error occurs when writing.
+     */
+    public static void writeBinary(ResultSet rs, WritableByteChannel channel) throws IOException {
+        SeekableByteChannel seekable = channel instanceof SeekableByteChannel ? (SeekableByteChannel) channel : null;
+        long start = seekable == null ? 0 : seekable.position();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        writeHeader(buffer, BinaryFormat.UNKNOWN_SIZE, 0, 0, 0);
+        // Number of bytes flushed before the buffer
+        int offset = 0;
+        int[] checkpoints = new int[64];
+        Map<String, Integer> ids = new LinkedHashMap<>();
+        int[] poolLengths = new int[64];
+        int size = 0;
+        int endIndex = 0;
+        int beginRow = 0;
+        int beginColumn = 0;
         rs.first();
         while (rs.next()) {
-            builder.append("\n|").append(no)
-                .append("|").append(rs.getBeginPosition().getRow()).append(":").append(rs.getBeginPosition().getColumn())
-                .append("|").append(rs.getEndPosition().getRow()).append(":").append(rs.getEndPosition().getColumn())
-                .append("|").append(rs.getEndPosition().getIndex() - rs.getBeginPosition().getIndex())
-                .append("|").append(rs.getTokenType())
-                .append("|").append(rs.getToken().replaceAll("\\|", "&verbar;"))
-                .append("|");
-            no++;
+            if (buffer.remaining() < MAX_RECORD_SIZE) {
+                offset += flush(channel, buffer);
+            }
+            if (size % BinaryFormat.BLOCK_SIZE == 0) {
+                int n = size / BinaryFormat.BLOCK_SIZE * 4;
+                if (n == checkpoints.length) {
+                    checkpoints = Arrays.copyOf(checkpoints, n * 2);
+                }
+                checkpoints[n] = offset + buffer.position();
+                checkpoints[n + 1] = endIndex;
+                checkpoints[n + 2] = beginRow;
+                checkpoints[n + 3] = beginColumn;
+            }
+            String token = rs.getToken();
+            Integer id = ids.get(token);
+            if (id == null) {
+                id = ids.size();
+                ids.put(token, id);
+                if (id == poolLengths.length) {
+                    poolLengths = Arrays.copyOf(poolLengths, id * 2);
+                }
+                poolLengths[id] = token.getBytes(StandardCharsets.UTF_8).length;
+            }
+            int index = rs.getBeginIndex();
+            int row = rs.getBeginRow();
+            int column = rs.getBeginColumn();
+            int length = rs.getEndIndex() - index;
+            int endRow = rs.getEndRow();
+            int endColumn = rs.getEndColumn();
+            boolean simple = endRow == row && endColumn == column + length;
+            buffer.put((byte) (((TokenTypeImpl) rs.getTokenType()).ordinal() | (simple ? BinaryFormat.FLAG_SIMPLE : 0)));
+            writeVarint(buffer, BinaryFormat.encodeZigzag(index - endIndex));
+            writeVarint(buffer, BinaryFormat.encodeZigzag(row - beginRow));
+            writeVarint(buffer, BinaryFormat.encodeZigzag(column - (row == beginRow ? beginColumn : 0)));
+            writeVarint(buffer, BinaryFormat.encodeZigzag(length));
+            if (!simple) {
+                writeVarint(buffer, BinaryFormat.encodeZigzag(endRow - row));
+                writeVarint(buffer, BinaryFormat.encodeZigzag(endColumn - column));
+            }
+            writeVarint(buffer, id);
+            endIndex = index + length;
+            beginRow = row;
+            beginColumn = column;
+            size++;
         }
-        return builder.toString();
+        int checkpointOffset = offset + buffer.position();
+        int blocks = (size + BinaryFormat.BLOCK_SIZE - 1) / BinaryFormat.BLOCK_SIZE;
+        for (int i = 0; i < blocks * 4; i++) {
+            if (buffer.remaining() < Integer.BYTES) {
+                offset += flush(channel, buffer);
+            }
+            buffer.putInt(checkpoints[i]);
+        }
+        int poolOffset = offset + buffer.position();
+        int poolData = 0;
+        for (int i = 0; i <= ids.size(); i++) {
+            if (buffer.remaining() < Integer.BYTES) {
+                offset += flush(channel, buffer);
+            }
+            buffer.putInt(poolData);
+            if (i < ids.size()) {
+                poolData += poolLengths[i];
+            }
+        }
+        for (String token : ids.keySet()) {
+            byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+            if (buffer.remaining() < bytes.length) {
+                flush(channel, buffer);
+            }
+            if (bytes.length > buffer.remaining()) {
+                write(channel, ByteBuffer.wrap(bytes));
+            } else {
+                buffer.put(bytes);
+            }
+        }
+        if (seekable == null) {
+            if (buffer.remaining() < BinaryFormat.TRAILER_SIZE) {
+                flush(channel, buffer);
+            }
+            buffer.putInt(size).putInt(checkpointOffset).putInt(ids.size()).putInt(poolOffset);
+            flush(channel, buffer);
+        } else {
+            flush(channel, buffer);
+            long end = seekable.position();
+            writeHeader(buffer, size, checkpointOffset, ids.size(), poolOffset);
+            seekable.position(start);
+            flush(channel, buffer);
+            seekable.position(end);
+        }
+    }
+
+    /**
+     * Put the header of the binary format into an empty buffer.
+     *
+     * @param buffer           {@code ByteBuffer} object to put into.
+     * @param size             Number of results, or {@link BinaryFormat#UNKNOWN_SIZE} if they are in the trailer.
+     * @param checkpointOffset Offset of the checkpoints.
+     * @param poolSize         Number of tokens in the pool.
+     * @param poolOffset       Offset of the pool.
+     */
+    private static void writeHeader(ByteBuffer buffer, int size, int checkpointOffset, int poolSize, int poolOffset) {
+        buffer.putInt(BinaryFormat.MAGIC)
+            .putInt(BinaryFormat.VERSION)
+            .putInt(size)
+            .putInt(BinaryFormat.BLOCK_SIZE)
+            .putInt(TokenTypeImpl.values().length)
+            .putInt(checkpointOffset)
+            .putInt(poolSize)
+            .putInt(poolOffset);
+    }
+
+    /**
+     * Put an unsigned integer as a varint, 7 bits per byte with the highest bit set if more bytes follow.
+     *
+     * @param buffer {@code ByteBuffer} object to put into.
+     * @param value  The integer to put.
+     */
+    private static void writeVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Write the bytes put into a buffer to a channel, and clear the buffer.
+     *
+     * @param channel {@code WritableByteChannel} object to write to.
+     * @param buffer  {@code ByteBuffer} object to be written.
+     * @return Number of bytes written.
+     * @throws IOException If an I/O error occurs when writing.
+     */
+    private static int flush(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        int length = buffer.remaining();
+        write(channel, buffer);
+        buffer.clear();
+        return length;
+    }
+
+    /**
+     * Write all the remaining bytes of a buffer to a channel.
+     *
+     * @param channel {@code WritableByteChannel} object to write to.
+     * @param buffer  {@code ByteBuffer} object to be written.
+     * @throws IOException If an I/O error occurs when writing.
+     */
+    private static void write(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Write a {@code ResultSet} object to a file in the format by the filename suffix:
+     * HTML for {@code .html}, Markdown for {@code .md}, the binary format for {@code .bin}, or string otherwise.
+     *
+     * @param rs       {@code ResultSet} object to be written.
+     * @param filename Name of the target file to write.
+     * @throws IOException If an I/O error occurs when writing.
+     */
+    public static void write(ResultSet rs, String filename) throws IOException {
+        if (Pattern.matches(PATTERN_BINARY, filename)) {
+            try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeBinary(rs, channel);
+            }
+        } else {
+            try (Writer writer = new BufferedWriter(new FileWriter(filename))) {
+                if (Pattern.matches(PATTERN_HTML, filename)) {
+                    writeHtml(rs, writer);
+                } else if (Pattern.matches(PATTERN_MARKDOWN, filename)) {
+                    writeMarkdown(rs, writer);
+                } else {
+                    writeString(rs, writer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write all the results of a {@code ResultSet} object by a {@code TokenWriter} object.
+     *
+     * @param rs     {@code ResultSet} object to be written.
+     * @param writer {@code TokenWriter} object to write.
+     * @throws IOException If an I/O error occurs when writing.
+     */
+    private static void write(ResultSet rs, TokenWriter writer) throws IOException {
+        writer.writeHeader();
+        rs.first();
+        while (rs.next()) {
+            writer.writeRow(rs.getBeginPosition(), rs.getEndPosition(), rs.getTokenType(), rs.getToken());
+        }
+        writer.writeFooter();
     }
 
 }
\ No newline at end of file
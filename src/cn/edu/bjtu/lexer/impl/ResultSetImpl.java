@@ -19,7 +19,36 @@ public final class ResultSetImpl implements ResultSet {
      */
     @Override
     public void append(Position begin, Position end, TokenType type, String token) {
-        results.add(new Result(begin, end, type, token));
+        append(begin.getIndex(), begin.getRow(), begin.getColumn(), end.getIndex(), end.getRow(), end.getColumn(), type, token);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void append(int beginIndex, int beginRow, int beginColumn, int endIndex, int endRow, int endColumn, TokenType type, String token) {
+        results.add(new Result(beginIndex, beginRow, beginColumn, endIndex, endRow, endColumn, type, token));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean absolute(int i) {
+        if (0 <= i && i < results.size()) {
+            cursor = i;
+            return true;
+        } else {
+            return false;
+        }
     }
 
     /**
@@ -66,11 +95,14 @@ public final class ResultSetImpl implements ResultSet {
 
     /**
      * {@inheritDoc}
+     * <p>
+     * The {@code Position} object is created when this method is called.
      */
     @Override
     public Position getBeginPosition() {
         if (0 <= cursor && cursor < results.size()) {
-            return results.get(cursor).begin;
+            Result result = results.get(cursor);
+            return new Position(result.beginIndex, result.beginRow, result.beginColumn);
         } else {
             return null;
         }
@@ -78,16 +110,91 @@ public final class ResultSetImpl implements ResultSet {
 
     /**
      * {@inheritDoc}
+     * <p>
+     * The {@code Position} object is created when this method is called.
      */
     @Override
     public Position getEndPosition() {
         if (0 <= cursor && cursor < results.size()) {
-            return results.get(cursor).end;
+            Result result = results.get(cursor);
+            return new Position(result.endIndex, result.endRow, result.endColumn);
         } else {
             return null;
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBeginIndex() {
+        if (0 <= cursor && cursor < results.size()) {
+            return results.get(cursor).beginIndex;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBeginRow() {
+        if (0 <= cursor && cursor < results.size()) {
+            return results.get(cursor).beginRow;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBeginColumn() {
+        if (0 <= cursor && cursor < results.size()) {
+            return results.get(cursor).beginColumn;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndIndex() {
+        if (0 <= cursor && cursor < results.size()) {
+            return results.get(cursor).endIndex;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndRow() {
+        if (0 <= cursor && cursor < results.size()) {
+            return results.get(cursor).endRow;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndColumn() {
+        if (0 <= cursor && cursor < results.size()) {
+            return results.get(cursor).endColumn;
+        } else {
+            return -1;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -114,18 +221,27 @@ public final class ResultSetImpl implements ResultSet {
 
     /**
      * A {@code Result} object stores beginning position, end position, token type, and token of a list of result.
+     * The positions are stored in numbers instead of {@code Position} objects.
      * The {@code ArrayList} of {@code Result} objects forms the storing part of the {@code ResultSet} object.
      */
     private static class Result {
 
-        public Position begin;
-        public Position end;
+        public int beginIndex;
+        public int beginRow;
+        public int beginColumn;
+        public int endIndex;
+        public int endRow;
+        public int endColumn;
         public TokenType type;
         public String token;
 
-        public Result(Position begin, Position end, TokenType type, String token) {
-            this.begin = begin;
-            this.end = end;
+        public Result(int beginIndex, int beginRow, int beginColumn, int endIndex, int endRow, int endColumn, TokenType type, String token) {
+            this.beginIndex = beginIndex;
+            this.beginRow = beginRow;
+            this.beginColumn = beginColumn;
+            this.endIndex = endIndex;
+            this.endRow = endRow;
+            this.endColumn = endColumn;
             this.type = type;
             this.token = token;
         }
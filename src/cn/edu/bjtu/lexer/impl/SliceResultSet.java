@@ -0,0 +1,436 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Position;
+import cn.edu.bjtu.lexer.ResultSet;
+import cn.edu.bjtu.lexer.TokenType;
+
+import java.util.Arrays;
+
+/**
+ * The {@code SliceResultSet} class is the implementation of the {@link ResultSet} interface
+ * which stores the tokens of a memory-mapped file as slices of the mapping, i.e., the byte offset and length
+ * of each token in the file, instead of strings:
+ * <pre>
+ *     MappedCharSource source = new MappedCharSource(path);
+ *     SliceResultSet rs = new SliceResultSet(source);
+ *     new LexerImpl(source, rs).scan();
+ * </pre>
+ * When a {@link LexerImpl} object reads from the same {@code MappedCharSource} object as the one of the
+ * {@code SliceResultSet} object it appends to, it neither creates nor interns the token strings at all.
+ * The numbers of the positions are stored column-wise as {@link ColumnarResultSet} does.
+ * <p>
+ * {@link SliceResultSet#getTokenText()} is a view of the mapping without any copy when the token is ASCII,
+ * and the non-ASCII tokens, which are expected only in string literals, are decoded in the same way as
+ * {@link MappedCharSource} reads them. {@link SliceResultSet#getToken()} creates a string for each call.
+ * The mapping stays valid after the source is closed, so do the tokens.
+ * <p>
+ * The results must be appended by a lexer reading the whole source from its beginning,
+ * and the tokens of comments are empty as the ones of the other {@code ResultSet} objects.
+ * Only the token types of {@link TokenTypeImpl} are supported.
+ */
+public final class SliceResultSet implements ResultSet {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final TokenTypeImpl[] TYPES = TokenTypeImpl.values();
+
+    private final MappedCharSource source;
+    private int[] beginIndexes;
+    private int[] beginRows;
+    private int[] beginColumns;
+    private int[] endIndexes;
+    private int[] endRows;
+    private int[] endColumns;
+    private byte[] types;
+    /**
+     * Byte offsets and lengths of the tokens in the file.
+     */
+    private int[] offsets;
+    private int[] lengths;
+    private int size = 0;
+    private int cursor = -1;
+
+    /**
+     * Constructs a new {@code SliceResultSet} object of a source with the default capacity.
+     *
+     * @param source The {@code MappedCharSource} object which the results are scanned from.
+     */
+    public SliceResultSet(MappedCharSource source) {
+        this(source, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new {@code SliceResultSet} object of a source with given capacity.
+     *
+     * @param source   The {@code MappedCharSource} object which the results are scanned from.
+     * @param capacity Initial number of results that can be stored without growing.
+     */
+    public SliceResultSet(MappedCharSource source, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.source = source;
+        beginIndexes = new int[capacity];
+        beginRows = new int[capacity];
+        beginColumns = new int[capacity];
+        endIndexes = new int[capacity];
+        endRows = new int[capacity];
+        endColumns = new int[capacity];
+        types = new byte[capacity];
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+    }
+
+    /**
+     * Grow the columns by half when they are full.
+     */
+    private void grow() {
+        int capacity = beginIndexes.length + (beginIndexes.length >> 1) + 1;
+        beginIndexes = Arrays.copyOf(beginIndexes, capacity);
+        beginRows = Arrays.copyOf(beginRows, capacity);
+        beginColumns = Arrays.copyOf(beginColumns, capacity);
+        endIndexes = Arrays.copyOf(endIndexes, capacity);
+        endRows = Arrays.copyOf(endRows, capacity);
+        endColumns = Arrays.copyOf(endColumns, capacity);
+        types = Arrays.copyOf(types, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+    }
+
+    /**
+     * Getter for the source which the results are scanned from.
+     *
+     * @return The {@code MappedCharSource} object.
+     */
+    MappedCharSource getSource() {
+        return source;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void append(Position begin, Position end, TokenType type, String token) {
+        append(begin.getIndex(), begin.getRow(), begin.getColumn(), end.getIndex(), end.getRow(), end.getColumn(), type, token);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The token is not stored but sliced from the file by the index numbers,
+     * so it may be {@code null}, except that an empty token, e.g., of a comment, is stored as an empty slice.
+     */
+    @Override
+    public void append(int beginIndex, int beginRow, int beginColumn, int endIndex, int endRow, int endColumn, TokenType type, String token) {
+        if (size == beginIndexes.length) {
+            grow();
+        }
+        beginIndexes[size] = beginIndex;
+        beginRows[size] = beginRow;
+        beginColumns[size] = beginColumn;
+        endIndexes[size] = endIndex;
+        endRows[size] = endRow;
+        endColumns[size] = endColumn;
+        types[size] = (byte) ((TokenTypeImpl) type).ordinal();
+        int offset = source.getByteOffset(beginIndex - 1);
+        offsets[size] = offset;
+        lengths[size] = token != null && token.isEmpty() ? 0 : source.getByteOffset(endIndex - 1) - offset;
+        size++;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean absolute(int i) {
+        if (0 <= i && i < size) {
+            cursor = i;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void first() {
+        cursor = -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void last() {
+        cursor = size - 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean next() {
+        if (cursor < size - 1) {
+            cursor++;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean previous() {
+        if (cursor >= 0) {
+            cursor--;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The {@code Position} object is created when this method is called.
+     */
+    @Override
+    public Position getBeginPosition() {
+        if (0 <= cursor && cursor < size) {
+            return new Position(beginIndexes[cursor], beginRows[cursor], beginColumns[cursor]);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The {@code Position} object is created when this method is called.
+     */
+    @Override
+    public Position getEndPosition() {
+        if (0 <= cursor && cursor < size) {
+            return new Position(endIndexes[cursor], endRows[cursor], endColumns[cursor]);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBeginIndex() {
+        if (0 <= cursor && cursor < size) {
+            return beginIndexes[cursor];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBeginRow() {
+        if (0 <= cursor && cursor < size) {
+            return beginRows[cursor];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getBeginColumn() {
+        if (0 <= cursor && cursor < size) {
+            return beginColumns[cursor];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndIndex() {
+        if (0 <= cursor && cursor < size) {
+            return endIndexes[cursor];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndRow() {
+        if (0 <= cursor && cursor < size) {
+            return endRows[cursor];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndColumn() {
+        if (0 <= cursor && cursor < size) {
+            return endColumns[cursor];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TokenType getTokenType() {
+        if (0 <= cursor && cursor < size) {
+            return TYPES[types[cursor]];
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The string is created from the slice when this method is called.
+     */
+    @Override
+    public String getToken() {
+        CharSequence text = getTokenText();
+        return text == null ? null : text.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * It is a view of the mapping when the token is ASCII, otherwise it is decoded into a new string.
+     */
+    @Override
+    public CharSequence getTokenText() {
+        if (0 <= cursor && cursor < size) {
+            int length = lengths[cursor];
+            if (length == 0) {
+                return "";
+            } else if (isAscii(offsets[cursor], length)) {
+                return new Slice(source, offsets[cursor], length);
+            } else {
+                return source.decode(offsets[cursor], length);
+            }
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Check if a range of bytes of the file are all ASCII.
+     *
+     * @param offset Byte offset of the range.
+     * @param length Number of bytes of the range.
+     * @return {@code true} if no byte is non-ASCII.
+     */
+    private boolean isAscii(int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (source.getByte(offset + i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the byte offset in the file of the token of the result by the current cursor.
+     *
+     * @return Byte offset of the token, or {@code -1} if the cursor is out of range.
+     */
+    public int getByteOffset() {
+        if (0 <= cursor && cursor < size) {
+            return offsets[cursor];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Get the number of bytes in the file of the token of the result by the current cursor.
+     *
+     * @return Byte length of the token, which is {@code 0} for an empty token, or {@code -1} if the cursor is out of range.
+     */
+    public int getByteLength() {
+        if (0 <= cursor && cursor < size) {
+            return lengths[cursor];
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * A {@code Slice} object is a view of ASCII bytes of a mapped file as characters.
+     */
+    private static final class Slice implements CharSequence {
+
+        private final MappedCharSource source;
+        private final int offset;
+        private final int length;
+
+        Slice(MappedCharSource source, int offset, int length) {
+            this.source = source;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of slice of length " + length);
+            }
+            return (char) source.getByte(offset + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || start > end || end > length) {
+                throw new IndexOutOfBoundsException("Range " + start + "-" + end + " out of slice of length " + length);
+            }
+            return new Slice(source, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) source.getByte(offset + i);
+            }
+            return new String(chars);
+        }
+
+    }
+
+}
@@ -0,0 +1,202 @@
+package cn.edu.bjtu.lexer.impl;
+
+import java.util.Arrays;
+
+/**
+ * A {@code SymbolTable} object interns the tokens, so that each distinct token is stored once
+ * and identified by an id, which is the number of distinct tokens added before it.
+ * <p>
+ * A token can be looked up by any {@link CharSequence}, e.g., the {@code StringBuilder} where it is being scanned,
+ * and a string is created only when the token is added for the first time. The hash is the same as
+ * {@link String#hashCode()}, so it is not computed again for a string. Tokens with the same id can be compared
+ * by {@code ==} instead of {@link String#equals(Object)}.
+ * <p>
+ * The table is open-addressing with linear probing, and it is not thread-safe.
+ */
+public final class SymbolTable {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Slots of the hash table, each of which is the id plus 1, or 0 if empty.
+     */
+    private int[] slots;
+    private int[] hashes;
+    private String[] symbols;
+    private int size = 0;
+
+    /**
+     * Constructs a new {@code SymbolTable} object with the default capacity.
+     */
+    public SymbolTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new {@code SymbolTable} object with given capacity.
+     *
+     * @param capacity Initial number of tokens that can be added without growing.
+     */
+    public SymbolTable(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        slots = new int[Integer.highestOneBit(capacity) << 2];
+        hashes = new int[capacity];
+        symbols = new String[capacity];
+    }
+
+    /**
+     * Add a token if it has not been added.
+     *
+     * @param text The token.
+     * @return Id of the token.
+     */
+    public int add(CharSequence text) {
+        int hash = hash(text);
+        int mask = slots.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            int slot = slots[i];
+            if (slot == 0) {
+                return insert(i, hash, text.toString());
+            }
+            if (hashes[slot - 1] == hash && equals(symbols[slot - 1], text)) {
+                return slot - 1;
+            }
+        }
+    }
+
+    /**
+     * Find the id of a token without adding it.
+     *
+     * @param text The token.
+     * @return Id of the token, or {@code -1} if it has not been added.
+     */
+    public int find(CharSequence text) {
+        int hash = hash(text);
+        int mask = slots.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            int slot = slots[i];
+            if (slot == 0) {
+                return -1;
+            }
+            if (hashes[slot - 1] == hash && equals(symbols[slot - 1], text)) {
+                return slot - 1;
+            }
+        }
+    }
+
+    /**
+     * Add a token if it has not been added, and get the string shared by all its occurrences.
+     *
+     * @param text The token.
+     * @return The token in string.
+     */
+    public String intern(CharSequence text) {
+        int id = add(text);
+        return symbols[id];
+    }
+
+    /**
+     * Get a token by its id.
+     *
+     * @param id Id of the token.
+     * @return The token in string.
+     */
+    public String get(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Symbol " + id + " out of " + size);
+        }
+        return symbols[id];
+    }
+
+    /**
+     * Get the number of distinct tokens.
+     *
+     * @return Number of tokens.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Insert a new token to an empty slot, and grow the table if it is half full.
+     *
+     * @param i      Index of the empty slot.
+     * @param hash   Hash of the token.
+     * @param symbol The token in string.
+     * @return Id of the token.
+     */
+    private int insert(int i, int hash, String symbol) {
+        if (size == symbols.length) {
+            hashes = Arrays.copyOf(hashes, size + (size >> 1) + 1);
+            symbols = Arrays.copyOf(symbols, hashes.length);
+        }
+        int id = size++;
+        hashes[id] = hash;
+        symbols[id] = symbol;
+        slots[i] = id + 1;
+        if (size << 1 > slots.length) {
+            slots = new int[slots.length << 1];
+            int mask = slots.length - 1;
+            for (int k = 0; k < size; k++) {
+                int j = spread(hashes[k]) & mask;
+                while (slots[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                slots[j] = k + 1;
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Hash a token in the same way as {@link String#hashCode()}.
+     *
+     * @param text The token.
+     * @return Hash of the token.
+     */
+    private static int hash(CharSequence text) {
+        if (text instanceof String) {
+            return text.hashCode();
+        }
+        int h = 0;
+        for (int i = 0; i < text.length(); i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return h;
+    }
+
+    /**
+     * Spread the higher bits of a hash to the lower ones, which are used to index the slots.
+     *
+     * @param hash Hash of a token.
+     * @return The spread hash.
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Check if a string has the same characters as a token.
+     *
+     * @param symbol The string.
+     * @param text   The token.
+     * @return {@code true} if they are the same.
+     */
+    private static boolean equals(String symbol, CharSequence text) {
+        if (symbol == text) {
+            return true;
+        }
+        if (symbol.length() != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < symbol.length(); i++) {
+            if (symbol.charAt(i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
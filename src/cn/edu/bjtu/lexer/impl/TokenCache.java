@@ -0,0 +1,378 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Diagnostic;
+import cn.edu.bjtu.lexer.Position;
+import cn.edu.bjtu.lexer.ResultSet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@code TokenCache} object caches the results of lexical scan by the content of the files,
+ * so that a file which has been scanned is not scanned again, e.g., a header included by many sources:
+ * <pre>
+ *     TokenCache cache = new TokenCache(64 &lt;&lt; 20, Paths.get(".lexer-cache"));
+ *     DiagnosticSink sink = new DiagnosticSink();
+ *     ResultSet rs = cache.scan(Paths.get("stdio.h"), sink);
+ * </pre>
+ * The key of a content is its 128-bit hash together with its length, the charset to decode it,
+ * {@link LexerImpl#VERSION}, {@link BinaryFormat#VERSION} and the version of the entries.
+ * <p>
+ * An entry is the results in the binary format of {@link BinaryFormat}, followed by the errors found when the
+ * content was scanned, which are reported again to the {@code DiagnosticSink} object at each hit. In memory,
+ * the entries are kept in a least-recently-used map whose total size in bytes is limited, and each hit returns
+ * a new {@link MappedResultSet} object over the shared bytes, so the cursors are independent. If a directory
+ * is given, the entries are also written to it, and read from it when they are not in memory, e.g., by a later build.
+ * An entry read from the directory is checked before it is kept in memory; if it is corrupted, the content is
+ * scanned again and the entry is replaced.
+ * <p>
+ * It is safe to use a {@code TokenCache} object in many threads.
+ */
+public final class TokenCache {
+
+    private static final long SEED_LOW = 0x9e3779b97f4a7c15L;
+    private static final long SEED_HIGH = 0xc2b2ae3d27d4eb4fL;
+    private static final String SUFFIX = ".bin";
+    /**
+     * Version of the layout of the entries, which is increased when the layout changes.
+     */
+    private static final int ENTRY_VERSION = 2;
+    private static final Diagnostic.Kind[] KINDS = Diagnostic.Kind.values();
+
+    private final long capacity;
+    private final Path directory;
+    private final Charset charset = Charset.defaultCharset();
+    /**
+     * Entries in access order, the eldest of which is evicted first.
+     */
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Constructs a new {@code TokenCache} object in memory only.
+     *
+     * @param capacity Maximum total size in bytes of the results kept in memory.
+     */
+    public TokenCache(long capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Constructs a new {@code TokenCache} object in memory and on disk.
+     *
+     * @param capacity  Maximum total size in bytes of the results kept in memory.
+     * @param directory The directory to keep the results on disk, or {@code null} to keep them in memory only.
+     *                  It is created if it does not exist.
+     */
+    public TokenCache(long capacity, Path directory) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        }
+        this.capacity = capacity;
+        this.directory = directory;
+    }
+
+    /**
+     * Get the results of a file, scanning it only if its content has not been cached.
+     * The errors found when the content was scanned are reported whether the results are cached or not.
+     *
+     * @param path        Path of the file.
+     * @param diagnostics The {@code DiagnosticSink} object to report the errors to, or {@code null} to ignore them.
+     * @return A new {@code ResultSet} object of the results, which is read-only.
+     * @throws IOException If an I/O error occurs when reading the file or the cache directory.
+     */
+    public ResultSet scan(Path path, DiagnosticSink diagnostics) throws IOException {
+        byte[] content = Files.readAllBytes(path);
+        String key = key(content);
+        String name = path.toString();
+        byte[] entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        List<Diagnostic> errors = null;
+        if (entry != null) {
+            hits.incrementAndGet();
+        } else {
+            Path file = directory == null ? null : directory.resolve(key + SUFFIX);
+            if (file != null && Files.isRegularFile(file)) {
+                entry = Files.readAllBytes(file);
+                try {
+                    errors = errors(entry, name);
+                    results(entry, key);
+                    diskHits.incrementAndGet();
+                } catch (IOException e) {
+                    // A corrupted entry is scanned again and replaced instead of being kept in memory
+                    errors = null;
+                }
+            }
+            if (errors == null) {
+                entry = scan(content, name);
+                errors = errors(entry, name);
+                misses.incrementAndGet();
+                if (file != null) {
+                    // Write to a temporary file first, so that no other one can read a partial file
+                    Files.createDirectories(directory);
+                    Path temp = Files.createTempFile(directory, key, ".tmp");
+                    Files.write(temp, entry);
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            put(key, entry);
+        }
+        if (diagnostics != null) {
+            // The entries in memory have been checked when they were put
+            for (Diagnostic error : errors == null ? errors(entry, name) : errors) {
+                diagnostics.offer(error);
+            }
+        }
+        return results(entry, key);
+    }
+
+    /**
+     * Scan a content and write the entry: length of the results, the results in the binary format,
+     * and the errors, each of which is the ordinal of its kind in a byte, {@code 1} and the index, row
+     * and column of the position or {@code 0} if there is not one, and the length and bytes of the message
+     * in UTF-8, after the number of errors.
+     *
+     * @param content The content to scan.
+     * @param name    Name of the content reported with the errors.
+     * @return The entry.
+     */
+    private byte[] scan(byte[] content, String name) {
+        ColumnarResultSet rs = new ColumnarResultSet();
+        DiagnosticSink sink = new DiagnosticSink(Integer.MAX_VALUE);
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            new LexerImpl(new CharSequenceSource(new String(content, charset)), rs).setName(name).setDiagnostics(sink).scan();
+            ResultSetFactory.writeBinary(rs, Channels.newChannel(results));
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(results.size());
+            results.writeTo(data);
+            List<Diagnostic> errors = sink.drain();
+            data.writeInt(errors.size());
+            for (Diagnostic error : errors) {
+                data.writeByte(error.getKind().ordinal());
+                Position position = error.getPosition();
+                if (position == null) {
+                    data.writeByte(0);
+                } else {
+                    data.writeByte(1);
+                    data.writeInt(position.getIndex());
+                    data.writeInt(position.getRow());
+                    data.writeInt(position.getColumn());
+                }
+                byte[] message = error.getMessage().getBytes(StandardCharsets.UTF_8);
+                data.writeInt(message.length);
+                data.write(message);
+            }
+        } catch (IOException e) {
+            // Neither CharSequenceSource nor ByteArrayOutputStream throws IOException
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Read the errors of an entry, see {@link TokenCache#scan(byte[], String)}.
+     *
+     * @param entry The entry.
+     * @param name  Name of the content reported with the errors.
+     * @return The errors.
+     * @throws IOException If the entry is corrupted.
+     */
+    private static List<Diagnostic> errors(byte[] entry, String name) throws IOException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(entry);
+            int length = buffer.getInt();
+            buffer.position(Integer.BYTES + length);
+            int count = buffer.getInt();
+            List<Diagnostic> errors = new ArrayList<>(Math.min(count, buffer.remaining()));
+            for (int i = 0; i < count; i++) {
+                Diagnostic.Kind kind = KINDS[buffer.get()];
+                Position position = null;
+                if (buffer.get() != 0) {
+                    position = new Position(buffer.getInt(), buffer.getInt(), buffer.getInt());
+                }
+                byte[] message = new byte[buffer.getInt()];
+                buffer.get(message);
+                errors.add(new Diagnostic(kind, name, position, new String(message, StandardCharsets.UTF_8)));
+            }
+            if (buffer.hasRemaining()) {
+                throw new IOException("Corrupted cache entry of " + name);
+            }
+            return errors;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupted cache entry of " + name, e);
+        }
+    }
+
+    /**
+     * Read the results of an entry, see {@link TokenCache#scan(byte[], String)}.
+     *
+     * @param entry The entry, whose errors have been read.
+     * @param key   The key of the content.
+     * @return A new {@code MappedResultSet} object over the entry.
+     * @throws IOException If the entry is corrupted.
+     */
+    private static MappedResultSet results(byte[] entry, String key) throws IOException {
+        return new MappedResultSet(ByteBuffer.wrap(entry, Integer.BYTES, ByteBuffer.wrap(entry).getInt(0)).slice(), key);
+    }
+
+    /**
+     * Put an entry in memory, and evict the least recently used ones until the size is within the capacity.
+     * Entries larger than the capacity are not kept in memory.
+     *
+     * @param key   The key of the content.
+     * @param entry The entry.
+     */
+    private void put(String key, byte[] entry) {
+        if (entry.length > capacity) {
+            return;
+        }
+        synchronized (entries) {
+            byte[] previous = entries.put(key, entry);
+            size += entry.length - (previous == null ? 0 : previous.length);
+            Iterator<byte[]> iterator = entries.values().iterator();
+            while (size > capacity) {
+                size -= iterator.next().length;
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Get the key of a content.
+     *
+     * @param content The content.
+     * @return The key in hexadecimal.
+     */
+    private String key(byte[] content) {
+        return String.format(Locale.ROOT, "%016x%016x-%x-%s-%d-%d-%d", hash(content, SEED_HIGH), hash(content, SEED_LOW),
+            content.length, charset.name(), LexerImpl.VERSION, BinaryFormat.VERSION, ENTRY_VERSION);
+    }
+
+    /**
+     * Hash a content to 64 bits, 8 bytes at a time.
+     *
+     * @param content The content.
+     * @param seed    The seed of the hash.
+     * @return The hash.
+     */
+    private static long hash(byte[] content, long seed) {
+        ByteBuffer buffer = ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN);
+        long h = seed ^ content.length;
+        int i = 0;
+        for (; i + 8 <= content.length; i += 8) {
+            h = Long.rotateLeft(h ^ mix(buffer.getLong(i) ^ seed), 27) * 0x9e3779b97f4a7c15L + 0x52dce729;
+        }
+        long tail = 0;
+        for (int shift = 0; i < content.length; i++, shift += 8) {
+            tail |= (content[i] & 0xffL) << shift;
+        }
+        return mix(h ^ mix(tail ^ seed));
+    }
+
+    /**
+     * Mix the bits of a number, so that each bit of the input affects each bit of the output.
+     *
+     * @param k The number to mix.
+     * @return The mixed number.
+     */
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * Get the number of results found in memory.
+     *
+     * @return Number of hits in memory.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of results found on disk but not in memory.
+     *
+     * @return Number of hits on disk.
+     */
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    /**
+     * Get the number of contents scanned because their results are not found.
+     *
+     * @return Number of misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get the number of results evicted from memory.
+     *
+     * @return Number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Get the total size in bytes of the results kept in memory.
+     *
+     * @return Size in bytes.
+     */
+    public long getSize() {
+        synchronized (entries) {
+            return size;
+        }
+    }
+
+    /**
+     * Remove all the results in memory. The results on disk are kept.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            size = 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d disk hits, %d misses, %d evictions, %d bytes in memory",
+            getHits(), getDiskHits(), getMisses(), getEvictions(), getSize());
+    }
+
+}
@@ -0,0 +1,773 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.TokenType;
+
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@code TokenSpec} object declares the rules of tokens by regular expressions,
+ * which is compiled into a {@link TransitionTable} object to be run by {@link DfaLexer}:
+ * <pre>
+ *     TransitionTable table = new TokenSpec()
+ *         .skip("[ \\t\\r\\n]+")
+ *         .token(TokenTypeImpl.NUMBER_INTEGER, "[0-9]+")
+ *         .literals(TokenTypeImpl.KEYWORD, "if", "else")
+ *         .token(TokenTypeImpl.IDENTIFIER, "[A-Za-z_][A-Za-z0-9_]*")
+ *         .compile();
+ * </pre>
+ * The content is scanned in the maximal munch way, i.e., each token is the longest match of any rule,
+ * and the rule declared first wins when several rules match the longest.
+ * <p>
+ * The regular expressions support characters, escapes ({@code \t}, {@code \n}, {@code \v}, {@code \f},
+ * {@code \r}, {@code \d}, {@code \w}, {@code \s}, a backslash and {@code u} followed by four hexadecimal digits,
+ * and a backslash before any other non-alphanumeric character for itself),
+ * {@code .} for any character except LF, classes like {@code [^a-z_]},
+ * groups, alternations, and the quantifiers {@code *}, {@code +}, {@code ?}, {@code {n}}, {@code {n,}} and
+ * {@code {n,m}}. Anchors, lazy quantifiers and back references are not supported, which have no sense for a DFA.
+ */
+public final class TokenSpec {
+
+    private static final int CHARS = Character.MAX_VALUE + 1;
+    private static final String SPACES = " \t\n\u000b\f\r";
+
+    private final List<TokenType> types = new ArrayList<>();
+    private final List<Boolean> texts = new ArrayList<>();
+    private final List<String> regexes = new ArrayList<>();
+
+    /**
+     * Add a rule of tokens.
+     *
+     * @param type  The token type of the matches.
+     * @param regex The regular expression of the rule.
+     * @return The {@code TokenSpec} object itself for chain call.
+     */
+    public TokenSpec token(TokenType type, String regex) {
+        return add(type, true, regex);
+    }
+
+    /**
+     * Add a rule of tokens whose text is not kept, which are empty strings, e.g., comments.
+     *
+     * @param type  The token type of the matches.
+     * @param regex The regular expression of the rule.
+     * @return The {@code TokenSpec} object itself for chain call.
+     */
+    public TokenSpec hidden(TokenType type, String regex) {
+        return add(type, false, regex);
+    }
+
+    /**
+     * Add a rule of tokens from a list of literal strings, e.g., keywords.
+     *
+     * @param type     The token type of the matches.
+     * @param literals The literal strings.
+     * @return The {@code TokenSpec} object itself for chain call.
+     */
+    public TokenSpec literals(TokenType type, String... literals) {
+        StringBuilder regex = new StringBuilder();
+        for (String literal : literals) {
+            if (regex.length() > 0) {
+                regex.append('|');
+            }
+            regex.append(quote(literal));
+        }
+        return add(type, true, regex.toString());
+    }
+
+    /**
+     * Add a rule of the content to skip, e.g., white-spaces.
+     *
+     * @param regex The regular expression of the rule.
+     * @return The {@code TokenSpec} object itself for chain call.
+     */
+    public TokenSpec skip(String regex) {
+        return add(null, false, regex);
+    }
+
+    private TokenSpec add(TokenType type, boolean text, String regex) {
+        // Parse it now to report the error at the rule
+        new Parser(regex).parse();
+        types.add(type);
+        texts.add(text);
+        regexes.add(regex);
+        return this;
+    }
+
+    /**
+     * Get the number of rules.
+     *
+     * @return Number of rules.
+     */
+    public int size() {
+        return regexes.size();
+    }
+
+    /**
+     * Quote a string to be matched literally, by escaping all the characters except letters and digits,
+     * which works both in and out of classes.
+     *
+     * @param literal The string.
+     * @return The regular expression.
+     */
+    public static String quote(String literal) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (!isAlphanumeric(c)) {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    private static boolean isAlphanumeric(char c) {
+        return c < 128 && (TokenUtil.isLetter(c) || TokenUtil.isDigit(c));
+    }
+
+    /**
+     * Create a {@code TokenSpec} object of the rules of {@link LexerImpl}, with the lists of keywords, operators
+     * and delimiters from {@link TokenUtil}. The tokens scanned by the compiled table have the same types and
+     * strings as the ones of {@link LexerImpl}, in which comments are empty strings.
+     *
+     * @return The {@code TokenSpec} object.
+     */
+    public static TokenSpec standard() {
+        String[] operators = TokenUtil.getOperators();
+        StringBuilder prefixes = new StringBuilder();
+        for (String operator : operators) {
+            if (prefixes.indexOf(operator.substring(0, 1)) < 0) {
+                prefixes.append(operator.charAt(0));
+            }
+        }
+        String delimiters = TokenUtil.getDelimiters();
+        // Characters beginning no other tokens, and the ones continuing them, see LexerImpl#scanOthers()
+        String others = quote(SPACES + delimiters + prefixes) + "0-9A-Za-z";
+        String decimal = "(0|[1-9][0-9]*)";
+        String character = "[^'\\\\\\r\\n]|\\\\[^\\r\\n]";
+        String string = "[^\"\\\\\\r\\n]|\\\\[^\\r\\n]";
+        return new TokenSpec()
+            .skip("[" + quote(SPACES) + "]+")
+            .hidden(TokenTypeImpl.INLINE_COMMENT, "//[^\\r\\n]*")
+            // Either closed or to the end of the content
+            .hidden(TokenTypeImpl.BLOCK_COMMENT, "/\\*([^*]|\\*+[^*/])*(\\*+/|\\**)")
+            .token(TokenTypeImpl.PREPROCESSOR, "#[^\\r\\n]*")
+            // One character is enough, even if not closed before the end of line, see LexerImpl#scanCharacter()
+            .token(TokenTypeImpl.CHARACTER, "'(" + character + ")('|\\\\)?")
+            .token(TokenTypeImpl.ILLEGAL, "'(" + character + ")*\\\\?'?")
+            .token(TokenTypeImpl.STRING, "\"(" + string + ")*\"")
+            .token(TokenTypeImpl.ILLEGAL, "\"(" + string + ")*\\\\?")
+            .token(TokenTypeImpl.NUMBER_INTEGER, decimal)
+            .token(TokenTypeImpl.NUMBER_FLOAT, "[0-9]+\\.[0-9]+[fF]?|[1-9][0-9]*[fF]")
+            .token(TokenTypeImpl.NUMBER_LONG, decimal + "[lL]")
+            .token(TokenTypeImpl.NUMBER_LONG_LONG, decimal + "[lL][lL]")
+            .token(TokenTypeImpl.NUMBER_UNSIGNED, decimal + "[uU]")
+            .token(TokenTypeImpl.NUMBER_OCTAL, "0[1-7][0-7]*")
+            .token(TokenTypeImpl.NUMBER_HEXADECIMAL, "0[xX][1-9a-fA-F][0-9a-fA-F]*")
+            .token(TokenTypeImpl.ILLEGAL, "[0-9][0-9A-Za-z.]*")
+            .literals(TokenTypeImpl.KEYWORD, TokenUtil.getKeywords())
+            .token(TokenTypeImpl.IDENTIFIER, "[A-Za-z_][0-9A-Za-z_]{0,31}")
+            .token(TokenTypeImpl.ILLEGAL, "[A-Za-z_][0-9A-Za-z_]{32,}")
+            .literals(TokenTypeImpl.OPERATOR, operators)
+            .token(TokenTypeImpl.DELIMITER, "[" + quote(delimiters) + "]")
+            .token(TokenTypeImpl.ILLEGAL, "[^" + others + "_/#'\"][^" + others + "/]*");
+    }
+
+    /**
+     * Compile the rules into a minimal DFA:
+     * <ol>
+     *     <li>Parse the regular expressions.</li>
+     *     <li>Split the characters into the classes that no character set of the rules can tell apart.</li>
+     *     <li>Build an NFA of all the rules by Thompson's construction on the classes.</li>
+     *     <li>Convert it into a DFA by the subset construction.</li>
+     *     <li>Minimize the DFA by merging the states that no input can tell apart.</li>
+     *     <li>Merge the classes whose transitions are the same in all the states.</li>
+     * </ol>
+     * It is done once for a spec, and the table can be shared.
+     *
+     * @return The {@code TransitionTable} object.
+     */
+    public TransitionTable compile() {
+        List<Node> roots = new ArrayList<>();
+        List<BitSet> sets = new ArrayList<>();
+        for (String regex : regexes) {
+            Node root = new Parser(regex).parse();
+            root.collect(sets);
+            roots.add(root);
+        }
+
+        // Equivalence classes: refine the partition of characters by each set
+        int[] classOf = new int[CHARS];
+        int count = 1;
+        for (BitSet set : sets) {
+            int[] split = new int[count];
+            Arrays.fill(split, -1);
+            for (int c = set.nextSetBit(0); c >= 0; c = set.nextSetBit(c + 1)) {
+                int old = classOf[c];
+                if (split[old] < 0) {
+                    split[old] = count++;
+                }
+                classOf[c] = split[old];
+            }
+        }
+        int[] renumber = new int[count];
+        Arrays.fill(renumber, -1);
+        int classCount = 0;
+        for (int c = 0; c < CHARS; c++) {
+            if (renumber[classOf[c]] < 0) {
+                renumber[classOf[c]] = classCount++;
+            }
+            classOf[c] = renumber[classOf[c]];
+        }
+
+        // Thompson's construction
+        Nfa nfa = new Nfa(classOf, classCount);
+        int nfaStart = nfa.newState();
+        for (int rule = 0; rule < roots.size(); rule++) {
+            int[] fragment = nfa.build(roots.get(rule));
+            nfa.epsilon(nfaStart, fragment[0]);
+            nfa.accepts.set(fragment[1], rule);
+        }
+
+        // Subset construction, where the empty set is the dead state
+        List<BitSet> subsets = new ArrayList<>();
+        Map<BitSet, Integer> ids = new HashMap<>();
+        List<int[]> transitions = new ArrayList<>();
+        subsets.add(new BitSet());
+        ids.put(subsets.get(0), 0);
+        BitSet startSet = new BitSet();
+        startSet.set(nfaStart);
+        startSet = nfa.closure(startSet);
+        subsets.add(startSet);
+        ids.put(startSet, 1);
+        transitions.add(new int[classCount]);
+        for (int d = 1; d < subsets.size(); d++) {
+            BitSet[] moves = new BitSet[classCount];
+            BitSet subset = subsets.get(d);
+            for (int s = subset.nextSetBit(0); s >= 0; s = subset.nextSetBit(s + 1)) {
+                boolean[] edge = nfa.edges.get(s);
+                if (edge == null) {
+                    continue;
+                }
+                for (int c = 0; c < classCount; c++) {
+                    if (edge[c]) {
+                        if (moves[c] == null) {
+                            moves[c] = new BitSet();
+                        }
+                        moves[c].set(nfa.targets.get(s));
+                    }
+                }
+            }
+            int[] row = new int[classCount];
+            for (int c = 0; c < classCount; c++) {
+                if (moves[c] == null) {
+                    continue;
+                }
+                BitSet target = nfa.closure(moves[c]);
+                Integer id = ids.get(target);
+                if (id == null) {
+                    id = subsets.size();
+                    subsets.add(target);
+                    ids.put(target, id);
+                }
+                row[c] = id;
+            }
+            transitions.add(row);
+        }
+        int states = subsets.size();
+        int[] accepts = new int[states];
+        for (int d = 0; d < states; d++) {
+            accepts[d] = -1;
+            BitSet subset = subsets.get(d);
+            for (int s = subset.nextSetBit(0); s >= 0; s = subset.nextSetBit(s + 1)) {
+                int rule = nfa.accepts.get(s);
+                if (rule >= 0 && (accepts[d] < 0 || rule < accepts[d])) {
+                    accepts[d] = rule;
+                }
+            }
+        }
+
+        // Minimization by refining the partition of states by their rules,
+        // where the dead state is always processed first, so its block is still the dead state
+        int[] block = new int[states];
+        Map<IntBuffer, Integer> initial = new HashMap<>();
+        for (int d = 0; d < states; d++) {
+            block[d] = blockOf(initial, new int[]{accepts[d]});
+        }
+        int blocks = initial.size();
+        do {
+            Map<IntBuffer, Integer> signatures = new HashMap<>();
+            int[] refined = new int[states];
+            for (int d = 0; d < states; d++) {
+                int[] signature = new int[classCount + 1];
+                signature[0] = block[d];
+                int[] row = transitions.get(d);
+                for (int c = 0; c < classCount; c++) {
+                    signature[c + 1] = block[row[c]];
+                }
+                refined[d] = blockOf(signatures, signature);
+            }
+            block = refined;
+            if (signatures.size() == blocks) {
+                break;
+            }
+            blocks = signatures.size();
+        } while (true);
+        int[][] minimal = new int[blocks][];
+        int[] rules = new int[blocks];
+        for (int d = 0; d < states; d++) {
+            if (minimal[block[d]] == null) {
+                int[] row = transitions.get(d);
+                minimal[block[d]] = new int[classCount];
+                for (int c = 0; c < classCount; c++) {
+                    minimal[block[d]][c] = block[row[c]];
+                }
+                rules[block[d]] = accepts[d];
+            }
+        }
+
+        // Merge the classes of the same transitions
+        Map<IntBuffer, Integer> columns = new HashMap<>();
+        int[] merged = new int[classCount];
+        for (int c = 0; c < classCount; c++) {
+            int[] column = new int[blocks];
+            for (int b = 0; b < blocks; b++) {
+                column[b] = minimal[b][c];
+            }
+            merged[c] = blockOf(columns, column);
+        }
+        int mergedCount = columns.size();
+        int[] next = new int[blocks * mergedCount];
+        int[] offsetRules = new int[blocks * mergedCount];
+        for (int b = 0; b < blocks; b++) {
+            for (int c = 0; c < classCount; c++) {
+                next[b * mergedCount + merged[c]] = minimal[b][c] * mergedCount;
+            }
+            Arrays.fill(offsetRules, b * mergedCount, (b + 1) * mergedCount, rules[b]);
+        }
+        char[] classes = new char[CHARS];
+        for (int c = 0; c < CHARS; c++) {
+            classes[c] = (char) merged[classOf[c]];
+        }
+        boolean[] kept = new boolean[texts.size()];
+        for (int i = 0; i < kept.length; i++) {
+            kept[i] = texts.get(i);
+        }
+        return new TransitionTable(classes, mergedCount, next, offsetRules, block[1] * mergedCount,
+            types.toArray(new TokenType[0]), kept);
+    }
+
+    /**
+     * Get the id of a group of numbers, giving it the next id if it is new.
+     *
+     * @param ids    The ids of the groups, where the {@code IntBuffer} objects compare the numbers.
+     * @param values The numbers of the group.
+     * @return The id of the group.
+     */
+    private static int blockOf(Map<IntBuffer, Integer> ids, int[] values) {
+        IntBuffer key = IntBuffer.wrap(values);
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = ids.size();
+            ids.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * A node of the syntax tree of a regular expression.
+     */
+    private static final class Node {
+
+        static final int SET = 0;
+        static final int CONCAT = 1;
+        static final int ALTERNATE = 2;
+        static final int STAR = 3;
+        static final int PLUS = 4;
+        static final int OPTIONAL = 5;
+
+        final int kind;
+        final BitSet set;
+        final Node[] children;
+
+        Node(BitSet set) {
+            this.kind = SET;
+            this.set = set;
+            this.children = new Node[0];
+        }
+
+        Node(int kind, Node... children) {
+            this.kind = kind;
+            this.set = null;
+            this.children = children;
+        }
+
+        void collect(List<BitSet> sets) {
+            if (set != null) {
+                sets.add(set);
+            }
+            for (Node child : children) {
+                child.collect(sets);
+            }
+        }
+
+    }
+
+    /**
+     * A recursive descent parser of regular expressions.
+     */
+    private static final class Parser {
+
+        private final String regex;
+        private int i = 0;
+
+        Parser(String regex) {
+            this.regex = regex;
+        }
+
+        Node parse() {
+            Node node = alternate();
+            if (i < regex.length()) {
+                throw error("Unmatched ')'");
+            }
+            return node;
+        }
+
+        private Node alternate() {
+            List<Node> nodes = new ArrayList<>();
+            nodes.add(concat());
+            while (i < regex.length() && regex.charAt(i) == '|') {
+                i++;
+                nodes.add(concat());
+            }
+            return nodes.size() == 1 ? nodes.get(0) : new Node(Node.ALTERNATE, nodes.toArray(new Node[0]));
+        }
+
+        private Node concat() {
+            List<Node> nodes = new ArrayList<>();
+            while (i < regex.length() && regex.charAt(i) != '|' && regex.charAt(i) != ')') {
+                nodes.add(repeat());
+            }
+            return nodes.size() == 1 ? nodes.get(0) : new Node(Node.CONCAT, nodes.toArray(new Node[0]));
+        }
+
+        private Node repeat() {
+            Node node = atom();
+            while (i < regex.length()) {
+                char c = regex.charAt(i);
+                if (c == '*') {
+                    node = new Node(Node.STAR, node);
+                } else if (c == '+') {
+                    node = new Node(Node.PLUS, node);
+                } else if (c == '?') {
+                    node = new Node(Node.OPTIONAL, node);
+                } else if (c == '{') {
+                    node = bounds(node);
+                    continue;
+                } else {
+                    break;
+                }
+                i++;
+            }
+            return node;
+        }
+
+        /**
+         * Expand {@code {n}}, {@code {n,}} or {@code {n,m}} into copies of the node.
+         */
+        private Node bounds(Node node) {
+            i++;
+            int min = number();
+            int max = min;
+            if (i < regex.length() && regex.charAt(i) == ',') {
+                i++;
+                max = i < regex.length() && regex.charAt(i) == '}' ? -1 : number();
+            }
+            if (i >= regex.length() || regex.charAt(i) != '}') {
+                throw error("'}' expected");
+            }
+            i++;
+            if (max >= 0 && max < min) {
+                throw error("Illegal bounds");
+            }
+            List<Node> nodes = new ArrayList<>();
+            for (int k = 0; k < min; k++) {
+                nodes.add(node);
+            }
+            if (max < 0) {
+                nodes.add(new Node(Node.STAR, node));
+            } else {
+                for (int k = min; k < max; k++) {
+                    nodes.add(new Node(Node.OPTIONAL, node));
+                }
+            }
+            return new Node(Node.CONCAT, nodes.toArray(new Node[0]));
+        }
+
+        private int number() {
+            int begin = i;
+            while (i < regex.length() && TokenUtil.isDigit(regex.charAt(i))) {
+                i++;
+            }
+            if (begin == i) {
+                throw error("Number expected");
+            }
+            return Integer.parseInt(regex.substring(begin, i));
+        }
+
+        private Node atom() {
+            char c = regex.charAt(i++);
+            switch (c) {
+                case '(':
+                    Node node = alternate();
+                    if (i >= regex.length() || regex.charAt(i) != ')') {
+                        throw error("')' expected");
+                    }
+                    i++;
+                    return node;
+                case '[':
+                    return new Node(characterClass());
+                case '.':
+                    BitSet any = new BitSet();
+                    any.set(0, CHARS);
+                    any.clear(TokenUtil.CHAR_LINE_FEED);
+                    return new Node(any);
+                case '\\':
+                    return new Node(escape());
+                case ')':
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    i--;
+                    throw error("Unexpected '" + c + "'");
+                default:
+                    BitSet set = new BitSet();
+                    set.set(c);
+                    return new Node(set);
+            }
+        }
+
+        private BitSet characterClass() {
+            BitSet set = new BitSet();
+            boolean negated = i < regex.length() && regex.charAt(i) == '^';
+            if (negated) {
+                i++;
+            }
+            while (i < regex.length() && regex.charAt(i) != ']') {
+                char c = regex.charAt(i++);
+                if (c == '\\') {
+                    BitSet escaped = escape();
+                    if (escaped.cardinality() != 1) {
+                        set.or(escaped);
+                        continue;
+                    }
+                    c = (char) escaped.nextSetBit(0);
+                }
+                if (i + 1 < regex.length() && regex.charAt(i) == '-' && regex.charAt(i + 1) != ']') {
+                    i++;
+                    char last = regex.charAt(i++);
+                    if (last == '\\') {
+                        BitSet escaped = escape();
+                        if (escaped.cardinality() != 1) {
+                            throw error("Illegal range");
+                        }
+                        last = (char) escaped.nextSetBit(0);
+                    }
+                    if (last < c) {
+                        throw error("Illegal range");
+                    }
+                    set.set(c, last + 1);
+                } else {
+                    set.set(c);
+                }
+            }
+            if (i >= regex.length()) {
+                throw error("']' expected");
+            }
+            i++;
+            if (negated) {
+                set.flip(0, CHARS);
+            }
+            return set;
+        }
+
+        private BitSet escape() {
+            if (i >= regex.length()) {
+                throw error("Escape expected");
+            }
+            char c = regex.charAt(i++);
+            BitSet set = new BitSet();
+            switch (c) {
+                case 't':
+                    set.set('\t');
+                    break;
+                case 'n':
+                    set.set('\n');
+                    break;
+                case 'v':
+                    set.set('\u000b');
+                    break;
+                case 'f':
+                    set.set('\f');
+                    break;
+                case 'r':
+                    set.set('\r');
+                    break;
+                case 'd':
+                    set.set('0', '9' + 1);
+                    break;
+                case 'w':
+                    set.set('0', '9' + 1);
+                    set.set('A', 'Z' + 1);
+                    set.set('a', 'z' + 1);
+                    set.set('_');
+                    break;
+                case 's':
+                    for (int k = 0; k < SPACES.length(); k++) {
+                        set.set(SPACES.charAt(k));
+                    }
+                    break;
+                case 'u':
+                    if (i + 4 > regex.length()) {
+                        throw error("Four hexadecimal digits expected");
+                    }
+                    try {
+                        set.set(Integer.parseInt(regex.substring(i, i + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Four hexadecimal digits expected");
+                    }
+                    i += 4;
+                    break;
+                default:
+                    if (isAlphanumeric(c)) {
+                        i--;
+                        throw error("Unknown escape '\\" + c + "'");
+                    }
+                    set.set(c);
+                    break;
+            }
+            return set;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(String.format("%s at %d of regex: %s", message, i, regex));
+        }
+
+    }
+
+    /**
+     * An NFA on the classes of characters, where each state has epsilon transitions
+     * and at most one transition on a set of classes.
+     */
+    private static final class Nfa {
+
+        private final int[] classOf;
+        private final int classCount;
+        final List<List<Integer>> epsilons = new ArrayList<>();
+        final List<boolean[]> edges = new ArrayList<>();
+        final List<Integer> targets = new ArrayList<>();
+        final List<Integer> accepts = new ArrayList<>();
+
+        Nfa(int[] classOf, int classCount) {
+            this.classOf = classOf;
+            this.classCount = classCount;
+        }
+
+        int newState() {
+            epsilons.add(new ArrayList<>());
+            edges.add(null);
+            targets.add(-1);
+            accepts.add(-1);
+            return epsilons.size() - 1;
+        }
+
+        void epsilon(int from, int to) {
+            epsilons.get(from).add(to);
+        }
+
+        /**
+         * Build the fragment of a node.
+         *
+         * @param node The node.
+         * @return The start and end states of the fragment, where the end state has no transitions yet.
+         */
+        int[] build(Node node) {
+            int start = newState();
+            int end;
+            switch (node.kind) {
+                case Node.SET:
+                    end = newState();
+                    boolean[] edge = new boolean[classCount];
+                    for (int c = node.set.nextSetBit(0); c >= 0; c = node.set.nextSetBit(c + 1)) {
+                        edge[classOf[c]] = true;
+                    }
+                    edges.set(start, edge);
+                    targets.set(start, end);
+                    break;
+                case Node.CONCAT:
+                    end = start;
+                    for (Node child : node.children) {
+                        int[] fragment = build(child);
+                        epsilon(end, fragment[0]);
+                        end = fragment[1];
+                    }
+                    break;
+                case Node.ALTERNATE:
+                    end = newState();
+                    for (Node child : node.children) {
+                        int[] fragment = build(child);
+                        epsilon(start, fragment[0]);
+                        epsilon(fragment[1], end);
+                    }
+                    break;
+                default:
+                    end = newState();
+                    int[] fragment = build(node.children[0]);
+                    epsilon(start, fragment[0]);
+                    epsilon(fragment[1], end);
+                    if (node.kind != Node.PLUS) {
+                        epsilon(start, end);
+                    }
+                    if (node.kind != Node.OPTIONAL) {
+                        epsilon(fragment[1], fragment[0]);
+                    }
+                    break;
+            }
+            return new int[]{start, end};
+        }
+
+        /**
+         * Get the states reachable from a set of states by epsilon transitions, including themselves.
+         *
+         * @param states The set of states.
+         * @return The closure.
+         */
+        BitSet closure(BitSet states) {
+            BitSet closure = (BitSet) states.clone();
+            Deque<Integer> stack = new ArrayDeque<>();
+            for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+                stack.push(s);
+            }
+            while (!stack.isEmpty()) {
+                for (int t : epsilons.get(stack.pop())) {
+                    if (!closure.get(t)) {
+                        closure.set(t);
+                        stack.push(t);
+                    }
+                }
+            }
+            return closure;
+        }
+
+    }
+
+}
@@ -2,10 +2,7 @@ package cn.edu.bjtu.lexer.impl;
 
 import cn.edu.bjtu.lexer.TokenType;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.Arrays;
 
 /**
  * The {@code TokenUtil} class defines the constant values of characters, available tokens,
@@ -45,88 +42,59 @@ public class TokenUtil {
      * Available keywords for the lexical scanner.
      * The token types of all the keywords are {@link TokenTypeImpl#KEYWORD}.
      *
-     * @see TokenUtil#isKeyword(String)
-     * @see TokenUtil#getKeywordTokenType(String)
+     * @see TokenUtil#isKeyword(CharSequence)
+     * @see TokenUtil#getKeywordTokenType(CharSequence)
      */
-    private static final Map<String, TokenType> KEYWORDS = new HashMap<String, TokenType>() {{
-        put("void", TokenTypeImpl.KEYWORD);
-        put("char", TokenTypeImpl.KEYWORD);
-        put("int", TokenTypeImpl.KEYWORD);
-        put("float", TokenTypeImpl.KEYWORD);
-        put("double", TokenTypeImpl.KEYWORD);
-        put("short", TokenTypeImpl.KEYWORD);
-        put("long", TokenTypeImpl.KEYWORD);
-        put("signed", TokenTypeImpl.KEYWORD);
-        put("unsigned", TokenTypeImpl.KEYWORD);
-        put("struct", TokenTypeImpl.KEYWORD);
-        put("union", TokenTypeImpl.KEYWORD);
-        put("enum", TokenTypeImpl.KEYWORD);
-        put("typedef", TokenTypeImpl.KEYWORD);
-        put("sizeof", TokenTypeImpl.KEYWORD);
-        put("auto", TokenTypeImpl.KEYWORD);
-        put("static", TokenTypeImpl.KEYWORD);
-        put("register", TokenTypeImpl.KEYWORD);
-        put("extern", TokenTypeImpl.KEYWORD);
-        put("const", TokenTypeImpl.KEYWORD);
-        put("volatile", TokenTypeImpl.KEYWORD);
-        put("return", TokenTypeImpl.KEYWORD);
-        put("continue", TokenTypeImpl.KEYWORD);
-        put("break", TokenTypeImpl.KEYWORD);
-        put("goto", TokenTypeImpl.KEYWORD);
-        put("if", TokenTypeImpl.KEYWORD);
-        put("else", TokenTypeImpl.KEYWORD);
-        put("switch", TokenTypeImpl.KEYWORD);
-        put("case", TokenTypeImpl.KEYWORD);
-        put("default", TokenTypeImpl.KEYWORD);
-        put("for", TokenTypeImpl.KEYWORD);
-        put("do", TokenTypeImpl.KEYWORD);
-        put("while", TokenTypeImpl.KEYWORD);
-    }};
+    private static final String[] KEYWORDS = {
+        "void", "char", "int", "float", "double", "short", "long", "signed", "unsigned", "struct",
+        "union", "enum", "typedef", "sizeof", "auto", "static", "register", "extern", "const",
+        "volatile", "return", "continue", "break", "goto", "if", "else", "switch", "case",
+        "default", "for", "do", "while"
+    };
+
+    /**
+     * Keywords in {@code char[]} bucketed by their lengths,
+     * i.e., {@code KEYWORD_BUCKETS[n]} contains all the keywords of length {@code n}.
+     */
+    private static final char[][][] KEYWORD_BUCKETS;
 
     /**
      * Available operators for the lexical scanner.
      * The token types of all the operators are {@link TokenTypeImpl#OPERATOR}.
      *
-     * @see TokenUtil#isOperator(String)
+     * @see TokenUtil#isOperator(CharSequence)
+     */
+    private static final String[] OPERATORS = {
+        "+", "-", "*", "/", "%", "+=", "-=", "*=", "/=", "%=", "&", "|", "^", "&^", "<<", ">>", "~",
+        "&=", "|=", "^=", "&^=", "<<=", ">>=", "&&", "||", "++", "--", "==", "!", ">", "<", "=",
+        "!=", ">=", "<=", "->"
+    };
+
+    /**
+     * State of the operator trie before any character is consumed.
+     *
+     * @see TokenUtil#nextOperatorState(int, int)
+     */
+    public static final int OPERATOR_STATE_START = 0;
+
+    /**
+     * State of the operator trie when no operator can be matched.
+     *
+     * @see TokenUtil#nextOperatorState(int, int)
      */
-    private static final Map<String, TokenType> OPERATORS = new HashMap<String, TokenType>() {{
-        put("+", TokenTypeImpl.OPERATOR);
-        put("-", TokenTypeImpl.OPERATOR);
-        put("*", TokenTypeImpl.OPERATOR);
-        put("/", TokenTypeImpl.OPERATOR);
-        put("%", TokenTypeImpl.OPERATOR);
-        put("+=", TokenTypeImpl.OPERATOR);
-        put("-=", TokenTypeImpl.OPERATOR);
-        put("*=", TokenTypeImpl.OPERATOR);
-        put("/=", TokenTypeImpl.OPERATOR);
-        put("%=", TokenTypeImpl.OPERATOR);
-        put("&", TokenTypeImpl.OPERATOR);
-        put("|", TokenTypeImpl.OPERATOR);
-        put("^", TokenTypeImpl.OPERATOR);
-        put("&^", TokenTypeImpl.OPERATOR);
-        put("<<", TokenTypeImpl.OPERATOR);
-        put(">>", TokenTypeImpl.OPERATOR);
-        put("~", TokenTypeImpl.OPERATOR);
-        put("&=", TokenTypeImpl.OPERATOR);
-        put("|=", TokenTypeImpl.OPERATOR);
-        put("^=", TokenTypeImpl.OPERATOR);
-        put("&^=", TokenTypeImpl.OPERATOR);
-        put("<<=", TokenTypeImpl.OPERATOR);
-        put(">>=", TokenTypeImpl.OPERATOR);
-        put("&&", TokenTypeImpl.OPERATOR);
-        put("||", TokenTypeImpl.OPERATOR);
-        put("++", TokenTypeImpl.OPERATOR);
-        put("--", TokenTypeImpl.OPERATOR);
-        put("==", TokenTypeImpl.OPERATOR);
-        put("!", TokenTypeImpl.OPERATOR);
-        put(">", TokenTypeImpl.OPERATOR);
-        put("<", TokenTypeImpl.OPERATOR);
-        put("=", TokenTypeImpl.OPERATOR);
-        put("!=", TokenTypeImpl.OPERATOR);
-        put(">=", TokenTypeImpl.OPERATOR);
-        put("<=", TokenTypeImpl.OPERATOR);
-        put("->", TokenTypeImpl.OPERATOR);
-    }};
+    public static final int OPERATOR_STATE_NONE = -1;
+
+    /**
+     * Transitions of the operator trie built from {@link TokenUtil#OPERATORS}:
+     * {@code OPERATOR_TRIE[state][c]} is the next state after consuming the ASCII character {@code c},
+     * or {@link TokenUtil#OPERATOR_STATE_NONE}.
+     */
+    private static final int[][] OPERATOR_TRIE;
+
+    /**
+     * {@code OPERATOR_ACCEPTS[state]} is {@code true} when the characters consumed to the state form an operator.
+     */
+    private static final boolean[] OPERATOR_ACCEPTS;
 
     /**
      * Available delimiters for lexical scanner.
@@ -134,30 +102,31 @@ public class TokenUtil {
      *
      * @see TokenUtil#isDelimiter(int)
      */
-    private static final Map<Integer, TokenType> DELIMITERS = new HashMap<Integer, TokenType>() {{
-        put((int) ',', TokenTypeImpl.DELIMITER);
-        put((int) '.', TokenTypeImpl.DELIMITER);
-        put((int) ';', TokenTypeImpl.DELIMITER);
-        put((int) ':', TokenTypeImpl.DELIMITER);
-        put((int) '?', TokenTypeImpl.DELIMITER);
-        put((int) '(', TokenTypeImpl.DELIMITER);
-        put((int) '[', TokenTypeImpl.DELIMITER);
-        put((int) '{', TokenTypeImpl.DELIMITER);
-        put((int) ')', TokenTypeImpl.DELIMITER);
-        put((int) ']', TokenTypeImpl.DELIMITER);
-        put((int) '}', TokenTypeImpl.DELIMITER);
-    }};
+    private static final String DELIMITERS = ",.;:?([{)]}";
+
+    // Classes of characters, see TokenUtil#getCharClass(int)
 
+    public static final int CLASS_EOF = 0;
+    public static final int CLASS_OTHER = 1;
+    public static final int CLASS_SPACE = 2;
+    public static final int CLASS_SLASH = 3;
+    public static final int CLASS_SHARP = 4;
+    public static final int CLASS_SINGLE_QUOTE = 5;
+    public static final int CLASS_DOUBLE_QUOTE = 6;
+    public static final int CLASS_DIGIT = 7;
+    public static final int CLASS_LETTER = 8;
+    public static final int CLASS_UNDERLINE = 9;
+    public static final int CLASS_DELIMITER = 10;
     /**
-     * Available operator prefixes according to {@link TokenUtil#OPERATORS}.
-     *
-     * @see TokenUtil#isOperatorPrefix(int)
+     * Operator prefixes except the slash, which is {@link TokenUtil#CLASS_SLASH}.
      */
-    private static final Set<Integer> OPERATOR_PREFIXES = new HashSet<Integer>() {{
-        for (String key : OPERATORS.keySet()) {
-            add((int) key.charAt(0));
-        }
-    }};
+    public static final int CLASS_OPERATOR_PREFIX = 11;
+
+    /**
+     * Classes of EOF and ASCII characters, where {@code CHAR_CLASSES[c + 1]} is the class of the character {@code c}.
+     * Non-ASCII characters are all {@link TokenUtil#CLASS_OTHER}.
+     */
+    private static final byte[] CHAR_CLASSES = new byte[129];
 
     // Characters in integer for ranging the letters and digits
 
@@ -168,15 +137,113 @@ public class TokenUtil {
     private static final int CHAR_DIGIT_BEGIN = '0';
     private static final int CHAR_DIGIT_END = '9';
 
-    // Regular expression patterns for different number types
+    // States of the number classifier, see TokenUtil#getNumberTokenType(CharSequence)
+
+    private static final int NUMBER_STATE_DEAD = 0;
+    private static final int NUMBER_STATE_START = 1;
+    private static final int NUMBER_STATE_ZERO = 2;
+    private static final int NUMBER_STATE_DECIMAL = 3;
+    private static final int NUMBER_STATE_OCTAL = 4;
+    private static final int NUMBER_STATE_DIGITS = 5;
+    private static final int NUMBER_STATE_PERIOD = 6;
+    private static final int NUMBER_STATE_FRACTION = 7;
+    private static final int NUMBER_STATE_FLOAT_SUFFIX = 8;
+    private static final int NUMBER_STATE_LONG = 9;
+    private static final int NUMBER_STATE_LONG_LONG = 10;
+    private static final int NUMBER_STATE_UNSIGNED = 11;
+    private static final int NUMBER_STATE_HEXADECIMAL_PREFIX = 12;
+    private static final int NUMBER_STATE_HEXADECIMAL = 13;
+
+    static {
+        int maxLength = 0;
+        for (String keyword : KEYWORDS) {
+            maxLength = Math.max(maxLength, keyword.length());
+        }
+        int[] counts = new int[maxLength + 1];
+        for (String keyword : KEYWORDS) {
+            counts[keyword.length()]++;
+        }
+        KEYWORD_BUCKETS = new char[maxLength + 1][][];
+        for (int i = 0; i <= maxLength; i++) {
+            KEYWORD_BUCKETS[i] = new char[counts[i]][];
+        }
+        for (String keyword : KEYWORDS) {
+            int length = keyword.length();
+            KEYWORD_BUCKETS[length][--counts[length]] = keyword.toCharArray();
+        }
+
+        int states = 1;
+        for (String operator : OPERATORS) {
+            states += operator.length();
+        }
+        int[][] trie = new int[states][];
+        boolean[] accepts = new boolean[states];
+        trie[OPERATOR_STATE_START] = newOperatorStates();
+        int size = 1;
+        for (String operator : OPERATORS) {
+            int state = OPERATOR_STATE_START;
+            for (int i = 0; i < operator.length(); i++) {
+                char c = operator.charAt(i);
+                if (trie[state][c] == OPERATOR_STATE_NONE) {
+                    trie[size] = newOperatorStates();
+                    trie[state][c] = size++;
+                }
+                state = trie[state][c];
+            }
+            accepts[state] = true;
+        }
+        OPERATOR_TRIE = Arrays.copyOf(trie, size);
+        OPERATOR_ACCEPTS = Arrays.copyOf(accepts, size);
+
+        Arrays.fill(CHAR_CLASSES, (byte) CLASS_OTHER);
+        CHAR_CLASSES[CHAR_EOF + 1] = CLASS_EOF;
+        for (int c : new int[]{CHAR_HORIZONTAL_TAB, CHAR_LINE_FEED, CHAR_VERTICAL_TAB, CHAR_FEED, CHAR_CARRIAGE_RETURN, CHAR_SPACE}) {
+            CHAR_CLASSES[c + 1] = CLASS_SPACE;
+        }
+        for (int c = CHAR_DIGIT_BEGIN; c <= CHAR_DIGIT_END; c++) {
+            CHAR_CLASSES[c + 1] = CLASS_DIGIT;
+        }
+        for (int c = CHAR_LETTER_LOWERCASE_BEGIN; c <= CHAR_LETTER_LOWERCASE_END; c++) {
+            CHAR_CLASSES[c + 1] = CLASS_LETTER;
+        }
+        for (int c = CHAR_LETTER_UPPERCASE_BEGIN; c <= CHAR_LETTER_UPPERCASE_END; c++) {
+            CHAR_CLASSES[c + 1] = CLASS_LETTER;
+        }
+        for (int i = 0; i < DELIMITERS.length(); i++) {
+            CHAR_CLASSES[DELIMITERS.charAt(i) + 1] = CLASS_DELIMITER;
+        }
+        for (String operator : OPERATORS) {
+            CHAR_CLASSES[operator.charAt(0) + 1] = CLASS_OPERATOR_PREFIX;
+        }
+        CHAR_CLASSES[CHAR_UNDERLINE + 1] = CLASS_UNDERLINE;
+        CHAR_CLASSES[CHAR_SLASH + 1] = CLASS_SLASH;
+        CHAR_CLASSES[CHAR_SHARP + 1] = CLASS_SHARP;
+        CHAR_CLASSES[CHAR_SINGLE_QUOTE + 1] = CLASS_SINGLE_QUOTE;
+        CHAR_CLASSES[CHAR_DOUBLE_QUOTE + 1] = CLASS_DOUBLE_QUOTE;
+    }
+
+    /**
+     * Create the transitions of a new state of the operator trie, which are initially all
+     * {@link TokenUtil#OPERATOR_STATE_NONE}.
+     *
+     * @return Transitions of the state indexed by ASCII characters.
+     */
+    private static int[] newOperatorStates() {
+        int[] transitions = new int[128];
+        Arrays.fill(transitions, OPERATOR_STATE_NONE);
+        return transitions;
+    }
 
-    private static final String PATTERN_NUMBER_INTEGER = "^0|[1-9][0-9]*$";
-    private static final String PATTERN_NUMBER_FLOAT = "(?i)(^[0-9]*\\.[0-9]+f?$)|(^0|[1-9][0-9]*f$)";
-    private static final String PATTERN_NUMBER_LONG = "(?i)(^0l$)|(^[1-9][0-9]*l$)";
-    private static final String PATTERN_NUMBER_LONG_LONG = "(?i)(^0ll$)|(^[1-9][0-9]*ll$)";
-    private static final String PATTERN_NUMBER_UNSIGNED = "(?i)(^0u|[1-9][0-9]*u$)";
-    private static final String PATTERN_NUMBER_OCTAL = "^0[1-7][0-7]*$";
-    private static final String PATTERN_NUMBER_HEXADECIMAL = "(?i)^0x[1-9a-f][0-9a-f]*$";
+    /**
+     * Get the class of the character by looking up the precomputed table,
+     * so that a character can be classified by one array load.
+     *
+     * @param c Character in {@code int} to be classified, which may be EOF.
+     * @return One of the {@code CLASS_*} constants.
+     */
+    public static int getCharClass(int c) {
+        return CHAR_EOF <= c && c < CHAR_CLASSES.length - 1 ? CHAR_CLASSES[c + 1] : CLASS_OTHER;
+    }
 
     /**
      * Check if the character is a white-space.
@@ -195,12 +262,7 @@ public class TokenUtil {
      * @return {@code true} when the character is a white space.
      */
     public static boolean isSpace(int c) {
-        return c == CHAR_HORIZONTAL_TAB
-            || c == CHAR_LINE_FEED
-            || c == CHAR_VERTICAL_TAB
-            || c == CHAR_FEED
-            || c == CHAR_CARRIAGE_RETURN
-            || c == CHAR_SPACE;
+        return getCharClass(c) == CLASS_SPACE;
     }
 
     /**
@@ -210,7 +272,7 @@ public class TokenUtil {
      * @return {@code true} when the character is a digit.
      */
     public static boolean isDigit(int c) {
-        return CHAR_DIGIT_BEGIN <= c && c <= CHAR_DIGIT_END;
+        return getCharClass(c) == CLASS_DIGIT;
     }
 
     /**
@@ -220,18 +282,31 @@ public class TokenUtil {
      * @return {@code true} when the character is a letter.
      */
     public static boolean isLetter(int c) {
-        return (CHAR_LETTER_LOWERCASE_BEGIN <= c && c <= CHAR_LETTER_LOWERCASE_END)
-            || (CHAR_LETTER_UPPERCASE_BEGIN <= c && c <= CHAR_LETTER_UPPERCASE_END);
+        return getCharClass(c) == CLASS_LETTER;
     }
 
     /**
-     * Check if the character is a keyword.
+     * Check if the string is a keyword.
+     * The characters are compared with the keywords of the same length directly, so no string is created.
      *
      * @param s String to be tested.
      * @return {@code true} when the string is a keyword.
      */
-    public static boolean isKeyword(String s) {
-        return KEYWORDS.containsKey(s);
+    public static boolean isKeyword(CharSequence s) {
+        int length = s.length();
+        if (length >= KEYWORD_BUCKETS.length) {
+            return false;
+        }
+        for (char[] keyword : KEYWORD_BUCKETS[length]) {
+            int i = 0;
+            while (i < length && keyword[i] == s.charAt(i)) {
+                i++;
+            }
+            if (i == length) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -241,17 +316,47 @@ public class TokenUtil {
      * @return {@code true} when the character is a prefix of operators.
      */
     public static boolean isOperatorPrefix(int c) {
-        return OPERATOR_PREFIXES.contains(c);
+        int charClass = getCharClass(c);
+        return charClass == CLASS_OPERATOR_PREFIX || charClass == CLASS_SLASH;
     }
 
     /**
-     * Check if the string is an operator.
+     * Check if the string is an operator by walking the operator trie.
      *
      * @param s String to be tested.
      * @return {@code true} when the string is an operator.
      */
-    public static boolean isOperator(String s) {
-        return OPERATORS.containsKey(s);
+    public static boolean isOperator(CharSequence s) {
+        int state = OPERATOR_STATE_START;
+        for (int i = 0; i < s.length() && state != OPERATOR_STATE_NONE; i++) {
+            state = nextOperatorState(state, s.charAt(i));
+        }
+        return isOperatorState(state);
+    }
+
+    /**
+     * Walk the operator trie by a character, so that operators can be matched character by character
+     * in the maximal munch way without creating strings.
+     *
+     * @param state Current state, which is {@link TokenUtil#OPERATOR_STATE_START} at the beginning.
+     * @param c     Character in {@code int} to be consumed.
+     * @return The next state, or {@link TokenUtil#OPERATOR_STATE_NONE} if no operator can be matched.
+     */
+    public static int nextOperatorState(int state, int c) {
+        if (state == OPERATOR_STATE_NONE || c < 0 || c >= OPERATOR_TRIE[state].length) {
+            return OPERATOR_STATE_NONE;
+        }
+        return OPERATOR_TRIE[state][c];
+    }
+
+    /**
+     * Check if the characters consumed to the state of the operator trie form an operator.
+     *
+     * @param state State of the operator trie.
+     * @return {@code true} when the state accepts an operator.
+     */
+    public static boolean isOperatorState(int state) {
+        return state != OPERATOR_STATE_NONE && OPERATOR_ACCEPTS[state];
     }
 
     /**
@@ -261,7 +366,34 @@ public class TokenUtil {
      * @return {@code true} when the character is a delimiter.
      */
     public static boolean isDelimiter(int c) {
-        return DELIMITERS.containsKey(c);
+        return getCharClass(c) == CLASS_DELIMITER;
+    }
+
+    /**
+     * Get the keywords, e.g., to be listed in a {@link TokenSpec} object.
+     *
+     * @return A copy of {@link TokenUtil#KEYWORDS}.
+     */
+    static String[] getKeywords() {
+        return KEYWORDS.clone();
+    }
+
+    /**
+     * Get the operators, e.g., to be listed in a {@link TokenSpec} object.
+     *
+     * @return A copy of {@link TokenUtil#OPERATORS}.
+     */
+    static String[] getOperators() {
+        return OPERATORS.clone();
+    }
+
+    /**
+     * Get the delimiters, e.g., to be listed in a {@link TokenSpec} object.
+     *
+     * @return The characters of {@link TokenUtil#DELIMITERS}.
+     */
+    static String getDelimiters() {
+        return DELIMITERS;
     }
 
     /**
@@ -269,13 +401,13 @@ public class TokenUtil {
      *
      * @param token String to get the token type.
      * @return The corresponding token type.
-     * If the string is a key of {@link TokenUtil#KEYWORDS}, get by the {@code get()} method.
+     * If the string is one of {@link TokenUtil#KEYWORDS}, its type is {@link TokenTypeImpl#KEYWORD}.
      * Else if, the token length is not longer than 32, its type is {@link TokenTypeImpl#IDENTIFIER}.
      * Otherwise, the token is {@link TokenTypeImpl#ILLEGAL}.
      */
-    public static TokenType getKeywordTokenType(String token) {
+    public static TokenType getKeywordTokenType(CharSequence token) {
         if (isKeyword(token)) {
-            return KEYWORDS.get(token);
+            return TokenTypeImpl.KEYWORD;
         } else if (token.length() <= 32) {
             return TokenTypeImpl.IDENTIFIER;
         } else {
@@ -288,12 +420,12 @@ public class TokenUtil {
      *
      * @param token Operator in string to get the token type.
      * @return The corresponding token type.
-     * If the string is a key of {@link TokenUtil#OPERATORS}, get by the {@code get()} method.
+     * If the string is one of {@link TokenUtil#OPERATORS}, its type is {@link TokenTypeImpl#OPERATOR}.
      * Otherwise, the token type is {@link TokenTypeImpl#ILLEGAL}.
      */
-    public static TokenType getOperatorTokenType(String token) {
+    public static TokenType getOperatorTokenType(CharSequence token) {
         if (isOperator(token)) {
-            return OPERATORS.get(token);
+            return TokenTypeImpl.OPERATOR;
         } else {
             return TokenTypeImpl.ILLEGAL;
         }
@@ -301,27 +433,131 @@ public class TokenUtil {
 
     /**
      * Get the token type of number in string.
+     * <p>
+     * The number is classified in a single pass by a deterministic finite automaton,
+     * whose accepted languages are (letters are case-insensitive):
+     * <ul>
+     *     <li>{@link TokenTypeImpl#NUMBER_INTEGER}: {@code 0|[1-9][0-9]*}</li>
+     *     <li>{@link TokenTypeImpl#NUMBER_FLOAT}: {@code [0-9]*\.[0-9]+f?|[1-9][0-9]*f}</li>
+     *     <li>{@link TokenTypeImpl#NUMBER_LONG}: {@code (0|[1-9][0-9]*)l}</li>
+     *     <li>{@link TokenTypeImpl#NUMBER_LONG_LONG}: {@code (0|[1-9][0-9]*)ll}</li>
+     *     <li>{@link TokenTypeImpl#NUMBER_UNSIGNED}: {@code (0|[1-9][0-9]*)u}</li>
+     *     <li>{@link TokenTypeImpl#NUMBER_OCTAL}: {@code 0[1-7][0-7]*}</li>
+     *     <li>{@link TokenTypeImpl#NUMBER_HEXADECIMAL}: {@code 0x[1-9a-f][0-9a-f]*}</li>
+     * </ul>
      *
      * @param token Number in string to get the token type.
-     * @return The corresponding token type of the number in string according to the regular expression patterns.
+     * @return The corresponding token type of the number in string,
+     * or {@link TokenTypeImpl#ILLEGAL} if it is not accepted by the automaton.
      */
-    public static TokenType getNumberTokenType(String token) {
-        if (token.matches(PATTERN_NUMBER_INTEGER)) {
-            return TokenTypeImpl.NUMBER_INTEGER;
-        } else if (token.matches(PATTERN_NUMBER_FLOAT)) {
-            return TokenTypeImpl.NUMBER_FLOAT;
-        } else if (token.matches(PATTERN_NUMBER_LONG)) {
-            return TokenTypeImpl.NUMBER_LONG;
-        } else if (token.matches(PATTERN_NUMBER_LONG_LONG)) {
-            return TokenTypeImpl.NUMBER_LONG_LONG;
-        } else if (token.matches(PATTERN_NUMBER_UNSIGNED)) {
-            return TokenTypeImpl.NUMBER_UNSIGNED;
-        } else if (token.matches(PATTERN_NUMBER_OCTAL)) {
-            return TokenTypeImpl.NUMBER_OCTAL;
-        } else if (token.matches(PATTERN_NUMBER_HEXADECIMAL)) {
-            return TokenTypeImpl.NUMBER_HEXADECIMAL;
-        } else {
-            return TokenTypeImpl.ILLEGAL;
+    public static TokenType getNumberTokenType(CharSequence token) {
+        int state = NUMBER_STATE_START;
+        for (int i = 0; i < token.length() && state != NUMBER_STATE_DEAD; i++) {
+            state = nextNumberState(state, token.charAt(i));
+        }
+        switch (state) {
+            case NUMBER_STATE_ZERO:
+            case NUMBER_STATE_DECIMAL:
+                return TokenTypeImpl.NUMBER_INTEGER;
+            case NUMBER_STATE_FRACTION:
+            case NUMBER_STATE_FLOAT_SUFFIX:
+                return TokenTypeImpl.NUMBER_FLOAT;
+            case NUMBER_STATE_LONG:
+                return TokenTypeImpl.NUMBER_LONG;
+            case NUMBER_STATE_LONG_LONG:
+                return TokenTypeImpl.NUMBER_LONG_LONG;
+            case NUMBER_STATE_UNSIGNED:
+                return TokenTypeImpl.NUMBER_UNSIGNED;
+            case NUMBER_STATE_OCTAL:
+                return TokenTypeImpl.NUMBER_OCTAL;
+            case NUMBER_STATE_HEXADECIMAL:
+                return TokenTypeImpl.NUMBER_HEXADECIMAL;
+            default:
+                return TokenTypeImpl.ILLEGAL;
+        }
+    }
+
+    /**
+     * The transition function of the number classifier.
+     *
+     * @param state Current state.
+     * @param c     Character in {@code int} to be consumed.
+     * @return The next state, which is {@code NUMBER_STATE_DEAD} when no number can be accepted any more.
+     * @see TokenUtil#getNumberTokenType(CharSequence)
+     */
+    private static int nextNumberState(int state, int c) {
+        int lower = c | 0x20;
+        switch (state) {
+            case NUMBER_STATE_START:
+                if (c == '0') {
+                    return NUMBER_STATE_ZERO;
+                } else if (isDigit(c)) {
+                    return NUMBER_STATE_DECIMAL;
+                } else if (c == CHAR_PERIOD) {
+                    return NUMBER_STATE_PERIOD;
+                }
+                return NUMBER_STATE_DEAD;
+            case NUMBER_STATE_ZERO:
+                if ('1' <= c && c <= '7') {
+                    return NUMBER_STATE_OCTAL;
+                } else if (isDigit(c)) {
+                    return NUMBER_STATE_DIGITS;
+                } else if (c == CHAR_PERIOD) {
+                    return NUMBER_STATE_PERIOD;
+                } else if (lower == 'l') {
+                    return NUMBER_STATE_LONG;
+                } else if (lower == 'u') {
+                    return NUMBER_STATE_UNSIGNED;
+                } else if (lower == 'x') {
+                    return NUMBER_STATE_HEXADECIMAL_PREFIX;
+                }
+                return NUMBER_STATE_DEAD;
+            case NUMBER_STATE_DECIMAL:
+                if (isDigit(c)) {
+                    return NUMBER_STATE_DECIMAL;
+                } else if (c == CHAR_PERIOD) {
+                    return NUMBER_STATE_PERIOD;
+                } else if (lower == 'f') {
+                    return NUMBER_STATE_FLOAT_SUFFIX;
+                } else if (lower == 'l') {
+                    return NUMBER_STATE_LONG;
+                } else if (lower == 'u') {
+                    return NUMBER_STATE_UNSIGNED;
+                }
+                return NUMBER_STATE_DEAD;
+            case NUMBER_STATE_OCTAL:
+                if ('0' <= c && c <= '7') {
+                    return NUMBER_STATE_OCTAL;
+                } else if (isDigit(c)) {
+                    return NUMBER_STATE_DIGITS;
+                } else if (c == CHAR_PERIOD) {
+                    return NUMBER_STATE_PERIOD;
+                }
+                return NUMBER_STATE_DEAD;
+            case NUMBER_STATE_DIGITS:
+                if (isDigit(c)) {
+                    return NUMBER_STATE_DIGITS;
+                } else if (c == CHAR_PERIOD) {
+                    return NUMBER_STATE_PERIOD;
+                }
+                return NUMBER_STATE_DEAD;
+            case NUMBER_STATE_PERIOD:
+                return isDigit(c) ? NUMBER_STATE_FRACTION : NUMBER_STATE_DEAD;
+            case NUMBER_STATE_FRACTION:
+                if (isDigit(c)) {
+                    return NUMBER_STATE_FRACTION;
+                } else if (lower == 'f') {
+                    return NUMBER_STATE_FLOAT_SUFFIX;
+                }
+                return NUMBER_STATE_DEAD;
+            case NUMBER_STATE_LONG:
+                return lower == 'l' ? NUMBER_STATE_LONG_LONG : NUMBER_STATE_DEAD;
+            case NUMBER_STATE_HEXADECIMAL_PREFIX:
+                return ('1' <= c && c <= '9') || ('a' <= lower && lower <= 'f') ? NUMBER_STATE_HEXADECIMAL : NUMBER_STATE_DEAD;
+            case NUMBER_STATE_HEXADECIMAL:
+                return isDigit(c) || ('a' <= lower && lower <= 'f') ? NUMBER_STATE_HEXADECIMAL : NUMBER_STATE_DEAD;
+            default:
+                return NUMBER_STATE_DEAD;
         }
     }
 
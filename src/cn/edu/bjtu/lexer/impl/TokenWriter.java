@@ -0,0 +1,232 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.Position;
+import cn.edu.bjtu.lexer.TokenListener;
+import cn.edu.bjtu.lexer.TokenType;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A {@code TokenWriter} object writes the results of lexical scan row by row to an {@link Appendable} object,
+ * e.g., a {@link java.io.Writer}, in one of the formats of {@link ResultSetFactory}.
+ * <p>
+ * Only one row is held in memory at a time, so the memory used does not grow with the number of results.
+ * Since it is a {@link TokenListener}, it can write the results while scanning:
+ * <pre>
+ *     try (Writer out = new BufferedWriter(new FileWriter("result.html"))) {
+ *         TokenWriter writer = new TokenWriter(out, TokenWriter.Format.HTML);
+ *         writer.writeHeader();
+ *         lexer.scan(writer);
+ *         writer.writeFooter();
+ *     }
+ * </pre>
+ * Since {@link TokenListener#onToken(Position, Position, TokenType, String)} cannot throw
+ * {@code IOException}, the I/O errors when writing rows are rethrown as {@link UncheckedIOException}.
+ */
+public final class TokenWriter implements TokenListener {
+
+    private static final int FIRST_TAB = 8;
+    private static final int SECOND_TAB = FIRST_TAB + 12;
+    private static final int THIRD_TAB = SECOND_TAB + 12;
+    private static final int FOURTH_TAB = THIRD_TAB + 12;
+    private static final int FIFTH_TAB = FOURTH_TAB + 20;
+
+    private static final String STRING_HEADER = "NO      BEGIN       END         LENGTH      TOKEN_TYPE          TOKEN";
+
+    private static final String HTML_PREFIX = "<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n\t<meta charset=\"UTF-8\">\n\t<title>Lexical Scan Results</title>\n\t<style>*{margin:0;padding:0;}table{border-collapse:collapse;margin:2rem auto;text-align:center;}th,td{border: 1px solid black;padding:.5rem;}.code{font-family:monospace;font-size:1rem;}</style>\n</head>\n<body>\n\t<table>\n\t\t<tr><th>NO</th><th>BEGIN</th><th>END</th><th>LENGTH</th><th>TOKEN TYPE</th><th>TOKEN</th></tr>\n";
+    private static final String HTML_SUFFIX = "\t</table>\n</body>\n</html>";
+
+    private static final String MARKDOWN_HEADER = "| NO | BEGIN | END | LENGTH | TOKEN TYPE | TOKEN |";
+    private static final String MARKDOWN_ALIGN = "|:---:|:---:|:---:|:---:|:---:|:---:|";
+
+    /**
+     * Formats of the results.
+     */
+    public enum Format {
+
+        /**
+         * Plain text, see {@link ResultSetFactory#toString(cn.edu.bjtu.lexer.ResultSet)}.
+         */
+        STRING,
+
+        /**
+         * HTML, see {@link ResultSetFactory#toHtml(cn.edu.bjtu.lexer.ResultSet)}.
+         */
+        HTML,
+
+        /**
+         * Markdown, see {@link ResultSetFactory#toMarkdown(cn.edu.bjtu.lexer.ResultSet)}.
+         */
+        MARKDOWN
+
+    }
+
+    private final Appendable out;
+    private final Format format;
+    /**
+     * Reused for assembling a row.
+     */
+    private final StringBuilder row = new StringBuilder();
+    private int no = 1;
+
+    /**
+     * Constructs a new {@code TokenWriter} object.
+     *
+     * @param out    The {@code Appendable} object to write to, which is suggested to be buffered.
+     * @param format Format of the results.
+     */
+    public TokenWriter(Appendable out, Format format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    /**
+     * Constructs a new {@code TokenWriter} object writing to a channel in the default charset.
+     * The characters are encoded through a bounded buffer, which is flushed by {@link TokenWriter#writeFooter()},
+     * and those cannot be encoded are replaced as {@link java.io.FileWriter} does.
+     *
+     * @param channel The {@code WritableByteChannel} object to write to.
+     * @param format  Format of the results.
+     */
+    public TokenWriter(WritableByteChannel channel, Format format) {
+        this(Channels.newWriter(channel, Charset.defaultCharset().newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE), -1), format);
+    }
+
+    /**
+     * Write the header of the results, which should be called before any row is written.
+     *
+     * @throws IOException If an I/O error occurs when writing.
+     */
+    public void writeHeader() throws IOException {
+        switch (format) {
+            case HTML:
+                out.append(HTML_PREFIX);
+                break;
+            case MARKDOWN:
+                out.append(MARKDOWN_HEADER).append("\n").append(MARKDOWN_ALIGN);
+                break;
+            default:
+                out.append(STRING_HEADER);
+                break;
+        }
+    }
+
+    /**
+     * Write a row of the results.
+     *
+     * @param begin The beginning position of the token.
+     * @param end   The end position of the token.
+     * @param type  The type of the token.
+     * @param token The token in string.
+     * @throws IOException If an I/O error occurs when writing.
+     */
+    public void writeRow(Position begin, Position end, TokenType type, String token) throws IOException {
+        row.setLength(0);
+        switch (format) {
+            case HTML:
+                row.append("\t\t<tr>")
+                    .append("<td>").append(no).append("</td>")
+                    .append("<td>").append(begin.getRow()).append(":").append(begin.getColumn()).append("</td>")
+                    .append("<td>").append(end.getRow()).append(":").append(end.getColumn()).append("</td>")
+                    .append("<td>").append(end.getIndex() - begin.getIndex()).append("</td>")
+                    .append("<td>").append(type).append("</td>")
+                    .append("<td class=\"code\">");
+                for (int i = 0; i < token.length(); i++) {
+                    char c = token.charAt(i);
+                    if (c == '<') {
+                        row.append("&lt;");
+                    } else if (c == '>') {
+                        row.append("&gt;");
+                    } else {
+                        row.append(c);
+                    }
+                }
+                row.append("</td>")
+                    .append("<tr>\n");
+                break;
+            case MARKDOWN:
+                row.append("\n|").append(no)
+                    .append("|").append(begin.getRow()).append(":").append(begin.getColumn())
+                    .append("|").append(end.getRow()).append(":").append(end.getColumn())
+                    .append("|").append(end.getIndex() - begin.getIndex())
+                    .append("|").append(type)
+                    .append("|");
+                for (int i = 0; i < token.length(); i++) {
+                    char c = token.charAt(i);
+                    if (c == '|') {
+                        row.append("&verbar;");
+                    } else {
+                        row.append(c);
+                    }
+                }
+                row.append("|");
+                break;
+            default:
+                row.append("\n").append(no);
+                pad(FIRST_TAB);
+                row.append(begin.getRow()).append(":").append(begin.getColumn());
+                pad(SECOND_TAB);
+                row.append(end.getRow()).append(":").append(end.getColumn());
+                pad(THIRD_TAB);
+                row.append(end.getIndex() - begin.getIndex());
+                pad(FOURTH_TAB);
+                row.append(type);
+                pad(FIFTH_TAB);
+                row.append(token);
+                break;
+        }
+        out.append(row);
+        no++;
+    }
+
+    /**
+     * Append spaces to the row until it is longer than the tab.
+     *
+     * @param tab Length of the row to exceed.
+     */
+    private void pad(int tab) {
+        while (row.length() <= tab) {
+            row.append(" ");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Write the token as a row of the results.
+     *
+     * @throws UncheckedIOException If an I/O error occurs when writing.
+     */
+    @Override
+    public void onToken(Position begin, Position end, TokenType type, String token) {
+        try {
+            writeRow(begin, end, type, token);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the footer of the results, which should be called after all the rows are written,
+     * and flush the {@code Appendable} object if it is flushable.
+     *
+     * @throws IOException If an I/O error occurs when writing.
+     */
+    public void writeFooter() throws IOException {
+        if (format == Format.HTML) {
+            out.append(HTML_SUFFIX);
+        }
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+
+}
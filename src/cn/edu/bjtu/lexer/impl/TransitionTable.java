@@ -0,0 +1,139 @@
+package cn.edu.bjtu.lexer.impl;
+
+import cn.edu.bjtu.lexer.TokenType;
+
+/**
+ * A {@code TransitionTable} object is the minimal deterministic finite automaton compiled from a {@link TokenSpec}
+ * object, which is immutable and can be shared by any number of {@link DfaLexer} objects.
+ * <p>
+ * The characters are compressed into equivalence classes, i.e., the characters that no rule can tell apart
+ * share a class, so that the transitions are a flat {@code int[]} of states by classes.
+ * Internally, each state is stored as the offset of its row, i.e., the state number times the number of classes,
+ * so that a transition is a single lookup:
+ * <pre>
+ *     offset = next[offset + classes[c]];
+ * </pre>
+ * The state {@link TransitionTable#DEAD} has no way to accept any rule, and each state accepting a rule
+ * has the index of the rule in the spec, which is the first one in the spec when several rules accept.
+ */
+public final class TransitionTable {
+
+    /**
+     * The state which can accept nothing, whose transitions are all to itself.
+     */
+    public static final int DEAD = 0;
+
+    /**
+     * Class of each character.
+     */
+    final char[] classes;
+    final int classCount;
+    /**
+     * Transitions, where {@code next[offset + class]} is the offset of the next state.
+     */
+    final int[] next;
+    /**
+     * Index of the rule accepted by the state at each offset, or {@code -1} if the state accepts nothing.
+     */
+    final int[] rules;
+    /**
+     * Offset of the start state.
+     */
+    final int start;
+    /**
+     * Token type of each rule, or {@code null} if the matches of the rule are skipped.
+     */
+    private final TokenType[] types;
+    /**
+     * Whether the text of each rule is kept in the tokens.
+     */
+    private final boolean[] texts;
+
+    TransitionTable(char[] classes, int classCount, int[] next, int[] rules, int start, TokenType[] types, boolean[] texts) {
+        this.classes = classes;
+        this.classCount = classCount;
+        this.next = next;
+        this.rules = rules;
+        this.start = start;
+        this.types = types;
+        this.texts = texts;
+    }
+
+    /**
+     * Getter for the start state.
+     *
+     * @return The start state.
+     */
+    public int getStart() {
+        return start / classCount;
+    }
+
+    /**
+     * Get the next state after consuming a character.
+     *
+     * @param state The current state.
+     * @param c     The character.
+     * @return The next state, which is {@link TransitionTable#DEAD} if nothing can be accepted any more.
+     */
+    public int next(int state, char c) {
+        return next[state * classCount + classes[c]] / classCount;
+    }
+
+    /**
+     * Get the rule accepted by a state.
+     *
+     * @param state The state.
+     * @return Index of the rule in the spec, or {@code -1} if the state accepts nothing.
+     */
+    public int getRule(int state) {
+        return rules[state * classCount];
+    }
+
+    /**
+     * Get the token type of a rule.
+     *
+     * @param rule Index of the rule in the spec.
+     * @return The token type, or {@code null} if the matches of the rule are skipped.
+     */
+    public TokenType getTokenType(int rule) {
+        return types[rule];
+    }
+
+    /**
+     * Check if the text of a rule is kept in the tokens, otherwise the tokens are empty strings.
+     *
+     * @param rule Index of the rule in the spec.
+     * @return {@code true} if the text is kept.
+     */
+    public boolean isTextKept(int rule) {
+        return texts[rule];
+    }
+
+    /**
+     * Get the number of states, including {@link TransitionTable#DEAD}.
+     *
+     * @return Number of states.
+     */
+    public int getStateCount() {
+        return rules.length / classCount;
+    }
+
+    /**
+     * Get the number of equivalence classes of characters.
+     *
+     * @return Number of classes.
+     */
+    public int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * Get the number of rules of the spec.
+     *
+     * @return Number of rules.
+     */
+    public int getRuleCount() {
+        return types.length;
+    }
+
+}